@@ -0,0 +1,129 @@
+package net.seninp.gi.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.repair.NewRepair;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.gi.rulepruner.RulePruningAlgorithm;
+import net.seninp.gi.sequitur.SAXRule;
+import net.seninp.gi.sequitur.SequiturFactory;
+
+/**
+ * The grammar induction hot paths: the inference by both algorithms, the RePair rules expansion,
+ * the mapping of the rules onto the series, and the rules pruning. Run as
+ *
+ * <pre>
+ * mvn -P jmh package -DskipTests
+ * java -jar target/benchmarks.jar GrammarBenchmark -prof gc
+ * </pre>
+ *
+ * @author psenin
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class GrammarBenchmark {
+
+  /**
+   * The inferred grammars, built once per trial. The RePair expansion is repeatable, so it runs on
+   * the same grammar.
+   */
+  @State(Scope.Benchmark)
+  public static class Grammars {
+
+    public RePairGrammar repair;
+    public GrammarRules sequiturRules;
+    public GrammarRules repairRules;
+
+    @Setup
+    public void setUp(SeriesState input) throws Exception {
+      SAXRule sequitur = SequiturFactory.runSequitur(input.saxString);
+      sequiturRules = sequitur.toGrammarRulesData();
+      SequiturFactory.updateRuleIntervals(sequiturRules, input.saxData, true, input.ts,
+          input.window, input.paa);
+
+      repair = NewRepair.parse(input.saxString);
+      repair.expandRules();
+      RePairGrammar withIntervals = NewRepair.parse(input.saxString);
+      withIntervals.expandRules();
+      withIntervals.buildIntervals(input.saxData, input.ts, input.window);
+      repairRules = withIntervals.toGrammarRulesData();
+    }
+  }
+
+  /**
+   * An expanded RePair grammar without the intervals. The intervals are added to the rules, so the
+   * grammar is built anew for each invocation, which is fine as the intervals take milliseconds,
+   * but the -prof gc allocation figures include the grammar.
+   */
+  @State(Scope.Thread)
+  public static class ExpandedRePair {
+
+    public RePairGrammar grammar;
+
+    @Setup(Level.Invocation)
+    public void setUp(SeriesState input) {
+      grammar = NewRepair.parse(input.saxString);
+      grammar.expandRules();
+    }
+  }
+
+  @Benchmark
+  public RePairGrammar repairParse(SeriesState input) {
+    return NewRepair.parse(input.saxString);
+  }
+
+  @Benchmark
+  public SAXRule sequiturRun(SeriesState input) throws Exception {
+    return SequiturFactory.runSequitur(input.saxString);
+  }
+
+  @Benchmark
+  public RePairGrammar repairExpandRules(Grammars grammars) {
+    grammars.repair.expandRules();
+    return grammars.repair;
+  }
+
+  @Benchmark
+  public RePairGrammar repairBuildIntervals(SeriesState input, ExpandedRePair expanded) {
+    expanded.grammar.buildIntervals(input.saxData, input.ts, input.window);
+    return expanded.grammar;
+  }
+
+  @Benchmark
+  public GrammarRules sequiturUpdateRuleIntervals(SeriesState input, Grammars grammars) {
+    SequiturFactory.updateRuleIntervals(grammars.sequiturRules, input.saxData, true, input.ts,
+        input.window, input.paa);
+    return grammars.sequiturRules;
+  }
+
+  @Benchmark
+  public RulePruningAlgorithm pruneRepairRules(SeriesState input, Grammars grammars) {
+    RulePruningAlgorithm pruner = new RulePruningAlgorithm(grammars.repairRules, input.ts.length);
+    pruner.pruneRules();
+    return pruner;
+  }
+
+  @Benchmark
+  public RulePruningAlgorithm pruneSequiturRules(SeriesState input, Grammars grammars) {
+    RulePruningAlgorithm pruner = new RulePruningAlgorithm(grammars.sequiturRules,
+        input.ts.length);
+    pruner.pruneRules();
+    return pruner;
+  }
+
+}
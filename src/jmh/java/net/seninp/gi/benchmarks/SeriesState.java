@@ -0,0 +1,54 @@
+package net.seninp.gi.benchmarks;
+
+import java.util.Arrays;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * The benchmarks input: a prefix of a test data series and its discretization. The data folder is
+ * taken from the gi.data system property, src/resources/test-data by default, so the benchmarks are
+ * run from the project folder.
+ *
+ * @author psenin
+ *
+ */
+@State(Scope.Benchmark)
+public class SeriesState {
+
+  @Param({ "300_signal1" })
+  public String dataset;
+
+  @Param({ "5000", "20000", "80000" })
+  public int length;
+
+  @Param({ "100" })
+  public int window;
+
+  @Param({ "4" })
+  public int paa;
+
+  @Param({ "4", "6" })
+  public int alphabet;
+
+  public double[] ts;
+  public SAXRecords saxData;
+  public String saxString;
+
+  @Setup
+  public void setUp() throws Exception {
+    String folder = System.getProperty("gi.data", "src/resources/test-data");
+    double[] series = TSProcessor.readFileColumn(folder + "/" + dataset + ".txt", 0, 0);
+    ts = Arrays.copyOf(series, Math.min(length, series.length));
+    saxData = new SAXProcessor().ts2saxViaWindow(ts, window, paa,
+        new NormalAlphabet().getCuts(alphabet), NumerosityReductionStrategy.EXACT, 0.01);
+    saxString = saxData.getSAXString(" ");
+  }
+
+}
@@ -0,0 +1,75 @@
+package net.seninp.gi.clusterrule;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import net.seninp.gi.benchmarks.SeriesState;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.logic.SameLengthMotifs;
+import net.seninp.gi.sequitur.SequiturFactory;
+
+/**
+ * The clustering of the same length motifs, the distance matrices mostly. It lives in the
+ * clusterrule package to reach the RuleOrganizer steps. Run as
+ *
+ * <pre>
+ * mvn -P jmh package -DskipTests
+ * java -jar target/benchmarks.jar RuleOrganizerBenchmark -p length=5000,20000 -prof gc
+ * </pre>
+ *
+ * @author psenin
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class RuleOrganizerBenchmark {
+
+  private static final double THRESHOLD_LENGTH = 0.1;
+  private static final double THRESHOLD_COM = 0.5;
+  private static final double FRACTION_TOP_DIST = 0.67;
+
+  /**
+   * The Sequitur rules classified and cleaned of the overlaps, as the clustering gets them.
+   */
+  @State(Scope.Benchmark)
+  public static class Motifs {
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    public RuleOrganizer organizer;
+    public GrammarRules rules;
+    public ArrayList<SameLengthMotifs> classified;
+
+    @Setup
+    public void setUp(SeriesState input) throws Exception {
+      rules = SequiturFactory.runSequitur(input.saxString).toGrammarRulesData();
+      SequiturFactory.updateRuleIntervals(rules, input.saxData, true, input.ts, input.window,
+          input.paa);
+      organizer = new RuleOrganizer(threads);
+      classified = organizer.removeOverlappingInSimiliar(
+          organizer.classifyMotifs(THRESHOLD_LENGTH, rules), rules, input.ts, THRESHOLD_COM);
+    }
+  }
+
+  @Benchmark
+  public ArrayList<SameLengthMotifs> refinePatternsByClustering(SeriesState input,
+      Motifs motifs) {
+    return motifs.organizer.refinePatternsByClustering(motifs.rules, input.ts, motifs.classified,
+        FRACTION_TOP_DIST);
+  }
+
+}
@@ -0,0 +1,282 @@
+package net.seninp.gi;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the tasks on an executor, at most a bounded number of them submitted at a time, thus a large
+ * batch does not flood the executor queue, and delivers their outcomes in the calling thread as
+ * they finish. A task which runs longer than the timeout is interrupted. The timeouts, and the
+ * other checks the tasks schedule, are kept by a single daemon watchdog thread created on the first
+ * use and kept till the shutdown; the alarms of the finished tasks are removed from its queue.
+ *
+ * @author psenin
+ *
+ */
+public class BoundedTaskRunner {
+
+  // the logger
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(BoundedTaskRunner.class);
+
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final int maxInFlight;
+  private final String watchdogName;
+
+  private long timeoutNanos;
+
+  /** Interrupts the tasks which run out of time, created once needed and kept till shutdown. */
+  private ScheduledExecutorService watchdog;
+
+  /**
+   * Receives the outcomes of the tasks, in the calling thread.
+   *
+   * @param <T> the tasks result type.
+   */
+  public interface Listener<T> {
+
+    /**
+     * Called once a task is done.
+     *
+     * @param index the task index, i.e., its position in the submission order.
+     * @param result the task result, null if the task was cancelled before it started.
+     */
+    void taskDone(int index, T result);
+
+    /**
+     * Called once a task has failed with an exception.
+     *
+     * @param index the task index.
+     * @param cause the exception.
+     */
+    void taskFailed(int index, Throwable cause);
+  }
+
+  /**
+   * A task which can be interrupted by the runner once it is out of time, or by the caller.
+   *
+   * @param <T> the task result type.
+   */
+  public abstract static class Task<T> implements Callable<T> {
+
+    private Thread runner;
+    private boolean cancelled;
+    private boolean interrupted;
+
+    /**
+     * Interrupts the task if it is running, or prevents it from starting.
+     */
+    public synchronized void cancel() {
+      this.cancelled = true;
+      if (null != this.runner) {
+        this.interrupted = true;
+        this.runner.interrupt();
+      }
+    }
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param executor the executor to use.
+   * @param maxInFlight the maximal number of tasks submitted to the executor at a time.
+   * @param ownsExecutor true if the executor is to be shut down with the runner.
+   * @param watchdogName the watchdog thread name.
+   */
+  public BoundedTaskRunner(ExecutorService executor, int maxInFlight, boolean ownsExecutor,
+      String watchdogName) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("At least one task shall be in flight: " + maxInFlight);
+    }
+    this.executor = executor;
+    this.maxInFlight = maxInFlight;
+    this.ownsExecutor = ownsExecutor;
+    this.watchdogName = watchdogName;
+  }
+
+  /**
+   * Sets the per-task timeout, a non-positive value disables it.
+   *
+   * @param timeout the timeout.
+   * @param unit the timeout unit.
+   */
+  public void setTimeout(long timeout, TimeUnit unit) {
+    this.timeoutNanos = unit.toNanos(timeout);
+  }
+
+  /**
+   * Runs the tasks, taking the next one from the iterator once there is room for it.
+   *
+   * @param tasks the tasks.
+   * @param listener receives the outcomes.
+   * @param <T> the tasks result type.
+   * @throws InterruptedException if the calling thread was interrupted, the running tasks are
+   * interrupted too.
+   */
+  public <T> void run(Iterator<? extends Task<T>> tasks, Listener<T> listener)
+      throws InterruptedException {
+
+    BlockingQueue<TaskFuture<T>> completed = new LinkedBlockingQueue<TaskFuture<T>>();
+    HashSet<TaskFuture<T>> inFlight = new HashSet<TaskFuture<T>>();
+
+    try {
+
+      int submitted = 0;
+      while (true) {
+
+        // keep the executor busy, but not flooded
+        //
+        while (tasks.hasNext() && inFlight.size() < this.maxInFlight) {
+          final Task<T> task = tasks.next();
+          TaskFuture<T> f = new TaskFuture<T>(submitted++, task, new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+              return runTask(task);
+            }
+          }, completed);
+          inFlight.add(f);
+          this.executor.execute(f);
+        }
+        if (inFlight.isEmpty()) {
+          break;
+        }
+
+        TaskFuture<T> f = completed.take();
+        inFlight.remove(f);
+        T result;
+        try {
+          result = f.get();
+        }
+        catch (ExecutionException e) {
+          listener.taskFailed(f.index, e.getCause());
+          continue;
+        }
+        listener.taskDone(f.index, result);
+      }
+
+    }
+    catch (InterruptedException e) {
+      for (TaskFuture<T> f : inFlight) {
+        f.task.cancel();
+        f.cancel(false);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Gets the watchdog, creating it on the first use, its thread is a daemon one. The tasks may
+   * schedule their own checks on it, which must be cancelled once the task is done.
+   *
+   * @return the watchdog.
+   */
+  public synchronized ScheduledExecutorService getWatchdog() {
+    if (null == this.watchdog) {
+      ScheduledThreadPoolExecutor res = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, watchdogName);
+          t.setDaemon(true);
+          return t;
+        }
+      });
+      // the alarms of the finished tasks are cancelled, they must not pile up in the queue
+      //
+      res.setRemoveOnCancelPolicy(true);
+      this.watchdog = res;
+    }
+    return this.watchdog;
+  }
+
+  /**
+   * Shuts down the watchdog, and the executor if the runner owns it.
+   */
+  public synchronized void shutdown() {
+    if (null != this.watchdog) {
+      this.watchdog.shutdownNow();
+      this.watchdog = null;
+    }
+    if (this.ownsExecutor) {
+      this.executor.shutdown();
+    }
+  }
+
+  /**
+   * Runs the task in the current thread, interrupting it when runs out of time.
+   */
+  private <T> T runTask(final Task<T> task) throws Exception {
+
+    synchronized (task) {
+      if (task.cancelled) {
+        return null;
+      }
+      task.runner = Thread.currentThread();
+    }
+
+    ScheduledFuture<?> alarm = null;
+    if (this.timeoutNanos > 0) {
+      alarm = getWatchdog().schedule(new Runnable() {
+        @Override
+        public void run() {
+          task.cancel();
+        }
+      }, this.timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    try {
+      return task.call();
+    }
+    finally {
+      if (null != alarm) {
+        alarm.cancel(false);
+      }
+      synchronized (task) {
+        task.runner = null;
+        // the pool thread must not stay interrupted by us once the task is done
+        //
+        if (task.interrupted) {
+          Thread.interrupted();
+          LOGGER.info("{} timed out or cancelled", task);
+        }
+      }
+    }
+  }
+
+  /**
+   * The task future which knows its index and queues itself once done.
+   */
+  private static final class TaskFuture<T> extends FutureTask<T> {
+
+    private final int index;
+    private final Task<T> task;
+    private final BlockingQueue<TaskFuture<T>> completed;
+
+    private TaskFuture(int index, Task<T> task, Callable<T> callable,
+        BlockingQueue<TaskFuture<T>> completed) {
+      super(callable);
+      this.index = index;
+      this.task = task;
+      this.completed = completed;
+    }
+
+    @Override
+    protected void done() {
+      this.completed.add(this);
+    }
+  }
+
+}
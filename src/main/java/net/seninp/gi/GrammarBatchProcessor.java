@@ -0,0 +1,386 @@
+package net.seninp.gi;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.repair.RePairFactory;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.gi.sequitur.SAXRule;
+import net.seninp.gi.sequitur.SequiturFactory;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Infers the grammars of many independent time series concurrently, discretizing each series with
+ * the same parameters. Both Sequitur and RePair keep their state per run, so the series run on an
+ * executor with a {@link BoundedTaskRunner}, at most a bounded number of them submitted at a time,
+ * thus a large batch does not flood the executor queue. The results and the progress are delivered
+ * in the calling thread.
+ *
+ * A series which runs longer than the timeout, or allocates more than the memory limit, is
+ * interrupted and gets a null grammar, the limits are off by default. Sequitur and RePair check for
+ * the interrupt as they go, thus stop shortly, while the discretization runs to its end. The
+ * allocations are sampled periodically and at the stage boundaries, so the memory limit is a soft
+ * one: a series may overshoot it by what it allocates in between, and a single series which needs
+ * more than the heap still fails the JVM. The limits are kept by a single watchdog thread, created
+ * on the first use and kept till the shutdown.
+ *
+ * @author psenin
+ *
+ */
+public class GrammarBatchProcessor {
+
+  // the logger
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(GrammarBatchProcessor.class);
+
+  /** The number of series submitted at a time per thread of the own pool. */
+  private static final int IN_FLIGHT_PER_THREAD = 2;
+
+  /** The period of sampling the allocations of a running series, in milliseconds. */
+  private static final long MEMORY_CHECK_PERIOD = 10;
+
+  private final BoundedTaskRunner runner;
+
+  private long memoryLimit;
+
+  private int timedOutCount;
+  private int overLimitCount;
+  private int failedCount;
+
+  /**
+   * Receives the batch progress.
+   */
+  public interface ProgressListener {
+
+    /**
+     * Called in the calling thread once a series is done, succeeded or not.
+     *
+     * @param index the series index in the batch.
+     * @param rules the series grammar, null if the series failed or exceeded a limit.
+     * @param done the number of series done so far.
+     * @param total the batch size.
+     */
+    void seriesDone(int index, GrammarRules rules, int done, int total);
+  }
+
+  /**
+   * Constructor, the processor runs the series on its own pool of the specified size.
+   *
+   * @param threadsNum the number of threads to use.
+   */
+  public GrammarBatchProcessor(int threadsNum) {
+    this(new ForkJoinPool(threadsNum), threadsNum * IN_FLIGHT_PER_THREAD, true);
+  }
+
+  /**
+   * Constructor, the processor runs the series on the specified executor which remains owned by
+   * the caller.
+   *
+   * @param executor the executor to use.
+   * @param maxInFlight the maximal number of series submitted to the executor at a time.
+   */
+  public GrammarBatchProcessor(ExecutorService executor, int maxInFlight) {
+    this(executor, maxInFlight, false);
+  }
+
+  private GrammarBatchProcessor(ExecutorService executor, int maxInFlight, boolean ownsExecutor) {
+    this.runner = new BoundedTaskRunner(executor, maxInFlight, ownsExecutor,
+        "grammar-batch-watchdog");
+  }
+
+  /**
+   * Sets the per-series timeout, a non-positive value disables it.
+   *
+   * @param timeout the timeout.
+   * @param unit the timeout unit.
+   */
+  public void setTimeout(long timeout, TimeUnit unit) {
+    this.runner.setTimeout(timeout, unit);
+  }
+
+  /**
+   * Sets the per-series soft memory limit, i.e., the bytes a series may allocate while processed,
+   * which bounds its footprint from above; these are sampled every few milliseconds. A
+   * non-positive value disables it, as well as a JVM which doesn't track the threads allocations.
+   *
+   * @param bytes the limit in bytes.
+   */
+  public void setMemoryLimit(long bytes) {
+    this.memoryLimit = bytes;
+  }
+
+  /**
+   * Infers the grammars of the series.
+   *
+   * @param series the time series.
+   * @param giAlgorithm the GI algorithm to use.
+   * @param windowSize the SAX sliding window size.
+   * @param paaSize the SAX PAA size.
+   * @param alphabetSize the SAX alphabet size.
+   * @param nrStrategy the numerosity reduction strategy.
+   * @param nThreshold the normalization threshold.
+   * @param listener receives the progress, may be null.
+   * @return the grammars in the order of the series, the failed series get a null.
+   * @throws InterruptedException if the calling thread was interrupted, the running series are
+   * interrupted too.
+   */
+  public ArrayList<GrammarRules> process(List<double[]> series, GIAlgorithm giAlgorithm,
+      int windowSize, int paaSize, int alphabetSize, NumerosityReductionStrategy nrStrategy,
+      double nThreshold, ProgressListener listener) throws InterruptedException {
+
+    this.timedOutCount = 0;
+    this.overLimitCount = 0;
+    this.failedCount = 0;
+
+    final ArrayList<GrammarRules> res = new ArrayList<GrammarRules>(series.size());
+    for (int i = 0; i < series.size(); i++) {
+      res.add(null);
+    }
+
+    final Iterator<double[]> it = series.iterator();
+    Iterator<SeriesTask> tasks = new Iterator<SeriesTask>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public SeriesTask next() {
+        return new SeriesTask(this.index++, it.next(), giAlgorithm, windowSize, paaSize,
+            alphabetSize, nrStrategy, nThreshold);
+      }
+    };
+
+    final int total = series.size();
+    this.runner.run(tasks, new BoundedTaskRunner.Listener<SeriesTask>() {
+      private int done = 0;
+
+      @Override
+      public void taskDone(int index, SeriesTask task) {
+        if (null != task && task.overLimit) {
+          overLimitCount++;
+        }
+        else if (null == task || null == task.rules) {
+          timedOutCount++;
+        }
+        else {
+          res.set(index, task.rules);
+        }
+        progress(index);
+      }
+
+      @Override
+      public void taskFailed(int index, Throwable cause) {
+        failedCount++;
+        LOGGER.error("failed to infer the grammar of the series " + index, cause);
+        progress(index);
+      }
+
+      private void progress(int index) {
+        this.done++;
+        if (null != listener) {
+          listener.seriesDone(index, res.get(index), this.done, total);
+        }
+      }
+    });
+
+    return res;
+  }
+
+  /**
+   * Gets the number of series which timed out, or were interrupted, during the last batch.
+   *
+   * @return the number of timed out series.
+   */
+  public int getTimedOutCount() {
+    return this.timedOutCount;
+  }
+
+  /**
+   * Gets the number of series which exceeded the memory limit during the last batch.
+   *
+   * @return the number of series over the limit.
+   */
+  public int getOverLimitCount() {
+    return this.overLimitCount;
+  }
+
+  /**
+   * Gets the number of series which failed with an exception during the last batch.
+   *
+   * @return the number of failed series.
+   */
+  public int getFailedCount() {
+    return this.failedCount;
+  }
+
+  /**
+   * Shuts down the watchdog, and the pool if the processor has created it.
+   */
+  public void shutdown() {
+    this.runner.shutdown();
+  }
+
+  /**
+   * Infers a single series grammar, interrupting itself when runs over the memory limit.
+   */
+  private class SeriesTask extends BoundedTaskRunner.Task<SeriesTask> {
+
+    private final int index;
+    private final double[] ts;
+    private final GIAlgorithm giAlgorithm;
+    private final int windowSize;
+    private final int paaSize;
+    private final int alphabetSize;
+    private final NumerosityReductionStrategy nrStrategy;
+    private final double nThreshold;
+
+    private GrammarRules rules;
+    private boolean overLimit;
+    private long startBytes;
+
+    public SeriesTask(int index, double[] ts, GIAlgorithm giAlgorithm, int windowSize,
+        int paaSize, int alphabetSize, NumerosityReductionStrategy nrStrategy, double nThreshold) {
+      this.index = index;
+      this.ts = ts;
+      this.giAlgorithm = giAlgorithm;
+      this.windowSize = windowSize;
+      this.paaSize = paaSize;
+      this.alphabetSize = alphabetSize;
+      this.nrStrategy = nrStrategy;
+      this.nThreshold = nThreshold;
+    }
+
+    @Override
+    public SeriesTask call() throws Exception {
+
+      this.startBytes = GIMetrics.getAllocatedBytes();
+
+      ScheduledFuture<?> meter = null;
+      if (memoryLimit > 0 && this.startBytes >= 0) {
+        final Thread thread = Thread.currentThread();
+        meter = runner.getWatchdog().scheduleWithFixedDelay(new Runnable() {
+          @Override
+          public void run() {
+            if (GIMetrics.getAllocatedBytes(thread) - startBytes > memoryLimit) {
+              exceedMemoryLimit();
+            }
+          }
+        }, MEMORY_CHECK_PERIOD, MEMORY_CHECK_PERIOD, TimeUnit.MILLISECONDS);
+      }
+
+      try {
+        this.rules = infer();
+        return this;
+      }
+      catch (CancellationException e) {
+        this.rules = null;
+        return this;
+      }
+      finally {
+        if (null != meter) {
+          meter.cancel(false);
+        }
+      }
+    }
+
+    /**
+     * Discretizes the series and infers its grammar, checking the limits between the stages too.
+     *
+     * @return the grammar, or null if a limit was exceeded.
+     * @throws CancellationException if the inference was interrupted.
+     */
+    private GrammarRules infer() {
+
+      SAXProcessor sp = new SAXProcessor();
+      NormalAlphabet na = new NormalAlphabet();
+
+      SAXRecords saxData;
+      try {
+        saxData = sp.ts2saxViaWindow(this.ts, this.windowSize, this.paaSize,
+            na.getCuts(this.alphabetSize), this.nrStrategy, this.nThreshold);
+      }
+      catch (Exception e) {
+        throw new IllegalArgumentException("unable to discretize the series " + this.index, e);
+      }
+      if (isOverLimits()) {
+        return null;
+      }
+
+      GrammarRules res;
+      if (GIAlgorithm.SEQUITUR.equals(this.giAlgorithm)) {
+        SAXRule r = SequiturFactory.runSequitur(saxData);
+        if (isOverLimits()) {
+          return null;
+        }
+        res = r.toGrammarRulesData();
+        if (isOverLimits()) {
+          return null;
+        }
+        SequiturFactory.updateRuleIntervals(res, saxData, true, this.ts, this.windowSize,
+            this.paaSize);
+      }
+      else {
+        RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
+        if (isOverLimits()) {
+          return null;
+        }
+        grammar.expandRules();
+        grammar.buildIntervals(saxData, this.ts, this.windowSize);
+        if (isOverLimits()) {
+          return null;
+        }
+        res = grammar.toGrammarRulesData();
+      }
+      return isOverLimits() ? null : res;
+    }
+
+    /**
+     * Checks whether the series is to be given up, i.e., interrupted or over the memory limit.
+     *
+     * @return true if the series is to be given up.
+     */
+    private boolean isOverLimits() {
+      if (Thread.currentThread().isInterrupted()) {
+        return true;
+      }
+      if (memoryLimit > 0 && this.startBytes >= 0
+          && GIMetrics.getAllocatedBytes() - this.startBytes > memoryLimit) {
+        exceedMemoryLimit();
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Marks the series over the memory limit and interrupts it.
+     */
+    private synchronized void exceedMemoryLimit() {
+      if (!this.overLimit) {
+        this.overLimit = true;
+        LOGGER.info("series {} exceeded the memory limit of {} bytes", this.index, memoryLimit);
+      }
+      cancel();
+    }
+
+    @Override
+    public String toString() {
+      return "series " + this.index;
+    }
+  }
+
+}
@@ -14,6 +14,7 @@ import net.seninp.gi.GIAlgorithm;
 import net.seninp.gi.logic.GIUtils;
 import net.seninp.gi.logic.GrammarRuleRecord;
 import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.logic.GrammarWriter;
 import net.seninp.gi.logic.RuleInterval;
 import net.seninp.gi.repair.RePairFactory;
 import net.seninp.gi.repair.RePairGrammar;
@@ -55,6 +56,10 @@ public class TS2Grammar {
 
     sb.append("  input file:                  ").append(TS2GrammarParameters.IN_FILE).append(CR);
     sb.append("  output file:                 ").append(TS2GrammarParameters.OUT_FILE).append(CR);
+    if (null != TS2GrammarParameters.GRAMMAR_OUT_FILE) {
+      sb.append("  binary grammar file:         ").append(TS2GrammarParameters.GRAMMAR_OUT_FILE)
+          .append(CR);
+    }
 
     sb.append("  SAX sliding window size:     ").append(TS2GrammarParameters.SAX_WINDOW_SIZE)
         .append(CR);
@@ -86,26 +91,31 @@ public class TS2Grammar {
         TS2GrammarParameters.SAX_PAA_SIZE, na.getCuts(TS2GrammarParameters.SAX_ALPHABET_SIZE),
         TS2GrammarParameters.SAX_NR_STRATEGY, TS2GrammarParameters.SAX_NORM_THRESHOLD);
 
-    String discretizedTS = saxData.getSAXString(" ");
-
     // infer the grammar
     //
     GrammarRules rules = new GrammarRules();
     if (GIAlgorithm.SEQUITUR == TS2GrammarParameters.GI_ALGORITHM_IMPLEMENTATION) {
       LOGGER.info("Inferring Sequitur grammar ...");
-      SAXRule grammar = SequiturFactory.runSequitur(discretizedTS);
+      SAXRule grammar = SequiturFactory.runSequitur(saxData);
       rules = grammar.toGrammarRulesData();
       SequiturFactory.updateRuleIntervals(rules, saxData, true, series,
           TS2GrammarParameters.SAX_WINDOW_SIZE, TS2GrammarParameters.SAX_PAA_SIZE);
     }
     else if (GIAlgorithm.REPAIR == TS2GrammarParameters.GI_ALGORITHM_IMPLEMENTATION) {
       LOGGER.info("Inferring RePair grammar ...");
-      RePairGrammar grammar = RePairFactory.buildGrammar(discretizedTS);
+      RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
       grammar.expandRules();
       grammar.buildIntervals(saxData, series, TS2GrammarParameters.SAX_WINDOW_SIZE);
       rules = grammar.toGrammarRulesData();
     }
 
+    // save the grammar
+    //
+    if (null != TS2GrammarParameters.GRAMMAR_OUT_FILE) {
+      LOGGER.info("Writing the binary grammar ...");
+      GrammarWriter.write(rules, new File(TS2GrammarParameters.GRAMMAR_OUT_FILE));
+    }
+
     // collect stats
     //
     LOGGER.info("Collecting stats ...");
@@ -143,7 +153,7 @@ public class TS2Grammar {
           .append("\', expanded rule string: \'").append(ruleRecord.getExpandedRuleString())
           .append("\'").append(CR);
 
-      if (!ruleRecord.getOccurrences().isEmpty()) {
+      if (!ruleRecord.getOccurrenceList().isEmpty()) {
 
         ArrayList<RuleInterval> intervals = ruleRecord.getRuleIntervals();
         int[] starts = new int[intervals.size()];
@@ -157,7 +167,8 @@ public class TS2Grammar {
         sb.append("subsequence lengths: ").append(Arrays.toString(lengths)).append(CR);
       }
 
-      sb.append("rule occurrence frequency ").append(ruleRecord.getOccurrences().size()).append(CR);
+      sb.append("rule occurrence frequency ").append(ruleRecord.getOccurrenceList().size())
+          .append(CR);
       sb.append("rule use frequency ").append(ruleRecord.getRuleUseFrequency()).append(CR);
       sb.append("min length ").append(ruleRecord.minMaxLengthAsString().split(" - ")[0]).append(CR);
       sb.append("max length ").append(ruleRecord.minMaxLengthAsString().split(" - ")[1]).append(CR);
@@ -29,6 +29,9 @@ public class TS2GrammarParameters {
   @Parameter(names = { "--data_out", "-o" }, description = "The output file name")
   public static String OUT_FILE;
 
+  @Parameter(names = { "--grammar_out", "-b" }, description = "The binary grammar output file name")
+  public static String GRAMMAR_OUT_FILE;
+
   // GI parameter
   //
   @Parameter(names = { "--gi", "-g" }, description = "GI algorithm to use")
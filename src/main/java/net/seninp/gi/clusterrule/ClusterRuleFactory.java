@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import net.seninp.gi.logic.GrammarRules;
 import net.seninp.gi.logic.PackedRuleRecord;
 import net.seninp.gi.logic.SameLengthMotifs;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.metrics.GIMetrics.StageTimer;
+import net.seninp.gi.metrics.PipelineStage;
 
 public class ClusterRuleFactory {
 
@@ -20,8 +23,26 @@ public class ClusterRuleFactory {
    */
   public static ArrayList<SameLengthMotifs> performPruning(double[] ts, GrammarRules grammarRules,
       double thresholdLength, double thresholdCom, double fractionTopDist) {
+    return performPruning(ts, grammarRules, thresholdLength, thresholdCom, fractionTopDist, 1);
+  }
+
+  /**
+   * Performs clustering, computing the distance matrices in parallel.
+   * 
+   * @param ts the input time series.
+   * @param grammarRules the grammar.
+   * @param thresholdLength a parameter.
+   * @param thresholdCom another parameter.
+   * @param fractionTopDist yet another parameter.
+   * @param threadsNum the number of threads computing the distance matrices.
+   * 
+   * @return pruned ruleset.
+   */
+  public static ArrayList<SameLengthMotifs> performPruning(double[] ts, GrammarRules grammarRules,
+      double thresholdLength, double thresholdCom, double fractionTopDist, int threadsNum) {
 
-    RuleOrganizer ro = new RuleOrganizer();
+    StageTimer timer = GIMetrics.start(PipelineStage.CLUSTERING);
+    RuleOrganizer ro = new RuleOrganizer(threadsNum);
 
     ArrayList<SameLengthMotifs> allClassifiedMotifs = ro.classifyMotifs(thresholdLength,
         grammarRules);
@@ -32,6 +53,10 @@ public class ClusterRuleFactory {
     ArrayList<SameLengthMotifs> newAllClassifiedMotifs = ro.refinePatternsByClustering(grammarRules,
         ts, allClassifiedMotifs, fractionTopDist);
 
+    timer.record(GIMetrics.RULES, grammarRules.size());
+    timer.record(GIMetrics.MOTIF_GROUPS, newAllClassifiedMotifs.size());
+    timer.stop();
+
     return newAllClassifiedMotifs;
   }
 
@@ -1,44 +1,160 @@
 package net.seninp.gi.clusterrule;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import net.seninp.gi.logic.SAXMotif;
+import net.seninp.gi.logic.SameLengthMotifs;
 
 public class DistanceComputation {
 
+  /** The distance to a series shorter than the pattern. */
+  private static final double INF = 10000000000000000000f;
+
+  /**
+   * The direct scan is taken while its multiplications count doesn't exceed the FFT length times
+   * its logarithm times this factor.
+   */
+  private static final int FFT_COST_FACTOR = 32;
+
+  /** The relative rounding error of the distance profile squared distances. */
+  private static final double ROUNDING_ERROR = 1.0E-12;
+
   /**
-   * Calculating the distance between time series and pattern.
+   * Calculating the distance between time series and pattern, that is the smallest normalized
+   * Euclidean distance between the pattern and a window of the series. Few windows are scanned
+   * directly with early abandoning, many via the distance profile.
    * 
    * @param ts a series of points for time series.
    * @param pValue a series of points for pattern.
    * @return the distance value.
    */
   protected double calcDistTSAndPattern(double[] ts, double[] pValue) {
-    double INF = 10000000000000000000f;
-    double bestDist = INF;
+    return calcDistTSAndPattern(ts, pValue, null);
+  }
+
+  /**
+   * Calculating the distance between time series and pattern, with the pattern's abandoning order
+   * computed in advance, as when the pattern is matched against many series.
+   * 
+   * @param ts a series of points for time series.
+   * @param pValue a series of points for pattern.
+   * @param order the pattern's abandoning order, null to compute it when needed.
+   * @return the distance value.
+   * 
+   * @see #getAbandoningOrder(double[])
+   */
+  protected double calcDistTSAndPattern(double[] ts, double[] pValue, int[] order) {
     int patternLen = pValue.length;
 
     int lastStartP = ts.length - pValue.length + 1;
     if (lastStartP < 1)
-      return bestDist;
+      return INF;
 
-    Random rand = new Random();
-    int startP = rand.nextInt((lastStartP - 1 - 0) + 1);
+    if (!isDirectScanCheaper(ts.length, patternLen)) {
+      double bestDist = INF;
+      for (double d : distanceProfile(ts, pValue)) {
+        bestDist = Math.min(bestDist, d);
+      }
+      return bestDist;
+    }
 
-    double[] slidingWindow = new double[patternLen];
+    double bestDist = squaredDistance(ts, 0, pValue);
+    if (lastStartP > 1 && null == order) {
+      order = getAbandoningOrder(pValue);
+    }
 
-    System.arraycopy(ts, startP, slidingWindow, 0, patternLen);
-    bestDist = eculideanDistNorm(pValue, slidingWindow);
+    // the windows surviving the abandoning are summed up again in the natural order, so the
+    // result doesn't depend on the abandoning order
+    //
+    for (int i = 1; i < lastStartP; i++) {
+      double tempDist = squaredDistanceEAbandon(ts, i, pValue, order, bestDist);
+      if (tempDist < bestDist) {
+        bestDist = Math.min(bestDist, squaredDistance(ts, i, pValue));
+      }
+    }
 
-    for (int i = 0; i < lastStartP; i++) {
-      System.arraycopy(ts, i, slidingWindow, 0, patternLen);
+    return Math.sqrt(bestDist) / patternLen;
+  }
 
-      double tempDist = eculideanDistNormEAbandon(pValue, slidingWindow, bestDist);
+  /**
+   * Orders the pattern points for the early abandoning, the ones farthest from the pattern mean
+   * first, as these are expected to add the most to a distance. This is the UCR Suite reordering,
+   * with the deviation from the mean in place of the z-normalized value.
+   * 
+   * @param pattern the pattern.
+   * @return the pattern indices in the abandoning order.
+   */
+  public static int[] getAbandoningOrder(double[] pattern) {
+    double mean = 0;
+    for (double v : pattern) {
+      mean += v;
+    }
+    mean = (0 == pattern.length) ? 0 : mean / pattern.length;
 
-      if (tempDist < bestDist) {
-        bestDist = tempDist;
+    final double[] deviation = new double[pattern.length];
+    Integer[] indices = new Integer[pattern.length];
+    for (int i = 0; i < pattern.length; i++) {
+      deviation[i] = Math.abs(pattern[i] - mean);
+      indices[i] = i;
+    }
+    Arrays.sort(indices, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        int res = Double.compare(deviation[b], deviation[a]);
+        return (0 != res) ? res : Integer.compare(a, b);
       }
+    });
+
+    int[] res = new int[pattern.length];
+    for (int i = 0; i < res.length; i++) {
+      res[i] = indices[i];
+    }
+    return res;
+  }
+
+  /**
+   * Squared Euclidean distance between the pattern and the series window, without copying the
+   * window.
+   * 
+   * @param ts the series.
+   * @param offset the window start.
+   * @param pattern the pattern.
+   * @return the squared distance.
+   */
+  public double squaredDistance(double[] ts, int offset, double[] pattern) {
+    double dist = 0;
+    for (int i = 0; i < pattern.length; i++) {
+      double diff = pattern[i] - ts[offset + i];
+      dist += diff * diff;
     }
+    return dist;
+  }
 
-    return bestDist;
+  /**
+   * Early abandoned squared Euclidean distance between the pattern and the series window, summed
+   * up in the specified order of the pattern points.
+   * 
+   * @param ts the series.
+   * @param offset the window start.
+   * @param pattern the pattern.
+   * @param order the pattern indices in the order of summation.
+   * @param bsfDist the squared distance to abandon at.
+   * @return the squared distance, or Double.NaN if it exceeds the bsfDist.
+   */
+  public double squaredDistanceEAbandon(double[] ts, int offset, double[] pattern, int[] order,
+      double bsfDist) {
+    double dist = 0;
+    for (int i = 0; i < order.length; i++) {
+      int j = order[i];
+      double diff = pattern[j] - ts[offset + j];
+      dist += diff * diff;
+      if (dist > bsfDist) {
+        return Double.NaN;
+      }
+    }
+    return dist;
   }
 
   /**
@@ -50,14 +166,14 @@ public class DistanceComputation {
    * @return the distance value.
    */
   protected double eculideanDistNormEAbandon(double[] ts1, double[] ts2, double bsfDist) {
-    double dist = 0;
     double tsLen = ts1.length;
+    double bsf = tsLen * bsfDist;
+    bsf *= bsf;
 
-    double bsf = Math.pow(tsLen * bsfDist, 2);
-
+    double dist = 0;
     for (int i = 0; i < ts1.length; i++) {
       double diff = ts1[i] - ts2[i];
-      dist += Math.pow(diff, 2);
+      dist += diff * diff;
 
       if (dist > bsf)
         return Double.NaN;
@@ -74,15 +190,131 @@ public class DistanceComputation {
    * @return the distance value.
    */
   protected double eculideanDistNorm(double[] ts1, double[] ts2) {
-    double dist = 0;
-    double tsLen = ts1.length;
+    return Math.sqrt(squaredDistance(ts2, 0, ts1)) / ts1.length;
+  }
 
-    for (int i = 0; i < ts1.length; i++) {
-      double diff = ts1[i] - ts2[i];
-      dist += Math.pow(diff, 2);
+  /**
+   * Computes the distance profile of the pattern, MASS-style: the normalized Euclidean distances
+   * between the pattern and all the series windows, in O(n log n) via the FFT cross-correlation and
+   * the running sums of squares. The distances are exact up to the rounding.
+   * 
+   * @param ts the time series.
+   * @param pattern the pattern, not empty.
+   * @return the distance per window start, empty if the pattern is longer than the series.
+   */
+  public double[] distanceProfile(double[] ts, double[] pattern) {
+    return new SeriesSpectrum(ts).getProfile(pattern);
+  }
+
+  /**
+   * Computes the distance profiles of the patterns, transforming the series once for them all.
+   * 
+   * @param ts the time series.
+   * @param patterns the patterns, not empty.
+   * @return the distance profiles in the order of the patterns.
+   */
+  public double[][] distanceProfiles(double[] ts, List<double[]> patterns) {
+    SeriesSpectrum spectrum = new SeriesSpectrum(ts);
+    double[][] res = new double[patterns.size()][];
+    for (int i = 0; i < res.length; i++) {
+      res[i] = spectrum.getProfile(patterns.get(i));
     }
+    return res;
+  }
 
-    return Math.sqrt(dist) / tsLen;
+  /**
+   * Computes the distance profiles of the motifs group subsequences against the whole series.
+   * 
+   * @param ts the time series.
+   * @param motifs the motifs group.
+   * @return the distance profiles in the order of the motifs.
+   */
+  public double[][] distanceProfiles(double[] ts, SameLengthMotifs motifs) {
+    List<double[]> patterns = new ArrayList<double[]>();
+    for (SAXMotif motif : motifs.getSameLenMotifs()) {
+      patterns.add(Arrays.copyOfRange(ts, motif.getPos().getStart(), motif.getPos().getEnd()));
+    }
+    return distanceProfiles(ts, patterns);
+  }
+
+  /**
+   * Compares the operations count of the direct scan, which is early abandoned though, to that of
+   * the distance profile.
+   * 
+   * @param tsLen the series length.
+   * @param patternLen the pattern length.
+   * @return true if the direct scan is expected to be cheaper.
+   */
+  private static boolean isDirectScanCheaper(int tsLen, int patternLen) {
+    int size = FastFourierTransform.size(tsLen);
+    long fftCost = (long) FFT_COST_FACTOR * size * Integer.numberOfTrailingZeros(size);
+    return (long) (tsLen - patternLen + 1) * patternLen <= fftCost;
+  }
+
+  /**
+   * The series transformed once, for the distance profiles of many patterns.
+   */
+  private static class SeriesSpectrum {
+
+    private final int length;
+    private final FastFourierTransform fft;
+    private final double[] re;
+    private final double[] im;
+    /** The prefix sums of the squared values. */
+    private final double[] squares;
+
+    SeriesSpectrum(double[] ts) {
+      this.length = ts.length;
+      this.fft = new FastFourierTransform(FastFourierTransform.size(Math.max(1, ts.length)));
+      this.re = Arrays.copyOf(ts, this.fft.length());
+      this.im = new double[this.fft.length()];
+      this.fft.transform(this.re, this.im, false);
+      this.squares = new double[ts.length + 1];
+      for (int i = 0; i < ts.length; i++) {
+        this.squares[i + 1] = this.squares[i] + ts[i] * ts[i];
+      }
+    }
+
+    double[] getProfile(double[] pattern) {
+      int m = pattern.length;
+      if (0 == m) {
+        throw new IllegalArgumentException("The pattern is empty.");
+      }
+      if (m > this.length) {
+        return new double[0];
+      }
+
+      // the reversed pattern convolved with the series gives the sliding dot products,
+      // the series FFT length is enough for the products of the complete windows not to wrap
+      //
+      double[] pRe = new double[this.re.length];
+      double[] pIm = new double[this.re.length];
+      double patternSquares = 0;
+      for (int i = 0; i < m; i++) {
+        pRe[m - 1 - i] = pattern[i];
+        patternSquares += pattern[i] * pattern[i];
+      }
+      this.fft.transform(pRe, pIm, false);
+      for (int k = 0; k < pRe.length; k++) {
+        double r = this.re[k] * pRe[k] - this.im[k] * pIm[k];
+        pIm[k] = this.re[k] * pIm[k] + this.im[k] * pRe[k];
+        pRe[k] = r;
+      }
+      this.fft.transform(pRe, pIm, true);
+
+      double[] res = new double[this.length - m + 1];
+      for (int k = 0; k < res.length; k++) {
+        double windowSquares = this.squares[k + m] - this.squares[k];
+        double dist = patternSquares + windowSquares - 2 * pRe[k + m - 1];
+        // what remains of the cancellation below the rounding error is zero
+        //
+        if (dist <= ROUNDING_ERROR * (patternSquares + windowSquares)) {
+          dist = 0;
+        }
+        res[k] = Math.sqrt(dist) / m;
+      }
+      return res;
+    }
   }
 
 }
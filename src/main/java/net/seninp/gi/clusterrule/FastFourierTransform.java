@@ -0,0 +1,120 @@
+package net.seninp.gi.clusterrule;
+
+/**
+ * In-place iterative radix-2 complex FFT of a fixed length over split real and imaginary arrays.
+ * The twiddles are tabulated once per instance rather than multiplied up, which keeps the rounding
+ * error from growing with the length.
+ *
+ * @author psenin
+ *
+ */
+final class FastFourierTransform {
+
+  private final int length;
+  private final double[] cos;
+  private final double[] sin;
+
+  /**
+   * Constructor.
+   *
+   * @param length the transform length, a power of two.
+   */
+  FastFourierTransform(int length) {
+    if (length < 1 || 0 != (length & (length - 1))) {
+      throw new IllegalArgumentException("The length shall be a power of two: " + length);
+    }
+    this.length = length;
+    this.cos = new double[length >>> 1];
+    this.sin = new double[length >>> 1];
+    for (int k = 0; k < this.cos.length; k++) {
+      double angle = -2 * Math.PI * k / length;
+      this.cos[k] = Math.cos(angle);
+      this.sin[k] = Math.sin(angle);
+    }
+  }
+
+  /**
+   * Gets the transform length.
+   *
+   * @return the length.
+   */
+  int length() {
+    return this.length;
+  }
+
+  /**
+   * Gets the smallest power of two not less than the value.
+   *
+   * @param value the value.
+   * @return the power of two.
+   */
+  static int size(int value) {
+    int res = 1;
+    while (res < value) {
+      res <<= 1;
+    }
+    return res;
+  }
+
+  /**
+   * Transforms the sequence in place. The inverse transform is scaled by 1/n, so the two undo
+   * each other.
+   *
+   * @param re the real parts.
+   * @param im the imaginary parts.
+   * @param inverse true for the inverse transform.
+   */
+  void transform(double[] re, double[] im, boolean inverse) {
+    int n = this.length;
+    if (re.length != n || im.length != n) {
+      throw new IllegalArgumentException("The arrays length shall be " + n);
+    }
+
+    // the bit-reversal permutation
+    //
+    for (int i = 1, j = 0; i < n; i++) {
+      int bit = n >>> 1;
+      for (; 0 != (j & bit); bit >>>= 1) {
+        j ^= bit;
+      }
+      j ^= bit;
+      if (i < j) {
+        double t = re[i];
+        re[i] = re[j];
+        re[j] = t;
+        t = im[i];
+        im[i] = im[j];
+        im[j] = t;
+      }
+    }
+
+    // the butterflies
+    //
+    for (int len = 2; len <= n; len <<= 1) {
+      int half = len >>> 1;
+      int step = n / len;
+      for (int i = 0; i < n; i += len) {
+        for (int k = 0; k < half; k++) {
+          int a = i + k;
+          int b = a + half;
+          double wRe = this.cos[k * step];
+          double wIm = inverse ? -this.sin[k * step] : this.sin[k * step];
+          double xRe = re[b] * wRe - im[b] * wIm;
+          double xIm = re[b] * wIm + im[b] * wRe;
+          re[b] = re[a] - xRe;
+          im[b] = im[a] - xIm;
+          re[a] += xRe;
+          im[a] += xIm;
+        }
+      }
+    }
+
+    if (inverse) {
+      for (int i = 0; i < n; i++) {
+        re[i] /= n;
+        im[i] /= n;
+      }
+    }
+  }
+
+}
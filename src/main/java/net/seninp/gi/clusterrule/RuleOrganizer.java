@@ -3,6 +3,8 @@ package net.seninp.gi.clusterrule;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import com.apporiented.algorithm.clustering.AverageLinkageStrategy;
 import com.apporiented.algorithm.clustering.Cluster;
 import com.apporiented.algorithm.clustering.ClusteringAlgorithm;
@@ -15,6 +17,27 @@ import net.seninp.gi.logic.SameLengthMotifs;
 
 public class RuleOrganizer {
 
+  private final int threadsNum;
+
+  /**
+   * Constructor.
+   */
+  public RuleOrganizer() {
+    this(1);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param threadsNum the number of threads computing the distance matrices.
+   */
+  public RuleOrganizer(int threadsNum) {
+    if (threadsNum < 1) {
+      throw new IllegalArgumentException("The threads number shall be positive: " + threadsNum);
+    }
+    this.threadsNum = threadsNum;
+  }
+
   /**
    * Classify the motifs based on their length.
    * 
@@ -351,8 +374,19 @@ public class RuleOrganizer {
    */
   protected ArrayList<SameLengthMotifs> refinePatternsByClustering(GrammarRules grammarRules,
       double[] ts, ArrayList<SameLengthMotifs> allClassifiedMotifs, double fractionTopDist) {
-    DistanceComputation dc = new DistanceComputation();
-    double[] origTS = ts;
+    ForkJoinPool pool = (this.threadsNum > 1) ? new ForkJoinPool(this.threadsNum) : null;
+    try {
+      return refinePatternsByClustering(ts, allClassifiedMotifs, fractionTopDist, pool);
+    }
+    finally {
+      if (null != pool) {
+        pool.shutdown();
+      }
+    }
+  }
+
+  private ArrayList<SameLengthMotifs> refinePatternsByClustering(double[] ts,
+      ArrayList<SameLengthMotifs> allClassifiedMotifs, double fractionTopDist, ForkJoinPool pool) {
     ArrayList<SameLengthMotifs> newAllClassifiedMotifs = new ArrayList<SameLengthMotifs>();
     for (SameLengthMotifs sameLenMotifs : allClassifiedMotifs) {
       ArrayList<RuleInterval> arrPos = new ArrayList<RuleInterval>();
@@ -365,40 +399,7 @@ public class RuleOrganizer {
       if (patternNum < 2) {
         continue;
       }
-      double dt[][] = new double[patternNum][patternNum];
-      // Build distance matrix.
-      for (int i = 0; i < patternNum; i++) {
-        RuleInterval saxPos = arrPos.get(i);
-
-        int start1 = saxPos.getStart();
-        int end1 = saxPos.getEnd();
-        double[] ts1 = Arrays.copyOfRange(origTS, start1, end1);
-
-        for (int j = 0; j < arrPos.size(); j++) {
-          RuleInterval saxPos2 = arrPos.get(j);
-          if (dt[i][j] > 0) {
-            continue;
-          }
-          double d = 0;
-          dt[i][j] = d;
-          if (i == j) {
-            continue;
-          }
-          int start2 = saxPos2.getStart();
-          int end2 = saxPos2.getEnd();
-          double[] ts2 = Arrays.copyOfRange(origTS, start2, end2);
-
-          if (ts1.length > ts2.length)
-            d = dc.calcDistTSAndPattern(ts1, ts2);
-          else
-            d = dc.calcDistTSAndPattern(ts2, ts1);
-
-          // DTW dtw = new DTW(ts1, ts2);
-          // d = dtw.warpingDistance;
-
-          dt[i][j] = d;
-        }
-      }
+      double dt[][] = distanceMatrix(ts, arrPos, pool);
 
       String[] patternsName = new String[patternNum];
       for (int i = 0; i < patternNum; i++) {
@@ -432,6 +433,35 @@ public class RuleOrganizer {
     return newAllClassifiedMotifs;
   }
 
+  /**
+   * Builds the symmetric matrix of the pairwise distances between the subsequences. Only the upper
+   * triangle is computed, split into the row blocks when the pool is given.
+   * 
+   * @param ts the input time series.
+   * @param arrPos the subsequences.
+   * @param pool the pool to compute in, null for the calling thread.
+   * @return the distance matrix.
+   */
+  protected double[][] distanceMatrix(double[] ts, ArrayList<RuleInterval> arrPos,
+      ForkJoinPool pool) {
+    double[][] subsequences = new double[arrPos.size()][];
+    int[][] orders = new int[arrPos.size()][];
+    for (int i = 0; i < subsequences.length; i++) {
+      subsequences[i] = Arrays.copyOfRange(ts, arrPos.get(i).getStart(), arrPos.get(i).getEnd());
+      orders[i] = DistanceComputation.getAbandoningOrder(subsequences[i]);
+    }
+    double[][] dt = new double[subsequences.length][subsequences.length];
+    DistanceMatrixTask task = new DistanceMatrixTask(subsequences, orders, dt, 0,
+        subsequences.length);
+    if (null == pool) {
+      task.compute();
+    }
+    else {
+      pool.invoke(task);
+    }
+    return dt;
+  }
+
   /**
    * Finds clusters.
    * 
@@ -534,4 +564,57 @@ public class RuleOrganizer {
     return newResult;
   }
 
+  /**
+   * Fills the rows of the distance matrix upper triangle and mirrors them to the lower one, halving
+   * the row range until the block is small enough.
+   */
+  private static class DistanceMatrixTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Cells per block below which the rows are computed in place. */
+    private static final int BLOCK_CELLS = 64;
+
+    private final double[][] subsequences;
+    private final int[][] orders;
+    private final double[][] dt;
+    private final int from;
+    private final int to;
+
+    DistanceMatrixTask(double[][] subsequences, int[][] orders, double[][] dt, int from, int to) {
+      this.subsequences = subsequences;
+      this.orders = orders;
+      this.dt = dt;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      int n = this.subsequences.length;
+      if (this.to - this.from > 1 && (long) (this.to - this.from) * (n - this.from) > BLOCK_CELLS) {
+        int mid = (this.from + this.to) >>> 1;
+        invokeAll(new DistanceMatrixTask(this.subsequences, this.orders, this.dt, this.from, mid),
+            new DistanceMatrixTask(this.subsequences, this.orders, this.dt, mid, this.to));
+        return;
+      }
+      DistanceComputation dc = new DistanceComputation();
+      for (int i = this.from; i < this.to; i++) {
+        double[] ts1 = this.subsequences[i];
+        for (int j = i + 1; j < n; j++) {
+          double[] ts2 = this.subsequences[j];
+          double d;
+          if (ts1.length > ts2.length) {
+            d = dc.calcDistTSAndPattern(ts1, ts2, this.orders[j]);
+          }
+          else {
+            d = dc.calcDistTSAndPattern(ts2, ts1, this.orders[i]);
+          }
+          this.dt[i][j] = d;
+          this.dt[j][i] = d;
+        }
+      }
+    }
+  }
+
 }
@@ -0,0 +1,768 @@
+package net.seninp.gi.logic;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A packed, read-only copy of a grammar. Instead of a record object per rule with its strings and
+ * boxed lists, the rules are kept in columns: a rule body is an int[] of symbols (a terminal id in
+ * the symbol table, or a negated rule index minus one for a non-terminal), the occurrences of all
+ * rules are in a single int[] with per-rule offsets, and so are the intervals, in parallel
+ * start/end/id/coverage columns. The rule strings and the expanded rule strings are made from the
+ * bodies on request, only the expanded strings lengths are kept.
+ *
+ * The rules are read through {@link #getRule(Integer)} and {@link #rules()} as the lightweight
+ * {@link RuleRecord} views over the columns, each is just the index of the rule; the intervals
+ * list of a view reads the columns too, the occurrences list is a new copy on each call, and the
+ * primitive accessors such as {@link #getOccurrence(int, int)} copy nothing. The consumers, e.g.,
+ * the rule pruner, read the grammar this way.
+ *
+ * The GrammarRuleRecord methods, i.e., {@link #get(Integer)} and the iteration, unpack a complete
+ * new record on each call, its expanded string included, which for the R0 is the whole series;
+ * these undo the packing and are meant for a one-off conversion only, as is
+ * {@link #toGrammarRules()}. The changes made to the unpacked records are not kept, hence the
+ * consumers which update the records in place, such as
+ * {@code SequiturFactory.updateRuleIntervals}, shall be given {@link #toGrammarRules()}.
+ *
+ * @author psenin
+ *
+ */
+public class CompactGrammarRules extends GrammarRules {
+
+  private static final long serialVersionUID = -3541288738711925154L;
+
+  private static final char SPACE = ' ';
+
+  // the string format flags
+  private static final byte RULE_TRAILING_SPACE = 1;
+  private static final byte EXPANDED_TRAILING_SPACE = 2;
+
+  /** The terminals. */
+  private final String[] terminals;
+
+  /** The rule numbers, ascending, the rule index is the position here. */
+  private final int[] ruleNumbers;
+
+  /** The rule bodies. */
+  private final int[][] bodies;
+
+  /** The string format flags and the strings which can't be made from the bodies. */
+  private final byte[] formats;
+  private final HashMap<Integer, String> ruleStrings;
+  private final HashMap<Integer, String> expandedRuleStrings;
+
+  /** The rule scalars. */
+  private final int[] useFrequencies;
+  private final int[] levels;
+  private final int[] yields;
+  private final int[] minLengths;
+  private final int[] maxLengths;
+  private final int[] meanLengths;
+  private final BitSet hasMeanLength;
+  private final int[] expandedLengths;
+  private final double[] periods;
+  private final double[] periodErrors;
+
+  /** The occurrences, those of the rule i are in [offsets[i], offsets[i + 1]). */
+  private final int[] occurrenceOffsets;
+  private final int[] occurrences;
+
+  /** The intervals, indexed in the same manner. */
+  private final int[] intervalOffsets;
+  private final int[] intervalStarts;
+  private final int[] intervalEnds;
+  private final int[] intervalIds;
+  private final double[] intervalCoverages;
+
+  /**
+   * Constructor, packs the rules.
+   *
+   * @param rules the rules to pack.
+   */
+  public CompactGrammarRules(GrammarRules rules) {
+    super();
+
+    int rulesNum = rules.size();
+    this.ruleNumbers = new int[rulesNum];
+    int occurrencesNum = 0;
+    int intervalsNum = 0;
+    int ruleIdx = 0;
+    for (GrammarRuleRecord r : rules) {
+      this.ruleNumbers[ruleIdx++] = r.getRuleNumber();
+      occurrencesNum += r.getOccurrenceList().size();
+      intervalsNum += r.getRuleIntervals().size();
+    }
+
+    this.bodies = new int[rulesNum][];
+    this.formats = new byte[rulesNum];
+    this.ruleStrings = new HashMap<Integer, String>();
+    this.expandedRuleStrings = new HashMap<Integer, String>();
+    this.useFrequencies = new int[rulesNum];
+    this.levels = new int[rulesNum];
+    this.yields = new int[rulesNum];
+    this.minLengths = new int[rulesNum];
+    this.maxLengths = new int[rulesNum];
+    this.meanLengths = new int[rulesNum];
+    this.hasMeanLength = new BitSet(rulesNum);
+    this.expandedLengths = new int[rulesNum];
+    this.periods = new double[rulesNum];
+    this.periodErrors = new double[rulesNum];
+    this.occurrenceOffsets = new int[rulesNum + 1];
+    this.occurrences = new int[occurrencesNum];
+    this.intervalOffsets = new int[rulesNum + 1];
+    this.intervalStarts = new int[intervalsNum];
+    this.intervalEnds = new int[intervalsNum];
+    this.intervalIds = new int[intervalsNum];
+    this.intervalCoverages = new double[intervalsNum];
+
+    // the columns
+    //
+    SymbolTable symbols = new SymbolTable();
+    BitSet dangling = new BitSet(rulesNum);
+    int occurrenceIdx = 0;
+    int intervalIdx = 0;
+    ruleIdx = 0;
+    for (GrammarRuleRecord r : rules) {
+
+      this.bodies[ruleIdx] = parseRuleString(r.getRuleString(), symbols, ruleIdx, dangling);
+
+      this.useFrequencies[ruleIdx] = r.getRuleUseFrequency();
+      this.levels[ruleIdx] = r.getRuleLevel();
+      this.yields[ruleIdx] = r.getRuleYield();
+      this.minLengths[ruleIdx] = r.getMinLength();
+      this.maxLengths[ruleIdx] = r.getMaxLength();
+      if (null != r.getMeanLength()) {
+        this.meanLengths[ruleIdx] = r.getMeanLength();
+        this.hasMeanLength.set(ruleIdx);
+      }
+      this.expandedLengths[ruleIdx] = r.getExpandedRuleLength();
+      this.periods[ruleIdx] = r.getPeriod();
+      this.periodErrors[ruleIdx] = r.getPeriodError();
+
+      this.occurrenceOffsets[ruleIdx] = occurrenceIdx;
+      OccurrenceList ruleOccurrences = r.getOccurrenceList();
+      for (int i = 0; i < ruleOccurrences.size(); i++) {
+        this.occurrences[occurrenceIdx++] = ruleOccurrences.get(i);
+      }
+
+      this.intervalOffsets[ruleIdx] = intervalIdx;
+      for (RuleInterval interval : r.getRuleIntervals()) {
+        this.intervalStarts[intervalIdx] = interval.getStart();
+        this.intervalEnds[intervalIdx] = interval.getEnd();
+        this.intervalIds[intervalIdx] = interval.getId();
+        this.intervalCoverages[intervalIdx] = interval.getCoverage();
+        intervalIdx++;
+      }
+
+      ruleIdx++;
+    }
+    this.occurrenceOffsets[rulesNum] = occurrenceIdx;
+    this.intervalOffsets[rulesNum] = intervalIdx;
+
+    this.terminals = new String[symbols.size()];
+    for (int i = 0; i < this.terminals.length; i++) {
+      this.terminals[i] = symbols.getSymbol(i);
+    }
+
+    // the strings are made from the bodies if that yields exactly the original ones, the rest,
+    // e.g., of a pruned grammar whose rules refer to the removed ones, are kept as they are; the
+    // expanded strings are not made here, the rules which refer to the missing ones or to
+    // themselves can't be expanded, and the expansions of the rest are checked by their lengths
+    //
+    long[] expansionLengths = getExpansionLengths(dangling);
+    ruleIdx = 0;
+    for (GrammarRuleRecord r : rules) {
+      String ruleString = r.getRuleString();
+      String body = toRuleString(ruleIdx);
+      if (isTrailingSpaced(ruleString, body)) {
+        this.formats[ruleIdx] |= RULE_TRAILING_SPACE;
+      }
+      else if (!body.equals(ruleString)) {
+        this.ruleStrings.put(ruleIdx, ruleString);
+      }
+      String expanded = r.getExpandedRuleString();
+      long expansionLength = expansionLengths[ruleIdx];
+      if (null == expanded || expansionLength < 0) {
+        this.expandedRuleStrings.put(ruleIdx, expanded);
+      }
+      else if (expanded.length() == expansionLength + 1
+          && SPACE == expanded.charAt(expanded.length() - 1)) {
+        this.formats[ruleIdx] |= EXPANDED_TRAILING_SPACE;
+      }
+      else if (expanded.length() != expansionLength) {
+        this.expandedRuleStrings.put(ruleIdx, expanded);
+      }
+      ruleIdx++;
+    }
+  }
+
+  /**
+   * Gets the rule index, i.e., its position in the iteration order.
+   *
+   * @param ruleNumber the rule number.
+   * @return the rule index, or a negative value if there is no such rule.
+   */
+  public int getRuleIndex(int ruleNumber) {
+    return Arrays.binarySearch(this.ruleNumbers, ruleNumber);
+  }
+
+  /**
+   * Gets the view of the rule.
+   *
+   * @param ruleNumber the rule number.
+   * @return the rule view, or null if there is no such rule.
+   */
+  @Override
+  public RuleRecord getRule(Integer ruleNumber) {
+    int ruleIdx = getRuleIndex(ruleNumber);
+    if (ruleIdx < 0) {
+      return null;
+    }
+    return new RecordView(ruleIdx);
+  }
+
+  /**
+   * Gets the views of the rules, in the iteration order.
+   *
+   * @return the rule views.
+   */
+  @Override
+  public Iterable<RuleRecord> rules() {
+    return new Iterable<RuleRecord>() {
+      @Override
+      public Iterator<RuleRecord> iterator() {
+        return new Iterator<RuleRecord>() {
+          private int ruleIdx = 0;
+
+          @Override
+          public boolean hasNext() {
+            return this.ruleIdx < ruleNumbers.length;
+          }
+
+          @Override
+          public RuleRecord next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            return new RecordView(this.ruleIdx++);
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException("The compact grammar is read-only");
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Gets the terminal by its id.
+   *
+   * @param id the terminal id.
+   * @return the terminal.
+   */
+  public String getTerminal(int id) {
+    return this.terminals[id];
+  }
+
+  /**
+   * Gets the rule body: a non-negative symbol is a terminal id, a negative one is a non-terminal,
+   * i.e., the rule index minus one negated.
+   *
+   * @param ruleIdx the rule index, i.e., its position in the iteration order.
+   * @return the rule body, must not be modified.
+   */
+  public int[] getRuleBody(int ruleIdx) {
+    return this.bodies[ruleIdx];
+  }
+
+  /**
+   * Gets the number of the rule occurrences.
+   *
+   * @param ruleIdx the rule index.
+   * @return the occurrences count.
+   */
+  public int getOccurrencesCount(int ruleIdx) {
+    return this.occurrenceOffsets[ruleIdx + 1] - this.occurrenceOffsets[ruleIdx];
+  }
+
+  /**
+   * Gets the rule occurrence.
+   *
+   * @param ruleIdx the rule index.
+   * @param i the occurrence number.
+   * @return the occurrence position in the discretized time series.
+   */
+  public int getOccurrence(int ruleIdx, int i) {
+    return this.occurrences[this.occurrenceOffsets[ruleIdx] + i];
+  }
+
+  /**
+   * Gets the number of the rule intervals.
+   *
+   * @param ruleIdx the rule index.
+   * @return the intervals count.
+   */
+  public int getIntervalsCount(int ruleIdx) {
+    return this.intervalOffsets[ruleIdx + 1] - this.intervalOffsets[ruleIdx];
+  }
+
+  /**
+   * Gets the rule interval start.
+   *
+   * @param ruleIdx the rule index.
+   * @param i the interval number.
+   * @return the interval start.
+   */
+  public int getIntervalStart(int ruleIdx, int i) {
+    return this.intervalStarts[this.intervalOffsets[ruleIdx] + i];
+  }
+
+  /**
+   * Gets the rule interval end.
+   *
+   * @param ruleIdx the rule index.
+   * @param i the interval number.
+   * @return the interval end (exclusive).
+   */
+  public int getIntervalEnd(int ruleIdx, int i) {
+    return this.intervalEnds[this.intervalOffsets[ruleIdx] + i];
+  }
+
+  /**
+   * Unpacks the rules into the regular records.
+   *
+   * @return the grammar rules.
+   */
+  public GrammarRules toGrammarRules() {
+    GrammarRules res = new GrammarRules();
+    for (int ruleIdx = 0; ruleIdx < this.ruleNumbers.length; ruleIdx++) {
+      res.addRule(unpack(ruleIdx));
+    }
+    return res;
+  }
+
+  @Override
+  public void addRule(GrammarRuleRecord arrRule) {
+    throw new UnsupportedOperationException("The compact grammar is read-only");
+  }
+
+  @Override
+  public GrammarRuleRecord getRuleRecord(Integer ruleIdx) {
+    return get(ruleIdx);
+  }
+
+  @Override
+  public GrammarRuleRecord get(Integer ruleNumber) {
+    int ruleIdx = getRuleIndex(ruleNumber);
+    if (ruleIdx < 0) {
+      return null;
+    }
+    return unpack(ruleIdx);
+  }
+
+  @Override
+  public Iterator<GrammarRuleRecord> iterator() {
+    return new Iterator<GrammarRuleRecord>() {
+      private int ruleIdx = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.ruleIdx < ruleNumbers.length;
+      }
+
+      @Override
+      public GrammarRuleRecord next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return unpack(this.ruleIdx++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("The compact grammar is read-only");
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return this.ruleNumbers.length;
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer();
+    for (RuleRecord rr : rules()) {
+      sb.append(rr.getRuleName());
+      sb.append(" -> ").append(rr.getRuleString());
+      sb.append(" -> ").append(rr.getExpandedRuleString());
+      sb.append("\n");
+    }
+    return sb.delete(sb.length() - 1, sb.length()).toString();
+  }
+
+  @Override
+  public int getHighestFrequency() {
+    int res = 0;
+    for (int ruleIdx = 0; ruleIdx < this.ruleNumbers.length; ruleIdx++) {
+      if (0 != this.ruleNumbers[ruleIdx]) {
+        res = Math.max(res, getOccurrencesCount(ruleIdx));
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Unpacks the rule into a regular record.
+   */
+  private GrammarRuleRecord unpack(int ruleIdx) {
+    RecordView view = new RecordView(ruleIdx);
+    GrammarRuleRecord r = new GrammarRuleRecord();
+    r.setRuleNumber(view.getRuleNumber());
+    r.setRuleString(view.getRuleString());
+    r.setExpandedRuleString(view.getExpandedRuleString());
+    r.setRuleUseFrequency(view.getRuleUseFrequency());
+    r.setRuleLevel(view.getRuleLevel());
+    r.setRuleYield(view.getRuleYield());
+    r.setMinMaxLength(new int[] { view.getMinLength(), view.getMaxLength() });
+    if (this.hasMeanLength.get(ruleIdx)) {
+      r.setMeanLength(this.meanLengths[ruleIdx]);
+    }
+    r.setPeriod(view.getPeriod());
+    r.setPeriodError(view.getPeriodError());
+    r.setOccurrences(Arrays.copyOfRange(this.occurrences, this.occurrenceOffsets[ruleIdx],
+        this.occurrenceOffsets[ruleIdx + 1]));
+    r.setRuleIntervals(new ArrayList<RuleInterval>(view.getRuleIntervals()));
+    return r;
+  }
+
+  private static boolean isTrailingSpaced(String str, String prefix) {
+    return null != str && null != prefix && str.length() == prefix.length() + 1
+        && str.startsWith(prefix) && SPACE == str.charAt(prefix.length());
+  }
+
+  /**
+   * Parses the rule string into the body, a token like R12 refers to the rule 12 if there is one,
+   * else the rule is marked as dangling.
+   */
+  private int[] parseRuleString(String ruleString, SymbolTable symbols, int ruleIdx,
+      BitSet dangling) {
+    if (null == ruleString) {
+      return new int[0];
+    }
+    String[] tokens = ruleString.trim().split("\\s+");
+    if (1 == tokens.length && tokens[0].isEmpty()) {
+      return new int[0];
+    }
+    int[] body = new int[tokens.length];
+    for (int i = 0; i < tokens.length; i++) {
+      String token = tokens[i];
+      int ref = -1;
+      if (token.length() > 1 && 'R' == token.charAt(0) && isNumber(token, 1)) {
+        ref = Arrays.binarySearch(this.ruleNumbers, Integer.parseInt(token.substring(1)));
+        if (ref < 0) {
+          dangling.set(ruleIdx);
+        }
+      }
+      body[i] = (ref >= 0) ? -1 - ref : symbols.intern(token);
+    }
+    return body;
+  }
+
+  private static boolean isNumber(String str, int from) {
+    if (str.length() - from > 9) {
+      return false;
+    }
+    for (int i = from; i < str.length(); i++) {
+      if (!Character.isDigit(str.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Makes the rule string from the body, the symbols are separated by a space.
+   */
+  private String toRuleString(int ruleIdx) {
+    StringBuilder sb = new StringBuilder();
+    for (int symbol : this.bodies[ruleIdx]) {
+      if (sb.length() > 0) {
+        sb.append(SPACE);
+      }
+      if (symbol >= 0) {
+        sb.append(this.terminals[symbol]);
+      }
+      else {
+        sb.append('R').append(this.ruleNumbers[-1 - symbol]);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Computes the lengths of the rules expansions from the bodies, as the sums of the terminals
+   * lengths and of the separating spaces, a non-terminal adds the sums of its rule. The rules are
+   * visited in the depth-first order with an explicit stack, so each body is read once.
+   *
+   * @param dangling the rules which refer to the missing ones.
+   * @return the lengths, -1 for the rules which can't be expanded, i.e., those which refer to a
+   * missing rule or to themselves, directly or not.
+   */
+  private long[] getExpansionLengths(BitSet dangling) {
+    int rulesNum = this.ruleNumbers.length;
+    long[] chars = new long[rulesNum];
+    long[] counts = new long[rulesNum];
+    BitSet broken = (BitSet) dangling.clone();
+    // 0 is a new rule, 1 is a rule on the stack, 2 is a done one
+    byte[] states = new byte[rulesNum];
+    int[] rulesStack = new int[16];
+    int[] positions = new int[16];
+    for (int root = 0; root < rulesNum; root++) {
+      if (0 != states[root]) {
+        continue;
+      }
+      int top = 0;
+      rulesStack[0] = root;
+      positions[0] = 0;
+      states[root] = 1;
+      while (top >= 0) {
+        int ruleIdx = rulesStack[top];
+        int[] body = this.bodies[ruleIdx];
+        if (positions[top] == body.length) {
+          states[ruleIdx] = 2;
+          top--;
+          if (top >= 0) {
+            addExpansion(rulesStack[top], ruleIdx, chars, counts, broken);
+          }
+          continue;
+        }
+        int symbol = body[positions[top]++];
+        if (symbol >= 0) {
+          chars[ruleIdx] += this.terminals[symbol].length();
+          counts[ruleIdx]++;
+          continue;
+        }
+        int child = -1 - symbol;
+        if (2 == states[child]) {
+          addExpansion(ruleIdx, child, chars, counts, broken);
+        }
+        else if (1 == states[child]) {
+          broken.set(ruleIdx);
+        }
+        else {
+          if (top + 1 == rulesStack.length) {
+            rulesStack = Arrays.copyOf(rulesStack, rulesStack.length << 1);
+            positions = Arrays.copyOf(positions, positions.length << 1);
+          }
+          top++;
+          rulesStack[top] = child;
+          positions[top] = 0;
+          states[child] = 1;
+        }
+      }
+    }
+
+    long[] res = new long[rulesNum];
+    for (int ruleIdx = 0; ruleIdx < rulesNum; ruleIdx++) {
+      if (broken.get(ruleIdx)) {
+        res[ruleIdx] = -1;
+      }
+      else {
+        res[ruleIdx] = chars[ruleIdx] + Math.max(0, counts[ruleIdx] - 1);
+      }
+    }
+    return res;
+  }
+
+  private static void addExpansion(int ruleIdx, int child, long[] chars, long[] counts,
+      BitSet broken) {
+    chars[ruleIdx] += chars[child];
+    counts[ruleIdx] += counts[child];
+    if (broken.get(child)) {
+      broken.set(ruleIdx);
+    }
+  }
+
+  /**
+   * Expands the rule body, the terminals are separated by a space. The non-terminals are expanded
+   * with an explicit stack.
+   *
+   * @return the expanded string, or null if the rule refers to itself.
+   */
+  private String expand(int ruleIdx) {
+    StringBuilder sb = new StringBuilder();
+    // the stack of rule indexes and the positions within their bodies
+    int[] rulesStack = new int[16];
+    int[] positions = new int[16];
+    int top = 0;
+    rulesStack[0] = ruleIdx;
+    positions[0] = 0;
+    while (top >= 0) {
+      int[] body = this.bodies[rulesStack[top]];
+      if (positions[top] == body.length) {
+        top--;
+        continue;
+      }
+      int symbol = body[positions[top]++];
+      if (symbol >= 0) {
+        if (sb.length() > 0) {
+          sb.append(SPACE);
+        }
+        sb.append(this.terminals[symbol]);
+      }
+      else {
+        if (top + 1 == rulesStack.length) {
+          if (rulesStack.length > this.ruleNumbers.length) {
+            return null;
+          }
+          rulesStack = Arrays.copyOf(rulesStack, rulesStack.length << 1);
+          positions = Arrays.copyOf(positions, positions.length << 1);
+        }
+        top++;
+        rulesStack[top] = -1 - symbol;
+        positions[top] = 0;
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * The rule view, reads the columns.
+   */
+  private final class RecordView implements RuleRecord {
+
+    private final int ruleIdx;
+
+    private RecordView(int ruleIdx) {
+      this.ruleIdx = ruleIdx;
+    }
+
+    @Override
+    public int getRuleNumber() {
+      return ruleNumbers[this.ruleIdx];
+    }
+
+    @Override
+    public String getRuleName() {
+      return "R" + ruleNumbers[this.ruleIdx];
+    }
+
+    @Override
+    public String getRuleString() {
+      if (ruleStrings.containsKey(this.ruleIdx)) {
+        return ruleStrings.get(this.ruleIdx);
+      }
+      String res = toRuleString(this.ruleIdx);
+      if (0 != (formats[this.ruleIdx] & RULE_TRAILING_SPACE)) {
+        res = res + SPACE;
+      }
+      return res;
+    }
+
+    @Override
+    public String getExpandedRuleString() {
+      if (expandedRuleStrings.containsKey(this.ruleIdx)) {
+        return expandedRuleStrings.get(this.ruleIdx);
+      }
+      String res = expand(this.ruleIdx);
+      if (0 != (formats[this.ruleIdx] & EXPANDED_TRAILING_SPACE)) {
+        res = res + SPACE;
+      }
+      return res;
+    }
+
+    @Override
+    public int getExpandedRuleLength() {
+      if (expandedRuleStrings.containsKey(this.ruleIdx)) {
+        String res = expandedRuleStrings.get(this.ruleIdx);
+        return (null == res) ? 0 : res.length();
+      }
+      return expandedLengths[this.ruleIdx];
+    }
+
+    @Override
+    public int getRuleUseFrequency() {
+      return useFrequencies[this.ruleIdx];
+    }
+
+    @Override
+    public int getRuleLevel() {
+      return levels[this.ruleIdx];
+    }
+
+    @Override
+    public int getRuleYield() {
+      return yields[this.ruleIdx];
+    }
+
+    @Override
+    public int getMinLength() {
+      return minLengths[this.ruleIdx];
+    }
+
+    @Override
+    public int getMaxLength() {
+      return maxLengths[this.ruleIdx];
+    }
+
+    @Override
+    public Integer getMeanLength() {
+      return hasMeanLength.get(this.ruleIdx) ? Integer.valueOf(meanLengths[this.ruleIdx]) : null;
+    }
+
+    @Override
+    public double getPeriod() {
+      return periods[this.ruleIdx];
+    }
+
+    @Override
+    public double getPeriodError() {
+      return periodErrors[this.ruleIdx];
+    }
+
+    @Override
+    public OccurrenceList getOccurrenceList() {
+      return new OccurrenceList(Arrays.copyOfRange(occurrences, occurrenceOffsets[this.ruleIdx],
+          occurrenceOffsets[this.ruleIdx + 1]));
+    }
+
+    @Override
+    public List<RuleInterval> getRuleIntervals() {
+      final int from = intervalOffsets[this.ruleIdx];
+      final int to = intervalOffsets[this.ruleIdx + 1];
+      return new AbstractList<RuleInterval>() {
+        @Override
+        public RuleInterval get(int index) {
+          if (index < 0 || index >= to - from) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+          }
+          int i = from + index;
+          return new RuleInterval(intervalIds[i], intervalStarts[i], intervalEnds[i],
+              intervalCoverages[i]);
+        }
+
+        @Override
+        public int size() {
+          return to - from;
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return getRuleName() + " -> " + getRuleString();
+    }
+
+  }
+
+}
@@ -1,7 +1,11 @@
 package net.seninp.gi.logic;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import net.seninp.jmotif.sax.datastructure.SAXRecord;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
 
 /**
  * I use this for temporal fixtures.
@@ -146,4 +150,41 @@ public class GIUtils {
     return (double) coverageSum / (double) length;
   }
 
+  /**
+   * Stops a long computation once its thread is interrupted, the interrupt status is kept so the
+   * caller still sees it.
+   * 
+   * @throws CancellationException if the current thread is interrupted.
+   */
+  public static void checkInterrupted() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("The thread is interrupted");
+    }
+  }
+
+  /**
+   * Lists the SAX words in the order of their indexes, i.e., the tokens of the string which
+   * {@link SAXRecords#getSAXString(String)} makes, but without building and splitting it. All the
+   * occurrences of a word share the same string instance.
+   * 
+   * @param saxRecords the SAX records.
+   * @return the SAX words.
+   */
+  public static String[] toTokens(SAXRecords saxRecords) {
+    ArrayList<Integer> indexes = saxRecords.getAllIndices();
+    String[] res = new String[indexes.size()];
+    IdentityHashMap<SAXRecord, String> words = new IdentityHashMap<SAXRecord, String>();
+    int i = 0;
+    for (Integer idx : indexes) {
+      SAXRecord record = saxRecords.getByIndex(idx);
+      String word = words.get(record);
+      if (null == word) {
+        word = String.valueOf(record.getPayload());
+        words.put(record, word);
+      }
+      res[i++] = word;
+    }
+    return res;
+  }
+
 }
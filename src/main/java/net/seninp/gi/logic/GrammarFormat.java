@@ -0,0 +1,91 @@
+package net.seninp.gi.logic;
+
+/**
+ * The binary grammar file format, written by {@link GrammarWriter} and read by
+ * {@link MappedGrammarRules}. All the multi-byte fixed width values are big-endian.
+ *
+ * <pre>
+ * file     := header record* terminals index footer
+ * header   := MAGIC:int VERSION:byte
+ * record   := flags:varint useFrequency:zz level:zz yield:zz minLength:zz maxLength:zz
+ *             [meanLength:zz] [period:double periodError:double]
+ *             [body] [expanded] occurrences intervals
+ * body     := n:varint symbol:varint{n}   a terminal id shifted left, or a rule number
+ *                                         shifted left with the lowest bit set
+ * expanded := n:varint terminalId:varint{n}
+ * occurrences := n:varint delta:zz{n}     the difference with the previous occurrence
+ * intervals   := n:varint (startDelta:zz length:zz [id:zz] [coverage:double]){n}
+ * terminals   := n:varint (length:varint utf8:byte{length}){n}
+ * index    := (ruleNumber:int recordOffset:int){rulesNum}   ascending rule numbers
+ * footer   := terminalsOffset:int indexOffset:int rulesNum:int MAGIC:int
+ * </pre>
+ *
+ * The strings are split at each space, so an empty token, e.g., of a trailing space, is an empty
+ * terminal and the strings are restored exactly. The zz values are zigzag coded varints. The whole
+ * file is mapped at once and shall not exceed 2GB.
+ *
+ * @author psenin
+ *
+ */
+final class GrammarFormat {
+
+  /** The "JMGI" magic. */
+  static final int MAGIC = 0x4A4D4749;
+
+  /** The format version. */
+  static final byte VERSION = 1;
+
+  static final int HEADER_SIZE = 5;
+  static final int INDEX_ENTRY_SIZE = 8;
+  static final int FOOTER_SIZE = 16;
+
+  // the record flags, the optional parts present
+  //
+  static final int RULE_STRING = 1;
+  static final int EXPANDED_STRING = 2;
+  static final int MEAN_LENGTH = 4;
+  static final int PERIODS = 8;
+  static final int INTERVAL_IDS = 16;
+  static final int INTERVAL_COVERAGES = 32;
+
+  static final char SPACE = ' ';
+
+  /**
+   * Disabling the constructor.
+   */
+  private GrammarFormat() {
+    assert true;
+  }
+
+  /**
+   * Parses the rule number of a non-terminal token, i.e., R followed by the number written as
+   * Integer.toString() writes it, so the token is restored exactly.
+   *
+   * @param token the token.
+   * @return the rule number, or -1 if the token is not a non-terminal.
+   */
+  static int parseRuleNumber(String token) {
+    int len = token.length();
+    if (len < 2 || len > 10 || 'R' != token.charAt(0) || ('0' == token.charAt(1) && len > 2)) {
+      return -1;
+    }
+    int res = 0;
+    for (int i = 1; i < len; i++) {
+      char c = token.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      res = res * 10 + (c - '0');
+    }
+    return res;
+  }
+
+  static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  static int unZigZag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+}
@@ -3,6 +3,7 @@ package net.seninp.gi.logic;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Data container for SAX rules. Provides an abstraction which is used for transferring grammars
@@ -11,7 +12,9 @@ import java.util.Arrays;
  * @author Manfred Lerner, seninp
  * 
  */
-public class GrammarRuleRecord implements Serializable {
+public class GrammarRuleRecord implements RuleRecord, Serializable {
+
+  private static final long serialVersionUID = 6913758265940286315L;
 
   /* The rule number in Sequitur grammar. */
   private int ruleNumber;
@@ -23,7 +26,7 @@ public class GrammarRuleRecord implements Serializable {
   private String expandedRuleString;
 
   /* The indexes at which the rule occurs in the discretized time series. */
-  private ArrayList<Integer> timeSeriesOccurrenceIndexes = new ArrayList<Integer>();
+  private OccurrenceList timeSeriesOccurrenceIndexes = new OccurrenceList();
 
   /* This rule intervals on the original time series. */
   private ArrayList<RuleInterval> ruleIntervals;
@@ -52,6 +55,40 @@ public class GrammarRuleRecord implements Serializable {
   /* The rule yield - how many terminals it produces in extended form. */
   private int ruleYield;
 
+  /**
+   * Constructor.
+   */
+  public GrammarRuleRecord() {
+    super();
+  }
+
+  /**
+   * Constructor, copies the rule, its occurrences and intervals.
+   * 
+   * @param rule the rule to copy.
+   */
+  public GrammarRuleRecord(RuleRecord rule) {
+    super();
+    this.ruleNumber = rule.getRuleNumber();
+    this.ruleString = rule.getRuleString();
+    this.expandedRuleString = rule.getExpandedRuleString();
+    this.timeSeriesOccurrenceIndexes = new OccurrenceList(rule.getOccurrenceList().toArray());
+    List<RuleInterval> intervals = rule.getRuleIntervals();
+    this.ruleIntervals = new ArrayList<RuleInterval>(intervals.size());
+    for (RuleInterval i : intervals) {
+      this.ruleIntervals
+          .add(new RuleInterval(i.getId(), i.getStart(), i.getEnd(), i.getCoverage()));
+    }
+    this.ruleUsageFrequency = rule.getRuleUseFrequency();
+    this.ruleLevel = rule.getRuleLevel();
+    this.minLength = rule.getMinLength();
+    this.maxLength = rule.getMaxLength();
+    this.meanLength = rule.getMeanLength();
+    this.period = rule.getPeriod();
+    this.periodError = rule.getPeriodError();
+    this.ruleYield = rule.getRuleYield();
+  }
+
   /**
    * @return the grammar's rule number.
    */
@@ -116,6 +153,13 @@ public class GrammarRuleRecord implements Serializable {
     return expandedRuleString;
   }
 
+  /**
+   * @return the length of the expanded rule string, 0 if there is none
+   */
+  public int getExpandedRuleLength() {
+    return (null == expandedRuleString) ? 0 : expandedRuleString.length();
+  }
+
   /**
    * @param expandedRuleString expanded textual representation of the rule
    */
@@ -124,19 +168,33 @@ public class GrammarRuleRecord implements Serializable {
   }
 
   public String occurrencesToString() {
-    return Arrays.toString(this.timeSeriesOccurrenceIndexes
-        .toArray(new Integer[this.timeSeriesOccurrenceIndexes.size()]));
+    return getOccurrenceList().toString();
   }
 
+  /**
+   * Gets the rule occurrences as a boxed list. This is a copy, the changes made to it are not
+   * reflected in the record.
+   * 
+   * @return the rule occurrences.
+   * @deprecated use {@link #getOccurrenceList()}, or {@link #setOccurrences(int[])} to change
+   * them.
+   */
+  @Deprecated
   public ArrayList<Integer> getOccurrences() {
+    return getOccurrenceList().toList();
+  }
+
+  /**
+   * Gets the rule occurrences.
+   * 
+   * @return the rule occurrences, must not be modified.
+   */
+  public OccurrenceList getOccurrenceList() {
     return this.timeSeriesOccurrenceIndexes;
   }
 
   public void setOccurrences(int[] indexes) {
-    this.timeSeriesOccurrenceIndexes = new ArrayList<Integer>();
-    for (Integer idx : indexes) {
-      this.timeSeriesOccurrenceIndexes.add(idx);
-    }
+    this.timeSeriesOccurrenceIndexes = new OccurrenceList(indexes);
   }
 
   public double getPeriod() {
@@ -166,6 +224,24 @@ public class GrammarRuleRecord implements Serializable {
     this.maxLength = lengths[lengths.length - 1];
   }
 
+  /**
+   * Gets the rule's minimal length.
+   * 
+   * @return the minimal length.
+   */
+  public int getMinLength() {
+    return this.minLength;
+  }
+
+  /**
+   * Gets the rule's maximal length.
+   * 
+   * @return the maximal length.
+   */
+  public int getMaxLength() {
+    return this.maxLength;
+  }
+
   /**
    * Returns a string of min and max values.
    * 
@@ -38,6 +38,26 @@ public class GrammarRules implements Iterable<GrammarRuleRecord>, Serializable {
     return rules.get(ruleIndex);
   }
 
+  /**
+   * Gets the rule for reading, the packed grammars return a view instead of a new record.
+   *
+   * @param ruleNumber the rule number.
+   * @return the rule, or null if there is no such rule.
+   */
+  public RuleRecord getRule(Integer ruleNumber) {
+    return get(ruleNumber);
+  }
+
+  /**
+   * Gets the rules for reading, in the iteration order, the packed grammars return the views
+   * instead of new records.
+   *
+   * @return the rules.
+   */
+  public Iterable<? extends RuleRecord> rules() {
+    return this;
+  }
+
   public int size() {
     return this.rules.size();
   }
@@ -58,8 +78,8 @@ public class GrammarRules implements Iterable<GrammarRuleRecord>, Serializable {
     int res = 0;
     for (GrammarRuleRecord r : this.rules.values()) {
       if (0 != r.getRuleNumber()) {
-        if (r.getOccurrences().size() > res) {
-          res = r.getOccurrences().size();
+        if (r.getOccurrenceList().size() > res) {
+          res = r.getOccurrenceList().size();
         }
       }
     }
@@ -0,0 +1,307 @@
+package net.seninp.gi.logic;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Writes grammar rules in the binary format read by {@link MappedGrammarRules}. The rules are
+ * streamed: each is encoded and written as it comes, only its number and offset are kept for the
+ * index written on close along with the terminals.
+ *
+ * @author psenin
+ *
+ */
+public class GrammarWriter implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final OutputStream out;
+
+  /** The record being encoded. */
+  private byte[] buf = new byte[256];
+  private int len;
+
+  /** The bytes written so far. */
+  private long written;
+
+  private final SymbolTable terminals = new SymbolTable();
+
+  /** The index, the records offsets by the rule. */
+  private int[] ruleNumbers = new int[64];
+  private int[] offsets = new int[64];
+  private int rulesNum;
+
+  private boolean closed;
+
+  /**
+   * Constructor.
+   *
+   * @param out the stream to write into, closed on close.
+   * @throws IOException if error occurs.
+   */
+  public GrammarWriter(OutputStream out) throws IOException {
+    this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    putInt(GrammarFormat.MAGIC);
+    putByte(GrammarFormat.VERSION);
+    flushRecord();
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param file the file to write into.
+   * @throws IOException if error occurs.
+   */
+  public GrammarWriter(File file) throws IOException {
+    this(new FileOutputStream(file));
+  }
+
+  /**
+   * Writes the grammar into the file.
+   *
+   * @param rules the grammar.
+   * @param file the file.
+   * @throws IOException if error occurs.
+   */
+  public static void write(GrammarRules rules, File file) throws IOException {
+    GrammarWriter writer = new GrammarWriter(file);
+    try {
+      for (GrammarRuleRecord r : rules) {
+        writer.write(r);
+      }
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Writes the rule, the rules shall come in the ascending order of their numbers as a
+   * {@link GrammarRules} iterates them.
+   *
+   * @param rule the rule.
+   * @throws IOException if error occurs.
+   */
+  public void write(GrammarRuleRecord rule) throws IOException {
+    if (this.closed) {
+      throw new IOException("The writer is closed");
+    }
+    int ruleNumber = rule.getRuleNumber();
+    if (this.rulesNum > 0 && ruleNumber <= this.ruleNumbers[this.rulesNum - 1]) {
+      throw new IllegalArgumentException("The rule R" + ruleNumber + " comes after R"
+          + this.ruleNumbers[this.rulesNum - 1] + ", the rules shall be ascending");
+    }
+    if (ruleNumber < 0) {
+      throw new IllegalArgumentException("The rule number is negative: " + ruleNumber);
+    }
+    if (this.rulesNum == this.ruleNumbers.length) {
+      this.ruleNumbers = Arrays.copyOf(this.ruleNumbers, this.rulesNum << 1);
+      this.offsets = Arrays.copyOf(this.offsets, this.rulesNum << 1);
+    }
+    this.ruleNumbers[this.rulesNum] = ruleNumber;
+    this.offsets[this.rulesNum] = checkOffset();
+    this.rulesNum++;
+
+    String ruleString = rule.getRuleString();
+    String expanded = rule.getExpandedRuleString();
+    Integer meanLength = rule.getMeanLength();
+    double period = rule.getPeriod();
+    double periodError = rule.getPeriodError();
+    OccurrenceList occurrences = rule.getOccurrenceList();
+    ArrayList<RuleInterval> intervals = rule.getRuleIntervals();
+
+    int flags = 0;
+    if (null != ruleString) {
+      flags |= GrammarFormat.RULE_STRING;
+    }
+    if (null != expanded) {
+      flags |= GrammarFormat.EXPANDED_STRING;
+    }
+    if (null != meanLength) {
+      flags |= GrammarFormat.MEAN_LENGTH;
+    }
+    if (0 != Double.doubleToRawLongBits(period) || 0 != Double.doubleToRawLongBits(periodError)) {
+      flags |= GrammarFormat.PERIODS;
+    }
+    for (RuleInterval interval : intervals) {
+      if (0 != interval.getId()) {
+        flags |= GrammarFormat.INTERVAL_IDS;
+      }
+      if (0 != Double.doubleToRawLongBits(interval.getCoverage())) {
+        flags |= GrammarFormat.INTERVAL_COVERAGES;
+      }
+    }
+
+    putVarint(flags);
+    putVarint(GrammarFormat.zigZag(rule.getRuleUseFrequency()));
+    putVarint(GrammarFormat.zigZag(rule.getRuleLevel()));
+    putVarint(GrammarFormat.zigZag(rule.getRuleYield()));
+    putVarint(GrammarFormat.zigZag(rule.getMinLength()));
+    putVarint(GrammarFormat.zigZag(rule.getMaxLength()));
+    if (null != meanLength) {
+      putVarint(GrammarFormat.zigZag(meanLength));
+    }
+    if (0 != (flags & GrammarFormat.PERIODS)) {
+      putLong(Double.doubleToRawLongBits(period));
+      putLong(Double.doubleToRawLongBits(periodError));
+    }
+    if (null != ruleString) {
+      putString(ruleString, true);
+    }
+    if (null != expanded) {
+      putString(expanded, false);
+    }
+
+    putVarint(occurrences.size());
+    int prev = 0;
+    for (int i = 0; i < occurrences.size(); i++) {
+      int occurrence = occurrences.get(i);
+      putVarint(GrammarFormat.zigZag(occurrence - prev));
+      prev = occurrence;
+    }
+
+    putVarint(intervals.size());
+    prev = 0;
+    for (RuleInterval interval : intervals) {
+      putVarint(GrammarFormat.zigZag(interval.getStart() - prev));
+      putVarint(GrammarFormat.zigZag(interval.getEnd() - interval.getStart()));
+      if (0 != (flags & GrammarFormat.INTERVAL_IDS)) {
+        putVarint(GrammarFormat.zigZag(interval.getId()));
+      }
+      if (0 != (flags & GrammarFormat.INTERVAL_COVERAGES)) {
+        putLong(Double.doubleToRawLongBits(interval.getCoverage()));
+      }
+      prev = interval.getStart();
+    }
+
+    flushRecord();
+  }
+
+  /**
+   * Writes the terminals, the index, and closes the stream.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      int terminalsOffset = checkOffset();
+      putVarint(this.terminals.size());
+      flushRecord();
+      for (int i = 0; i < this.terminals.size(); i++) {
+        byte[] bytes = this.terminals.getSymbol(i).getBytes(StandardCharsets.UTF_8);
+        putVarint(bytes.length);
+        flushRecord();
+        this.out.write(bytes);
+        this.written += bytes.length;
+      }
+
+      int indexOffset = checkOffset();
+      for (int i = 0; i < this.rulesNum; i++) {
+        putInt(this.ruleNumbers[i]);
+        putInt(this.offsets[i]);
+        flushRecord();
+      }
+
+      putInt(terminalsOffset);
+      putInt(indexOffset);
+      putInt(this.rulesNum);
+      putInt(GrammarFormat.MAGIC);
+      flushRecord();
+      checkOffset();
+    }
+    finally {
+      this.out.close();
+    }
+  }
+
+  /**
+   * Splits the string at each space, the tokens are the terminals, or, if allowed, the
+   * non-terminals.
+   */
+  private void putString(String str, boolean nonTerminals) {
+    int tokensNum = 1;
+    for (int i = 0; i < str.length(); i++) {
+      if (GrammarFormat.SPACE == str.charAt(i)) {
+        tokensNum++;
+      }
+    }
+    putVarint(tokensNum);
+    int from = 0;
+    while (true) {
+      int to = str.indexOf(GrammarFormat.SPACE, from);
+      String token = str.substring(from, (to < 0) ? str.length() : to);
+      int ruleNumber = nonTerminals ? GrammarFormat.parseRuleNumber(token) : -1;
+      if (ruleNumber >= 0) {
+        putVarint((ruleNumber << 1) | 1);
+      }
+      else if (nonTerminals) {
+        putVarint(this.terminals.intern(token) << 1);
+      }
+      else {
+        putVarint(this.terminals.intern(token));
+      }
+      if (to < 0) {
+        break;
+      }
+      from = to + 1;
+    }
+  }
+
+  private int checkOffset() throws IOException {
+    if (this.written > Integer.MAX_VALUE) {
+      throw new IOException("The grammar file exceeds 2GB");
+    }
+    return (int) this.written;
+  }
+
+  private void flushRecord() throws IOException {
+    this.out.write(this.buf, 0, this.len);
+    this.written += this.len;
+    this.len = 0;
+  }
+
+  private void ensure(int bytes) {
+    if (this.len + bytes > this.buf.length) {
+      this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length << 1, this.len + bytes));
+    }
+  }
+
+  private void putByte(int value) {
+    ensure(1);
+    this.buf[this.len++] = (byte) value;
+  }
+
+  private void putInt(int value) {
+    ensure(4);
+    this.buf[this.len++] = (byte) (value >>> 24);
+    this.buf[this.len++] = (byte) (value >>> 16);
+    this.buf[this.len++] = (byte) (value >>> 8);
+    this.buf[this.len++] = (byte) value;
+  }
+
+  private void putLong(long value) {
+    putInt((int) (value >>> 32));
+    putInt((int) value);
+  }
+
+  private void putVarint(int value) {
+    ensure(5);
+    int v = value;
+    while (0 != (v & ~0x7F)) {
+      this.buf[this.len++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    this.buf[this.len++] = (byte) v;
+  }
+
+}
@@ -0,0 +1,323 @@
+package net.seninp.gi.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only grammar mapped from a file written by {@link GrammarWriter}. Opening the file reads
+ * its terminals only, a rule is decoded when asked for, into a new record on each access, thus
+ * the changes made to the records are not kept. The rules are found by their numbers with a
+ * binary search over the index, in the file too. The grammar is safe to read concurrently.
+ *
+ * @author psenin
+ *
+ */
+public class MappedGrammarRules extends GrammarRules {
+
+  private static final long serialVersionUID = 2906473862167421475L;
+
+  private final transient ByteBuffer buffer;
+  private final transient String[] terminals;
+  private final transient int indexOffset;
+  private final transient int rulesNum;
+
+  /**
+   * Constructor, maps the file.
+   *
+   * @param file the grammar file.
+   * @throws IOException if the file can't be read or is not a grammar file.
+   */
+  public MappedGrammarRules(File file) throws IOException {
+    super();
+
+    MappedByteBuffer mapped;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("The grammar file exceeds 2GB: " + file);
+      }
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    finally {
+      raf.close();
+    }
+    this.buffer = mapped;
+
+    int size = this.buffer.capacity();
+    if (size < GrammarFormat.HEADER_SIZE + GrammarFormat.FOOTER_SIZE
+        || GrammarFormat.MAGIC != this.buffer.getInt(0)
+        || GrammarFormat.MAGIC != this.buffer.getInt(size - 4)) {
+      throw new IOException("Not a grammar file: " + file);
+    }
+    if (GrammarFormat.VERSION != this.buffer.get(4)) {
+      throw new IOException(
+          "Unsupported grammar file version " + this.buffer.get(4) + ": " + file);
+    }
+    int footer = size - GrammarFormat.FOOTER_SIZE;
+    int terminalsOffset = this.buffer.getInt(footer);
+    this.indexOffset = this.buffer.getInt(footer + 4);
+    this.rulesNum = this.buffer.getInt(footer + 8);
+    long indexSize = (long) this.rulesNum * GrammarFormat.INDEX_ENTRY_SIZE;
+    if (terminalsOffset < GrammarFormat.HEADER_SIZE || this.rulesNum < 0
+        || this.indexOffset + indexSize != footer) {
+      throw new IOException("Corrupted grammar file: " + file);
+    }
+
+    Cursor c = new Cursor(terminalsOffset);
+    this.terminals = new String[c.varint()];
+    for (int i = 0; i < this.terminals.length; i++) {
+      this.terminals[i] = new String(c.bytes(c.varint()), StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Gets the rule number.
+   *
+   * @param ruleIdx the rule index, i.e., its position in the iteration order.
+   * @return the rule number.
+   */
+  public int getRuleNumber(int ruleIdx) {
+    return this.buffer.getInt(this.indexOffset + ruleIdx * GrammarFormat.INDEX_ENTRY_SIZE);
+  }
+
+  /**
+   * Decodes the rule.
+   *
+   * @param ruleIdx the rule index, i.e., its position in the iteration order.
+   * @return the rule record.
+   */
+  public GrammarRuleRecord decodeRule(int ruleIdx) {
+    if (ruleIdx < 0 || ruleIdx >= this.rulesNum) {
+      throw new IndexOutOfBoundsException("Index: " + ruleIdx + ", Size: " + this.rulesNum);
+    }
+    int entry = this.indexOffset + ruleIdx * GrammarFormat.INDEX_ENTRY_SIZE;
+    Cursor c = new Cursor(this.buffer.getInt(entry + 4));
+
+    GrammarRuleRecord r = new GrammarRuleRecord();
+    r.setRuleNumber(this.buffer.getInt(entry));
+
+    int flags = c.varint();
+    r.setRuleUseFrequency(c.zigZag());
+    r.setRuleLevel(c.zigZag());
+    r.setRuleYield(c.zigZag());
+    int minLength = c.zigZag();
+    r.setMinMaxLength(new int[] { minLength, c.zigZag() });
+    if (0 != (flags & GrammarFormat.MEAN_LENGTH)) {
+      r.setMeanLength(c.zigZag());
+    }
+    if (0 != (flags & GrammarFormat.PERIODS)) {
+      r.setPeriod(c.doubleValue());
+      r.setPeriodError(c.doubleValue());
+    }
+    if (0 != (flags & GrammarFormat.RULE_STRING)) {
+      r.setRuleString(c.string(true));
+    }
+    if (0 != (flags & GrammarFormat.EXPANDED_STRING)) {
+      r.setExpandedRuleString(c.string(false));
+    }
+
+    int[] occurrences = new int[c.varint()];
+    int prev = 0;
+    for (int i = 0; i < occurrences.length; i++) {
+      prev += c.zigZag();
+      occurrences[i] = prev;
+    }
+    r.setOccurrences(occurrences);
+
+    int intervalsNum = c.varint();
+    ArrayList<RuleInterval> intervals = new ArrayList<RuleInterval>(intervalsNum);
+    prev = 0;
+    for (int i = 0; i < intervalsNum; i++) {
+      int start = prev + c.zigZag();
+      int end = start + c.zigZag();
+      int id = (0 != (flags & GrammarFormat.INTERVAL_IDS)) ? c.zigZag() : 0;
+      double coverage = (0 != (flags & GrammarFormat.INTERVAL_COVERAGES)) ? c.doubleValue() : 0;
+      intervals.add(new RuleInterval(id, start, end, coverage));
+      prev = start;
+    }
+    r.setRuleIntervals(intervals);
+
+    return r;
+  }
+
+  /**
+   * Decodes all the rules into the regular records.
+   *
+   * @return the grammar rules.
+   */
+  public GrammarRules toGrammarRules() {
+    GrammarRules res = new GrammarRules();
+    for (int ruleIdx = 0; ruleIdx < this.rulesNum; ruleIdx++) {
+      res.addRule(decodeRule(ruleIdx));
+    }
+    return res;
+  }
+
+  @Override
+  public void addRule(GrammarRuleRecord arrRule) {
+    throw new UnsupportedOperationException("The mapped grammar is read-only");
+  }
+
+  @Override
+  public GrammarRuleRecord getRuleRecord(Integer ruleIdx) {
+    return get(ruleIdx);
+  }
+
+  @Override
+  public GrammarRuleRecord get(Integer ruleNumber) {
+    int lo = 0;
+    int hi = this.rulesNum - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int midNumber = getRuleNumber(mid);
+      if (midNumber < ruleNumber) {
+        lo = mid + 1;
+      }
+      else if (midNumber > ruleNumber) {
+        hi = mid - 1;
+      }
+      else {
+        return decodeRule(mid);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Iterator<GrammarRuleRecord> iterator() {
+    return new Iterator<GrammarRuleRecord>() {
+      private int ruleIdx = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.ruleIdx < rulesNum;
+      }
+
+      @Override
+      public GrammarRuleRecord next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return decodeRule(this.ruleIdx++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("The mapped grammar is read-only");
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return this.rulesNum;
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer();
+    for (GrammarRuleRecord rr : this) {
+      sb.append(rr.getRuleName());
+      sb.append(" -> ").append(rr.getRuleString());
+      sb.append(" -> ").append(rr.getExpandedRuleString());
+      sb.append("\n");
+    }
+    return sb.delete(sb.length() - 1, sb.length()).toString();
+  }
+
+  @Override
+  public int getHighestFrequency() {
+    int res = 0;
+    for (GrammarRuleRecord r : this) {
+      if (0 != r.getRuleNumber()) {
+        res = Math.max(res, r.getOccurrenceList().size());
+      }
+    }
+    return res;
+  }
+
+  /**
+   * The mapping is not serializable, the decoded rules are serialized instead.
+   *
+   * @return the regular grammar rules.
+   * @throws ObjectStreamException never.
+   */
+  private Object writeReplace() throws ObjectStreamException {
+    return toGrammarRules();
+  }
+
+  /**
+   * Reads the values starting at a position, with the absolute gets which don't touch the shared
+   * buffer state.
+   */
+  private final class Cursor {
+
+    private int pos;
+
+    private Cursor(int pos) {
+      this.pos = pos;
+    }
+
+    private int varint() {
+      int res = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.get(this.pos++);
+        res |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      return res;
+    }
+
+    private int zigZag() {
+      return GrammarFormat.unZigZag(varint());
+    }
+
+    private byte[] bytes(int length) {
+      byte[] res = new byte[length];
+      for (int i = 0; i < length; i++) {
+        res[i] = buffer.get(this.pos++);
+      }
+      return res;
+    }
+
+    private double doubleValue() {
+      double res = Double.longBitsToDouble(buffer.getLong(this.pos));
+      this.pos += 8;
+      return res;
+    }
+
+    private String string(boolean nonTerminals) {
+      int tokensNum = varint();
+      StringBuilder sb = new StringBuilder(tokensNum * 5);
+      for (int i = 0; i < tokensNum; i++) {
+        if (i > 0) {
+          sb.append(GrammarFormat.SPACE);
+        }
+        int symbol = varint();
+        if (!nonTerminals) {
+          sb.append(terminals[symbol]);
+        }
+        else if (0 != (symbol & 1)) {
+          sb.append('R').append(symbol >>> 1);
+        }
+        else {
+          sb.append(terminals[symbol >>> 1]);
+        }
+      }
+      return sb.toString();
+    }
+  }
+
+}
@@ -0,0 +1,179 @@
+package net.seninp.gi.logic;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * The rule occurrences, i.e., the positions at which a rule occurs in the discretized time series,
+ * kept in a growing int array. The occurrences are iterated without boxing via {@link #get(int)},
+ * {@link #iterator()}, or {@link #forEach(IntConsumer)}.
+ *
+ * @author psenin
+ *
+ */
+public class OccurrenceList implements Serializable {
+
+  private static final long serialVersionUID = 6912338524176839611L;
+
+  private static final int DEFAULT_CAPACITY = 4;
+
+  private int[] values;
+  private int size;
+
+  /**
+   * Constructor.
+   */
+  public OccurrenceList() {
+    super();
+    this.values = new int[DEFAULT_CAPACITY];
+    this.size = 0;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param values the occurrences, the array is copied.
+   */
+  public OccurrenceList(int[] values) {
+    super();
+    this.values = Arrays.copyOf(values, Math.max(DEFAULT_CAPACITY, values.length));
+    this.size = values.length;
+  }
+
+  /**
+   * Adds the occurrence.
+   *
+   * @param value the occurrence.
+   */
+  public void add(int value) {
+    if (this.size == this.values.length) {
+      this.values = Arrays.copyOf(this.values, this.values.length << 1);
+    }
+    this.values[this.size++] = value;
+  }
+
+  /**
+   * Gets the occurrence.
+   *
+   * @param index the occurrence number.
+   * @return the occurrence.
+   */
+  public int get(int index) {
+    if (index >= this.size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+    return this.values[index];
+  }
+
+  /**
+   * Gets the number of occurrences.
+   *
+   * @return the number of occurrences.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Checks if there are no occurrences.
+   *
+   * @return true if empty.
+   */
+  public boolean isEmpty() {
+    return 0 == this.size;
+  }
+
+  /**
+   * Gets the occurrences iterator.
+   *
+   * @return the iterator.
+   */
+  public PrimitiveIterator.OfInt iterator() {
+    return new PrimitiveIterator.OfInt() {
+      private int cursor = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.cursor < size;
+      }
+
+      @Override
+      public int nextInt() {
+        if (this.cursor >= size) {
+          throw new NoSuchElementException();
+        }
+        return values[this.cursor++];
+      }
+    };
+  }
+
+  /**
+   * Performs the action for each occurrence in order.
+   *
+   * @param action the action.
+   */
+  public void forEach(IntConsumer action) {
+    for (int i = 0; i < this.size; i++) {
+      action.accept(this.values[i]);
+    }
+  }
+
+  /**
+   * Copies the occurrences into an array.
+   *
+   * @return the occurrences.
+   */
+  public int[] toArray() {
+    return Arrays.copyOf(this.values, this.size);
+  }
+
+  /**
+   * Copies the occurrences into a boxed list.
+   *
+   * @return the occurrences.
+   */
+  public ArrayList<Integer> toList() {
+    ArrayList<Integer> res = new ArrayList<Integer>(this.size);
+    for (int i = 0; i < this.size; i++) {
+      res.add(this.values[i]);
+    }
+    return res;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 1;
+    for (int i = 0; i < this.size; i++) {
+      result = 31 * result + this.values[i];
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    OccurrenceList other = (OccurrenceList) obj;
+    if (this.size != other.size)
+      return false;
+    for (int i = 0; i < this.size; i++) {
+      if (this.values[i] != other.values[i])
+        return false;
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,89 @@
+package net.seninp.gi.logic;
+
+import java.util.List;
+
+/**
+ * The read-only view of a grammar rule, implemented by the {@link GrammarRuleRecord} and by the
+ * rule views of the {@link CompactGrammarRules}.
+ *
+ * @author psenin
+ *
+ */
+public interface RuleRecord {
+
+  /**
+   * @return the rule number.
+   */
+  int getRuleNumber();
+
+  /**
+   * @return name of the rule, something like R1 or R30 etc.
+   */
+  String getRuleName();
+
+  /**
+   * @return textual representation of the rule.
+   */
+  String getRuleString();
+
+  /**
+   * @return expanded textual representation of the rule.
+   */
+  String getExpandedRuleString();
+
+  /**
+   * @return the length of the expanded rule string, without making the string.
+   */
+  int getExpandedRuleLength();
+
+  /**
+   * @return how many times the rule is used by other rules.
+   */
+  int getRuleUseFrequency();
+
+  /**
+   * @return the rule level in the hierarchy.
+   */
+  int getRuleLevel();
+
+  /**
+   * @return how many terminals the rule produces in the expanded form.
+   */
+  int getRuleYield();
+
+  /**
+   * @return the rule's minimal length.
+   */
+  int getMinLength();
+
+  /**
+   * @return the rule's maximal length.
+   */
+  int getMaxLength();
+
+  /**
+   * @return the rule mean length.
+   */
+  Integer getMeanLength();
+
+  /**
+   * @return the rule mean period.
+   */
+  double getPeriod();
+
+  /**
+   * @return the rule period error.
+   */
+  double getPeriodError();
+
+  /**
+   * @return the rule occurrences, must not be modified.
+   */
+  OccurrenceList getOccurrenceList();
+
+  /**
+   * @return the rule intervals on the original time series, must not be modified.
+   */
+  List<RuleInterval> getRuleIntervals();
+
+}
@@ -0,0 +1,82 @@
+package net.seninp.gi.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Interns terminals, i.e., SAX words, to dense integer ids: the first distinct word gets 0, the
+ * next one 1, and so on. The grammar builders intern each token once and then compare and hash the
+ * ids, a word is looked up by its id only when the grammar rules are materialized. The table is
+ * not thread-safe.
+ *
+ * @author psenin
+ *
+ */
+public class SymbolTable {
+
+  /** The symbol to id map. */
+  private final HashMap<String, Integer> ids;
+
+  /** The symbols listed by their ids. */
+  private final ArrayList<String> symbols;
+
+  /**
+   * Constructor.
+   */
+  public SymbolTable() {
+    super();
+    this.ids = new HashMap<String, Integer>();
+    this.symbols = new ArrayList<String>();
+  }
+
+  /**
+   * Gets the symbol id, assigning the next one if the symbol is new.
+   *
+   * @param symbol the symbol.
+   * @return the symbol id.
+   */
+  public int intern(String symbol) {
+    Integer id = this.ids.get(symbol);
+    if (null == id) {
+      id = this.symbols.size();
+      this.ids.put(symbol, id);
+      this.symbols.add(symbol);
+    }
+    return id;
+  }
+
+  /**
+   * Gets the symbol id.
+   *
+   * @param symbol the symbol.
+   * @return the symbol id, or -1 if the symbol wasn't interned.
+   */
+  public int getId(String symbol) {
+    Integer id = this.ids.get(symbol);
+    if (null == id) {
+      return -1;
+    }
+    return id;
+  }
+
+  /**
+   * Gets the symbol by its id. All the lookups of an id return the same string instance, the one
+   * which was interned first.
+   *
+   * @param id the symbol id.
+   * @return the symbol.
+   */
+  public String getSymbol(int id) {
+    return this.symbols.get(id);
+  }
+
+  /**
+   * Gets the number of interned symbols.
+   *
+   * @return the number of symbols.
+   */
+  public int size() {
+    return this.symbols.size();
+  }
+
+}
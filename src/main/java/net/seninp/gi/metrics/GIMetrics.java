@@ -0,0 +1,191 @@
+package net.seninp.gi.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The GI pipeline instrumentation entry point. The pipeline stages time themselves with a
+ * {@link StageTimer} and report to the listener set here, which is a no-op by default, so the
+ * instrumentation costs nothing unless asked for:
+ *
+ * <pre>
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * GIMetrics.setListener(metrics);
+ * ...
+ * System.out.println(metrics);
+ * </pre>
+ *
+ * @author psenin
+ *
+ */
+public final class GIMetrics {
+
+  /** The input tokens count. */
+  public static final String TOKENS = "tokens";
+
+  /** The SAX words count. */
+  public static final String WORDS = "words";
+
+  /** The grammar rules count. */
+  public static final String RULES = "rules";
+
+  /** The grammar rules count left by pruning. */
+  public static final String RULES_KEPT = "rules.kept";
+
+  /** The distinct digrams count. */
+  public static final String DIGRAMS = "digrams";
+
+  /** The digrams priority queue peak size. */
+  public static final String QUEUE_PEAK = "queue.peak";
+
+  /** The digram occurrences substituted by rules. */
+  public static final String SUBSTITUTIONS = "substitutions";
+
+  /** The digram occurrences lists nodes visited. */
+  public static final String OCCURRENCE_VISITS = "occurrence.visits";
+
+  /** The same length motif groups count. */
+  public static final String MOTIF_GROUPS = "motif.groups";
+
+  /** The wall time of a stage, in nanoseconds. */
+  public static final String WALL_NANOS = "wall.ns";
+
+  /** The bytes allocated by a stage. */
+  public static final String ALLOCATED_BYTES = "allocated.bytes";
+
+  /** The listener which ignores everything. */
+  public static final PipelineListener NO_OP = new PipelineListener() {
+    @Override
+    public void valueRecorded(PipelineStage stage, String metric, long value) {
+      assert true;
+    }
+
+    @Override
+    public void stageCompleted(PipelineStage stage, long wallNanos, long allocatedBytes) {
+      assert true;
+    }
+  };
+
+  private static volatile PipelineListener listener = NO_OP;
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  /**
+   * Disabling the constructor.
+   */
+  private GIMetrics() {
+    assert true;
+  }
+
+  /**
+   * Sets the listener of all the pipeline stages.
+   *
+   * @param newListener the listener, null for the no-op one.
+   */
+  public static void setListener(PipelineListener newListener) {
+    listener = (null == newListener) ? NO_OP : newListener;
+  }
+
+  /**
+   * Gets the listener.
+   *
+   * @return the listener.
+   */
+  public static PipelineListener getListener() {
+    return listener;
+  }
+
+  /**
+   * Starts timing a stage. The stage is reported to the listener set at this moment.
+   *
+   * @param stage the stage.
+   * @return the stage timer.
+   */
+  public static StageTimer start(PipelineStage stage) {
+    PipelineListener current = listener;
+    if (NO_OP == current) {
+      return StageTimer.DISABLED;
+    }
+    return new StageTimer(stage, current);
+  }
+
+  /**
+   * Gets the bytes allocated by the current thread so far, when the JVM tracks these.
+   *
+   * @return the allocated bytes, or -1.
+   */
+  public static long getAllocatedBytes() {
+    return getAllocatedBytes(Thread.currentThread());
+  }
+
+  /**
+   * Gets the bytes allocated by the thread so far, when the JVM tracks these.
+   *
+   * @param thread the thread, alive.
+   * @return the allocated bytes, or -1.
+   */
+  public static long getAllocatedBytes(Thread thread) {
+    if (THREADS instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+      if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+        return threads.getThreadAllocatedBytes(thread.getId());
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Times a stage running in a thread, the bytes allocated by the other threads it spawns are not
+   * accounted.
+   */
+  public static final class StageTimer {
+
+    static final StageTimer DISABLED = new StageTimer(null, NO_OP);
+
+    private final PipelineStage stage;
+    private final PipelineListener listener;
+    private final long startNanos;
+    private final long startBytes;
+
+    private StageTimer(PipelineStage stage, PipelineListener listener) {
+      this.stage = stage;
+      this.listener = listener;
+      if (NO_OP == listener) {
+        this.startNanos = 0;
+        this.startBytes = -1;
+      }
+      else {
+        this.startBytes = getAllocatedBytes();
+        this.startNanos = System.nanoTime();
+      }
+    }
+
+    /**
+     * Records a value measured by the stage.
+     *
+     * @param metric the value name.
+     * @param value the value.
+     */
+    public void record(String metric, long value) {
+      if (NO_OP != this.listener) {
+        this.listener.valueRecorded(this.stage, metric, value);
+      }
+    }
+
+    /**
+     * Reports the stage completed.
+     */
+    public void stop() {
+      if (NO_OP == this.listener) {
+        return;
+      }
+      long wallNanos = System.nanoTime() - this.startNanos;
+      long allocatedBytes = -1;
+      if (this.startBytes >= 0) {
+        allocatedBytes = getAllocatedBytes() - this.startBytes;
+      }
+      this.listener.stageCompleted(this.stage, wallNanos, allocatedBytes);
+    }
+  }
+
+}
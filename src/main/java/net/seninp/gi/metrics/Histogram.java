@@ -0,0 +1,110 @@
+package net.seninp.gi.metrics;
+
+/**
+ * A thread-safe histogram of non-negative values with the power of two buckets, which keeps the
+ * exact count, sum, minimum and maximum, and the percentiles within a factor of two.
+ *
+ * @author psenin
+ *
+ */
+public class Histogram {
+
+  /** The bucket i holds the values of bit length i, i.e., [2^(i-1), 2^i). */
+  private final long[] buckets = new long[Long.SIZE + 1];
+
+  private long count;
+  private long sum;
+  private long min = Long.MAX_VALUE;
+  private long max = Long.MIN_VALUE;
+
+  /**
+   * Adds the value, the negative values are taken as zeros.
+   *
+   * @param value the value.
+   */
+  public synchronized void add(long value) {
+    long v = Math.max(0, value);
+    this.buckets[Long.SIZE - Long.numberOfLeadingZeros(v)]++;
+    this.count++;
+    this.sum += v;
+    this.min = Math.min(this.min, v);
+    this.max = Math.max(this.max, v);
+  }
+
+  /**
+   * Gets the values count.
+   *
+   * @return the count.
+   */
+  public synchronized long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets the values sum.
+   *
+   * @return the sum.
+   */
+  public synchronized long getSum() {
+    return this.sum;
+  }
+
+  /**
+   * Gets the smallest value.
+   *
+   * @return the minimum, or 0 if empty.
+   */
+  public synchronized long getMin() {
+    return (0 == this.count) ? 0 : this.min;
+  }
+
+  /**
+   * Gets the largest value.
+   *
+   * @return the maximum, or 0 if empty.
+   */
+  public synchronized long getMax() {
+    return (0 == this.count) ? 0 : this.max;
+  }
+
+  /**
+   * Gets the values mean.
+   *
+   * @return the mean, or 0 if empty.
+   */
+  public synchronized double getMean() {
+    return (0 == this.count) ? 0 : (double) this.sum / (double) this.count;
+  }
+
+  /**
+   * Estimates the percentile as the upper bound of its bucket, but not more than the maximum.
+   *
+   * @param percentile the percentile, between 0 and 100.
+   * @return the value estimate, or 0 if empty.
+   */
+  public synchronized long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("The percentile shall be within [0, 100]: " + percentile);
+    }
+    if (0 == this.count) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(this.count * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < this.buckets.length; i++) {
+      seen += this.buckets[i];
+      if (seen >= rank) {
+        long upper = (0 == i) ? 0 : (i >= Long.SIZE - 1) ? Long.MAX_VALUE : (1L << i) - 1;
+        return Math.max(this.min, Math.min(upper, this.max));
+      }
+    }
+    return this.max;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "count " + this.count + ", min " + getMin() + ", mean " + (long) getMean() + ", p50 "
+        + getPercentile(50) + ", p99 " + getPercentile(99) + ", max " + getMax();
+  }
+
+}
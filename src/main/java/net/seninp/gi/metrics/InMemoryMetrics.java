@@ -0,0 +1,104 @@
+package net.seninp.gi.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the pipeline measurements in memory, a {@link Histogram} per stage and value name. The
+ * stages wall time and allocated bytes are kept under the {@link GIMetrics#WALL_NANOS} and
+ * {@link GIMetrics#ALLOCATED_BYTES} names.
+ *
+ * @author psenin
+ *
+ */
+public class InMemoryMetrics implements PipelineListener {
+
+  private static final String TAB = "\t";
+  private static final String CR = "\n";
+
+  private final Map<PipelineStage, ConcurrentMap<String, Histogram>> histograms;
+
+  /**
+   * Constructor.
+   */
+  public InMemoryMetrics() {
+    this.histograms = new EnumMap<PipelineStage, ConcurrentMap<String, Histogram>>(
+        PipelineStage.class);
+    for (PipelineStage stage : PipelineStage.values()) {
+      this.histograms.put(stage, new ConcurrentHashMap<String, Histogram>());
+    }
+  }
+
+  @Override
+  public void valueRecorded(PipelineStage stage, String metric, long value) {
+    getOrCreate(stage, metric).add(value);
+  }
+
+  @Override
+  public void stageCompleted(PipelineStage stage, long wallNanos, long allocatedBytes) {
+    getOrCreate(stage, GIMetrics.WALL_NANOS).add(wallNanos);
+    if (allocatedBytes >= 0) {
+      getOrCreate(stage, GIMetrics.ALLOCATED_BYTES).add(allocatedBytes);
+    }
+  }
+
+  /**
+   * Gets the histogram of the stage values.
+   *
+   * @param stage the stage.
+   * @param metric the value name.
+   * @return the histogram, or null if nothing was recorded.
+   */
+  public Histogram getHistogram(PipelineStage stage, String metric) {
+    return this.histograms.get(stage).get(metric);
+  }
+
+  /**
+   * Drops all the measurements.
+   */
+  public void reset() {
+    for (ConcurrentMap<String, Histogram> stageHistograms : this.histograms.values()) {
+      stageHistograms.clear();
+    }
+  }
+
+  private Histogram getOrCreate(PipelineStage stage, String metric) {
+    ConcurrentMap<String, Histogram> stageHistograms = this.histograms.get(stage);
+    Histogram res = stageHistograms.get(metric);
+    if (null == res) {
+      Histogram created = new Histogram();
+      res = stageHistograms.putIfAbsent(metric, created);
+      if (null == res) {
+        res = created;
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Prints the measurements as a tab-separated table, a row per stage and value.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("stage").append(TAB).append("metric").append(TAB).append("count").append(TAB)
+        .append("min").append(TAB).append("mean").append(TAB).append("p50").append(TAB)
+        .append("p99").append(TAB).append("max").append(CR);
+    for (Map.Entry<PipelineStage, ConcurrentMap<String, Histogram>> e : this.histograms
+        .entrySet()) {
+      for (Map.Entry<String, Histogram> m : new TreeMap<String, Histogram>(e.getValue())
+          .entrySet()) {
+        Histogram h = m.getValue();
+        sb.append(e.getKey()).append(TAB).append(m.getKey()).append(TAB).append(h.getCount())
+            .append(TAB).append(h.getMin()).append(TAB).append((long) h.getMean()).append(TAB)
+            .append(h.getPercentile(50)).append(TAB).append(h.getPercentile(99)).append(TAB)
+            .append(h.getMax()).append(CR);
+      }
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,32 @@
+package net.seninp.gi.metrics;
+
+/**
+ * Receives the GI pipeline measurements. The stages report their values, such as the tokens or
+ * the rules count, while running and their wall time and allocated bytes once completed. The
+ * stages may run concurrently, thus the implementations shall be thread-safe.
+ *
+ * @author psenin
+ *
+ * @see GIMetrics#setListener(PipelineListener)
+ */
+public interface PipelineListener {
+
+  /**
+   * Records a value measured by a stage.
+   *
+   * @param stage the stage.
+   * @param metric the value name, e.g. {@link GIMetrics#TOKENS}.
+   * @param value the value.
+   */
+  void valueRecorded(PipelineStage stage, String metric, long value);
+
+  /**
+   * Records a completed stage.
+   *
+   * @param stage the stage.
+   * @param wallNanos the stage wall time in nanoseconds.
+   * @param allocatedBytes the bytes allocated by the stage thread, -1 if the JVM doesn't tell.
+   */
+  void stageCompleted(PipelineStage stage, long wallNanos, long allocatedBytes);
+
+}
@@ -0,0 +1,32 @@
+package net.seninp.gi.metrics;
+
+/**
+ * The GI pipeline stages reported to a {@link PipelineListener}.
+ *
+ * @author psenin
+ *
+ */
+public enum PipelineStage {
+
+  /** The time series conversion into SAX words. */
+  DISCRETIZATION,
+
+  /** The Sequitur grammar inference. */
+  SEQUITUR,
+
+  /** The RePair grammar inference. */
+  REPAIR,
+
+  /** The rules expansion into terminals. */
+  EXPANSION,
+
+  /** The rules mapping onto the time series intervals. */
+  INTERVALS,
+
+  /** The rules pruning. */
+  PRUNING,
+
+  /** The rules clustering. */
+  CLUSTERING;
+
+}
@@ -0,0 +1,278 @@
+package net.seninp.gi.repair;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.StringTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import net.seninp.gi.logic.GIUtils;
+import net.seninp.gi.logic.SymbolTable;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.metrics.GIMetrics.StageTimer;
+import net.seninp.gi.metrics.PipelineStage;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * The block-wise repair for the inputs whose symbols, digrams and queue don't fit the memory at
+ * once. The input is streamed in the chunks of a fixed number of tokens, each chunk is compressed
+ * by {@link NewRepair} on its own, but all the chunks share the rules: a digram which already has
+ * a rule is substituted with it wherever it occurs, even once in a chunk. The compressed chunks
+ * are concatenated and compressed again, in the chunks whose boundaries are shifted by a half, so
+ * the digrams across the former boundaries are merged too, until the sequence fits in a single
+ * chunk and is compressed at once, or the compression stalls.
+ *
+ * The memory taken by the compression is about {@link #BYTES_PER_TOKEN} per chunk token. The
+ * grammar itself, i.e., the rules, the R0 and the input terminal ids of 4 bytes per token, is
+ * kept as by the {@link NewRepair}. The grammar is valid, its R0 expands into the input and the
+ * rules occurrences point into the input, but it is larger than the one of the whole input repair
+ * since a digram which has no rule and occurs at most once per chunk is not substituted.
+ *
+ * @author psenin
+ *
+ */
+public final class ChunkedRePair {
+
+  /** The estimate of the compression working memory per token, in bytes. */
+  public static final int BYTES_PER_TOKEN = 256;
+
+  /** The smallest chunk, in tokens. */
+  public static final int MIN_CHUNK_SIZE = 64;
+
+  /** The inverse of the smallest level gain, the fraction of symbols it shall substitute. */
+  private static final int MIN_GAIN = 100;
+
+  /** The initial capacity of the arrays, in symbols. */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static final String SPACE = " ";
+
+  // the logger
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedRePair.class);
+
+  /**
+   * Disable constructor.
+   */
+  private ChunkedRePair() {
+    assert true;
+  }
+
+  /**
+   * Computes the number of tokens in a chunk whose compression fits in the memory.
+   *
+   * @param memoryCeiling the memory available for the compression, in bytes.
+   * @return the chunk size, in tokens.
+   */
+  public static int chunkSize(long memoryCeiling) {
+    long res = memoryCeiling / BYTES_PER_TOKEN;
+    return (int) Math.max(MIN_CHUNK_SIZE, Math.min(Integer.MAX_VALUE >> 1, res));
+  }
+
+  /**
+   * Parses the SAX words, taken in the order of their indexes, into a grammar.
+   *
+   * @param saxRecords the SAX records to parse.
+   * @param memoryCeiling the memory available for the compression, in bytes.
+   * @return the grammar.
+   */
+  public static RePairGrammar parse(SAXRecords saxRecords, long memoryCeiling) {
+    return parse(Arrays.asList(GIUtils.toTokens(saxRecords)).iterator(),
+        chunkSize(memoryCeiling));
+  }
+
+  /**
+   * Parses the input string into a grammar.
+   *
+   * @param inputStr the string of terminals delimited by space.
+   * @param memoryCeiling the memory available for the compression, in bytes.
+   * @return the grammar.
+   */
+  public static RePairGrammar parse(String inputStr, long memoryCeiling) {
+    final StringTokenizer st = new StringTokenizer(inputStr, SPACE);
+    return parse(new Iterator<String>() {
+      @Override
+      public boolean hasNext() {
+        return st.hasMoreTokens();
+      }
+
+      @Override
+      public String next() {
+        if (!st.hasMoreTokens()) {
+          throw new NoSuchElementException();
+        }
+        return st.nextToken();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    }, chunkSize(memoryCeiling));
+  }
+
+  /**
+   * Parses the tokens into a grammar, compressing them in chunks.
+   *
+   * @param tokens the input terminals, read once.
+   * @param chunkSize the number of tokens compressed at once.
+   * @return the grammar.
+   */
+  public static RePairGrammar parse(Iterator<String> tokens, int chunkSize) {
+
+    if (chunkSize < 2) {
+      throw new IllegalArgumentException("The chunk size shall be at least 2: " + chunkSize);
+    }
+
+    StageTimer timer = GIMetrics.start(PipelineStage.REPAIR);
+
+    RePairGrammar grammar = new RePairGrammar();
+    SymbolTable terminals = new SymbolTable();
+    HashMap<Long, RePairRule> dictionary = new HashMap<Long, RePairRule>();
+
+    // the chunk being compressed: the symbol codes and their positions in the input, the arrays
+    // grow up to the chunk size as needed
+    //
+    int capacity = Math.min(chunkSize, INITIAL_CAPACITY);
+    int[] codes = new int[capacity];
+    int[] positions = new int[capacity];
+
+    // the input terminal ids, and the compressed sequence, as the codes and the positions
+    //
+    int[] input = new int[capacity];
+    int inputLength = 0;
+    int[] seqCodes = new int[capacity];
+    int[] seqPositions = new int[capacity];
+    int length = 0;
+
+    // level 0, the input chunks
+    //
+    while (tokens.hasNext()) {
+      int chunkLength = 0;
+      while (chunkLength < chunkSize && tokens.hasNext()) {
+        if (inputLength == input.length) {
+          input = Arrays.copyOf(input, input.length << 1);
+        }
+        if (chunkLength == codes.length) {
+          codes = Arrays.copyOf(codes, Math.min(chunkSize, codes.length << 1));
+          positions = Arrays.copyOf(positions, codes.length);
+        }
+        int id = terminals.intern(tokens.next());
+        input[inputLength] = id;
+        codes[chunkLength] = NewRepair.terminalCode(id);
+        positions[chunkLength] = inputLength;
+        inputLength++;
+        chunkLength++;
+      }
+      RePairSymbolRecord head = NewRepair.compress(codes, chunkLength, positions, grammar,
+          terminals, dictionary, timer);
+      int added = count(head);
+      if (length + added > seqCodes.length) {
+        int newCapacity = Math.max(seqCodes.length << 1, length + added);
+        seqCodes = Arrays.copyOf(seqCodes, newCapacity);
+        seqPositions = Arrays.copyOf(seqPositions, newCapacity);
+      }
+      length = append(head, codes, positions, seqCodes, seqPositions, length);
+    }
+    LOGGER.debug("compressed " + inputLength + " tokens into " + length + " symbols, "
+        + grammar.getRules().size() + " rules");
+
+    // the next levels, the boundaries of each odd one are shifted by a half of the chunk; a level
+    // which shrinks the sequence by less than a percent makes no progress
+    //
+    int level = 1;
+    int stalled = 0;
+    while (length > chunkSize && stalled < 2) {
+      int shift = (1 == level % 2) ? chunkSize / 2 : 0;
+      int newLength = 0;
+      int from = 0;
+      while (from < length) {
+        int to = Math.min(length, (0 == from && shift > 0) ? shift : from + chunkSize);
+        int chunkLength = to - from;
+        System.arraycopy(seqCodes, from, codes, 0, chunkLength);
+        System.arraycopy(seqPositions, from, positions, 0, chunkLength);
+        RePairSymbolRecord head = NewRepair.compress(codes, chunkLength, positions, grammar,
+            terminals, dictionary, timer);
+        // the compressed chunk is not longer than the chunk itself, so it is written in place
+        newLength = append(head, codes, positions, seqCodes, seqPositions, newLength);
+        from = to;
+      }
+      stalled = (length - newLength <= length / MIN_GAIN) ? stalled + 1 : 0;
+      length = newLength;
+      LOGGER.debug("level " + level + " compressed into " + length + " symbols, "
+          + grammar.getRules().size() + " rules");
+      level++;
+    }
+
+    // the last pass, the whole sequence at once, otherwise it is R0 as is
+    //
+    StringBuilder r0 = new StringBuilder();
+    if (length <= chunkSize) {
+      System.arraycopy(seqCodes, 0, codes, 0, length);
+      System.arraycopy(seqPositions, 0, positions, 0, length);
+      r0.append(NewRepair.asString(NewRepair.compress(codes, length, positions, grammar,
+          terminals, dictionary, timer)));
+    }
+    else {
+      for (int i = 0; i < length; i++) {
+        int code = seqCodes[i];
+        if (0 == (code & 1)) {
+          r0.append(terminals.getSymbol(code >>> 1));
+        }
+        else {
+          r0.append(grammar.getRules().get(code >>> 1).toString());
+        }
+        r0.append(SPACE);
+      }
+    }
+
+    grammar.setR0String(r0.toString());
+    grammar.setR0ExpnadedString(null);
+    grammar.setInput(Arrays.copyOf(input, inputLength), terminals);
+
+    timer.record(GIMetrics.TOKENS, inputLength);
+    timer.record(GIMetrics.RULES, grammar.getRules().size());
+    timer.stop();
+
+    return grammar;
+  }
+
+  /**
+   * Counts the compressed symbols.
+   *
+   * @param head the first symbol.
+   * @return the number of symbols.
+   */
+  private static int count(RePairSymbolRecord head) {
+    int res = 0;
+    for (RePairSymbolRecord s = head; null != s; s = s.getNext()) {
+      res++;
+    }
+    return res;
+  }
+
+  /**
+   * Appends the compressed symbols to the sequence.
+   *
+   * @param head the first symbol, its index is the position among the chunk codes.
+   * @param codes the chunk codes.
+   * @param positions the chunk input positions.
+   * @param seqCodes the sequence codes.
+   * @param seqPositions the sequence input positions.
+   * @param length the sequence length.
+   * @return the new sequence length.
+   */
+  private static int append(RePairSymbolRecord head, int[] codes, int[] positions,
+      int[] seqCodes, int[] seqPositions, int length) {
+    int res = length;
+    for (RePairSymbolRecord s = head; null != s; s = s.getNext()) {
+      int idx = s.getIndex();
+      seqCodes[res] = codes[idx];
+      seqPositions[res] = positions[idx];
+      res++;
+    }
+    return res;
+  }
+
+}
@@ -1,17 +1,23 @@
 package net.seninp.gi.repair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map.Entry;
+import java.util.Map;
 import java.util.StringTokenizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import net.seninp.gi.logic.GIUtils;
+import net.seninp.gi.logic.SymbolTable;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.metrics.GIMetrics.StageTimer;
+import net.seninp.gi.metrics.PipelineStage;
 import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
 
 /**
- * Improved repair implementation.
+ * Improved repair implementation. The parsing checks for the thread interrupt as it goes, and
+ * stops with a {@link java.util.concurrent.CancellationException} once the thread is interrupted.
  * 
  * @author psenin
  *
@@ -20,6 +26,9 @@ public class NewRepair {
 
   private static final String SPACE = " ";
 
+  /** The interrupt is checked once per this many symbols, plus one, of the input scan. */
+  private static final int INTERRUPT_CHECK_MASK = 0xFFF;
+
   // the logger
   //
   private static final Logger LOGGER = LoggerFactory.getLogger(NewRepair.class);
@@ -32,39 +41,147 @@ public class NewRepair {
    */
   public static RePairGrammar parse(String inputStr) {
 
-    Date start0 = new Date();
-    LOGGER.debug("input string (" + String.valueOf(countSpaces(inputStr) + 1) + " tokens) ");
+    // tokenize the input string
+    StringTokenizer st = new StringTokenizer(inputStr, SPACE);
+    String[] tokens = new String[st.countTokens()];
+    for (int i = 0; i < tokens.length; i++) {
+      tokens[i] = st.nextToken();
+    }
+
+    return parse(tokens, inputStr.substring(0));
+  }
+
+  /**
+   * Parses the SAX words, taken in the order of their indexes, into a grammar. The result is the
+   * same as of parsing the {@link SAXRecords#getSAXString(String)} output, but the words are
+   * taken directly, so there is no string to tokenize.
+   * 
+   * @param saxRecords the SAX records to parse.
+   * @return the grammar.
+   */
+  public static RePairGrammar parse(SAXRecords saxRecords) {
+
+    String[] tokens = GIUtils.toTokens(saxRecords);
+
+    // the expanded R0 is what the SAX string would be, i.e., each word followed by the space,
+    // which is the grammar's default
+    return parse(tokens, null);
+  }
+
+  /**
+   * Parses the tokens into a grammar.
+   * 
+   * @param tokens the terminals sequence.
+   * @param expandedString the input as a string, becomes the expanded R0 if not null.
+   * @return the grammar.
+   */
+  private static RePairGrammar parse(String[] tokens, String expandedString) {
+
+    StageTimer timer = GIMetrics.start(PipelineStage.REPAIR);
+    int tokensCount = tokens.length;
+    LOGGER.debug("input string (" + String.valueOf(tokensCount) + " tokens) ");
 
     RePairGrammar grammar = new RePairGrammar();
 
-    // two data structures
+    // the input as the terminal ids, terminals are interned as they seen, and as the symbol codes
     //
-    // 1.0. - the string
-    ArrayList<RePairSymbolRecord> symbolizedString = new ArrayList<RePairSymbolRecord>(
-        countSpaces(inputStr) + 1);
+    SymbolTable terminals = new SymbolTable();
+    int[] input = new int[tokensCount];
+    int[] codes = new int[tokensCount];
+    for (int i = 0; i < tokensCount; i++) {
+      input[i] = terminals.intern(tokens[i]);
+      codes[i] = terminalCode(input[i]);
+    }
 
-    // 2.0. - the priority queue
-    RepairPriorityQueue digramsQueue = new RepairPriorityQueue();
+    RePairSymbolRecord r0 = compress(codes, tokensCount, null, grammar, terminals, null, timer);
 
-    // 3.0. - the R0 digrams occurrence hashtable: <digram string> -> <R0 occurrence indexes>
-    HashMap<String, ArrayList<Integer>> digramsTable = new HashMap<String, ArrayList<Integer>>();
+    grammar.setR0String(asString(r0));
+    // and since all completed, set the expanded string too
+    grammar.setR0ExpnadedString(expandedString);
+    grammar.setInput(input, terminals);
 
-    // 3.1. - all digrams ever seen will be here
-    // HashMap<String, ArrayList<Integer>> allDigramsTable = new HashMap<String,
-    // ArrayList<Integer>>();
+    timer.record(GIMetrics.TOKENS, tokensCount);
+    timer.record(GIMetrics.RULES, grammar.getRules().size());
+    timer.stop();
 
-    // tokenize the input string
-    StringTokenizer st = new StringTokenizer(inputStr, " ");
+    return grammar;
 
-    // while there are tokens, populate digrams hash and construct the table
+  }
+
+  /**
+   * Gets the code of a terminal. The terminal and the rule codes don't depend on the number of
+   * terminals, so the codes remain valid while the terminals table grows.
+   * 
+   * @param terminalId the terminal id.
+   * @return the symbol code.
+   */
+  static int terminalCode(int terminalId) {
+    return terminalId << 1;
+  }
+
+  /**
+   * Gets the code of a rule.
+   * 
+   * @param ruleNumber the rule number.
+   * @return the symbol code.
+   */
+  static int ruleCode(int ruleNumber) {
+    return (ruleNumber << 1) | 1;
+  }
+
+  /**
+   * Runs the Re-Pair cycle over the symbols, substituting the most frequent digram with a rule
+   * until no digram repeats. The new rules are added to the grammar; if the dictionary is given,
+   * the digrams which are already there are substituted with their rules first, wherever these
+   * occur, even once, and the new rules are put there.
+   * 
+   * @param codes the symbol codes, see {@link #terminalCode(int)} and {@link #ruleCode(int)},
+   * overwritten by the codes of the substituted rules.
+   * @param length the number of symbols.
+   * @param positions the input positions of the symbols, which become the rules occurrences, if
+   * null the symbols are the input itself.
+   * @param grammar the grammar.
+   * @param terminals the terminals table.
+   * @param dictionary the rules by their digram keys, may be null.
+   * @param timer the stage timer.
+   * @return the first symbol of the compressed sequence, the index of a symbol is its position
+   * among the codes; or null if there are no symbols.
+   */
+  static RePairSymbolRecord compress(int[] codes, int length, int[] positions,
+      RePairGrammar grammar, SymbolTable terminals, Map<Long, RePairRule> dictionary,
+      StageTimer timer) {
+
+    Date start0 = new Date();
+
+    // two data structures
     //
-    int stringPositionCounter = 0;
-    while (st.hasMoreTokens()) {
+    // 1.0. - the string
+    ArrayList<RePairSymbolRecord> symbolizedString = new ArrayList<RePairSymbolRecord>(length);
+
+    // 2.0. - the R0 digrams occurrence table: <digram code> -> <R0 occurrence indexes>
+    RePairDigramTable digramsTable = new RePairDigramTable(length);
 
-      // got token, make a symbol
-      String token = st.nextToken();
-      RePairSymbol symbol = new RePairSymbol(token, stringPositionCounter);
-      // LOGGER.debug("token @" + stringPositionCounter + ": " + token);
+    // 3.0. - the priority queue of the digram table entries
+    RePairDigramQueue digramsQueue = new RePairDigramQueue(length, length);
+
+    // while there are symbols, populate digrams hash and construct the table
+    //
+    for (int stringPositionCounter = 0; stringPositionCounter < length; stringPositionCounter++) {
+
+      if (0 == (stringPositionCounter & INTERRUPT_CHECK_MASK)) {
+        GIUtils.checkInterrupted();
+      }
+
+      // got a code, make a symbol, all the symbols of a terminal share its interned value
+      int code = codes[stringPositionCounter];
+      RePairSymbol symbol;
+      if (0 == (code & 1)) {
+        symbol = new RePairSymbol(terminals.getSymbol(code >>> 1), stringPositionCounter);
+      }
+      else {
+        symbol = new RePairGuard(grammar.getRules().get(code >>> 1));
+        symbol.setStringPosition(stringPositionCounter);
+      }
 
       // add it to the string
       RePairSymbolRecord sr = new RePairSymbolRecord(symbol);
@@ -73,230 +190,223 @@ public class NewRepair {
       // make a digram if we at the second and all consecutive places
       if (stringPositionCounter > 0) {
 
-        // digram str
-        StringBuffer digramStr = new StringBuffer();
-        digramStr.append(symbolizedString.get(stringPositionCounter - 1).getPayload().toString())
-            .append(SPACE)
-            .append(symbolizedString.get(stringPositionCounter).getPayload().toString());
-
         // fill the digram occurrence frequency
-        if (digramsTable.containsKey(digramStr.toString())) {
-          digramsTable.get(digramStr.toString()).add(stringPositionCounter - 1);
-          // LOGGER.debug(" .added a digram entry to: " + digramStr.toString());
-        }
-        else {
-          ArrayList<Integer> arr = new ArrayList<Integer>();
-          arr.add(stringPositionCounter - 1);
-          digramsTable.put(digramStr.toString(), arr);
-          // LOGGER.debug(" .created a digram entry for: " + digramStr.toString());
-        }
+        RePairSymbolRecord prev = symbolizedString.get(stringPositionCounter - 1);
+        digramsTable.addOccurrence(
+            RePairDigramTable.pack(codes[stringPositionCounter - 1], code), prev);
 
-        symbolizedString.get(stringPositionCounter - 1).setNext(sr);
-        sr.setPrevious(symbolizedString.get(stringPositionCounter - 1));
+        prev.setNext(sr);
+        sr.setPrevious(prev);
 
       }
 
-      // go on
-      stringPositionCounter++;
     }
     Date start1 = new Date();
     LOGGER.debug("tokenized input and extracted all pairs in "
         + SAXProcessor.timeToString(start0.getTime(), start1.getTime()) + ", " + digramsTable.size()
         + " distinct pairs found");
-    // LOGGER.debug("parsed the input string into the doubly linked list of tokens ...");
-    // LOGGER.debug("RePair input: " + asString(symbolizedString));
-    // LOGGER.debug("digrams table: " + printHash(digramsTable).replace("\n",
-    // "\n "));
-    // allDigramsTable.putAll(digramsTable);
-
-    // LOGGER.debug("populating the priority queue...");
-    // populate the priority queue and the index -> digram record map
+
+    // populate the priority queue, digrams are enumerated in the order they were first seen
     //
-    for (Entry<String, ArrayList<Integer>> e : digramsTable.entrySet()) {
-      if (e.getValue().size() > 1) {
-        // create a digram record
-        RepairDigramRecord dr = new RepairDigramRecord(e.getKey(), e.getValue().size());
-        // put the record into the priority queue
-        digramsQueue.enqueue(dr);
+    for (int id = 0; id < digramsTable.getEntriesCount(); id++) {
+      if (digramsTable.getFrequency(id) > 1) {
+        digramsQueue.enqueue(id, digramsTable.getFrequency(id));
       }
     }
     Date start2 = new Date();
-//    LOGGER.debug("built the priority queue in "
-//        + SAXProcessor.timeToString(start1.getTime(), start2.getTime()) + ", " + digramsQueue.size()
-//        + " digrams in the queue");
-    // LOGGER.debug(digramsQueue.toString().replace("\n",
-    // "\n "));
-    // System.out.println(digramsQueue.toString());
+
+    // the list of digrams created while substituting a digram with a rule, the digram table marks
+    // those which are already listed
+    //
+    int[] newDigrams = new int[16];
+    int mark = 0;
+    long substitutions = 0;
+
+    // the codes of the digrams which already have a rule, these are taken before the queue; the
+    // digrams made by their substitution are listed too, as a rule may be made of other rules
+    //
+    long[] known = new long[16];
+    int knownHead = 0;
+    int knownTail = 0;
+    if (null != dictionary) {
+      for (int id = 0; id < digramsTable.getEntriesCount(); id++) {
+        if (digramsTable.getFrequency(id) > 0
+            && dictionary.containsKey(digramsTable.getKey(id))) {
+          known = append(known, knownTail++, digramsTable.getKey(id));
+        }
+      }
+    }
 
     // start the Re-Pair cycle
     //
-    RepairDigramRecord entry = null;
-    while ((entry = digramsQueue.dequeue()) != null) {
+    while (true) {
+
+      GIUtils.checkInterrupted();
 
-      // LOGGER.debug(" *the current R0: " + asString(symbolizedString));
-      // LOGGER.debug(" *digrams table: " + printHash(digramsTable).replace("\n",
-      // "\n "));
+      // a known digram may be gone by now, consumed by the overlapping substitutions
       //
-      // LOGGER.debug(" *polled a priority queue entry: " + entry.str + " : " + entry.freq);
-      // LOGGER.debug(" *" + digramsQueue.toString().replace("\n",
-      // "\n "));
-      // digramsQueue.runCheck();
+      int entryId = -1;
+      while (entryId < 0 && knownHead < knownTail) {
+        entryId = digramsTable.find(known[knownHead++]);
+      }
+      if (entryId >= 0) {
+        digramsQueue.update(entryId, 0);
+      }
+      else {
+        entryId = digramsQueue.dequeue();
+        if (entryId < 0) {
+          break;
+        }
+      }
 
       // create a new rule
       //
-      ArrayList<Integer> occurrences = digramsTable.get(entry.str);
+      long digramCode = digramsTable.getKey(entryId);
 
-      RePairSymbolRecord first = symbolizedString.get(occurrences.get(0));
+      RePairSymbolRecord first = digramsTable.getFirst(entryId);
       RePairSymbolRecord second = first.getNext();
 
-      RePairRule r = new RePairRule(grammar);
-      // System.out.println("polled a priority queue entry: " + entry.str + " : " + entry.freq + " -> created the rule " + r.ruleNumber);
-
-      r.setFirst(first.getPayload());
-      r.setSecond(second.getPayload());
-      r.assignLevel();
-      r.setExpandedRule(
-          first.getPayload().toExpandedString() + SPACE + second.getPayload().toExpandedString());
+      RePairRule r = (null == dictionary) ? null : dictionary.get(digramCode);
+      if (null == r) {
+        r = new RePairRule(grammar);
+        r.setFirst(first.getPayload());
+        r.setSecond(second.getPayload());
+        r.assignLevel();
+        if (null != dictionary) {
+          dictionary.put(digramCode, r);
+        }
+      }
+      int ruleCode = ruleCode(r.getId());
 
-      // LOGGER.debug(" .creating the rule: " + r.toInfoString());
+      // substitute each digram entry with the rule; occurrences which overlap with the already
+      // substituted ones are unlinked from the digram entry as we go, so walking the occurrences
+      // list directly visits all that are left
       //
-      // // substitute each digram entry with the rule
-      // //
-      // LOGGER.debug(" .substituting the digram at locations: " + occurrences.toString());
-      HashSet<String> newDigrams = new HashSet<String>(occurrences.size());
-
-      // sometimes we remove some of those...
-      ArrayList<Integer> loopOccurrences = new ArrayList<Integer>(occurrences.size());
-      for (Integer i : occurrences) {
-        loopOccurrences.add(i);
-      }
-      while (!(loopOccurrences.isEmpty())) {
+      mark++;
+      int newDigramsCount = 0;
+      RePairSymbolRecord currentS = digramsTable.getFirst(entryId);
+      while (null != currentS) {
 
         // secure the position
         //
-        int currentIndex = loopOccurrences.remove(0);
-        RePairSymbolRecord currentS = symbolizedString.get(currentIndex);
-        RePairSymbolRecord nextS = symbolizedString.get(currentIndex).getNext();
+        int currentIndex = currentS.getIndex();
+        RePairSymbolRecord nextS = currentS.getNext();
+        int currentCode = codes[currentIndex];
 
-        // 1.0. create a new guard to replace the digram
+        // 1.0. create a new guard to replace the digram, the record of its first symbol is reused
+        // for it, the record of the second symbol is unlinked
         //
         RePairGuard g = new RePairGuard(r);
-        g.setStringPosition(currentS.getIndex());
-        r.addOccurrence(currentS.getIndex());
-        RePairSymbolRecord guard = new RePairSymbolRecord(g);
-        symbolizedString.set(currentIndex, guard);
-        // also place a NULL placeholder next
+        g.setStringPosition(currentIndex);
+        r.addOccurrence((null == positions) ? currentIndex : positions[currentIndex]);
+        RePairSymbolRecord guard = currentS;
+        guard.setPayload(g);
+        codes[currentIndex] = ruleCode;
         RePairSymbolRecord nextNotNull = nextS.getNext();
         guard.setNext(nextNotNull);
         if (null != nextNotNull) {
           nextNotNull.setPrevious(guard);
         }
         RePairSymbolRecord prevNotNull = currentS.getPrevious();
-        guard.setPrevious(prevNotNull);
-        if (null != prevNotNull) {
-          prevNotNull.setNext(guard);
-        }
 
         // 2.0 correct entry at the left
         //
         if (currentIndex > 0 && null != prevNotNull) {
 
           // cleanup old left digram
-          String oldLeftDigram = prevNotNull.getPayload().toString() + " "
-              + currentS.getPayload().toString();
-          int newFreq = digramsTable.get(oldLeftDigram).size() - 1;
-          // consoleLogger
-          // .debug(" .removed left digram entry @" + prevNotNull.getPayload().getStringPosition()
-          // + " " + oldLeftDigram + ", new freq: " + newFreq);
-          digramsTable.get(oldLeftDigram).remove(Integer.valueOf(prevNotNull.getIndex()));
-          if (oldLeftDigram.equalsIgnoreCase(entry.str)) {
-            loopOccurrences.remove(Integer.valueOf(prevNotNull.getIndex()));
-          }
-          digramsQueue.updateDigramFrequency(oldLeftDigram, newFreq);
+          int prevIndex = prevNotNull.getIndex();
+          int oldLeftDigram = digramsTable
+              .find(RePairDigramTable.pack(codes[prevIndex], currentCode));
+          int newFreq = digramsTable.getFrequency(oldLeftDigram) - 1;
+          digramsTable.removeOccurrence(oldLeftDigram, prevNotNull);
+          digramsQueue.update(oldLeftDigram, newFreq);
 
           // if it was the last entry...
           if (0 == newFreq) {
             digramsTable.remove(oldLeftDigram);
-            newDigrams.remove(oldLeftDigram);
           }
 
           // and place the new digram entry
-          String newLeftDigram = prevNotNull.getPayload().toString() + " " + r.toString();
-          // see the new freq..
-          if (digramsTable.containsKey(newLeftDigram)) {
-            digramsTable.get(newLeftDigram).add(prevNotNull.getPayload().getStringPosition());
-            // LOGGER.debug(" .added a digram entry to: " + newLeftDigram + ", @"
-            // + prevNotNull.getPayload().getStringPosition());
+          int newLeftDigram = digramsTable
+              .addOccurrence(RePairDigramTable.pack(codes[prevIndex], ruleCode), prevNotNull);
+          if (mark != digramsTable.getMark(newLeftDigram)) {
+            digramsTable.setMark(newLeftDigram, mark);
+            if (newDigramsCount == newDigrams.length) {
+              newDigrams = Arrays.copyOf(newDigrams, newDigrams.length << 1);
+            }
+            newDigrams[newDigramsCount++] = newLeftDigram;
           }
-          else {
-            ArrayList<Integer> arr = new ArrayList<Integer>();
-            arr.add(prevNotNull.getPayload().getStringPosition());
-            digramsTable.put(newLeftDigram, arr);
-            // LOGGER.debug(" .created a digram entry for: " + newLeftDigram.toString()
-            // + ", @" + prevNotNull.getPayload().getStringPosition());
-          }
-          newDigrams.add(newLeftDigram);
 
         }
 
         // 3.0 correct entry at the right
         //
         RePairSymbolRecord nextSS = nextS.getNext();
-        if (currentIndex < symbolizedString.size() - 2 && null != nextSS) {
+        boolean hasRight = currentIndex < length - 2 && null != nextSS;
+        if (hasRight) {
 
-          // cleanup old left digram
-          String oldRightDigram = nextS.getPayload().toString() + " "
-              + nextSS.getPayload().toString();
-          int newFreq = digramsTable.get(oldRightDigram).size() - 1;
-          // consoleLogger
-          // .debug(" .removed right digram entry @" + nextSS.getPayload().getStringPosition()
-          // + " " + oldRightDigram + ", new freq: " + newFreq);
-          digramsTable.get(oldRightDigram).remove(Integer.valueOf(nextS.getIndex()));
-          if (oldRightDigram.equalsIgnoreCase(entry.str)) {
-            loopOccurrences.remove(Integer.valueOf(nextS.getIndex()));
-          }
-          digramsQueue.updateDigramFrequency(oldRightDigram, newFreq);
+          // cleanup old right digram
+          int nextIndex = nextS.getIndex();
+          int oldRightDigram = digramsTable
+              .find(RePairDigramTable.pack(codes[nextIndex], codes[nextSS.getIndex()]));
+          int newFreq = digramsTable.getFrequency(oldRightDigram) - 1;
+          digramsTable.removeOccurrence(oldRightDigram, nextS);
+          digramsQueue.update(oldRightDigram, newFreq);
 
           // if it was the last entry...
           if (0 == newFreq) {
             digramsTable.remove(oldRightDigram);
-            newDigrams.remove(oldRightDigram);
           }
 
+        }
+
+        // the next occurrence is taken only now, when the overlapping ones are unlinked, and the
+        // guard record leaves the digram occurrences
+        RePairSymbolRecord nextOccurrence = digramsTable.getNext(currentS);
+        digramsTable.removeOccurrence(entryId, guard);
+        substitutions++;
+
+        if (hasRight) {
+
           // and place the new digram entry
-          String newRightDigram = r.toString() + " " + nextSS.getPayload().toString();
-          // see the new freq..
-          if (digramsTable.containsKey(newRightDigram)) {
-            digramsTable.get(newRightDigram).add(currentS.getPayload().getStringPosition());
-            // LOGGER.debug(" .added a digram entry to: " + newRightDigram + ", @"
-            // + currentS.getPayload().getStringPosition());
-          }
-          else {
-            ArrayList<Integer> arr = new ArrayList<Integer>();
-            arr.add(currentS.getPayload().getStringPosition());
-            digramsTable.put(newRightDigram, arr);
-            // LOGGER.debug(" .created a digram entry for: " + newRightDigram.toString()
-            // + ", @" + currentS.getPayload().getStringPosition());
+          int newRightDigram = digramsTable
+              .addOccurrence(RePairDigramTable.pack(ruleCode, codes[nextSS.getIndex()]), guard);
+          if (mark != digramsTable.getMark(newRightDigram)) {
+            digramsTable.setMark(newRightDigram, mark);
+            if (newDigramsCount == newDigrams.length) {
+              newDigrams = Arrays.copyOf(newDigrams, newDigrams.length << 1);
+            }
+            newDigrams[newDigramsCount++] = newRightDigram;
           }
-          newDigrams.add(newRightDigram);
 
         }
 
+        currentS = nextOccurrence;
+
       } // walk over all occurrences
 
       // voila -- remove the digram itself from the tracking table
-      digramsTable.remove(entry.str);
+      digramsTable.remove(entryId);
 
-      // update new digram frequencies and if needed place those into priority queue
+      // update new digram frequencies and if needed place those into priority queue; the mark is
+      // reset once a digram is processed, the removed (and possibly reused) entries are unmarked
       //
-      for (String digramStr : newDigrams) {
-        if (digramsTable.get(digramStr).size() > 1) {
-          if (digramsQueue.containsDigram(digramStr)) {
-            digramsQueue.updateDigramFrequency(digramStr, digramsTable.get(digramStr).size());
+      for (int i = 0; i < newDigramsCount; i++) {
+        int id = newDigrams[i];
+        if (mark != digramsTable.getMark(id)) {
+          continue;
+        }
+        digramsTable.setMark(id, 0);
+        if (null != dictionary && dictionary.containsKey(digramsTable.getKey(id))) {
+          known = append(known, knownTail++, digramsTable.getKey(id));
+        }
+        int freq = digramsTable.getFrequency(id);
+        if (freq > 1) {
+          if (digramsQueue.contains(id)) {
+            digramsQueue.update(id, freq);
           }
           else {
-            digramsQueue
-                .enqueue(new RepairDigramRecord(digramStr, digramsTable.get(digramStr).size()));
+            digramsQueue.enqueue(id, freq);
           }
         }
       }
@@ -307,19 +417,26 @@ public class NewRepair {
     LOGGER.debug("finished repair grammar construction in "
         + SAXProcessor.timeToString(start2.getTime(), start3.getTime()));
 
-    // LOGGER.debug("finished RePair run ...");
-    // LOGGER.debug("R0: " + asString(symbolizedString));
-    // LOGGER.debug("digrams table: " + printHash(digramsTable).replace("\n",
-    // "\n "));
-    // LOGGER.debug("digrams queue: " + digramsQueue.toString().replace("\n",
-    // "\n "));
+    timer.record(GIMetrics.DIGRAMS, digramsTable.getEntriesCount());
+    timer.record(GIMetrics.QUEUE_PEAK, digramsQueue.getPeakSize());
+    timer.record(GIMetrics.SUBSTITUTIONS, substitutions);
+    timer.record(GIMetrics.OCCURRENCE_VISITS, digramsTable.getVisitsCount());
 
-    grammar.setR0String(asString(symbolizedString));
-    // and since all completed, set the expanded string too
-    grammar.setR0ExpnadedString(inputStr.substring(0));
-
-    return grammar;
+    return symbolizedString.isEmpty() ? null : symbolizedString.get(0);
+  }
 
+  /**
+   * Places the digram code at the end of the list, growing it if needed.
+   *
+   * @param list the list.
+   * @param size the list size.
+   * @param code the digram code.
+   * @return the list.
+   */
+  private static long[] append(long[] list, int size, long code) {
+    long[] res = (size == list.length) ? Arrays.copyOf(list, size << 1) : list;
+    res[size] = code;
+    return res;
   }
 
   // private static String printHash(HashMap<String, ArrayList<Integer>> digramsTable) {
@@ -330,34 +447,21 @@ public class NewRepair {
   // return sb.delete(sb.length() - 1, sb.length()).toString();
   // }
 
-  private static String asString(ArrayList<RePairSymbolRecord> symbolizedString) {
+  /**
+   * Prints the symbols, each followed by a space.
+   * 
+   * @param head the first symbol, since digrams are starting from left symbol, the symbol 0 is
+   * never replaced by the NULL.
+   * @return the string.
+   */
+  static String asString(RePairSymbolRecord head) {
     StringBuffer res = new StringBuffer();
-    RePairSymbolRecord s = symbolizedString.get(0); // since digrams are starting from left symbol,
-                                                    // the symbol 0 is never NULL
-    do {
+    RePairSymbolRecord s = head;
+    while (null != s) {
       res.append(s.getPayload().toString()).append(" ");
       s = s.getNext();
     }
-    while (null != s);
     return res.toString();
   }
 
-  /**
-   * Counts spaces in the string.
-   * 
-   * @param str the string to process.
-   * @return number of spaces found.
-   */
-  private static int countSpaces(String str) {
-    if (null == str) {
-      return -1;
-    }
-    int counter = 0;
-    for (int i = 0; i < str.length(); i++) {
-      if (str.charAt(i) == ' ') {
-        counter++;
-      }
-    }
-    return counter;
-  }
 }
@@ -0,0 +1,199 @@
+package net.seninp.gi.repair;
+
+import java.util.Arrays;
+
+/**
+ * The RePair priority queue keyed by the {@link RePairDigramTable} entry ids, the bucketed queue
+ * of Larsson and Moffat. The list nodes are the entry ids and the links are kept in the primitive
+ * arrays indexed by them, so neither enqueue, dequeue nor a frequency change allocates, and the
+ * digrams need no names.
+ *
+ * A digram of frequency f, if f is less than the number of buckets, is kept in the f-th bucket,
+ * all more frequent digrams are kept in a single list. Digrams of the same frequency are dequeued
+ * in the reverse order of their placement into a bucket.
+ *
+ * @author psenin
+ *
+ */
+public class RePairDigramQueue {
+
+  private static final int NONE = -1;
+
+  /** The buckets heads, the bucket index is the digram frequency. */
+  private final int[] buckets;
+
+  /** The highest bucket which may be not empty. */
+  private int top;
+
+  /** The head of the high frequency digrams list. */
+  private int high = NONE;
+
+  /** The lists links and the frequencies by entry id, zero frequency marks the absent ones. */
+  private int[] prev;
+  private int[] next;
+  private int[] freqs;
+
+  private int size;
+  private int peakSize;
+
+  /**
+   * Constructor.
+   *
+   * @param inputLength the length (in tokens) of the string RePair processes, used to size the
+   * buckets array.
+   * @param entries the expected number of digram entries.
+   */
+  public RePairDigramQueue(int inputLength, int entries) {
+    int bucketsNum = (int) Math.ceil(Math.sqrt(Math.max(inputLength, 4))) + 1;
+    this.buckets = new int[bucketsNum];
+    Arrays.fill(this.buckets, NONE);
+    int capacity = Math.max(16, entries);
+    this.prev = new int[capacity];
+    this.next = new int[capacity];
+    this.freqs = new int[capacity];
+  }
+
+  /**
+   * Places the digram into the queue.
+   *
+   * @param id the digram entry id, must not be in the queue.
+   * @param freq the digram frequency, at least 2.
+   */
+  public void enqueue(int id, int freq) {
+    if (id >= this.freqs.length) {
+      int capacity = Math.max(this.freqs.length << 1, id + 1);
+      this.prev = Arrays.copyOf(this.prev, capacity);
+      this.next = Arrays.copyOf(this.next, capacity);
+      this.freqs = Arrays.copyOf(this.freqs, capacity);
+    }
+    if (0 != this.freqs[id]) {
+      throw new IllegalArgumentException("The digram " + id + " is already in the queue");
+    }
+    this.freqs[id] = freq;
+    link(id);
+    this.size++;
+    this.peakSize = Math.max(this.peakSize, this.size);
+  }
+
+  /**
+   * Removes the most frequent digram from the queue.
+   *
+   * @return the digram entry id, or -1 if the queue is empty.
+   */
+  public int dequeue() {
+    int id = findMax();
+    if (NONE != id) {
+      unlink(id);
+      this.freqs[id] = 0;
+      this.size--;
+    }
+    return id;
+  }
+
+  /**
+   * Checks if the digram is in the queue.
+   *
+   * @param id the digram entry id.
+   * @return true if it is in the queue.
+   */
+  public boolean contains(int id) {
+    return id < this.freqs.length && 0 != this.freqs[id];
+  }
+
+  /**
+   * Changes the digram frequency, the digram is evicted if its frequency falls below 2. Nothing is
+   * done if the digram is not in the queue.
+   *
+   * @param id the digram entry id.
+   * @param newFreq the new frequency.
+   */
+  public void update(int id, int newFreq) {
+    if (!contains(id) || newFreq == this.freqs[id]) {
+      return;
+    }
+    unlink(id);
+    if (2 > newFreq) {
+      this.freqs[id] = 0;
+      this.size--;
+      return;
+    }
+    this.freqs[id] = newFreq;
+    link(id);
+  }
+
+  /**
+   * Returns the queue size.
+   *
+   * @return the number of digrams in the queue.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the largest size the queue had.
+   *
+   * @return the peak number of digrams in the queue.
+   */
+  public int getPeakSize() {
+    return this.peakSize;
+  }
+
+  private int findMax() {
+    if (NONE != this.high) {
+      int max = this.high;
+      for (int id = this.next[this.high]; NONE != id; id = this.next[id]) {
+        if (this.freqs[id] > this.freqs[max]) {
+          max = id;
+        }
+      }
+      return max;
+    }
+    while (this.top > 0 && NONE == this.buckets[this.top]) {
+      this.top--;
+    }
+    return this.buckets[this.top];
+  }
+
+  private void link(int id) {
+    int freq = this.freqs[id];
+    int head;
+    this.prev[id] = NONE;
+    if (freq < this.buckets.length) {
+      head = this.buckets[freq];
+      this.buckets[freq] = id;
+      if (freq > this.top) {
+        this.top = freq;
+      }
+    }
+    else {
+      head = this.high;
+      this.high = id;
+    }
+    this.next[id] = head;
+    if (NONE != head) {
+      this.prev[head] = id;
+    }
+  }
+
+  private void unlink(int id) {
+    int p = this.prev[id];
+    int n = this.next[id];
+    if (NONE == p) {
+      int freq = this.freqs[id];
+      if (freq < this.buckets.length) {
+        this.buckets[freq] = n;
+      }
+      else {
+        this.high = n;
+      }
+    }
+    else {
+      this.next[p] = n;
+    }
+    if (NONE != n) {
+      this.prev[n] = p;
+    }
+  }
+
+}
@@ -0,0 +1,362 @@
+package net.seninp.gi.repair;
+
+import java.util.Arrays;
+
+/**
+ * The RePair digrams occurrence table. Maps a digram, i.e. a pair of integer symbol codes packed
+ * into a single long, to the list of its occurrences in R0. Backed by an open-addressing hash
+ * table with linear probing over the primitive keys, so the lookups do not allocate.
+ *
+ * Following Larsson and Moffat, the occurrences list is threaded through the symbol records which
+ * start the digram occurrences, so an occurrence is added or removed in O(1).
+ *
+ * Each digram is addressed by an integer entry id which stays valid until the digram is removed
+ * from the table; ids of removed digrams are reused. Before any removal, the entry ids enumerate
+ * digrams in the order they were first seen.
+ *
+ * @author psenin
+ *
+ */
+public class RePairDigramTable {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private static final int EMPTY_SLOT = -1;
+
+  /** The hash table slots, each holds an entry id or EMPTY_SLOT. */
+  private int[] slots;
+  private int mask;
+
+  /** The entries: a digram code, its occurrences, and a scratch mark. */
+  private long[] keys;
+  private RePairSymbolRecord[] heads;
+  private RePairSymbolRecord[] tails;
+  private int[] counts;
+  private int[] marks;
+
+  /** Entry ids available for reuse. */
+  private int[] freeIds;
+  private int freeCount;
+
+  /** The number of entry ids ever allocated. */
+  private int entriesCount;
+
+  /** The number of digrams in the table. */
+  private int size;
+
+  /** The number of the occurrences lists nodes visited, i.e., read, added or removed. */
+  private long visits;
+
+  /**
+   * Constructor.
+   */
+  public RePairDigramTable() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param expectedSize the expected number of distinct digrams.
+   */
+  public RePairDigramTable(int expectedSize) {
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity < 2 * expectedSize) {
+      capacity = capacity << 1;
+    }
+    this.slots = new int[capacity];
+    Arrays.fill(this.slots, EMPTY_SLOT);
+    this.mask = capacity - 1;
+    int entries = Math.max(DEFAULT_CAPACITY, expectedSize);
+    this.keys = new long[entries];
+    this.heads = new RePairSymbolRecord[entries];
+    this.tails = new RePairSymbolRecord[entries];
+    this.counts = new int[entries];
+    this.marks = new int[entries];
+    this.freeIds = new int[DEFAULT_CAPACITY];
+  }
+
+  /**
+   * Packs two symbol codes into a digram code.
+   *
+   * @param first the first symbol code.
+   * @param second the second symbol code.
+   * @return the digram code.
+   */
+  public static long pack(int first, int second) {
+    return (((long) first) << 32) | (second & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Gets the number of digrams in the table.
+   *
+   * @return the number of digrams.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the number of entry ids ever allocated, i.e. the exclusive upper bound of entry ids.
+   *
+   * @return the entry ids bound.
+   */
+  public int getEntriesCount() {
+    return this.entriesCount;
+  }
+
+  /**
+   * Finds the digram entry.
+   *
+   * @param key the digram code.
+   * @return the entry id, or -1 if the digram is not in the table.
+   */
+  public int find(long key) {
+    int slot = hash(key) & this.mask;
+    while (EMPTY_SLOT != this.slots[slot]) {
+      int id = this.slots[slot];
+      if (key == this.keys[id]) {
+        return id;
+      }
+      slot = (slot + 1) & this.mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Adds the digram occurrence at the end of the digram's occurrences list, creates the digram
+   * entry if needed.
+   *
+   * @param key the digram code.
+   * @param occurrence the symbol which starts the digram occurrence.
+   * @return the entry id.
+   */
+  public int addOccurrence(long key, RePairSymbolRecord occurrence) {
+    int id = find(key);
+    if (id < 0) {
+      id = newEntry(key);
+    }
+    RePairSymbolRecord tail = this.tails[id];
+    occurrence.setPreviousOccurrence(tail);
+    occurrence.setNextOccurrence(null);
+    if (null == tail) {
+      this.heads[id] = occurrence;
+    }
+    else {
+      tail.setNextOccurrence(occurrence);
+    }
+    this.tails[id] = occurrence;
+    this.counts[id]++;
+    this.visits++;
+    return id;
+  }
+
+  /**
+   * Removes the digram occurrence, the order of others is kept.
+   *
+   * @param id the entry id.
+   * @param occurrence the symbol which starts the digram occurrence, must be in the list.
+   */
+  public void removeOccurrence(int id, RePairSymbolRecord occurrence) {
+    RePairSymbolRecord prev = occurrence.getPreviousOccurrence();
+    RePairSymbolRecord next = occurrence.getNextOccurrence();
+    if (null == prev) {
+      this.heads[id] = next;
+    }
+    else {
+      prev.setNextOccurrence(next);
+    }
+    if (null == next) {
+      this.tails[id] = prev;
+    }
+    else {
+      next.setPreviousOccurrence(prev);
+    }
+    occurrence.setPreviousOccurrence(null);
+    occurrence.setNextOccurrence(null);
+    this.counts[id]--;
+    this.visits++;
+  }
+
+  /**
+   * Gets the digram frequency, i.e., the number of its occurrences.
+   *
+   * @param id the entry id.
+   * @return the occurrences count.
+   */
+  public int getFrequency(int id) {
+    return this.counts[id];
+  }
+
+  /**
+   * Gets the first digram occurrence, the rest are linked from it in the order they were added.
+   *
+   * @param id the entry id.
+   * @return the symbol which starts the first occurrence, or null.
+   */
+  public RePairSymbolRecord getFirst(int id) {
+    this.visits++;
+    return this.heads[id];
+  }
+
+  /**
+   * Gets the next digram occurrence.
+   *
+   * @param occurrence the symbol which starts a digram occurrence.
+   * @return the symbol which starts the next occurrence, or null.
+   */
+  public RePairSymbolRecord getNext(RePairSymbolRecord occurrence) {
+    this.visits++;
+    return occurrence.getNextOccurrence();
+  }
+
+  /**
+   * Gets the number of the occurrences lists nodes visited so far, i.e., read, added or removed.
+   * RePair visits a bounded number of them per substituted occurrence, a scan over the lists would
+   * show up here.
+   *
+   * @return the visits count.
+   */
+  public long getVisitsCount() {
+    return this.visits;
+  }
+
+  /**
+   * Gets the digram code.
+   *
+   * @param id the entry id.
+   * @return the digram code.
+   */
+  public long getKey(int id) {
+    return this.keys[id];
+  }
+
+  /**
+   * Gets the entry mark, which is zero for a new entry.
+   *
+   * @param id the entry id.
+   * @return the mark value.
+   */
+  public int getMark(int id) {
+    return this.marks[id];
+  }
+
+  /**
+   * Sets the entry mark.
+   *
+   * @param id the entry id.
+   * @param mark the mark value.
+   */
+  public void setMark(int id, int mark) {
+    this.marks[id] = mark;
+  }
+
+  /**
+   * Removes the digram from the table, its entry id becomes available for reuse.
+   *
+   * @param id the entry id.
+   */
+  public void remove(int id) {
+
+    // locate the slot
+    //
+    int slot = hash(this.keys[id]) & this.mask;
+    while (id != this.slots[slot]) {
+      slot = (slot + 1) & this.mask;
+    }
+
+    // backward shift deletion keeps probe sequences intact without tombstones
+    //
+    int next = slot;
+    while (true) {
+      next = (next + 1) & this.mask;
+      int nextId = this.slots[next];
+      if (EMPTY_SLOT == nextId) {
+        break;
+      }
+      int home = hash(this.keys[nextId]) & this.mask;
+      if (((next - home) & this.mask) >= ((next - slot) & this.mask)) {
+        this.slots[slot] = nextId;
+        slot = next;
+      }
+    }
+    this.slots[slot] = EMPTY_SLOT;
+
+    // release the entry
+    //
+    this.heads[id] = null;
+    this.tails[id] = null;
+    this.counts[id] = 0;
+    this.marks[id] = 0;
+    if (this.freeCount == this.freeIds.length) {
+      this.freeIds = Arrays.copyOf(this.freeIds, this.freeIds.length << 1);
+    }
+    this.freeIds[this.freeCount++] = id;
+    this.size--;
+  }
+
+  private int newEntry(long key) {
+
+    int id;
+    if (this.freeCount > 0) {
+      id = this.freeIds[--this.freeCount];
+    }
+    else {
+      if (this.entriesCount == this.keys.length) {
+        int newLength = this.keys.length << 1;
+        this.keys = Arrays.copyOf(this.keys, newLength);
+        this.heads = Arrays.copyOf(this.heads, newLength);
+        this.tails = Arrays.copyOf(this.tails, newLength);
+        this.counts = Arrays.copyOf(this.counts, newLength);
+        this.marks = Arrays.copyOf(this.marks, newLength);
+      }
+      id = this.entriesCount++;
+    }
+    this.keys[id] = key;
+
+    if (2 * (this.size + 1) > this.slots.length) {
+      rehash(this.slots.length << 1);
+    }
+    int slot = hash(key) & this.mask;
+    while (EMPTY_SLOT != this.slots[slot]) {
+      slot = (slot + 1) & this.mask;
+    }
+    this.slots[slot] = id;
+    this.size++;
+
+    return id;
+  }
+
+  private void rehash(int capacity) {
+    int[] oldSlots = this.slots;
+    this.slots = new int[capacity];
+    Arrays.fill(this.slots, EMPTY_SLOT);
+    this.mask = capacity - 1;
+    for (int id : oldSlots) {
+      if (EMPTY_SLOT != id) {
+        int slot = hash(this.keys[id]) & this.mask;
+        while (EMPTY_SLOT != this.slots[slot]) {
+          slot = (slot + 1) & this.mask;
+        }
+        this.slots[slot] = id;
+      }
+    }
+  }
+
+  /**
+   * Mixes all the key bits into the low ones used for the slot selection (MurmurHash3 finalizer).
+   *
+   * @param key the key.
+   * @return the hash value.
+   */
+  private static int hash(long key) {
+    long h = key;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+}
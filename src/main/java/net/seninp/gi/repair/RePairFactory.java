@@ -10,8 +10,6 @@ import net.seninp.jmotif.sax.datastructure.SAXRecords;
  */
 public final class RePairFactory {
 
-  private static final String SPACE = " ";
-
   // the logger
   //
   // private static final Logger LOGGER = LoggerFactory.getLogger(RePairFactory.class);
@@ -32,7 +30,24 @@ public final class RePairFactory {
    */
   public static RePairGrammar buildGrammar(SAXRecords saxRecords) {
 
-    RePairGrammar grammar = NewRepair.parse(saxRecords.getSAXString(SPACE));
+    RePairGrammar grammar = NewRepair.parse(saxRecords);
+
+    return grammar;
+
+  }
+
+  /**
+   * Builds a repair grammar given a set of SAX records, compressing them in the chunks which fit
+   * in the memory, see {@link ChunkedRePair}.
+   * 
+   * @param saxRecords the records to process.
+   * @param memoryCeiling the memory available for the compression, in bytes.
+   * 
+   * @return the grammar.
+   */
+  public static RePairGrammar buildGrammar(SAXRecords saxRecords, long memoryCeiling) {
+
+    RePairGrammar grammar = ChunkedRePair.parse(saxRecords, memoryCeiling);
 
     return grammar;
 
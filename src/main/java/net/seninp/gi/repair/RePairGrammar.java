@@ -6,6 +6,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 import net.seninp.gi.logic.GrammarRuleRecord;
 import net.seninp.gi.logic.GrammarRules;
 import net.seninp.gi.logic.RuleInterval;
+import net.seninp.gi.logic.SymbolTable;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.metrics.GIMetrics.StageTimer;
+import net.seninp.gi.metrics.PipelineStage;
 import net.seninp.jmotif.sax.datastructure.SAXRecords;
 
 /**
@@ -29,6 +33,11 @@ public class RePairGrammar {
   protected String r0String;
   protected String r0ExpandedString;
 
+  /** The input terminal ids and the terminals table, the rules yields point into the input. */
+  private int[] tokens;
+  private SymbolTable terminals;
+  private boolean yieldsComputed;
+
   /**
    * Constructor.
    */
@@ -61,64 +70,94 @@ public class RePairGrammar {
   }
 
   /**
-   * Global method: iterates over all rules expanding them.
+   * Global method: iterates over all rules expanding them. A rule expands into the same terminals
+   * at each of its occurrences, so its yield is recorded as the offset of its first occurrence in
+   * the input and the number of terminals, which is the sum of its parts yields. The rules are
+   * visited in the order they were created, thus the parts of each rule are already processed.
+   * The expanded strings are built from the yields only when asked for.
    */
   public void expandRules() {
+    StageTimer timer = GIMetrics.start(PipelineStage.EXPANSION);
+    computeYields();
+    // the R0 expansion is the input with a space after each terminal
+    this.r0ExpandedString = null;
+    timer.record(GIMetrics.RULES, this.theRules.size());
+    timer.stop();
+  }
 
-    // iterate over all SAX containers
-    for (int currentPositionIndex = 1; currentPositionIndex <= this.theRules
-        .size(); currentPositionIndex++) {
-
-      RePairRule rr = this.theRules.get(currentPositionIndex);
-      String resultString = rr.toRuleString();
-
-      int currentSearchStart = resultString.indexOf(THE_R);
-      while (currentSearchStart >= 0) {
-
-        int spaceIdx = resultString.indexOf(SPACE, currentSearchStart);
-
-        String ruleName = resultString.substring(currentSearchStart, spaceIdx + 1);
-        Integer ruleId = Integer.valueOf(ruleName.substring(1, ruleName.length() - 1));
+  /**
+   * Computes the rules yields.
+   */
+  private void computeYields() {
+    for (int ruleIdx = 1; ruleIdx <= this.theRules.size(); ruleIdx++) {
+      RePairRule rr = this.theRules.get(ruleIdx);
+      rr.yieldOffset = rr.occurrences.isEmpty() ? -1 : rr.occurrences.get(0);
+      rr.yieldLength = yieldLength(rr.first) + yieldLength(rr.second);
+    }
+    this.yieldsComputed = true;
+  }
 
-        RePairRule rule = this.theRules.get(ruleId);
-        if (rule != null) {
-          if (rule.expandedRuleString.charAt(rule.expandedRuleString.length() - 1) == ' ') {
-            resultString = resultString.replaceAll(ruleName, rule.expandedRuleString);
-          }
-          else {
-            resultString = resultString.replaceAll(ruleName, rule.expandedRuleString + SPACE);
-          }
-        }
+  private static int yieldLength(RePairSymbol symbol) {
+    if (symbol.isGuard()) {
+      return ((RePairGuard) symbol).rule.yieldLength;
+    }
+    return 1;
+  }
 
-        currentSearchStart = resultString.indexOf("R", spaceIdx);
-      }
+  /**
+   * Sets the input as the sequence of terminal ids, the rules yields point into it.
+   * 
+   * @param tokens the input terminal ids.
+   * @param terminals the terminals table.
+   */
+  protected void setInput(int[] tokens, SymbolTable terminals) {
+    this.tokens = tokens;
+    this.terminals = terminals;
+  }
 
-      rr.setExpandedRule(resultString.trim());
+  /**
+   * Gets the expanded R0, i.e., the input string.
+   * 
+   * @return the expanded R0.
+   */
+  public String getR0ExpandedString() {
+    if (null == this.r0ExpandedString && null != this.tokens) {
+      return expand(0, this.tokens.length, true);
+    }
+    return this.r0ExpandedString;
+  }
 
+  /**
+   * Makes the rule expanded string from its yield.
+   * 
+   * @param rule the rule.
+   * @return the expanded string, or null if the rule can't be expanded from the input.
+   */
+  protected String expandRule(RePairRule rule) {
+    if (null == this.tokens) {
+      return null;
     }
+    if (!this.yieldsComputed) {
+      computeYields();
+    }
+    if (rule.yieldOffset < 0) {
+      return null;
+    }
+    return expand(rule.yieldOffset, rule.yieldLength, false);
+  }
 
-    // and the r0, String is immutable in Java
-    //
-    String resultString = this.r0String;
-
-    int currentSearchStart = resultString.indexOf(THE_R);
-    while (currentSearchStart >= 0) {
-      int spaceIdx = resultString.indexOf(SPACE, currentSearchStart);
-      String ruleName = resultString.substring(currentSearchStart, spaceIdx + 1);
-      Integer ruleId = Integer.valueOf(ruleName.substring(1, ruleName.length() - 1));
-      RePairRule rule = this.theRules.get(ruleId);
-      if (rule != null) {
-        if (rule.expandedRuleString.charAt(rule.expandedRuleString.length() - 1) == ' ') {
-          resultString = resultString.replaceAll(ruleName, rule.expandedRuleString);
-        }
-        else {
-          resultString = resultString.replaceAll(ruleName, rule.expandedRuleString + SPACE);
-        }
+  private String expand(int offset, int length, boolean trailingSpace) {
+    StringBuilder sb = new StringBuilder(length * 5);
+    for (int i = offset; i < offset + length; i++) {
+      if (i > offset) {
+        sb.append(SPACE);
       }
-      currentSearchStart = resultString.indexOf("R", spaceIdx);
+      sb.append(this.terminals.getSymbol(this.tokens[i]));
     }
-    this.r0ExpandedString = resultString;
-
+    if (trailingSpace && length > 0) {
+      sb.append(SPACE);
+    }
+    return sb.toString();
   }
 
   /**
@@ -132,7 +171,7 @@ public class RePairGrammar {
     for (int i = 1; i <= this.theRules.size(); i++) {
       RePairRule r = this.theRules.get(i);
       sb.append(THE_R).append(r.ruleNumber).append(" -> ").append(r.toRuleString()).append(" : ")
-          .append(r.expandedRuleString).append(", ").append(r.occurrences).append("\n");
+          .append(r.toExpandedRuleString()).append(", ").append(r.occurrences).append("\n");
     }
     return sb.toString();
   }
@@ -149,7 +188,7 @@ public class RePairGrammar {
     GrammarRuleRecord r0 = new GrammarRuleRecord();
     r0.setRuleNumber(0);
     r0.setRuleString(this.r0String);
-    r0.setExpandedRuleString(this.r0ExpandedString);
+    r0.setExpandedRuleString(getR0ExpandedString());
     r0.setOccurrences(new int[] { 0 });
     r0.setMeanLength(-1);
     r0.setMinMaxLength(new int[] { -1 });
@@ -161,8 +200,9 @@ public class RePairGrammar {
 
       rec.setRuleNumber(rule.ruleNumber);
       rec.setRuleString(rule.toRuleString());
-      rec.setExpandedRuleString(rule.expandedRuleString);
-      rec.setRuleYield(countSpaces(rule.expandedRuleString));
+      String expandedRuleString = rule.toExpandedRuleString();
+      rec.setExpandedRuleString(expandedRuleString);
+      rec.setRuleYield(countSpaces(expandedRuleString));
       rec.setOccurrences(rule.getOccurrences());
       rec.setRuleIntervals(rule.getRuleIntervals());
       rec.setRuleLevel(rule.getLevel());
@@ -201,26 +241,46 @@ public class RePairGrammar {
   public void buildIntervals(SAXRecords records, double[] originalTimeSeries,
       int slidingWindowSize) {
 
+    StageTimer timer = GIMetrics.start(PipelineStage.INTERVALS);
     records.buildIndex();
 
     for (int ruleIdx = 1; ruleIdx <= this.theRules.size(); ruleIdx++) {
 
       RePairRule rr = this.theRules.get(ruleIdx);
 
-      String[] split = rr.expandedRuleString.split(" ");
-      for (int strPos : rr.getOccurrences()) {
-        Integer tsPos = records.mapStringIndexToTSPosition(strPos + split.length - 1);
+      int yield = getYieldLength(rr);
+      for (int i = 0; i < rr.occurrences.size(); i++) {
+        int strPos = rr.occurrences.get(i);
+        Integer tsPos = records.mapStringIndexToTSPosition(strPos + yield - 1);
         if (null == tsPos) {
           rr.ruleIntervals.add(new RuleInterval(records.mapStringIndexToTSPosition(strPos),
               originalTimeSeries.length + 1)); // +1 cause right point is excluded
         }
         else {
           rr.ruleIntervals.add(new RuleInterval(records.mapStringIndexToTSPosition(strPos),
-              records.mapStringIndexToTSPosition(strPos + split.length - 1) + slidingWindowSize));
+              records.mapStringIndexToTSPosition(strPos + yield - 1) + slidingWindowSize));
         }
       }
     }
+    timer.record(GIMetrics.RULES, this.theRules.size());
+    timer.stop();
+
+  }
 
+  /**
+   * Gets the number of terminals the rule expands into.
+   * 
+   * @param rule the rule.
+   * @return the rule yield length.
+   */
+  private int getYieldLength(RePairRule rule) {
+    if (null != this.tokens) {
+      if (!this.yieldsComputed) {
+        computeYields();
+      }
+      return rule.yieldLength;
+    }
+    return rule.toExpandedRuleString().split(" ").length;
   }
 
   private static int mean(ArrayList<RuleInterval> arrayList) {
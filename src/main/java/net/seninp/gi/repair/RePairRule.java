@@ -1,6 +1,7 @@
 package net.seninp.gi.repair;
 
 import java.util.ArrayList;
+import net.seninp.gi.logic.OccurrenceList;
 import net.seninp.gi.logic.RuleInterval;
 
 /**
@@ -29,13 +30,17 @@ public class RePairRule {
   protected int ruleNumber;
   protected String expandedRuleString;
 
+  /** The rule yield: the input offset of the first occurrence and the number of terminals. */
+  protected int yieldOffset = -1;
+  protected int yieldLength;
+
   /** Both symbols, (i.e., pair). */
   protected RePairSymbol first;
   protected RePairSymbol second;
   protected int level;
 
   /** Occurrences. */
-  protected ArrayList<Integer> occurrences;
+  protected OccurrenceList occurrences;
 
   /** Which TS interval covered. */
   protected ArrayList<RuleInterval> ruleIntervals;
@@ -58,7 +63,7 @@ public class RePairRule {
 
     rg.theRules.put(this.ruleNumber, this);
 
-    this.occurrences = new ArrayList<Integer>();
+    this.occurrences = new OccurrenceList();
     this.ruleIntervals = new ArrayList<RuleInterval>();
 
   }
@@ -121,36 +126,49 @@ public class RePairRule {
   }
 
   /**
-   * Return the prefixed with R rule.
+   * Return the expanded rule string. Unless set explicitly, it is made from the rule yield on each
+   * call and is not kept.
    * 
-   * @return rule string.
+   * @return expanded rule string.
    */
   public String toExpandedRuleString() {
-    return this.expandedRuleString;
+    if (null != this.expandedRuleString) {
+      return this.expandedRuleString;
+    }
+    String res = this.grammar.expandRule(this);
+    if (null == res) {
+      // the grammar knows nothing of the input, expand the parts
+      res = this.first.toExpandedString() + SPACE + this.second.toExpandedString();
+    }
+    return res;
   }
 
   /**
-   * Adds a rule occurrence.
+   * Adds a rule occurrence. RePair substitutes a digram at each R0 position at most once, so the
+   * occurrences are not checked for duplicates (which made the substitution quadratic).
    * 
    * @param value the new value.
    */
   public void addOccurrence(int value) {
-    if (!this.occurrences.contains(value)) {
-      this.occurrences.add(value);
-    }
+    this.occurrences.add(value);
   }
 
   /**
    * Gets occurrences.
    * 
-   * @return all rule's occurrences.
+   * @return all rule's occurrences, a copy.
    */
   public int[] getOccurrences() {
-    int[] res = new int[this.occurrences.size()];
-    for (int i = 0; i < this.occurrences.size(); i++) {
-      res[i] = this.occurrences.get(i);
-    }
-    return res;
+    return this.occurrences.toArray();
+  }
+
+  /**
+   * Gets occurrences without copying.
+   * 
+   * @return all rule's occurrences, must not be modified.
+   */
+  public OccurrenceList getOccurrenceList() {
+    return this.occurrences;
   }
 
   public String toString() {
@@ -1,7 +1,5 @@
 package net.seninp.gi.repair;
 
-import java.util.Arrays;
-
 /**
  * The symbol -- which essentially is a token.
  * 
@@ -11,9 +9,9 @@ import java.util.Arrays;
 public class RePairSymbol {
 
   /**
-   * Payload.
+   * Payload, the same string instance is shared by all the symbols of a terminal.
    */
-  private char[] string;
+  private String string;
 
   /**
    * Position of the symbol in the string.
@@ -36,7 +34,7 @@ public class RePairSymbol {
    */
   public RePairSymbol(String token, int stringPosition) {
     super();
-    this.string = token.toCharArray();
+    this.string = token;
     this.stringPosition = stringPosition;
   }
 
@@ -77,18 +75,18 @@ public class RePairSymbol {
   }
   
   public String toExpandedString() {
-    return String.valueOf(this.string);
+    return this.string;
   }
 
   public String toString() {
-    return String.valueOf(this.string);
+    return this.string;
   }
 
   @Override
   public int hashCode() {
     final int prime = 31;
     int result = 1;
-    result = prime * result + Arrays.hashCode(string);
+    result = prime * result + ((string == null) ? 0 : string.hashCode());
     result = prime * result + ((stringPosition == null) ? 0 : stringPosition.hashCode());
     return result;
   }
@@ -102,7 +100,11 @@ public class RePairSymbol {
     if (getClass() != obj.getClass())
       return false;
     RePairSymbol other = (RePairSymbol) obj;
-    if (!Arrays.equals(string, other.string))
+    if (string == null) {
+      if (other.string != null)
+        return false;
+    }
+    else if (!string.equals(other.string))
       return false;
     if (stringPosition == null) {
       if (other.stringPosition != null)
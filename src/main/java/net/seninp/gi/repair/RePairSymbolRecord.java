@@ -15,6 +15,10 @@ public class RePairSymbolRecord {
   private RePairSymbolRecord next;
   private RePairSymbolRecord prev;
 
+  /** The other occurrences of the digram which starts at this symbol. */
+  private RePairSymbolRecord nextOccurrence;
+  private RePairSymbolRecord prevOccurrence;
+
   /**
    * Constructor.
    * 
@@ -33,6 +37,16 @@ public class RePairSymbolRecord {
     return payload;
   }
 
+  /**
+   * The payload setter, the record is reused for the guard which replaces the digram starting at
+   * it.
+   * 
+   * @param symbol the symbol to wrap.
+   */
+  public void setPayload(RePairSymbol symbol) {
+    this.payload = symbol;
+  }
+
   /**
    * The next symbol setter.
    * 
@@ -69,6 +83,42 @@ public class RePairSymbolRecord {
     return this.prev;
   }
 
+  /**
+   * The next occurrence setter.
+   * 
+   * @param sr the next occurrence pointer.
+   */
+  public void setNextOccurrence(RePairSymbolRecord sr) {
+    this.nextOccurrence = sr;
+  }
+
+  /**
+   * The previous occurrence setter.
+   * 
+   * @param sr the previous occurrence pointer.
+   */
+  public void setPreviousOccurrence(RePairSymbolRecord sr) {
+    this.prevOccurrence = sr;
+  }
+
+  /**
+   * Next occurrence getter.
+   * 
+   * @return the next occurrence of the digram starting at this symbol.
+   */
+  public RePairSymbolRecord getNextOccurrence() {
+    return this.nextOccurrence;
+  }
+
+  /**
+   * Previous occurrence getter.
+   * 
+   * @return the previous occurrence of the digram starting at this symbol.
+   */
+  public RePairSymbolRecord getPreviousOccurrence() {
+    return this.prevOccurrence;
+  }
+
   /**
    * An index getter, calls the payload's method for that.
    * 
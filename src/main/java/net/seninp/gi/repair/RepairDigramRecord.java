@@ -14,6 +14,9 @@ public class RepairDigramRecord implements Comparable<RepairDigramRecord> {
   // and its observed frequency
   protected int freq;
 
+  // the packed symbol codes of the digram, see RePairDigramTable
+  protected long code;
+
   /**
    * Constructor.
    * 
@@ -25,6 +28,18 @@ public class RepairDigramRecord implements Comparable<RepairDigramRecord> {
     this.freq = frequency;
   }
 
+  /**
+   * Constructor.
+   * 
+   * @param key the digram string.
+   * @param frequency digram's frequency.
+   * @param code the digram code.
+   */
+  public RepairDigramRecord(String key, int frequency, long code) {
+    this(key, frequency);
+    this.code = code;
+  }
+
   /**
    * A comparator built upon occurrence frequency only.
    */
@@ -57,6 +72,15 @@ public class RepairDigramRecord implements Comparable<RepairDigramRecord> {
     return this.freq;
   }
 
+  /**
+   * The digram code getter.
+   * 
+   * @return the packed symbol codes of the digram.
+   */
+  public long getCode() {
+    return this.code;
+  }
+
   public String toString() {
     return this.str + ":" + this.freq;
   };
@@ -0,0 +1,206 @@
+package net.seninp.gi.rulepruner;
+
+import java.util.List;
+import net.seninp.gi.logic.RuleInterval;
+
+/**
+ * The time series cover by the rule intervals, a bit per point packed into long words. The bitmap
+ * is updated in place and keeps the running count of the uncovered points, so checking for the
+ * complete cover is O(1), while the intervals are set a word at a time. The covered points per word
+ * are summed up by a Fenwick tree, so counting the covered points of an interval takes O(log n)
+ * regardless of the interval length.
+ *
+ * @author psenin
+ *
+ */
+public class CoverBitmap {
+
+  private static final int ADDRESS_BITS = 6;
+  private static final long WORD_MASK = 0xFFFFFFFFFFFFFFFFL;
+
+  private final long[] words;
+  private final int[] tree;
+  private final int length;
+  private int uncovered;
+
+  /**
+   * Constructor.
+   *
+   * @param length the number of points, all uncovered.
+   */
+  public CoverBitmap(int length) {
+    this.words = new long[(length + 63) >>> ADDRESS_BITS];
+    this.tree = new int[this.words.length + 1];
+    this.length = length;
+    this.uncovered = length;
+  }
+
+  /**
+   * Gets the number of points.
+   *
+   * @return the number of points.
+   */
+  public int length() {
+    return this.length;
+  }
+
+  /**
+   * Checks if the point is covered.
+   *
+   * @param index the point.
+   * @return true if covered.
+   */
+  public boolean isCovered(int index) {
+    if (index < 0 || index >= this.length) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + this.length);
+    }
+    return 0 != (this.words[index >>> ADDRESS_BITS] & (1L << index));
+  }
+
+  /**
+   * Gets the number of the uncovered points.
+   *
+   * @return the number of the uncovered points.
+   */
+  public int getUncoveredCount() {
+    return this.uncovered;
+  }
+
+  /**
+   * Checks for the uncovered points.
+   *
+   * @return true if some points are not covered.
+   */
+  public boolean hasUncovered() {
+    return this.uncovered > 0;
+  }
+
+  /**
+   * Gets the covered fraction of the points.
+   *
+   * @return the coverage.
+   */
+  public double getCoverage() {
+    return (double) (this.length - this.uncovered) / (double) this.length;
+  }
+
+  /**
+   * Covers the points of the interval.
+   *
+   * @param start the interval start, inclusive.
+   * @param end the interval end, exclusive.
+   * @return the number of the newly covered points.
+   */
+  public int cover(int start, int end) {
+    if (start >= end) {
+      return 0;
+    }
+    checkRange(start, end);
+
+    int newlyCovered = 0;
+    int startWord = start >>> ADDRESS_BITS;
+    int endWord = (end - 1) >>> ADDRESS_BITS;
+    long firstMask = WORD_MASK << start;
+    long lastMask = WORD_MASK >>> -end;
+
+    if (startWord == endWord) {
+      newlyCovered = setBits(startWord, firstMask & lastMask);
+    }
+    else {
+      newlyCovered = setBits(startWord, firstMask);
+      for (int i = startWord + 1; i < endWord; i++) {
+        newlyCovered += setBits(i, WORD_MASK);
+      }
+      newlyCovered += setBits(endWord, lastMask);
+    }
+
+    this.uncovered -= newlyCovered;
+    return newlyCovered;
+  }
+
+  /**
+   * Covers the points of all the intervals.
+   *
+   * @param intervals the intervals.
+   * @return the number of the newly covered points.
+   */
+  public int cover(List<RuleInterval> intervals) {
+    int res = 0;
+    for (RuleInterval i : intervals) {
+      res += cover(i.getStart(), i.getEnd());
+    }
+    return res;
+  }
+
+  /**
+   * Counts the covered points of the interval.
+   *
+   * @param start the interval start, inclusive.
+   * @param end the interval end, exclusive.
+   * @return the number of the covered points.
+   */
+  public int countCovered(int start, int end) {
+    if (start >= end) {
+      return 0;
+    }
+    checkRange(start, end);
+    return countCovered(end) - countCovered(start);
+  }
+
+  /**
+   * Converts the bitmap into the array form used by {@link RulePrunerFactory}.
+   *
+   * @return the cover array.
+   */
+  public boolean[] toArray() {
+    boolean[] res = new boolean[this.length];
+    for (int i = 0; i < this.length; i++) {
+      res[i] = 0 != (this.words[i >>> ADDRESS_BITS] & (1L << i));
+    }
+    return res;
+  }
+
+  /**
+   * Counts the covered points before the specified one.
+   *
+   * @param end the point, exclusive.
+   * @return the number of the covered points.
+   */
+  private int countCovered(int end) {
+    int word = end >>> ADDRESS_BITS;
+    int res = 0;
+    for (int i = word; i > 0; i -= i & -i) {
+      res += this.tree[i];
+    }
+    if (0 != (end & 63)) {
+      res += Long.bitCount(this.words[word] & ~(WORD_MASK << end));
+    }
+    return res;
+  }
+
+  /**
+   * Sets the word's bits.
+   *
+   * @param word the word index.
+   * @param mask the bits to set.
+   * @return the number of bits which were not set before.
+   */
+  private int setBits(int word, long mask) {
+    int res = Long.bitCount(~this.words[word] & mask);
+    if (0 != res) {
+      this.words[word] |= mask;
+      for (int i = word + 1; i < this.tree.length; i += i & -i) {
+        this.tree[i] += res;
+      }
+    }
+    return res;
+  }
+
+  private void checkRange(int start, int end) {
+    if (start < 0 || end > this.length) {
+      throw new IndexOutOfBoundsException(
+          "Interval: [" + start + ", " + end + "), Length: " + this.length);
+    }
+  }
+
+}
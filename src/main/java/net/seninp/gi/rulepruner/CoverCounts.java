@@ -0,0 +1,186 @@
+package net.seninp.gi.rulepruner;
+
+import java.util.List;
+import net.seninp.gi.logic.RuleInterval;
+
+/**
+ * Counts how many rule intervals cover each point of the time series. Backed by a segment tree
+ * with range additions and range minimum queries, so adding or removing an interval and checking
+ * whether all the points of an interval are still covered take O(log n) regardless of the interval
+ * length.
+ *
+ * @author psenin
+ *
+ */
+public class CoverCounts {
+
+  private final int length;
+
+  /** The tree leaves number and the tree height. */
+  private final int size;
+  private final int height;
+
+  /**
+   * The subtree minimum including the node's own pending addition, and the pending additions of
+   * the inner nodes, the leaves are at [size, 2 * size).
+   */
+  private final int[] min;
+  private final int[] add;
+
+  /**
+   * Constructor.
+   *
+   * @param length the number of points, all with zero count.
+   */
+  public CoverCounts(int length) {
+    this.length = length;
+    int height = 0;
+    while ((1 << height) < length) {
+      height++;
+    }
+    this.height = height;
+    this.size = 1 << height;
+    this.min = new int[2 * this.size];
+    this.add = new int[this.size];
+  }
+
+  /**
+   * Gets the number of points.
+   *
+   * @return the number of points.
+   */
+  public int length() {
+    return this.length;
+  }
+
+  /**
+   * Adds the intervals to the counts.
+   *
+   * @param intervals the intervals.
+   */
+  public void add(List<RuleInterval> intervals) {
+    for (RuleInterval i : intervals) {
+      add(i.getStart(), i.getEnd(), 1);
+    }
+  }
+
+  /**
+   * Removes the intervals from the counts.
+   *
+   * @param intervals the intervals, previously added.
+   */
+  public void remove(List<RuleInterval> intervals) {
+    for (RuleInterval i : intervals) {
+      add(i.getStart(), i.getEnd(), -1);
+    }
+  }
+
+  /**
+   * Adds the value to the counts of the interval's points.
+   *
+   * @param start the interval start, inclusive.
+   * @param end the interval end, exclusive.
+   * @param value the value.
+   */
+  public void add(int start, int end, int value) {
+    if (start >= end) {
+      return;
+    }
+    checkRange(start, end);
+    int l = start + this.size;
+    int r = end + this.size;
+    int l0 = l;
+    int r0 = r - 1;
+    for (; l < r; l >>>= 1, r >>>= 1) {
+      if (0 != (l & 1)) {
+        apply(l++, value);
+      }
+      if (0 != (r & 1)) {
+        apply(--r, value);
+      }
+    }
+    rebuild(l0);
+    rebuild(r0);
+  }
+
+  /**
+   * Gets the minimal count of the interval's points.
+   *
+   * @param start the interval start, inclusive.
+   * @param end the interval end, exclusive.
+   * @return the minimal count, or Integer.MAX_VALUE for an empty interval.
+   */
+  public int getMin(int start, int end) {
+    if (start >= end) {
+      return Integer.MAX_VALUE;
+    }
+    checkRange(start, end);
+    int l = start + this.size;
+    int r = end + this.size;
+    push(l);
+    push(r - 1);
+    int res = Integer.MAX_VALUE;
+    for (; l < r; l >>>= 1, r >>>= 1) {
+      if (0 != (l & 1)) {
+        res = Math.min(res, this.min[l++]);
+      }
+      if (0 != (r & 1)) {
+        res = Math.min(res, this.min[--r]);
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Checks if every point of the intervals has a non-zero count.
+   *
+   * @param intervals the intervals.
+   * @return true if all the points are covered.
+   */
+  public boolean isCovered(List<RuleInterval> intervals) {
+    for (RuleInterval i : intervals) {
+      if (0 == getMin(i.getStart(), i.getEnd())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void apply(int node, int value) {
+    this.min[node] += value;
+    if (node < this.size) {
+      this.add[node] += value;
+    }
+  }
+
+  /**
+   * Recomputes the minimums on the path from the leaf up to the root.
+   */
+  private void rebuild(int leaf) {
+    for (int node = leaf >>> 1; node > 0; node >>>= 1) {
+      this.min[node] = Math.min(this.min[2 * node], this.min[2 * node + 1]) + this.add[node];
+    }
+  }
+
+  /**
+   * Pushes the pending additions down the path from the root to the leaf.
+   */
+  private void push(int leaf) {
+    for (int s = this.height; s > 0; s--) {
+      int node = leaf >>> s;
+      if (0 != this.add[node]) {
+        apply(2 * node, this.add[node]);
+        apply(2 * node + 1, this.add[node]);
+        this.add[node] = 0;
+      }
+    }
+  }
+
+  private void checkRange(int start, int end) {
+    if (start < 0 || end > this.length) {
+      throw new IndexOutOfBoundsException(
+          "Interval: [" + start + ", " + end + "), Length: " + this.length);
+    }
+  }
+
+}
@@ -0,0 +1,348 @@
+package net.seninp.gi.rulepruner;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.seninp.jmotif.distance.EuclideanDistance;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXException;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Memoizes the sliding window discretization of a time series. The z-normalization and PAA of the
+ * windows depend only on the window size, PAA size, and the normalization threshold, so these are
+ * computed once per such combination and kept as a PAA matrix, from which the SAX records of every
+ * alphabet size and numerosity reduction strategy are derived by a cheap pass over the matrix. The
+ * results are the same as of {@link SAXProcessor#ts2saxViaWindow}.
+ *
+ * The matrices are evicted in the least recently used order once their total size exceeds the
+ * bytes budget. The cache is thread-safe, concurrent requests of the same matrix compute it once.
+ *
+ * @author psenin
+ *
+ */
+public class DiscretizationCache {
+
+  /** The default bytes budget, 64MB. */
+  public static final long DEFAULT_BUDGET = 64L << 20;
+
+  private final double[] ts;
+  private final long budget;
+
+  private final TSProcessor tp = new TSProcessor();
+  private final SAXProcessor sp = new SAXProcessor();
+  private final NormalAlphabet na = new NormalAlphabet();
+  private final EuclideanDistance ed = new EuclideanDistance();
+
+  /** The matrices in the access order. */
+  private final LinkedHashMap<Key, Entry> entries;
+  private long bytes;
+
+  private long hits;
+  private long misses;
+
+  /**
+   * Constructor.
+   *
+   * @param ts the time series.
+   * @param budget the bytes budget.
+   */
+  public DiscretizationCache(double[] ts, long budget) {
+    this.ts = ts;
+    this.budget = budget;
+    this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+  }
+
+  /**
+   * Discretizes the time series via sliding window.
+   *
+   * @param windowSize the sliding window size.
+   * @param paaSize the PAA size.
+   * @param alphabetSize the alphabet size.
+   * @param nrStrategy the numerosity reduction strategy.
+   * @param nThreshold the normalization threshold.
+   * @return the SAX records, a new instance on every call.
+   * @throws SAXException if error occurs.
+   */
+  public SAXRecords getSAXRecords(int windowSize, int paaSize, int alphabetSize,
+      NumerosityReductionStrategy nrStrategy, double nThreshold) throws SAXException {
+
+    Entry entry = getEntry(windowSize, paaSize, nThreshold);
+    double[] cuts = na.getCuts(alphabetSize);
+
+    SAXRecords res = new SAXRecords();
+    char[] previousString = null;
+    for (int i = 0; i < entry.windows; i++) {
+
+      char[] currentString = new char[paaSize];
+      int offset = i * paaSize;
+      for (int j = 0; j < paaSize; j++) {
+        currentString[j] = tp.num2char(entry.paa[offset + j], cuts);
+      }
+
+      if (null != previousString) {
+        if (NumerosityReductionStrategy.EXACT.equals(nrStrategy)
+            && Arrays.equals(previousString, currentString)) {
+          continue;
+        }
+        else if (NumerosityReductionStrategy.MINDIST.equals(nrStrategy)
+            && sp.checkMinDistIsZero(previousString, currentString)) {
+          continue;
+        }
+      }
+
+      previousString = currentString;
+      res.add(currentString, i);
+    }
+
+    return res;
+  }
+
+  /**
+   * Computes the SAX approximation distance, i.e., the sum of the PAA and of the alphabet
+   * approximation distances as computed by {@link SAXProcessor}.
+   *
+   * @param windowSize the sliding window size.
+   * @param paaSize the PAA size.
+   * @param alphabetSize the alphabet size.
+   * @param nThreshold the normalization threshold.
+   * @return the approximation distance.
+   * @throws SAXException if error occurs.
+   */
+  public double getApproximationDistance(int windowSize, int paaSize, int alphabetSize,
+      double nThreshold) throws SAXException {
+
+    Entry entry = getEntry(windowSize, paaSize, nThreshold);
+    double[] cuts = na.getCuts(alphabetSize);
+    double[] centralCuts = na.getCentralCuts(alphabetSize);
+
+    // the approximation distance normalizes only the windows whose deviation exceeds the
+    // threshold, other PAA rows are kept aside, see the entry computation
+    //
+    double res = 0d;
+    int flat = 0;
+    for (int i = 0; i < entry.windows; i++) {
+      double[] row = entry.paa;
+      int offset = i * paaSize;
+      if (flat < entry.flatWindows.length && i == entry.flatWindows[flat]) {
+        row = entry.flatPaa;
+        offset = flat * paaSize;
+        flat++;
+      }
+      double dist = 0d;
+      for (int j = 0; j < paaSize; j++) {
+        double value = row[offset + j];
+        dist = dist + ed.distance(centralCuts[tp.num2index(value, cuts)], value);
+      }
+      res = res + dist / (double) paaSize;
+    }
+
+    return entry.paaDistance + res / (double) entry.windows;
+  }
+
+  /**
+   * Gets the number of requests served from the cache.
+   *
+   * @return the hits count.
+   */
+  public synchronized long getHitsCount() {
+    return this.hits;
+  }
+
+  /**
+   * Gets the number of requests which computed the PAA matrix.
+   *
+   * @return the misses count.
+   */
+  public synchronized long getMissesCount() {
+    return this.misses;
+  }
+
+  /**
+   * Gets the size of the cached matrices.
+   *
+   * @return the size in bytes.
+   */
+  public synchronized long getBytes() {
+    return this.bytes;
+  }
+
+  private Entry getEntry(int windowSize, int paaSize, double nThreshold) throws SAXException {
+
+    if (windowSize > this.ts.length) {
+      throw new SAXException(
+          "Unable to saxify via window, window size is greater than the timeseries length...");
+    }
+
+    Key key = new Key(windowSize, paaSize, nThreshold);
+    Entry entry;
+    synchronized (this) {
+      entry = this.entries.get(key);
+      if (null == entry) {
+        entry = new Entry(this.ts.length - windowSize + 1, paaSize);
+        if (entry.bytes <= this.budget) {
+          this.entries.put(key, entry);
+          entry.cached = true;
+          this.bytes += entry.bytes;
+          evict(entry);
+        }
+        this.misses++;
+      }
+      else {
+        this.hits++;
+      }
+    }
+
+    // the matrix is computed outside of the cache lock, others requesting it wait for this one
+    //
+    synchronized (entry) {
+      if (null == entry.paa) {
+        compute(entry, windowSize, paaSize, nThreshold);
+
+        // the low-variance rows are known only now, their size counts too, and may push this or
+        // the least recently used matrices out
+        //
+        long flatBytes = (long) entry.flatWindows.length * (4L + (long) paaSize * 8L);
+        synchronized (this) {
+          entry.bytes += flatBytes;
+          if (entry.cached) {
+            this.bytes += flatBytes;
+            evict(null);
+          }
+        }
+      }
+    }
+
+    return entry;
+  }
+
+  /**
+   * Evicts the least recently used matrices until the cache fits the budget.
+   *
+   * @param keep the matrix which stays anyway, may be null.
+   */
+  private void evict(Entry keep) {
+    Iterator<Map.Entry<Key, Entry>> it = this.entries.entrySet().iterator();
+    while (this.bytes > this.budget && it.hasNext()) {
+      Entry e = it.next().getValue();
+      if (e != keep) {
+        it.remove();
+        e.cached = false;
+        this.bytes -= e.bytes;
+      }
+    }
+  }
+
+  private void compute(Entry entry, int windowSize, int paaSize, double nThreshold)
+      throws SAXException {
+
+    double[] paa = new double[entry.windows * paaSize];
+
+    // the low-variance windows and their rows, the buffers double as needed
+    //
+    int[] flatWindows = new int[16];
+    double[] flatPaa = new double[16 * paaSize];
+    int flat = 0;
+
+    double pointsPerSegment = (double) windowSize / (double) paaSize;
+    double paaDistance = 0d;
+
+    for (int i = 0; i < entry.windows; i++) {
+
+      double[] subSection = Arrays.copyOfRange(this.ts, i, i + windowSize);
+      double[] znorm = tp.znorm(subSection, nThreshold);
+      double[] paaRow = tp.paa(znorm, paaSize);
+      System.arraycopy(paaRow, 0, paa, i * paaSize, paaSize);
+
+      // the approximation distance leaves the low-variance windows as they are, while the
+      // discretization zeroes them
+      //
+      double[] approxSection = znorm;
+      double[] approxRow = paaRow;
+      if (!(tp.stDev(subSection) > nThreshold)) {
+        approxSection = subSection;
+        approxRow = tp.paa(subSection, paaSize);
+        if (flat == flatWindows.length) {
+          flatWindows = Arrays.copyOf(flatWindows, flat << 1);
+          flatPaa = Arrays.copyOf(flatPaa, (flat << 1) * paaSize);
+        }
+        flatWindows[flat] = i;
+        System.arraycopy(approxRow, 0, flatPaa, flat * paaSize, paaSize);
+        flat++;
+      }
+
+      double dist = 0d;
+      for (int j = 0; j < approxSection.length; j++) {
+        int idx = (int) Math.floor((j + 0.5) / pointsPerSegment);
+        if (idx < 0) {
+          idx = 0;
+        }
+        if (idx > approxRow.length) {
+          idx = approxRow.length - 1;
+        }
+        dist = dist + ed.distance(approxRow[idx], approxSection[j]);
+      }
+      paaDistance = paaDistance + dist / (double) approxSection.length;
+    }
+
+    entry.paaDistance = paaDistance / (double) entry.windows;
+    entry.flatWindows = Arrays.copyOf(flatWindows, flat);
+    entry.flatPaa = Arrays.copyOf(flatPaa, flat * paaSize);
+    entry.paa = paa;
+  }
+
+  /**
+   * The PAA matrix of all the windows, row by row, and the rows of the low-variance windows as
+   * the approximation distance sees them.
+   */
+  private static class Entry {
+    private final int windows;
+    private long bytes;
+    private boolean cached;
+    private double[] paa;
+    private double paaDistance;
+    private int[] flatWindows;
+    private double[] flatPaa;
+
+    Entry(int windows, int paaSize) {
+      this.windows = windows;
+      this.bytes = (long) windows * (long) paaSize * 8L;
+    }
+  }
+
+  /**
+   * The matrix key.
+   */
+  private static class Key {
+    private final int windowSize;
+    private final int paaSize;
+    private final long nThreshold;
+
+    Key(int windowSize, int paaSize, double nThreshold) {
+      this.windowSize = windowSize;
+      this.paaSize = paaSize;
+      this.nThreshold = Double.doubleToLongBits(nThreshold);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = 31 * this.windowSize + this.paaSize;
+      return 31 * result + (int) (this.nThreshold ^ (this.nThreshold >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return this.windowSize == other.windowSize && this.paaSize == other.paaSize
+          && this.nThreshold == other.nThreshold;
+    }
+  }
+
+}
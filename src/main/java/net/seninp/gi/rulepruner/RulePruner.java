@@ -3,11 +3,15 @@ package net.seninp.gi.rulepruner;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Locale;
+import java.util.concurrent.CancellationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import net.seninp.gi.GIAlgorithm;
 import net.seninp.gi.logic.GrammarRuleRecord;
 import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.metrics.GIMetrics.StageTimer;
+import net.seninp.gi.metrics.PipelineStage;
 import net.seninp.gi.repair.RePairFactory;
 import net.seninp.gi.repair.RePairGrammar;
 import net.seninp.gi.sequitur.SAXRule;
@@ -29,9 +33,20 @@ public class RulePruner {
   private static final String CR = "\n";
 
   private static final DecimalFormat dfPercent = (new DecimalFormat("0.00"));
-  private static final DecimalFormat dfSize = (new DecimalFormat("#.0000"));
+
+  // the formatter is not thread-safe and sample() may run concurrently
+  //
+  private static final ThreadLocal<DecimalFormat> dfSize = new ThreadLocal<DecimalFormat>() {
+    @Override
+    protected DecimalFormat initialValue() {
+      DecimalFormat df = new DecimalFormat("#.0000");
+      df.setDecimalFormatSymbols(new DecimalFormatSymbols(Locale.US));
+      return df;
+    }
+  };
 
   private double[] ts;
+  private DiscretizationCache cache;
   // private SAXProcessor sp;
   // the logger
   //
@@ -39,7 +54,6 @@ public class RulePruner {
   
     static {
     dfPercent.setDecimalFormatSymbols(new DecimalFormatSymbols(Locale.US));
-    dfSize.setDecimalFormatSymbols(new DecimalFormatSymbols(Locale.US));
   }
 
   public RulePruner(double[] ts) {
@@ -48,7 +62,19 @@ public class RulePruner {
   }
 
   /**
-   * Samples the specified point.
+   * Constructor.
+   * 
+   * @param ts the time series.
+   * @param cache the discretization cache of this time series, shared by the sampled points.
+   */
+  public RulePruner(double[] ts, DiscretizationCache cache) {
+    this.ts = ts;
+    this.cache = cache;
+  }
+
+  /**
+   * Samples the specified point. The method is safe to call concurrently from several threads and
+   * gives up, returning null, as soon as it sees the thread being interrupted between its stages.
    * 
    * @param windowSize the sliding window size.
    * @param paaSize the PAA size.
@@ -56,7 +82,7 @@ public class RulePruner {
    * @param giAlgorithm the GI algorithm to use.
    * @param nrStrategy the numerosity reduction strategy.
    * @param nThreshold the normalization threshold.
-   * @return the resulting point characteristics.
+   * @return the resulting point characteristics, or null if the thread was interrupted.
    * @throws Exception if error occurs.
    */
   public SampledPoint sample(int windowSize, int paaSize, int alphabetSize, GIAlgorithm giAlgorithm,
@@ -79,36 +105,62 @@ public class RulePruner {
     NormalAlphabet na = new NormalAlphabet();
     // SAXRecords saxData = ps.process(ts, 1, windowSize, paaSize, alphabetSize, nrStrategy,
     // nThreshold);
-    SAXRecords saxData = sp.ts2saxViaWindow(ts, windowSize, paaSize, na.getCuts(alphabetSize),
-        nrStrategy, nThreshold);
-    if (Thread.currentThread().isInterrupted() && null == saxData) {
-      System.err.println("Sampler being interrupted, returning NULL!");
+    StageTimer timer = GIMetrics.start(PipelineStage.DISCRETIZATION);
+    SAXRecords saxData;
+    if (null == this.cache) {
+      saxData = sp.ts2saxViaWindow(ts, windowSize, paaSize, na.getCuts(alphabetSize), nrStrategy,
+          nThreshold);
+    }
+    else {
+      saxData = this.cache.getSAXRecords(windowSize, paaSize, alphabetSize, nrStrategy,
+          nThreshold);
+    }
+    timer.record(GIMetrics.WORDS, saxData.size());
+    timer.stop();
+    if (isInterrupted()) {
       return null;
     }
     saxData.buildIndex();
 
     // compute SAX approximation distance
     //
-    double approximationDistance = sp.approximationDistancePAA(ts, windowSize, paaSize,
-        RulePrunerParameters.SAX_NORM_THRESHOLD)
-        + sp.approximationDistanceAlphabet(ts, windowSize, paaSize, alphabetSize,
-            RulePrunerParameters.SAX_NORM_THRESHOLD);
-    logStr.append(dfSize.format(approximationDistance)).append(COMMA);
+    double approximationDistance;
+    if (null == this.cache) {
+      approximationDistance = sp.approximationDistancePAA(ts, windowSize, paaSize,
+          RulePrunerParameters.SAX_NORM_THRESHOLD)
+          + sp.approximationDistanceAlphabet(ts, windowSize, paaSize, alphabetSize,
+              RulePrunerParameters.SAX_NORM_THRESHOLD);
+    }
+    else {
+      approximationDistance = this.cache.getApproximationDistance(windowSize, paaSize,
+          alphabetSize, RulePrunerParameters.SAX_NORM_THRESHOLD);
+    }
+    logStr.append(dfSize.get().format(approximationDistance)).append(COMMA);
     res.setApproxDist(approximationDistance);
 
     // build a grammar
     //
     GrammarRules rules = new GrammarRules();
-    if (GIAlgorithm.SEQUITUR.equals(giAlgorithm)) {
-      SAXRule r = SequiturFactory.runSequitur(saxData.getSAXString(" "));
-      rules = r.toGrammarRulesData();
-      SequiturFactory.updateRuleIntervals(rules, saxData, true, ts, windowSize, paaSize);
+    try {
+      if (GIAlgorithm.SEQUITUR.equals(giAlgorithm)) {
+        SAXRule r = SequiturFactory.runSequitur(saxData);
+        rules = r.toGrammarRulesData();
+        SequiturFactory.updateRuleIntervals(rules, saxData, true, ts, windowSize, paaSize);
+      }
+      else if (GIAlgorithm.REPAIR.equals(giAlgorithm)) {
+        RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
+        grammar.expandRules();
+        grammar.buildIntervals(saxData, ts, windowSize);
+        rules = grammar.toGrammarRulesData();
+      }
+    }
+    catch (CancellationException e) {
+      // the inference stops as soon as the thread is interrupted, which is checked right below
+      //
+      assert true;
     }
-    else if (GIAlgorithm.REPAIR.equals(giAlgorithm)) {
-      RePairGrammar grammar = RePairFactory.buildGrammar(saxData.getSAXString(" "));
-      grammar.expandRules();
-      grammar.buildIntervals(saxData, ts, windowSize);
-      rules = grammar.toGrammarRulesData();
+    if (isInterrupted()) {
+      return null;
     }
 
     // compute the grammar size
@@ -127,12 +179,15 @@ public class RulePruner {
     logStr.append(prunedRulesSet.size()).append(COMMA);
     res.setCompressedGrammarSize(compressedSize);
     res.setPrunedRules(prunedRulesSet.size());
+    if (isInterrupted()) {
+      return null;
+    }
 
     // compute the cover
     //
-    boolean[] compressedCover = new boolean[ts.length];
-    compressedCover = RulePrunerFactory.updateRanges(compressedCover, prunedRulesSet);
-    if (RulePrunerFactory.hasEmptyRanges(compressedCover)) {
+    CoverBitmap compressedCover = RulePrunerFactory.updateCover(new CoverBitmap(ts.length),
+        prunedRulesSet);
+    if (compressedCover.hasUncovered()) {
       logStr.append("0").append(COMMA);
       res.setCovered(false);
     }
@@ -143,7 +198,7 @@ public class RulePruner {
 
     // compute the coverage in percent
     //
-    double coverage = RulePrunerFactory.computeCover(compressedCover);
+    double coverage = compressedCover.getCoverage();
     logStr.append(coverage);
     res.setCoverage(coverage);
 
@@ -154,8 +209,8 @@ public class RulePruner {
     //
     int maxFreq = 0;
     for (GrammarRuleRecord r : prunedRulesSet) {
-      if (r.getOccurrences().size() > maxFreq) {
-        maxFreq = r.getOccurrences().size();
+      if (r.getOccurrenceList().size() > maxFreq) {
+        maxFreq = r.getOccurrenceList().size();
       }
     }
 
@@ -173,4 +228,12 @@ public class RulePruner {
     return res;
   }
 
+  private static boolean isInterrupted() {
+    if (Thread.currentThread().isInterrupted()) {
+      LOGGER.info("Sampler being interrupted, returning NULL!");
+      return true;
+    }
+    return false;
+  }
+
 }
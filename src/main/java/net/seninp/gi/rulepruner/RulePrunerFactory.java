@@ -1,8 +1,11 @@
 package net.seninp.gi.rulepruner;
 
-import net.seninp.gi.logic.GrammarRuleRecord;
 import net.seninp.gi.logic.GrammarRules;
 import net.seninp.gi.logic.RuleInterval;
+import net.seninp.gi.logic.RuleRecord;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.metrics.GIMetrics.StageTimer;
+import net.seninp.gi.metrics.PipelineStage;
 
 import java.util.Arrays;
 import java.util.List;
@@ -31,7 +34,7 @@ public class RulePrunerFactory {
 
     // The final size is the sum of the sizes of all rules
     //
-    for (GrammarRuleRecord r : rules) {
+    for (RuleRecord r : rules.rules()) {
       String ruleStr = r.getRuleString();
       String[] tokens = ruleStr.split("\\s+");
       int ruleSize = computeRuleSize(paaSize, tokens);
@@ -66,9 +69,14 @@ public class RulePrunerFactory {
    * @return pruned ruleset.
    */
   public static GrammarRules performPruning(double[] ts, GrammarRules grammarRules) {
+    StageTimer timer = GIMetrics.start(PipelineStage.PRUNING);
     RulePruningAlgorithm pruner = new RulePruningAlgorithm(grammarRules, ts.length);
     pruner.pruneRules();
-    return pruner.regularizePrunedRules();
+    GrammarRules res = pruner.regularizePrunedRules();
+    timer.record(GIMetrics.RULES, grammarRules.size());
+    timer.record(GIMetrics.RULES_KEPT, res.size());
+    timer.stop();
+    return res;
   }
 
   // /**
@@ -176,6 +184,11 @@ public class RulePrunerFactory {
    */
   public static boolean[] updateRanges(boolean[] range, List<RuleInterval> ruleIntervals) {
     boolean[] res = Arrays.copyOf(range, range.length);
+    fillRanges(res, ruleIntervals);
+    return res;
+  }
+
+  private static void fillRanges(boolean[] res, List<RuleInterval> ruleIntervals) {
     for (RuleInterval i : ruleIntervals) {
       int start = i.getStart();
       int end = i.getEnd();
@@ -183,7 +196,6 @@ public class RulePrunerFactory {
         res[j] = true;
       }
     }
-    return res;
   }
 
   /**
@@ -196,15 +208,33 @@ public class RulePrunerFactory {
    */
   public static boolean[] updateRanges(boolean[] range, GrammarRules grammar) {
     boolean[] res = Arrays.copyOf(range, range.length);
-    for (GrammarRuleRecord r : grammar) {
+    for (RuleRecord r : grammar.rules()) {
       if (0 == r.getRuleNumber()) {
         continue;
       }
-      res = updateRanges(res, r.getRuleIntervals());
+      fillRanges(res, r.getRuleIntervals());
     }
     return res;
   }
 
+  /**
+   * Updates the cover in place.
+   * 
+   * @param cover the cover bitmap.
+   * @param grammar The grammar (i.e. set of rules) used for this update, the R0 is skipped.
+   * 
+   * @return the same, updated bitmap.
+   */
+  public static CoverBitmap updateCover(CoverBitmap cover, GrammarRules grammar) {
+    for (RuleRecord r : grammar.rules()) {
+      if (0 == r.getRuleNumber()) {
+        continue;
+      }
+      cover.cover(r.getRuleIntervals());
+    }
+    return cover;
+  }
+
   /**
    * Compute the covered percentage.
    * 
@@ -54,4 +54,13 @@ public class RulePrunerParameters {
       "-b" }, description = "grid boundaries (Wmin Wmax Wstep Pmin Pmax Pstep Amin Amax Astep)")
   public static String GRID_BOUNDARIES = "10 100 10 10 50 10 2 12 2";
 
+  // sampling execution
+  //
+  @Parameter(names = { "--threads" }, description = "number of grid points sampled concurrently")
+  public static int NUM_THREADS = 1;
+
+  @Parameter(names = {
+      "--timeout" }, description = "per-point timeout in seconds, 0 disables the timeout")
+  public static long POINT_TIMEOUT = 0;
+
 }
@@ -3,9 +3,13 @@ package net.seninp.gi.rulepruner;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import com.beust.jcommander.JCommander;
 import net.seninp.jmotif.sax.TSProcessor;
 import net.seninp.util.StackTrace;
@@ -74,6 +78,11 @@ public class RulePrunerPrinter {
             .append(RulePrunerParameters.GI_ALGORITHM_IMPLEMENTATION).append(CR);
         sb.append("  Grid boundaries:      ").append(RulePrunerParameters.GRID_BOUNDARIES)
             .append(CR);
+        sb.append("  Threads:              ").append(RulePrunerParameters.NUM_THREADS).append(CR);
+        if (RulePrunerParameters.POINT_TIMEOUT > 0) {
+          sb.append("  Point timeout, s:     ").append(RulePrunerParameters.POINT_TIMEOUT)
+              .append(CR);
+        }
 
         if (!(Double.isNaN(RulePrunerParameters.SUBSAMPLING_FRACTION))) {
           sb.append("  Subsampling fraction: ").append(RulePrunerParameters.SUBSAMPLING_FRACTION)
@@ -98,36 +107,33 @@ public class RulePrunerPrinter {
         int[] boundaries = toBoundaries(RulePrunerParameters.GRID_BOUNDARIES);
 
         // create the output file
-        BufferedWriter bw = new BufferedWriter(
+        final BufferedWriter bw = new BufferedWriter(
             new FileWriter(new File(RulePrunerParameters.OUT_FILE)));
         bw.write(OUTPUT_HEADER);
 
-        ArrayList<SampledPoint> res = new ArrayList<SampledPoint>();
-
-        // we need to use this in the loop
-        RulePruner rp = new RulePruner(ts);
-
-        // iterate over the grid evaluating the grammar
+        // sample the grid evaluating the grammar, points are written as they finish
         //
-        for (int WINDOW_SIZE = boundaries[0]; WINDOW_SIZE < boundaries[1]; WINDOW_SIZE += boundaries[2]) {
-          for (int PAA_SIZE = boundaries[3]; PAA_SIZE < boundaries[4]; PAA_SIZE += boundaries[5]) {
-
-            // check for invalid cases
-            if (PAA_SIZE > WINDOW_SIZE) {
-              continue;
-            }
-
-            for (int ALPHABET_SIZE = boundaries[6]; ALPHABET_SIZE < boundaries[7]; ALPHABET_SIZE += boundaries[8]) {
-
-              SampledPoint p = rp.sample(WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE,
-                  RulePrunerParameters.GI_ALGORITHM_IMPLEMENTATION,
-                  RulePrunerParameters.SAX_NR_STRATEGY, RulePrunerParameters.SAX_NORM_THRESHOLD);
-
-              bw.write(p.toLogString() + "\n");
-
-              res.add(p);
-            }
-          }
+        RulePrunerSampler sampler = new RulePrunerSampler(ts, RulePrunerParameters.NUM_THREADS);
+        sampler.setTimeout(RulePrunerParameters.POINT_TIMEOUT, TimeUnit.SECONDS);
+        ArrayList<SampledPoint> res;
+        try {
+          res = sampler.sample(RulePrunerSampler.makeGrid(boundaries),
+              RulePrunerParameters.GI_ALGORITHM_IMPLEMENTATION,
+              RulePrunerParameters.SAX_NR_STRATEGY, RulePrunerParameters.SAX_NORM_THRESHOLD,
+              new Consumer<SampledPoint>() {
+                @Override
+                public void accept(SampledPoint p) {
+                  try {
+                    bw.write(p.toLogString() + "\n");
+                  }
+                  catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                }
+              });
+        }
+        finally {
+          sampler.shutdown();
         }
 
         bw.close();
@@ -0,0 +1,240 @@
+package net.seninp.gi.rulepruner;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import net.seninp.gi.BoundedTaskRunner;
+import net.seninp.gi.GIAlgorithm;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+
+/**
+ * Samples a grid of the discretization parameters (window, PAA, alphabet) with the rule pruner,
+ * running the points concurrently on an executor. The sampled points are streamed to the consumer
+ * as they finish, in the calling thread, so the consumer needs no synchronization. A point which
+ * runs longer than the timeout is interrupted and skipped. The points share a discretization cache,
+ * so the PAA of the windows is computed once per (window, PAA) pair. The points run with a
+ * {@link BoundedTaskRunner}, at most a bounded number of them submitted to the executor at a time,
+ * thus a large grid does not flood its queue.
+ *
+ * @author psenin
+ *
+ */
+public class RulePrunerSampler {
+
+  // the logger
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(RulePrunerSampler.class);
+
+  /** The number of points submitted at a time per thread. */
+  private static final int IN_FLIGHT_PER_THREAD = 2;
+
+  private final DiscretizationCache cache;
+  private final RulePruner pruner;
+
+  private final BoundedTaskRunner runner;
+
+  private int timedOutCount;
+  private int failedCount;
+
+  /**
+   * Constructor, the sampler runs the points on its own pool of the specified size.
+   *
+   * @param ts the time series.
+   * @param threadsNum the number of threads to use.
+   */
+  public RulePrunerSampler(double[] ts, int threadsNum) {
+    this(ts, new ForkJoinPool(threadsNum), threadsNum * IN_FLIGHT_PER_THREAD, true);
+  }
+
+  /**
+   * Constructor, the sampler runs the points on the specified executor which remains owned by the
+   * caller, submitting at most two points per available processor at a time.
+   *
+   * @param ts the time series.
+   * @param executor the executor to use.
+   */
+  public RulePrunerSampler(double[] ts, ExecutorService executor) {
+    this(ts, executor, Runtime.getRuntime().availableProcessors() * IN_FLIGHT_PER_THREAD, false);
+  }
+
+  /**
+   * Constructor, the sampler runs the points on the specified executor which remains owned by the
+   * caller.
+   *
+   * @param ts the time series.
+   * @param executor the executor to use.
+   * @param maxInFlight the maximal number of points submitted to the executor at a time.
+   */
+  public RulePrunerSampler(double[] ts, ExecutorService executor, int maxInFlight) {
+    this(ts, executor, maxInFlight, false);
+  }
+
+  private RulePrunerSampler(double[] ts, ExecutorService executor, int maxInFlight,
+      boolean ownsExecutor) {
+    this.runner = new BoundedTaskRunner(executor, maxInFlight, ownsExecutor,
+        "rule-pruner-sampler-watchdog");
+    this.cache = new DiscretizationCache(ts, DiscretizationCache.DEFAULT_BUDGET);
+    this.pruner = new RulePruner(ts, this.cache);
+  }
+
+  /**
+   * Sets the per-point timeout, a non-positive value disables it.
+   *
+   * @param timeout the timeout.
+   * @param unit the timeout unit.
+   */
+  public void setTimeout(long timeout, TimeUnit unit) {
+    this.runner.setTimeout(timeout, unit);
+  }
+
+  /**
+   * Makes the parameters grid out of the boundaries, skipping points whose PAA size exceeds the
+   * window size.
+   *
+   * @param boundaries the grid boundaries: Wmin Wmax Wstep Pmin Pmax Pstep Amin Amax Astep, the
+   * upper ones are exclusive.
+   * @return the grid points as {window, PAA, alphabet} triplets.
+   */
+  public static ArrayList<int[]> makeGrid(int[] boundaries) {
+    ArrayList<int[]> res = new ArrayList<int[]>();
+    for (int w = boundaries[0]; w < boundaries[1]; w += boundaries[2]) {
+      for (int p = boundaries[3]; p < boundaries[4]; p += boundaries[5]) {
+        if (p > w) {
+          continue;
+        }
+        for (int a = boundaries[6]; a < boundaries[7]; a += boundaries[8]) {
+          res.add(new int[] { w, p, a });
+        }
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Samples the grid points.
+   *
+   * @param grid the grid points as {window, PAA, alphabet} triplets.
+   * @param giAlgorithm the GI algorithm to use.
+   * @param nrStrategy the numerosity reduction strategy.
+   * @param nThreshold the normalization threshold.
+   * @param consumer receives the sampled points as they finish, may be null.
+   * @return the sampled points in the order they have finished.
+   * @throws InterruptedException if the calling thread was interrupted, the running points are
+   * interrupted too.
+   */
+  public ArrayList<SampledPoint> sample(List<int[]> grid, GIAlgorithm giAlgorithm,
+      NumerosityReductionStrategy nrStrategy, double nThreshold,
+      Consumer<SampledPoint> consumer) throws InterruptedException {
+
+    this.timedOutCount = 0;
+    this.failedCount = 0;
+
+    final Iterator<int[]> points = grid.iterator();
+    Iterator<PointTask> tasks = new Iterator<PointTask>() {
+      @Override
+      public boolean hasNext() {
+        return points.hasNext();
+      }
+
+      @Override
+      public PointTask next() {
+        return new PointTask(points.next(), giAlgorithm, nrStrategy, nThreshold);
+      }
+    };
+
+    final ArrayList<SampledPoint> res = new ArrayList<SampledPoint>(grid.size());
+    this.runner.run(tasks, new BoundedTaskRunner.Listener<SampledPoint>() {
+      @Override
+      public void taskDone(int index, SampledPoint p) {
+        if (null == p) {
+          timedOutCount++;
+        }
+        else {
+          res.add(p);
+          if (null != consumer) {
+            consumer.accept(p);
+          }
+        }
+      }
+
+      @Override
+      public void taskFailed(int index, Throwable cause) {
+        failedCount++;
+        LOGGER.error("failed to sample a point", cause);
+      }
+    });
+
+    return res;
+  }
+
+  /**
+   * Gets the number of points which timed out, or were interrupted, during the last sampling.
+   *
+   * @return the number of timed out points.
+   */
+  public int getTimedOutCount() {
+    return this.timedOutCount;
+  }
+
+  /**
+   * Gets the number of points which failed with an exception during the last sampling.
+   *
+   * @return the number of failed points.
+   */
+  public int getFailedCount() {
+    return this.failedCount;
+  }
+
+  /**
+   * Gets the discretization cache used by the sampler.
+   *
+   * @return the cache.
+   */
+  public DiscretizationCache getDiscretizationCache() {
+    return this.cache;
+  }
+
+  /**
+   * Shuts down the watchdog, and the pool if the sampler has created it.
+   */
+  public void shutdown() {
+    this.runner.shutdown();
+  }
+
+  /**
+   * Samples a single point, the sampling gives a null once interrupted.
+   */
+  private class PointTask extends BoundedTaskRunner.Task<SampledPoint> {
+
+    private final int[] point;
+    private final GIAlgorithm giAlgorithm;
+    private final NumerosityReductionStrategy nrStrategy;
+    private final double nThreshold;
+
+    public PointTask(int[] point, GIAlgorithm giAlgorithm, NumerosityReductionStrategy nrStrategy,
+        double nThreshold) {
+      this.point = point;
+      this.giAlgorithm = giAlgorithm;
+      this.nrStrategy = nrStrategy;
+      this.nThreshold = nThreshold;
+    }
+
+    @Override
+    public SampledPoint call() throws Exception {
+      return pruner.sample(this.point[0], this.point[1], this.point[2], this.giAlgorithm,
+          this.nrStrategy, this.nThreshold);
+    }
+
+    @Override
+    public String toString() {
+      return "point " + this.point[0] + "," + this.point[1] + "," + this.point[2];
+    }
+  }
+
+}
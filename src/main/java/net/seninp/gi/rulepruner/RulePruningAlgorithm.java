@@ -3,30 +3,56 @@ package net.seninp.gi.rulepruner;
 import net.seninp.gi.logic.GrammarRuleRecord;
 import net.seninp.gi.logic.GrammarRules;
 import net.seninp.gi.logic.RuleInterval;
+import net.seninp.gi.logic.RuleRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 /**
  * Implement algorithm for pruning rules based on optimal covering search.
+ *
+ * The greedy search is lazy by default: a rule's cover delta can only decrease as the cover grows,
+ * so the candidates are kept in a max-heap by their last computed delta and only the heap top is
+ * re-evaluated, until the top's delta is up to date with the current cover. The chosen rules are
+ * the same as of the exhaustive search, ties are broken by the rules order in the grammar.
+ *
+ * The grammar is read through {@link GrammarRules#rules()} and
+ * {@link GrammarRules#getRule(Integer)}, so a packed grammar is read through its views, without
+ * unpacking the records.
  */
 public class RulePruningAlgorithm {
 
   private static Logger logger = LoggerFactory.getLogger(RulePruningAlgorithm.class);
 
   private GrammarRules grammarRules;
-  private boolean[] range;
+  private CoverBitmap cover;
+  // how many intervals of the used rules cover each point
+  private CoverCounts coverCounts;
+  // the used rules which may have become redundant since they were checked last time
+  private BitSet dirtyRules;
+  // the intervals of the rules ever used, to find the ones overlapped by a new rule
+  private IntervalIndex usedIntervals;
   private Set<Integer> usedRules;
   private Set<Integer> removedRules;
 
+  private boolean lazyGreedy = true;
+  private PriorityQueue<Candidate> candidates;
+  private int coverEpoch;
+  private long deltaEvaluations;
+
   public RulePruningAlgorithm(GrammarRules grammarRules, int tsLength) {
     this.grammarRules = grammarRules;
-    this.range = new boolean[tsLength];
+    this.cover = new CoverBitmap(tsLength);
+    this.coverCounts = new CoverCounts(tsLength);
+    this.dirtyRules = new BitSet();
+    this.usedIntervals = new IntervalIndex(tsLength);
 
     // these are the rules used in the current cover
     this.usedRules = new HashSet<>();
@@ -36,21 +62,52 @@ public class RulePruningAlgorithm {
     this.removedRules = new HashSet<>();
   }
 
+  /**
+   * Switches between the lazy and the exhaustive greedy search, the results are the same.
+   *
+   * @param lazyGreedy false to re-evaluate all the candidates on every step.
+   */
+  public void setLazyGreedy(boolean lazyGreedy) {
+    this.lazyGreedy = lazyGreedy;
+  }
+
+  /**
+   * Gets the number of the cover delta evaluations made by the search.
+   *
+   * @return the number of evaluations.
+   */
+  public long getDeltaEvaluationsCount() {
+    return this.deltaEvaluations;
+  }
+
+  /**
+   * Gets the rules chosen for the cover so far, the R0 included.
+   *
+   * @return the rule numbers.
+   */
+  public Set<Integer> getUsedRules() {
+    return usedRules;
+  }
+
   public void pruneRules() {
     // do until all ranges are covered BUT break if no more coverage left
-    while (RulePrunerFactory.hasEmptyRanges(range)) {
+    while (cover.hasUncovered()) {
 
-      GrammarRuleRecord bestRule = this.findRuleWithOptimalCover();
+      RuleRecord bestRule = lazyGreedy ? this.findRuleWithOptimalCoverLazily()
+          : this.findRuleWithOptimalCover();
       if (bestRule == null) {
         // i.e. no delta found; no more coverage left
         break;
       }
 
       usedRules.add(bestRule.getRuleNumber());
+      coverCounts.add(bestRule.getRuleIntervals());
+      this.markOverlappedRules(bestRule);
       this.removeOverlappingRules();
 
       // add the new candidate and keep the track of cover
-      range = RulePrunerFactory.updateRanges(range, bestRule.getRuleIntervals());
+      cover.cover(bestRule.getRuleIntervals());
+      coverEpoch++;
     }
 
     if (logger.isDebugEnabled()) {
@@ -62,13 +119,14 @@ public class RulePruningAlgorithm {
   /**
    * @return rule with optimal cover, or null if none found (no more coverage left).
    */
-  private GrammarRuleRecord findRuleWithOptimalCover() {
-    GrammarRuleRecord bestRule = null;
+  private RuleRecord findRuleWithOptimalCover() {
+    RuleRecord bestRule = null;
     double bestDelta = Integer.MIN_VALUE;
 
-    for (GrammarRuleRecord rule : grammarRules) {
+    for (RuleRecord rule : grammarRules.rules()) {
       int id = rule.getRuleNumber();
       if (!usedRules.contains(id) && !removedRules.contains(id)) {
+        deltaEvaluations++;
         double delta = this.getCoverDelta(rule);
         if (delta > bestDelta) {
           bestDelta = delta;
@@ -79,13 +137,56 @@ public class RulePruningAlgorithm {
     return bestRule;
   }
 
+  /**
+   * @return rule with optimal cover, or null if none found (no more candidates left).
+   */
+  private RuleRecord findRuleWithOptimalCoverLazily() {
+
+    if (null == candidates) {
+      candidates = new PriorityQueue<Candidate>(Math.max(1, grammarRules.size()),
+          new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate o1, Candidate o2) {
+              int res = Double.compare(o2.delta, o1.delta);
+              if (0 == res) {
+                res = Integer.compare(o1.position, o2.position);
+              }
+              return res;
+            }
+          });
+      int position = 0;
+      for (RuleRecord rule : grammarRules.rules()) {
+        int id = rule.getRuleNumber();
+        if (!usedRules.contains(id) && !removedRules.contains(id)) {
+          deltaEvaluations++;
+          candidates.add(new Candidate(rule, position, this.getCoverDelta(rule), coverEpoch));
+        }
+        position++;
+      }
+    }
+
+    // the stale deltas are upper bounds, so the up to date top beats all the rest
+    //
+    while (!candidates.isEmpty()) {
+      Candidate top = candidates.poll();
+      if (top.epoch == coverEpoch) {
+        return top.rule;
+      }
+      deltaEvaluations++;
+      top.delta = this.getCoverDelta(top.rule);
+      top.epoch = coverEpoch;
+      candidates.add(top);
+    }
+    return null;
+  }
+
   /**
    * Computes the delta value for the suggested rule candidate.
    *
    * @param rule the grammatical rule candidate.
    * @return the delta value.
    */
-  public double getCoverDelta(GrammarRuleRecord rule) {
+  public double getCoverDelta(RuleRecord rule) {
 
     // counts which uncovered points shall be covered
     int new_cover = 0;
@@ -94,16 +195,14 @@ public class RulePruningAlgorithm {
     int overlapping_cover = 0;
 
     // perform the sum computation
-    for (RuleInterval i : rule.getRuleIntervals()) {
+    List<RuleInterval> intervals = rule.getRuleIntervals();
+    for (RuleInterval i : intervals) {
       int start = i.getStart();
       int end = i.getEnd();
-      for (int j = start; j < end; j++) {
-        if (range[j]) {
-          overlapping_cover++;
-        }
-        else {
-          new_cover++;
-        }
+      if (start < end) {
+        int covered = cover.countCovered(start, end);
+        overlapping_cover += covered;
+        new_cover += end - start - covered;
       }
     }
 
@@ -115,18 +214,16 @@ public class RulePruningAlgorithm {
     // if zero overlap, return full weighted cover
     if (0 == overlapping_cover) {
       return (double) new_cover
-              / (double) (rule.getExpandedRuleString().length() + rule.getRuleIntervals().size());
+              / (double) (rule.getExpandedRuleLength() + intervals.size());
     }
 
     // else divide newly covered points amount by the sum of the rule string length and occurrence
     // (i.e. encoding size)
     return ((double) new_cover / (double) (new_cover + overlapping_cover))
-            / (double) (rule.getExpandedRuleString().length() + rule.getRuleIntervals().size());
+            / (double) (rule.getExpandedRuleLength() + intervals.size());
   }
 
   private void removeOverlappingRules() {
-    List<RuleInterval> currentCovering = this.usedRuleCovering();
-    int[] coveringCounts = this.intervalCoveringCounts(currentCovering);
     int intervalCount = 0;
 
     boolean continueSearch = true;
@@ -139,80 +236,96 @@ public class RulePruningAlgorithm {
         }
 
         // the set of intervals in consideration
-        GrammarRuleRecord currentRule = grammarRules.get(currentRuleId);
+        RuleRecord currentRule = grammarRules.getRule(currentRuleId);
         List<RuleInterval> currentRuleIntervals = currentRule.getRuleIntervals();
 
         intervalCount -= currentRuleIntervals.size();
         if (intervalCount == 0) {
           break; // this only happens with a single rule, when nothing to compare with
         }
-        this.removeFromCoveringCounts(coveringCounts, currentRuleIntervals);
 
-        if (this.isCompletelyCoveredBy(coveringCounts, currentRuleIntervals)) {
+        // the counts over a clean rule's points didn't grow since it was found non-redundant
+        if (!dirtyRules.get(currentRuleId)) {
+          intervalCount += currentRuleIntervals.size();
+          continue;
+        }
+        dirtyRules.clear(currentRuleId);
+
+        if (this.isCoveredByOthers(currentRuleIntervals)) {
+          coverCounts.remove(currentRuleIntervals);
           usedRules.remove(currentRuleId);
           removedRules.add(currentRuleId); // we would not consider it later on
           continueSearch = true;
           break;
         }
         else {
-          // add the removed rules back into the covering to properly check next rule.
           intervalCount += currentRuleIntervals.size();
-          this.updateCoveringCounts(coveringCounts, currentRuleIntervals);
           logger.trace("rule {} can't be removed", currentRule.getRuleName());
         }
       }
     }
   }
 
-  private List<RuleInterval> usedRuleCovering() {
-    List<RuleInterval> covering = new ArrayList<>();
-    for (int ridB : usedRules) { // used rules are those in the current cover
-      if (0 == ridB) {
-        continue;
-      }
-      covering.addAll(grammarRules.get(ridB).getRuleIntervals());
-    }
-    return covering;
-  }
-
-  private int[] intervalCoveringCounts(List<RuleInterval> intervals) {
-    int[] coveringCount = new int[range.length];
-    this.updateCoveringCounts(coveringCount, intervals);
-    return coveringCount;
-  }
-
-  private void updateCoveringCounts(int[] covering, List<RuleInterval> intervals) {
+  /**
+   * Checks if every point of the rule's intervals is covered by the other used rules, i.e., if its
+   * count exceeds the number of the rule's own intervals covering it. The intervals are swept in
+   * the order of their ends, so the check queries each run of the constant own multiplicity once
+   * and stops at the first point covered by the rule alone.
+   *
+   * @param intervals the rule's intervals.
+   * @return true if the rule is redundant.
+   */
+  private boolean isCoveredByOthers(List<RuleInterval> intervals) {
+    int[] starts = new int[intervals.size()];
+    int[] ends = new int[intervals.size()];
+    int k = 0;
     for (RuleInterval i : intervals) {
-      for (int j = i.getStart(); j < i.getEnd(); j++) {
-        covering[j] += 1;
+      if (i.getStart() < i.getEnd()) {
+        starts[k] = i.getStart();
+        ends[k] = i.getEnd();
+        k++;
       }
     }
-  }
-
-  private void removeFromCoveringCounts(int[] covering, List<RuleInterval> intervals) {
-    for (RuleInterval i : intervals) {
-      for (int j = i.getStart(); j < i.getEnd(); j++) {
-        covering[j] -= 1;
+    if (0 == k) {
+      return true;
+    }
+    Arrays.sort(starts, 0, k);
+    Arrays.sort(ends, 0, k);
+
+    int si = 0;
+    int ei = 0;
+    int multiplicity = 0;
+    int pos = starts[0];
+    while (ei < k) {
+      int next = (si < k) ? Math.min(starts[si], ends[ei]) : ends[ei];
+      if (multiplicity > 0 && pos < next && coverCounts.getMin(pos, next) <= multiplicity) {
+        return false;
+      }
+      pos = next;
+      while (si < k && starts[si] == pos) {
+        multiplicity++;
+        si++;
+      }
+      while (ei < k && ends[ei] == pos) {
+        multiplicity--;
+        ei++;
       }
     }
+    return true;
   }
 
   /**
-   * Checks if the cover is complete.
+   * Marks the used rules whose intervals overlap the new rule, only these may become redundant.
    *
-   * @param isCovered the cover.
-   * @param intervals set of rule intervals.
-   * @return true if the set complete.
+   * @param newRule the rule just added to the cover.
    */
-  private boolean isCompletelyCoveredBy(int[] isCovered, List<RuleInterval> intervals) {
+  private void markOverlappedRules(RuleRecord newRule) {
+    dirtyRules.set(newRule.getRuleNumber());
+    List<RuleInterval> intervals = newRule.getRuleIntervals();
     for (RuleInterval i : intervals) {
-      for (int j = i.getStart(); j < i.getEnd(); j++) {
-          if (isCovered[j] == 0) {
-            return false;
-          }
-      }
+      usedIntervals.markOverlapping(i.getStart(), i.getEnd(), usedRules, dirtyRules);
     }
-    return true;
+    usedIntervals.add(newRule.getRuleNumber(), intervals);
   }
 
   public GrammarRules regularizePrunedRules() {
@@ -224,7 +337,8 @@ public class RulePruningAlgorithm {
         newRuleStr.delete(newRuleStr.length() - 1, newRuleStr.length());
       }
 
-      GrammarRuleRecord regRule = grammarRules.get(rId);
+      // the input grammar is left intact, the pruned one gets the copies
+      GrammarRuleRecord regRule = new GrammarRuleRecord(grammarRules.getRule(rId));
       regRule.setRuleString(newRuleStr.toString());
       prunedRules.addRule(regRule);
     }
@@ -237,7 +351,7 @@ public class RulePruningAlgorithm {
   }
 
   private StringBuilder buildExpandedRuleString(Integer rId) {
-    String oldRuleStr = grammarRules.get(rId).getRuleString();
+    String oldRuleStr = grammarRules.getRule(rId).getRuleString();
     String[] tokens = oldRuleStr.split("\\s+");
     StringBuilder newRuleStr = new StringBuilder();
 
@@ -271,7 +385,7 @@ public class RulePruningAlgorithm {
     //
     // split the rule string onto constituting tokens
     //
-    String ruleStr = grammarRules.get(0).getRuleString();
+    String ruleStr = grammarRules.getRule(0).getRuleString();
     StringBuilder newRuleString = new StringBuilder();
     String[] tokens = ruleStr.split("\\s+");
     for (String t : tokens) {
@@ -294,4 +408,84 @@ public class RulePruningAlgorithm {
     newR0.setRuleString(newRuleString.toString());
     logger.trace(newR0.toString());
   }
+
+  /**
+   * A rule with its delta as computed for the cover of the specified epoch.
+   */
+  private static class Candidate {
+    private final RuleRecord rule;
+    private final int position;
+    private double delta;
+    private int epoch;
+
+    Candidate(RuleRecord rule, int position, double delta, int epoch) {
+      this.rule = rule;
+      this.position = position;
+      this.delta = delta;
+      this.epoch = epoch;
+    }
+  }
+
+  /**
+   * The rule intervals bucketed by their start, a bucket per 64 points. The intervals of the rules
+   * dropped from the cover are not removed, but skipped by the lookups.
+   */
+  private static class IntervalIndex {
+    private static final int BUCKET_BITS = 6;
+
+    /** The (rule, start, end) triplets of the intervals per bucket. */
+    private final int[][] buckets;
+    private final int[] sizes;
+    private int maxLength;
+
+    IntervalIndex(int length) {
+      this.buckets = new int[(length >>> BUCKET_BITS) + 1][];
+      this.sizes = new int[this.buckets.length];
+    }
+
+    void add(int ruleId, List<RuleInterval> intervals) {
+      for (RuleInterval i : intervals) {
+        int start = i.getStart();
+        int end = i.getEnd();
+        if (start >= end) {
+          continue;
+        }
+        this.maxLength = Math.max(this.maxLength, end - start);
+        int b = start >>> BUCKET_BITS;
+        int[] bucket = this.buckets[b];
+        if (null == bucket) {
+          bucket = new int[3 * 4];
+          this.buckets[b] = bucket;
+        }
+        else if (this.sizes[b] == bucket.length) {
+          bucket = Arrays.copyOf(bucket, bucket.length << 1);
+          this.buckets[b] = bucket;
+        }
+        bucket[this.sizes[b]++] = ruleId;
+        bucket[this.sizes[b]++] = start;
+        bucket[this.sizes[b]++] = end;
+      }
+    }
+
+    /**
+     * Marks the used rules which have an interval overlapping the specified one.
+     */
+    void markOverlapping(int start, int end, Set<Integer> usedRules, BitSet marks) {
+      if (start >= end) {
+        return;
+      }
+      int first = Math.max(0, start - this.maxLength + 1) >>> BUCKET_BITS;
+      int last = Math.min(this.buckets.length - 1, (end - 1) >>> BUCKET_BITS);
+      for (int b = first; b <= last; b++) {
+        int[] bucket = this.buckets[b];
+        for (int k = 0; k < this.sizes[b]; k += 3) {
+          int ruleId = bucket[k];
+          if (bucket[k + 1] < end && bucket[k + 2] > start && !marks.get(ruleId)
+              && usedRules.contains(ruleId)) {
+            marks.set(ruleId);
+          }
+        }
+      }
+    }
+  }
 }
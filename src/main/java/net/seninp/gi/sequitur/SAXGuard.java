@@ -48,7 +48,8 @@ public class SAXGuard extends SAXSymbol {
    */
   public SAXGuard(SAXRule theRule) {
     r = theRule;
-    value = null;
+    context = theRule.context;
+    value = GUARD_VALUE;
     p = this;
     n = this;
   }
@@ -37,7 +37,8 @@ public class SAXNonTerminal extends SAXSymbol implements Cloneable {
   public SAXNonTerminal(SAXRule theRule) {
     this.r = theRule;
     this.r.count++;
-    this.value = String.valueOf(numTerminals + r.ruleIndex);
+    this.context = theRule.context;
+    this.value = -1 - r.ruleIndex;
     this.p = null;
     this.n = null;
   }
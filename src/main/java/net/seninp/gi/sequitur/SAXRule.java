@@ -24,9 +24,11 @@ import java.util.Arrays;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
-import java.util.concurrent.atomic.AtomicInteger;
 import net.seninp.gi.logic.GrammarRuleRecord;
 import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.metrics.GIMetrics.StageTimer;
+import net.seninp.gi.metrics.PipelineStage;
 
 /**
  * The Rule. Adaption of Eibe Frank code for JMotif API.
@@ -42,20 +44,8 @@ public class SAXRule {
   // references the rule is created, and decremented when the non-terminal symbol is deleted. When
   // the reference count falls to one, the rule is deleted.
 
-  /** This is static - the global rule enumerator counter. */
-  protected static AtomicInteger numRules = new AtomicInteger(0);
-
-  /** Yet another, global static structure allowing fast rule access. */
-  protected static final ArrayList<SAXRule> theRules = new ArrayList<SAXRule>();
-
-  private static final String SPACE = " ";
-
-  private static final String TAB = "\t";
-
-  private static final String CR = "\n";
-
-  /** Keeper for rules references. */
-  protected static ArrayList<GrammarRuleRecord> arrRuleRecords = new ArrayList<GrammarRuleRecord>();
+  /** The grammar context this rule belongs to. */
+  protected final SequiturContext context;
 
   /** Guard symbol to mark beginning and end of rule. */
   protected SAXGuard theGuard;
@@ -79,13 +69,24 @@ public class SAXRule {
   protected Set<Integer> indexes = new TreeSet<Integer>();
 
   /**
-   * Constructor.
+   * Constructor, creates a new grammar context and makes this rule its top-level rule.
    */
   public SAXRule() {
+    this(new SequiturContext());
+  }
 
-    // assign a next number to this rule and increment the global counter
-    this.ruleIndex = numRules.intValue();
-    numRules.incrementAndGet();
+  /**
+   * Constructor.
+   * 
+   * @param context the grammar context this rule belongs to.
+   */
+  public SAXRule(SequiturContext context) {
+
+    this.context = context;
+
+    // assign a next number to this rule and increment the context counter
+    this.ruleIndex = context.numRules.intValue();
+    context.numRules.incrementAndGet();
 
     // create a Guard handler for the rule
     this.theGuard = new SAXGuard(this);
@@ -96,102 +97,40 @@ public class SAXRule {
     this.level = 0;
 
     // save the instance
-    theRules.add(this);
+    context.theRules.add(this);
   }
 
   /**
-   * Original getRules() method. Prints out rules. Killing it will brake tests.
+   * Original getRules() method. Prints out rules of the grammar.
    *
+   * @param context the grammar context, see {@link #getContext()}.
    * @return the formatted rules string.
    */
-  public static String printRules() {
-
-    theRules.get(0).getSAXRules();
-    expandRules();
-
-    Vector<SAXRule> rules = new Vector<SAXRule>(numRules.intValue());
-    SAXRule currentRule;
-    SAXRule referedTo;
-    SAXSymbol sym;
-    int index;
-    int processedRules = 0;
-    StringBuilder text = new StringBuilder();
-
-    text.append("Number\tName\tLevel\tOccurr.\tUsage\tYield\tRule str\tExpaneded\tIndexes\n");
-    rules.addElement(theRules.get(0));
-
-    // add-on - keeping the rule string, will be used in order to expand rules
-    StringBuilder currentRuleString = new StringBuilder();
-
-    while (processedRules < rules.size()) {
-
-      currentRule = rules.elementAt(processedRules);
-
-      // seninp: adding to original output rule occurrence indexes
-      //
-      text.append(SPACE);
-      text.append(arrRuleRecords.get(processedRules).getRuleNumber()).append(TAB);
-      text.append(arrRuleRecords.get(processedRules).getRuleName()).append(TAB);
-      text.append(arrRuleRecords.get(processedRules).getRuleLevel()).append(TAB);
-      text.append(arrRuleRecords.get(processedRules).getOccurrences().size()).append(TAB);
-      text.append(arrRuleRecords.get(processedRules).getRuleUseFrequency()).append(TAB);
-      text.append(arrRuleRecords.get(processedRules).getRuleYield()).append(TAB);
-
-      for (sym = currentRule.first(); (!sym.isGuard()); sym = sym.n) {
-        if (sym.isNonTerminal()) {
-          referedTo = ((SAXNonTerminal) sym).r;
-          if ((rules.size() > referedTo.index) && (rules.elementAt(referedTo.index) == referedTo)) {
-            index = referedTo.index;
-          }
-          else {
-            index = rules.size();
-            referedTo.index = index;
-            rules.addElement(referedTo);
-          }
-          text.append('R');
-          text.append(index);
-
-          currentRuleString.append('R');
-          currentRuleString.append(index);
-        }
-        else {
-          if (sym.value.equals(" ")) {
-            text.append('_');
-            currentRuleString.append('_');
-          }
-          else {
-            if (sym.value.equals("\n")) {
-              text.append("\\n");
-              currentRuleString.append("\\n");
-            }
-            else {
-              text.append(sym.value);
-              currentRuleString.append(sym.value);
-            }
-          }
-        }
-        text.append(' ');
-        currentRuleString.append(' ');
-      }
-      text.append(TAB).append(arrRuleRecords.get(processedRules).getExpandedRuleString())
-          .append(TAB);
-      text.append(Arrays.toString(currentRule.getIndexes())).append(CR);
-
-      processedRules++;
-
-      currentRuleString = new StringBuilder();
+  public static String printRules(SequiturContext context) {
+    if (null == context) {
+      throw new IllegalArgumentException("The grammar context is null");
     }
-    return text.toString();
+    return context.printRules();
   }
 
   /**
-   * Cleans up data structures.
+   * Cleans up data structures. Nothing to clean up: the grammar state is kept by its context, which
+   * is collected along with the grammar.
+   *
+   * @deprecated the grammars don't share any state.
    */
+  @Deprecated
   public static void reset() {
-    SAXRule.numRules = new AtomicInteger(0);
-    SAXSymbol.theDigrams.clear();
-    SAXSymbol.theSubstituteTable.clear();
-    SAXRule.arrRuleRecords = new ArrayList<GrammarRuleRecord>();
+    assert true;
+  }
+
+  /**
+   * Gets the grammar context this rule belongs to.
+   * 
+   * @return the grammar context.
+   */
+  public SequiturContext getContext() {
+    return this.context;
   }
 
   /**
@@ -289,117 +228,156 @@ public class SAXRule {
   }
 
   /**
-   * Manfred's cool trick to get out all expanded rules. Expands the rule of each SAX container into
-   * SAX words string. Can be rewritten recursively though.
+   * Expands the rule of each SAX container into SAX words string. Each word of an expanded string
+   * is followed by a space, except for R0's last one. The rules are expanded in post-order over
+   * the rules graph with an explicit stack, each one exactly once: its expanded string is a
+   * concatenation of the already expanded parts, so the total time is linear in the size of the
+   * output, and no recursion depth limits the grammar depth.
+   * 
+   * @param arrRuleRecords the rule records, R0 is the first one.
    */
-  private static void expandRules() {
+  static void expandRules(ArrayList<GrammarRuleRecord> arrRuleRecords) {
 
-    // long start = System.currentTimeMillis();
+    int rulesNum = arrRuleRecords.size();
+    if (0 == rulesNum) {
+      return;
+    }
 
-    // iterate over all SAX containers
-    // ArrayList<SAXMapEntry<Integer, Integer>> recs = new ArrayList<SAXMapEntry<Integer, Integer>>(
-    // arrRuleRecords.size());
+    // the rule parts: a word, or a null with the referred rule number in the parallel array
     //
-    // for (GrammarRuleRecord ruleRecord : arrRuleRecords) {
-    // recs.add(new SAXMapEntry<Integer, Integer>(ruleRecord.getRuleLevel(), ruleRecord
-    // .getRuleNumber()));
-    // }
+    String[][] parts = new String[rulesNum][];
+    int[][] refs = new int[rulesNum][];
+
+    // the expanded strings, their lengths in chars and in words
     //
-    // Collections.sort(recs, new Comparator<SAXMapEntry<Integer, Integer>>() {
-    // @Override
-    // public int compare(SAXMapEntry<Integer, Integer> o1, SAXMapEntry<Integer, Integer> o2) {
-    // return o1.getKey().compareTo(o2.getKey());
-    // }
-    // });
+    String[] expanded = new String[rulesNum];
+    int[] lengths = new int[rulesNum];
+    int[] yields = new int[rulesNum];
 
-    // for (SAXMapEntry<Integer, Integer> entry : recs) {
-    for (GrammarRuleRecord ruleRecord : arrRuleRecords) {
+    int[] stack = new int[16];
+    for (int ruleIdx = 0; ruleIdx < rulesNum; ruleIdx++) {
 
-      if (ruleRecord.getRuleNumber() == 0) {
+      if (null != expanded[ruleIdx]) {
         continue;
       }
 
-      String curString = ruleRecord.getRuleString();
-      StringBuilder resultString = new StringBuilder(8192);
+      int top = 0;
+      stack[top++] = ruleIdx;
+      while (top > 0) {
 
-      String[] split = curString.split(" ");
+        int current = stack[top - 1];
+        if (null != expanded[current]) {
+          top--;
+          continue;
+        }
+        if (null == parts[current]) {
+          parseRuleString(arrRuleRecords.get(current).getRuleString(), current, parts, refs);
+        }
 
-      for (String s : split) {
-        if (s.startsWith("R")) {
-          resultString.append(" ").append(expandRule(Integer.valueOf(s.substring(1, s.length()))));
+        // the parts which are not yet expanded go on the stack first
+        //
+        boolean ready = true;
+        int length = 0;
+        int yield = 0;
+        for (int i = 0; i < parts[current].length; i++) {
+          if (null == parts[current][i]) {
+            int ref = refs[current][i];
+            if (null == expanded[ref]) {
+              if (top == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length << 1);
+              }
+              stack[top++] = ref;
+              ready = false;
+            }
+            else {
+              length += lengths[ref];
+              yield += yields[ref];
+            }
+          }
+          else {
+            length += parts[current][i].length() + 1;
+            yield++;
+          }
         }
-        else {
-          resultString.append(" ").append(s);
+        if (!ready) {
+          continue;
         }
-      }
 
-      // need to trim space at the very end
-      String rr = resultString.delete(0, 1).append(" ").toString();
-      ruleRecord.setExpandedRuleString(rr);
-      ruleRecord.setRuleYield(countSpaces(rr));
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < parts[current].length; i++) {
+          if (null == parts[current][i]) {
+            sb.append(expanded[refs[current][i]]);
+          }
+          else {
+            sb.append(parts[current][i]).append(' ');
+          }
+        }
+        expanded[current] = sb.toString();
+        lengths[current] = length;
+        yields[current] = yield;
+        top--;
+      }
     }
 
-    StringBuilder resultString = new StringBuilder(8192);
-
-    GrammarRuleRecord ruleRecord = arrRuleRecords.get(0);
-    resultString.append(ruleRecord.getRuleString());
-
-    int currentSearchStart = resultString.indexOf("R");
-    while (currentSearchStart >= 0) {
-      int spaceIdx = resultString.indexOf(" ", currentSearchStart);
-      String ruleName = resultString.substring(currentSearchStart, spaceIdx + 1);
-      Integer ruleId = Integer.valueOf(ruleName.substring(1, ruleName.length() - 1));
-      resultString.replace(spaceIdx - ruleName.length() + 1, spaceIdx + 1,
-          arrRuleRecords.get(ruleId).getExpandedRuleString());
-      currentSearchStart = resultString.indexOf("R");
+    for (int ruleIdx = 1; ruleIdx < rulesNum; ruleIdx++) {
+      GrammarRuleRecord ruleRecord = arrRuleRecords.get(ruleIdx);
+      ruleRecord.setExpandedRuleString(expanded[ruleIdx]);
+      ruleRecord.setRuleYield(yields[ruleIdx]);
     }
-    ruleRecord.setExpandedRuleString(resultString.toString().trim());
-    // ruleRecord.setRuleYield(countSpaces(resultString));
-
-    // long end = System.currentTimeMillis();
-    // System.out.println("Rules expanded in " + SAXFactory.timeToString(start, end));
+    arrRuleRecords.get(0).setExpandedRuleString(expanded[0].trim());
 
   }
 
-  private static String expandRule(Integer ruleNum) {
-    GrammarRuleRecord rr = arrRuleRecords.get(ruleNum);
-
-    String curString = rr.getRuleString();
-    StringBuilder resultString = new StringBuilder();
-
-    String[] split = curString.split(" ");
-
-    for (String s : split) {
-      if (s.startsWith("R")) {
-        resultString.append(" ").append(expandRule(Integer.valueOf(s.substring(1, s.length()))));
+  /**
+   * Splits the rule string into the words and the rule references.
+   * 
+   * @param ruleString the rule string.
+   * @param ruleIdx the rule number.
+   * @param parts the words array to fill.
+   * @param refs the references array to fill.
+   */
+  private static void parseRuleString(String ruleString, int ruleIdx, String[][] parts,
+      int[][] refs) {
+    int partsNum = 0;
+    for (int i = 0; i < ruleString.length(); i++) {
+      if (ruleString.charAt(i) != ' ' && (0 == i || ruleString.charAt(i - 1) == ' ')) {
+        partsNum++;
+      }
+    }
+    parts[ruleIdx] = new String[partsNum];
+    refs[ruleIdx] = new int[partsNum];
+    int partIdx = 0;
+    int start = 0;
+    while (partIdx < partsNum) {
+      while (ruleString.charAt(start) == ' ') {
+        start++;
+      }
+      int end = ruleString.indexOf(' ', start);
+      if (end < 0) {
+        end = ruleString.length();
+      }
+      if (ruleString.charAt(start) == 'R') {
+        refs[ruleIdx][partIdx] = Integer.parseInt(ruleString.substring(start + 1, end));
       }
       else {
-        resultString.append(" ").append(s);
+        parts[ruleIdx][partIdx] = ruleString.substring(start, end);
       }
+      partIdx++;
+      start = end;
     }
-    String res = resultString.delete(0, 1).append(" ").toString();
-    rr.setExpandedRuleString(res);
-    return resultString.delete(resultString.length() - 1, resultString.length()).toString();
   }
 
   /**
-   * Counts spaces in the string.
-   * 
-   * @param str The string.
-   * @return The number of spaces.
+   * Gets the grammar rule records, these are collected and expanded on the first call.
+   *
+   * @return the rule records of this rule's grammar.
    */
-  private static int countSpaces(String str) {
-    int counter = 0;
-    for (int i = 0; i < str.length(); i++) {
-      if (str.charAt(i) == ' ') {
-        counter++;
-      }
-    }
-    return counter;
-  }
-
   public ArrayList<GrammarRuleRecord> getRuleRecords() {
-    return arrRuleRecords;
+    if (this.context.arrRuleRecords.isEmpty()) {
+      this.context.getTopRule().getSAXRules();
+      expandRules(this.context.arrRuleRecords);
+    }
+    return this.context.arrRuleRecords;
   }
 
   /**
@@ -418,7 +396,7 @@ public class SAXRule {
    * 
    * @return all the rule occurrences.
    */
-  private int[] getIndexes() {
+  protected int[] getIndexes() {
     int[] res = new int[this.indexes.size()];
     int i = 0;
     for (Integer idx : this.indexes) {
@@ -434,9 +412,10 @@ public class SAXRule {
    */
   protected void getSAXRules() {
 
+    ArrayList<GrammarRuleRecord> arrRuleRecords = this.context.arrRuleRecords;
     arrRuleRecords.clear();
 
-    Vector<SAXRule> rules = new Vector<SAXRule>(numRules.intValue());
+    Vector<SAXRule> rules = new Vector<SAXRule>(this.context.numRules.intValue());
     rules.addElement(this);
 
     SAXRule currentRule;
@@ -464,7 +443,7 @@ public class SAXRule {
           sbCurrentRule.append(index);
         }
         else {
-          sbCurrentRule.append(sym.value);
+          sbCurrentRule.append(context.symbols.getSymbol(sym.value));
         }
         sbCurrentRule.append(' ');
       }
@@ -488,98 +467,16 @@ public class SAXRule {
   }
 
   public GrammarRules toGrammarRulesData() {
+    StageTimer timer = GIMetrics.start(PipelineStage.EXPANSION);
     getSAXRules();
-    expandRules();
+    expandRules(this.context.arrRuleRecords);
     GrammarRules res = new GrammarRules();
-    for (GrammarRuleRecord arrRule : arrRuleRecords) {
+    for (GrammarRuleRecord arrRule : this.context.arrRuleRecords) {
       res.addRule(arrRule);
     }
+    timer.record(GIMetrics.RULES, res.size());
+    timer.stop();
     return res;
   }
 
-  // /**
-  // * Original getRules() method. Prints out rules. Killing it will brake tests.
-  // *
-  // * @return the formatted rules string.
-  // */
-  // public static String printRules() {
-  //
-  // theRules.get(0).getSAXRules();
-  // expandRules();
-  //
-  // Vector<SAXRule> rules = new Vector<SAXRule>(numRules.intValue());
-  // SAXRule currentRule;
-  // SAXRule referedTo;
-  // SAXSymbol sym;
-  // int index;
-  // int processedRules = 0;
-  // StringBuilder text = new StringBuilder();
-  //
-  // text.append("Number\tName\tLevel\tOccurr.\tUsage\tYield\tRule str\tExpaneded\tIndexes\n");
-  // rules.addElement(theRules.get(0));
-  //
-  // // add-on - keeping the rule string, will be used in order to expand rules
-  // StringBuilder currentRuleString = new StringBuilder();
-  //
-  // while (processedRules < rules.size()) {
-  //
-  // currentRule = rules.elementAt(processedRules);
-  //
-  // // seninp: adding to original output rule occurrence indexes
-  // //
-  // text.append(SPACE);
-  // text.append(arrRuleRecords.get(processedRules).getRuleNumber()).append(TAB);
-  // text.append(arrRuleRecords.get(processedRules).getRuleName()).append(TAB);
-  // text.append(arrRuleRecords.get(processedRules).getRuleLevel()).append(TAB);
-  // text.append(arrRuleRecords.get(processedRules).getOccurrences().size()).append(TAB);
-  // text.append(arrRuleRecords.get(processedRules).getRuleUseFrequency()).append(TAB);
-  // text.append(arrRuleRecords.get(processedRules).getRuleYield()).append(TAB);
-  //
-  // for (sym = currentRule.first(); (!sym.isGuard()); sym = sym.n) {
-  // if (sym.isNonTerminal()) {
-  // referedTo = ((SAXNonTerminal) sym).r;
-  // if ((rules.size() > referedTo.index) && (rules.elementAt(referedTo.index) == referedTo)) {
-  // index = referedTo.index;
-  // }
-  // else {
-  // index = rules.size();
-  // referedTo.index = index;
-  // rules.addElement(referedTo);
-  // }
-  // text.append('R');
-  // text.append(index);
-  //
-  // currentRuleString.append('R');
-  // currentRuleString.append(index);
-  // }
-  // else {
-  // if (sym.value.equals(" ")) {
-  // text.append('_');
-  // currentRuleString.append('_');
-  // }
-  // else {
-  // if (sym.value.equals("\n")) {
-  // text.append("\\n");
-  // currentRuleString.append("\\n");
-  // }
-  // else {
-  // text.append(sym.value);
-  // currentRuleString.append(sym.value);
-  // }
-  // }
-  // }
-  // text.append(' ');
-  // currentRuleString.append(' ');
-  // }
-  // text.append(TAB).append(arrRuleRecords.get(processedRules).getExpandedRuleString())
-  // .append(TAB);
-  // text.append(Arrays.toString(currentRule.getIndexes())).append(CR);
-  //
-  // processedRules++;
-  //
-  // currentRuleString = new StringBuilder();
-  // }
-  // return text.toString();
-  // }
-
 }
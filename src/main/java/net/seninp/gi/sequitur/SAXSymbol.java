@@ -19,9 +19,6 @@ package net.seninp.gi.sequitur;
  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
  */
 
-import java.util.Hashtable;
-import java.util.Map.Entry;
-
 /**
  * Template for Sequitur data structures. Adaption of Eibe Frank code for JMotif API.
  * 
@@ -30,24 +27,17 @@ import java.util.Map.Entry;
  */
 public abstract class SAXSymbol {
 
-  /**
-   * Apparently, this limits the possible number of terminals, ids of non-terminals start after this
-   * num.
-   */
-  protected static final int numTerminals = 100000;
-
-  /** Seed the size of hash table? */
-  private static final int prime = 2265539;
-
-  /** Hashtable to keep track of all digrams. This is static - single instance for all. */
-  protected static final Hashtable<SAXSymbol, SAXSymbol> theDigrams = new Hashtable<SAXSymbol, SAXSymbol>(
-      SAXSymbol.prime);
+  /** The value of the guard, which never forms a digram. */
+  protected static final int GUARD_VALUE = Integer.MIN_VALUE;
 
-  public static Hashtable<String, Hashtable<String, Integer>> theSubstituteTable = new Hashtable<String, Hashtable<String, Integer>>(
-      SAXSymbol.prime);
+  /** The grammar context, it keeps track of all digrams. */
+  protected SequiturContext context;
 
-  /** The symbol value. */
-  protected String value;
+  /**
+   * The symbol value: a terminal's id in the context's symbol table, or the negated rule index
+   * minus one for a non-terminal, thus terminals and non-terminals never clash.
+   */
+  protected int value;
 
   /** The symbol original position. */
   protected int originalPosition;
@@ -107,6 +97,9 @@ public abstract class SAXSymbol {
     // + " after ");
     // }
 
+    // the inserted symbol becomes a part of this symbol's grammar
+    toInsert.setContext(this.context);
+
     // call join on this symbol' NEXT - placing it AFTER the new one
     join(toInsert, n);
 
@@ -114,6 +107,15 @@ public abstract class SAXSymbol {
     join(this, toInsert);
   }
 
+  /**
+   * Makes this symbol a part of the grammar.
+   * 
+   * @param context the grammar context.
+   */
+  protected void setContext(SequiturContext context) {
+    this.context = context;
+  }
+
   /**
    * Removes the digram from the hash table. Overwritten in sub class guard.
    */
@@ -125,8 +127,8 @@ public abstract class SAXSymbol {
     }
 
     // delete digram if it is exactly this one
-    if (this == theDigrams.get(this)) {
-      theDigrams.remove(this);
+    if (this == context.theDigrams.get(this)) {
+      context.theDigrams.remove(this);
     }
   }
 
@@ -173,11 +175,14 @@ public abstract class SAXSymbol {
       return false;
     }
 
-    if (!theDigrams.containsKey(this)) {
+    // well the same digram may be in the store, lemme see...
+    SAXSymbol found = context.theDigrams.get(this);
+
+    if (null == found) {
       // System.out.println("[sequitur debug] *check...* digrams contain this (" + this.value + "~"
       // + this.n.value + ")? NO. Checking in.");
       // found = theDigrams.put(this, this);
-      theDigrams.put(this, this);
+      context.theDigrams.put(this);
       // System.out.println(" *** Digrams now: " + makeDigramsTable());
       // System.out.println("[sequitur debug] *digrams* " + hash2String());
       return false;
@@ -186,9 +191,6 @@ public abstract class SAXSymbol {
     // System.out.println("[sequitur debug] *check...* digrams contain this (" + this.value
     // + this.n.value + ")? Yes. Oh-Oh...");
 
-    // well the same hash is in the store, lemme see...
-    SAXSymbol found = theDigrams.get(this);
-
     // if it's not me, then lets call match magic?
     if (found.n != this) {
       // System.out.println("[sequitur debug] *double check...* IT IS NOT ME!");
@@ -260,7 +262,7 @@ public abstract class SAXSymbol {
     }
     else {
       // well, here we create a new rule because there are two matching digrams
-      rule = new SAXRule();
+      rule = new SAXRule(context);
 
       try {
         // tie the digram's links together within the new rule
@@ -280,7 +282,7 @@ public abstract class SAXSymbol {
         // put this digram into the hash
         // this effectively erases the OLD MATCHING digram with the new DIGRAM (symbol is wrapped
         // into Guard)
-        theDigrams.put(first, first);
+        context.theDigrams.put(first);
 
         // substitute the matching (old) digram with this rule in S
         // System.out.println("[sequitur debug] *newRule...* substitute OLD digram first.");
@@ -310,27 +312,12 @@ public abstract class SAXSymbol {
 
   /**
    * Custom hashcode implementation. Produces the hashcode for a digram using this and the next
-   * symbol.
+   * symbol values, all the bits of both are mixed.
    * 
    * @return the digram's hash code.
    */
   public int hashCode() {
-    int hash1 = 31;
-    int hash2 = 13;
-    int num0 = 0;
-
-    for (int i = 0; i < value.length(); i++) {
-      num0 = num0 + Character.getNumericValue(value.charAt(i));
-    }
-
-    int num1 = 0;
-
-    for (int i = 0; i < n.value.length(); i++) {
-      num1 = num1 + Character.getNumericValue(n.value.charAt(i));
-    }
-
-    hash2 = num0 * hash1 + hash2 * num1;
-    return hash2;
+    return SequiturDigramTable.hash(SequiturDigramTable.key(this));
   }
 
   // public int hashCode2() {
@@ -374,9 +361,7 @@ public abstract class SAXSymbol {
       return false;
     if (!(obj instanceof SAXSymbol))
       return false;
-    // return ((value == ((SAXSymbol)obj).value) &&
-    // (n.value == ((SAXSymbol)obj).n.value));
-    return ((value.equals(((SAXSymbol) obj).value)) && (n.value.equals(((SAXSymbol) obj).n.value)));
+    return ((value == ((SAXSymbol) obj).value) && (n.value == ((SAXSymbol) obj).n.value));
   }
 
   @Override
@@ -396,17 +381,17 @@ public abstract class SAXSymbol {
       return "guard of the rule " + ((SAXGuard) symbol).r.ruleIndex;
     }
     else if (symbol.isNonTerminal()) {
-      return "nonterminal " + ((SAXNonTerminal) symbol).value;
+      return "nonterminal " + ((SAXNonTerminal) symbol).r.ruleIndex;
     }
-    return "symbol " + symbol.value;
+    return "symbol " + symbol.context.symbols.getSymbol(symbol.value);
   }
 
   @SuppressWarnings("unused")
-  private static String makeDigramsTable() {
+  private String makeDigramsTable() {
     StringBuffer sb = new StringBuffer("\n");
-    for (Entry<SAXSymbol, SAXSymbol> e : theDigrams.entrySet()) {
-      sb.append("           ").append(getPayload(e.getKey())).append(", ")
-          .append(getPayload(e.getValue())).append("\n");
+    for (SAXSymbol s : context.theDigrams.getDigrams()) {
+      sb.append("           ").append(getPayload(s)).append(", ").append(getPayload(s.n))
+          .append("\n");
     }
     return sb.toString();
   }
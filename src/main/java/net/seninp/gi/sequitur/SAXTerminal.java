@@ -28,19 +28,48 @@ package net.seninp.gi.sequitur;
  */
 public class SAXTerminal extends SAXSymbol implements Cloneable {
 
+  /** The symbol given as a string, interned once the terminal is placed into a grammar. */
+  private String pendingSymbol;
+
   /**
    * Constructor.
    * 
-   * @param symbol the symbol's value.
+   * @param symbolId the symbol's id in the grammar's symbol table.
    * @param originalPosition this symbol original position in the string.
    */
-  public SAXTerminal(String symbol, int originalPosition) {
-    this.value = symbol;
+  public SAXTerminal(int symbolId, int originalPosition) {
+    this.value = symbolId;
     this.originalPosition = originalPosition;
     p = null;
     n = null;
   }
 
+  /**
+   * Constructor. The symbol is interned by the symbol table of the grammar this terminal is
+   * inserted into.
+   * 
+   * @param symbol the symbol's value.
+   * @param originalPosition this symbol original position in the string.
+   * @deprecated use {@link #SAXTerminal(int, int)} with the id from the grammar's symbol table.
+   */
+  @Deprecated
+  public SAXTerminal(String symbol, int originalPosition) {
+    this(GUARD_VALUE, originalPosition);
+    this.pendingSymbol = symbol;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setContext(SequiturContext context) {
+    super.setContext(context);
+    if (null != this.pendingSymbol) {
+      this.value = context.symbols.intern(this.pendingSymbol);
+      this.pendingSymbol = null;
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -0,0 +1,188 @@
+package net.seninp.gi.sequitur;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.seninp.gi.logic.GrammarRuleRecord;
+import net.seninp.gi.logic.SymbolTable;
+
+/**
+ * Holds the state of a single Sequitur run: the digram index, the rules table, and the rule
+ * counter. The original Eibe Frank's code kept these as global (static) variables, which allowed
+ * only a single grammar to be built at a time; with the state confined to a context instance, any
+ * number of grammars can be built concurrently as long as each of them is digested by a single
+ * thread. The terminals are interned to int ids by the context's {@link SymbolTable}, which may
+ * be shared by several contexts fed from the same thread.
+ *
+ * @author psenin
+ *
+ */
+public class SequiturContext {
+
+  private static final String SPACE = " ";
+
+  private static final String TAB = "\t";
+
+  private static final String CR = "\n";
+
+  /** The rule enumerator counter. */
+  protected final AtomicInteger numRules;
+
+  /** All the rules created within this context, the first one is R0. */
+  protected final ArrayList<SAXRule> theRules;
+
+  /** The terminals table. */
+  protected final SymbolTable symbols;
+
+  /** The index to keep track of all digrams. */
+  protected final SequiturDigramTable theDigrams;
+
+  /** Keeper for rules references. */
+  protected ArrayList<GrammarRuleRecord> arrRuleRecords;
+
+  /**
+   * Constructor.
+   */
+  public SequiturContext() {
+    this(new SymbolTable());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param symbols the terminals table to use.
+   */
+  public SequiturContext(SymbolTable symbols) {
+    super();
+    this.symbols = symbols;
+    this.numRules = new AtomicInteger(0);
+    this.theRules = new ArrayList<SAXRule>();
+    this.theDigrams = new SequiturDigramTable();
+    this.arrRuleRecords = new ArrayList<GrammarRuleRecord>();
+  }
+
+  /**
+   * Gets the top-level rule (i.e. R0) of this context's grammar.
+   *
+   * @return the top-level rule, or null if no rules were created yet.
+   */
+  public SAXRule getTopRule() {
+    if (this.theRules.isEmpty()) {
+      return null;
+    }
+    return this.theRules.get(0);
+  }
+
+  /**
+   * Gets the terminals table.
+   *
+   * @return the terminals table.
+   */
+  public SymbolTable getSymbols() {
+    return this.symbols;
+  }
+
+  /**
+   * Gets the rule records collected so far.
+   *
+   * @return the rule records.
+   */
+  public ArrayList<GrammarRuleRecord> getRuleRecords() {
+    return this.arrRuleRecords;
+  }
+
+  /**
+   * Gets the number of digrams currently in the index.
+   *
+   * @return the digrams index size.
+   */
+  public int getDigramsCount() {
+    return this.theDigrams.size();
+  }
+
+  /**
+   * Gets the digrams index collision rate, i.e., the mean number of extra slots probed per lookup
+   * made so far. It stays close to zero when the lookups are O(1).
+   *
+   * @return the collision rate.
+   */
+  public double getDigramsCollisionRate() {
+    return this.theDigrams.getCollisionRate();
+  }
+
+  /**
+   * Original getRules() method. Prints out rules of this context's grammar.
+   *
+   * @return the formatted rules string.
+   */
+  public String printRules() {
+
+    this.theRules.get(0).getSAXRules();
+    SAXRule.expandRules(this.arrRuleRecords);
+
+    Vector<SAXRule> rules = new Vector<SAXRule>(numRules.intValue());
+    SAXRule currentRule;
+    SAXRule referedTo;
+    SAXSymbol sym;
+    int index;
+    int processedRules = 0;
+    StringBuilder text = new StringBuilder();
+
+    text.append("Number\tName\tLevel\tOccurr.\tUsage\tYield\tRule str\tExpaneded\tIndexes\n");
+    rules.addElement(this.theRules.get(0));
+
+    while (processedRules < rules.size()) {
+
+      currentRule = rules.elementAt(processedRules);
+
+      // seninp: adding to original output rule occurrence indexes
+      //
+      GrammarRuleRecord record = arrRuleRecords.get(processedRules);
+      text.append(SPACE);
+      text.append(record.getRuleNumber()).append(TAB);
+      text.append(record.getRuleName()).append(TAB);
+      text.append(record.getRuleLevel()).append(TAB);
+      text.append(record.getOccurrenceList().size()).append(TAB);
+      text.append(record.getRuleUseFrequency()).append(TAB);
+      text.append(record.getRuleYield()).append(TAB);
+
+      for (sym = currentRule.first(); (!sym.isGuard()); sym = sym.n) {
+        if (sym.isNonTerminal()) {
+          referedTo = ((SAXNonTerminal) sym).r;
+          if ((rules.size() > referedTo.index) && (rules.elementAt(referedTo.index) == referedTo)) {
+            index = referedTo.index;
+          }
+          else {
+            index = rules.size();
+            referedTo.index = index;
+            rules.addElement(referedTo);
+          }
+          text.append('R');
+          text.append(index);
+        }
+        else {
+          String terminal = this.symbols.getSymbol(sym.value);
+          if (terminal.equals(" ")) {
+            text.append('_');
+          }
+          else {
+            if (terminal.equals("\n")) {
+              text.append("\\n");
+            }
+            else {
+              text.append(terminal);
+            }
+          }
+        }
+        text.append(' ');
+      }
+      text.append(TAB).append(record.getExpandedRuleString()).append(TAB);
+      text.append(Arrays.toString(currentRule.getIndexes())).append(CR);
+
+      processedRules++;
+    }
+    return text.toString();
+  }
+
+}
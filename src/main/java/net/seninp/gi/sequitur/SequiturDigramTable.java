@@ -0,0 +1,212 @@
+package net.seninp.gi.sequitur;
+
+import java.util.ArrayList;
+
+/**
+ * The Sequitur digrams index. Maps a digram, i.e. the values of a symbol and of its next symbol
+ * packed into a single long, to the symbol which starts the indexed digram occurrence. Backed by
+ * an open-addressing hash table with linear probing over the primitive keys, which are mixed
+ * before the slot selection, so similar digrams do not pile up in a single chain.
+ *
+ * The table counts the lookups and the extra slots probed by them, the ratio of these is the
+ * collision rate which stays close to zero as long as the lookups are O(1).
+ *
+ * @author psenin
+ *
+ */
+public class SequiturDigramTable {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** The hash table slots: a digram key and its symbol, or null if the slot is empty. */
+  private long[] keys;
+  private SAXSymbol[] digrams;
+  private int mask;
+
+  /** The number of digrams in the table. */
+  private int size;
+
+  /** The lookups and probes counters. */
+  private long lookups;
+  private long collisions;
+
+  /**
+   * Constructor.
+   */
+  public SequiturDigramTable() {
+    this.keys = new long[DEFAULT_CAPACITY];
+    this.digrams = new SAXSymbol[DEFAULT_CAPACITY];
+    this.mask = DEFAULT_CAPACITY - 1;
+  }
+
+  /**
+   * Makes the key of the digram which starts with the symbol.
+   *
+   * @param digram the digram's first symbol.
+   * @return the digram key.
+   */
+  public static long key(SAXSymbol digram) {
+    return (((long) digram.value) << 32) | (digram.n.value & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Gets the number of digrams in the table.
+   *
+   * @return the number of digrams.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Finds the indexed occurrence of the digram.
+   *
+   * @param digram the digram's first symbol.
+   * @return the first symbol of the indexed occurrence or null.
+   */
+  public SAXSymbol get(SAXSymbol digram) {
+    long key = key(digram);
+    int slot = findSlot(key);
+    return this.digrams[slot];
+  }
+
+  /**
+   * Indexes the digram occurrence, replacing the one indexed before.
+   *
+   * @param digram the digram's first symbol.
+   */
+  public void put(SAXSymbol digram) {
+    long key = key(digram);
+    int slot = findSlot(key);
+    if (null == this.digrams[slot]) {
+      if (2 * (this.size + 1) > this.keys.length) {
+        rehash(this.keys.length << 1);
+        slot = findSlot(key);
+      }
+      this.keys[slot] = key;
+      this.size++;
+    }
+    this.digrams[slot] = digram;
+  }
+
+  /**
+   * Removes the digram from the index.
+   *
+   * @param digram the digram's first symbol.
+   */
+  public void remove(SAXSymbol digram) {
+
+    int slot = findSlot(key(digram));
+    if (null == this.digrams[slot]) {
+      return;
+    }
+
+    // backward shift deletion keeps probe sequences intact without tombstones
+    //
+    int next = slot;
+    while (true) {
+      next = (next + 1) & this.mask;
+      if (null == this.digrams[next]) {
+        break;
+      }
+      int home = hash(this.keys[next]) & this.mask;
+      if (((next - home) & this.mask) >= ((next - slot) & this.mask)) {
+        this.keys[slot] = this.keys[next];
+        this.digrams[slot] = this.digrams[next];
+        slot = next;
+      }
+    }
+    this.digrams[slot] = null;
+    this.size--;
+  }
+
+  /**
+   * Lists the indexed digrams, used for debugging.
+   *
+   * @return the first symbols of the indexed digrams.
+   */
+  public ArrayList<SAXSymbol> getDigrams() {
+    ArrayList<SAXSymbol> res = new ArrayList<SAXSymbol>(this.size);
+    for (SAXSymbol s : this.digrams) {
+      if (null != s) {
+        res.add(s);
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Gets the number of lookups made so far.
+   *
+   * @return the number of lookups.
+   */
+  public long getLookupsCount() {
+    return this.lookups;
+  }
+
+  /**
+   * Gets the number of slots probed by the lookups in excess of the first one.
+   *
+   * @return the number of collisions.
+   */
+  public long getCollisionsCount() {
+    return this.collisions;
+  }
+
+  /**
+   * Gets the collision rate, i.e., the mean number of extra slots probed per lookup.
+   *
+   * @return the collision rate.
+   */
+  public double getCollisionRate() {
+    if (0 == this.lookups) {
+      return 0d;
+    }
+    return (double) this.collisions / (double) this.lookups;
+  }
+
+  private int findSlot(long key) {
+    this.lookups++;
+    int slot = hash(key) & this.mask;
+    while (null != this.digrams[slot] && key != this.keys[slot]) {
+      this.collisions++;
+      slot = (slot + 1) & this.mask;
+    }
+    return slot;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = this.keys;
+    SAXSymbol[] oldDigrams = this.digrams;
+    this.keys = new long[capacity];
+    this.digrams = new SAXSymbol[capacity];
+    this.mask = capacity - 1;
+    for (int i = 0; i < oldDigrams.length; i++) {
+      if (null != oldDigrams[i]) {
+        int slot = hash(oldKeys[i]) & this.mask;
+        while (null != this.digrams[slot]) {
+          slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = oldKeys[i];
+        this.digrams[slot] = oldDigrams[i];
+      }
+    }
+  }
+
+  /**
+   * Mixes all the key bits into the low ones used for the slot selection (MurmurHash3 finalizer).
+   *
+   * @param key the key.
+   * @return the hash value.
+   */
+  static int hash(long key) {
+    long h = key;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+}
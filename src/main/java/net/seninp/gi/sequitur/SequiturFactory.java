@@ -2,21 +2,27 @@ package net.seninp.gi.sequitur;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.PrimitiveIterator;
 import java.util.StringTokenizer;
-import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import net.seninp.gi.logic.CompactGrammarRules;
 import net.seninp.gi.logic.GIUtils;
 import net.seninp.gi.logic.GrammarRuleRecord;
 import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.logic.OccurrenceList;
 import net.seninp.gi.logic.RuleInterval;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.metrics.GIMetrics.StageTimer;
+import net.seninp.gi.metrics.PipelineStage;
 import net.seninp.jmotif.sax.NumerosityReductionStrategy;
 import net.seninp.jmotif.sax.SAXProcessor;
 import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
 import net.seninp.jmotif.sax.datastructure.SAXRecords;
 
 /**
- * Sort of a stand-alone factory to digesting strings with Sequitur.
+ * Sort of a stand-alone factory to digesting strings with Sequitur. Each call builds its grammar
+ * within its own {@link SequiturContext}, thus the factory methods are safe to call concurrently.
  * 
  * @author psenin
  * 
@@ -45,55 +51,61 @@ public final class SequiturFactory {
    * 
    * @return The top rule handler (i.e. R0).
    * @throws Exception if error occurs.
+   * @throws java.util.concurrent.CancellationException if the thread is interrupted.
    */
   public static SAXRule runSequitur(String inputString) throws Exception {
 
     LOGGER.trace("digesting the string " + inputString);
 
-    // clear global collections
+    // the stream builds the grammar within a fresh context, so concurrent runs do not interfere
     //
-    SAXRule.numRules = new AtomicInteger(0);
-    SAXRule.theRules.clear();
-    SAXSymbol.theDigrams.clear();
-    SAXSymbol.theSubstituteTable.clear();
+    StageTimer timer = GIMetrics.start(PipelineStage.SEQUITUR);
+    SequiturStream stream = new SequiturStream();
 
-    // init the top-level rule
-    //
-    SAXRule resRule = new SAXRule();
-
-    // tokenize the input string
+    // tokenize the input string and feed the tokens into the stream
     //
     StringTokenizer st = new StringTokenizer(inputString, " ");
-
-    // while there are tokens
-    int currentPosition = 0;
     while (st.hasMoreTokens()) {
+      GIUtils.checkInterrupted();
+      stream.append(st.nextToken());
+    }
 
-      String token = st.nextToken();
-      // System.out.println(" processing the token " + token);
-
-      // extract next token
-      SAXTerminal symbol = new SAXTerminal(token, currentPosition);
-
-      // append to the end of the current sequitur string
-      // ... As each new input symbol is observed, append it to rule S....
-      resRule.last().insertAfter(symbol);
-
-      // once appended, check if the resulting digram is new or recurrent
-      //
-      // ... Each time a link is made between two symbols if the new digram is repeated elsewhere
-      // and the repetitions do not overlap, if the other occurrence is a complete rule,
-      // replace the new digram with the non-terminal symbol that heads the rule,
-      // otherwise,form a new rule and replace both digrams with the new non-terminal symbol
-      // otherwise, insert the digram into the index...
-      resRule.last().p.check();
-
-      currentPosition++;
+    return getGrammar(stream, timer);
+  }
 
-      // LOGGER.debug("Current grammar:\n" + SAXRule.getRules());
+  /**
+   * Digests the SAX words in the order of their indexes. The result is the same as of digesting
+   * the {@link SAXRecords#getSAXString(String)} output, but the words are fed straight into the
+   * grammar, so the string is neither built nor tokenized.
+   * 
+   * @param saxRecords the SAX records to digest.
+   * 
+   * @return The top rule handler (i.e. R0).
+   * @throws java.util.concurrent.CancellationException if the thread is interrupted.
+   */
+  public static SAXRule runSequitur(SAXRecords saxRecords) {
+    StageTimer timer = GIMetrics.start(PipelineStage.SEQUITUR);
+    SequiturStream stream = new SequiturStream();
+    for (String token : GIUtils.toTokens(saxRecords)) {
+      GIUtils.checkInterrupted();
+      stream.append(token);
     }
+    return getGrammar(stream, timer);
+  }
 
-    return resRule;
+  /**
+   * Gets the grammar of a digested stream and reports the stage.
+   * 
+   * @param stream the stream.
+   * @param timer the Sequitur stage timer.
+   * @return The top rule handler (i.e. R0).
+   */
+  private static SAXRule getGrammar(SequiturStream stream, StageTimer timer) {
+    SAXRule grammar = stream.getGrammar();
+    timer.record(GIMetrics.TOKENS, stream.size());
+    timer.record(GIMetrics.DIGRAMS, grammar.getContext().getDigramsCount());
+    timer.stop();
+    return grammar;
   }
 
   /**
@@ -115,34 +127,20 @@ public final class SequiturFactory {
 
     LOGGER.debug("Discretizing time series...");
 
+    StageTimer timer = GIMetrics.start(PipelineStage.DISCRETIZATION);
     SAXRecords saxFrequencyData = sp.ts2saxViaWindow(timeseries, saxWindowSize, saxPAASize,
         normalA.getCuts(saxAlphabetSize), numerosityReductionStrategy, normalizationThreshold);
+    timer.record(GIMetrics.WORDS, saxFrequencyData.size());
+    timer.stop();
 
     LOGGER.debug("Inferring the grammar...");
 
-    // this is a string we are about to feed into Sequitur
+    // the SAX words are fed into Sequitur as they are
     //
-    String saxDisplayString = saxFrequencyData.getSAXString(" ");
-
-    // reset the Sequitur data structures
-    SAXRule.numRules = new AtomicInteger(0);
-    SAXRule.theRules.clear();
-    SAXSymbol.theDigrams.clear();
-
-    // bootstrap the grammar
-    SAXRule grammar = new SAXRule();
-    SAXRule.arrRuleRecords = new ArrayList<GrammarRuleRecord>();
-
-    // digest the string via the tokenizer and build the grammar
-    StringTokenizer st = new StringTokenizer(saxDisplayString, " ");
-    int currentPosition = 0;
-    while (st.hasMoreTokens()) {
-      grammar.last().insertAfter(new SAXTerminal(st.nextToken(), currentPosition));
-      grammar.last().p.check();
-      currentPosition++;
-    }
+    SAXRule grammar = runSequitur(saxFrequencyData);
+    LOGGER.debug("digrams index collision rate "
+        + grammar.getContext().getDigramsCollisionRate());
 
-    // bw.close();
     LOGGER.debug("Collecting the grammar rules statistics and expanding the rules...");
     GrammarRules rules = grammar.toGrammarRulesData();
 
@@ -157,8 +155,17 @@ public final class SequiturFactory {
   public static void updateRuleIntervals(GrammarRules rules, SAXRecords saxFrequencyData,
       boolean slidingWindowOn, double[] originalTimeSeries, int saxWindowSize, int saxPAASize) {
 
+    // the compact grammar records are copies, the intervals set into them would be lost
+    //
+    if (rules instanceof CompactGrammarRules) {
+      throw new IllegalArgumentException(
+          "The compact grammar is read-only, update the intervals of its toGrammarRules()");
+    }
+
+    StageTimer timer = GIMetrics.start(PipelineStage.INTERVALS);
+
     // the original indexes of all SAX words
-    ArrayList<Integer> saxWordsIndexes = new ArrayList<Integer>(saxFrequencyData.getAllIndices());
+    int[] saxWordsIndexes = toArray(saxFrequencyData.getAllIndices());
 
     for (GrammarRuleRecord ruleContainer : rules) {
 
@@ -170,13 +177,15 @@ public final class SequiturFactory {
       int expandedRuleLength = countSpaces(ruleContainer.getExpandedRuleString());
 
       // the auxiliary array that keeps lengths of all rule occurrences
-      int[] lengths = new int[ruleContainer.getOccurrences().size()];
+      OccurrenceList occurrences = ruleContainer.getOccurrenceList();
+      int[] lengths = new int[occurrences.size()];
       int lengthCounter = 0;
 
       // iterate over all occurrences of this rule
       // the currentIndex here is the position of the rule in the input string
       //
-      for (Integer currentIndex : ruleContainer.getOccurrences()) {
+      for (int i = 0; i < occurrences.size(); i++) {
+        int currentIndex = occurrences.get(i);
 
         // System.out.println("Index: " + currentIndex);
         // String extractedStr = "";
@@ -191,14 +200,14 @@ public final class SequiturFactory {
         // extractedPositions[i] = saxWordsIndexes.get(currentIndex + i);
         // }
 
-        int startPos = saxWordsIndexes.get(currentIndex);
+        int startPos = saxWordsIndexes[currentIndex];
         int endPos = -1;
-        if ((currentIndex + expandedRuleLength) >= saxWordsIndexes.size()) {
+        if ((currentIndex + expandedRuleLength) >= saxWordsIndexes.length) {
           endPos = originalTimeSeries.length;
         }
         else {
           if (slidingWindowOn) {
-            endPos = saxWordsIndexes.get(currentIndex + expandedRuleLength) + saxWindowSize - 1;
+            endPos = saxWordsIndexes[currentIndex + expandedRuleLength] + saxWindowSize - 1;
           }
           else {
             double step = (double) originalTimeSeries.length / (double) saxPAASize;
@@ -220,6 +229,8 @@ public final class SequiturFactory {
       ruleContainer.setMeanLength((int) GIUtils.mean(lengths));
       ruleContainer.setMinMaxLength(lengths);
     }
+    timer.record(GIMetrics.RULES, rules.size());
+    timer.stop();
 
   }
 
@@ -247,12 +258,14 @@ public final class SequiturFactory {
 
     // debug printout
     LOGGER.trace("Expanded rule: \"" + ruleContainer.getExpandedRuleString() + '\"');
-    LOGGER.trace("Indexes: " + ruleContainer.getOccurrences());
+    LOGGER.trace("Indexes: " + ruleContainer.getOccurrenceList());
 
     // array of all words of this expanded rule
     String[] expandedRuleSplit = ruleContainer.getExpandedRuleString().trim().split(" ");
 
-    for (Integer currentIndex : ruleContainer.getOccurrences()) {
+    PrimitiveIterator.OfInt it = ruleContainer.getOccurrenceList().iterator();
+    while (it.hasNext()) {
+      int currentIndex = it.nextInt();
 
       String extractedStr = "";
       StringBuffer sb = new StringBuffer(expandedRuleSplit.length);
@@ -284,6 +297,14 @@ public final class SequiturFactory {
     return resultIntervals;
   }
 
+  private static int[] toArray(ArrayList<Integer> values) {
+    int[] res = new int[values.size()];
+    for (int i = 0; i < res.length; i++) {
+      res[i] = values.get(i);
+    }
+    return res;
+  }
+
   /**
    * Counts spaces in the string.
    * 
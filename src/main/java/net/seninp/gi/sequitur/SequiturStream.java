@@ -0,0 +1,130 @@
+package net.seninp.gi.sequitur;
+
+import java.util.Arrays;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.logic.SymbolTable;
+
+/**
+ * Digests tokens one by one, extending the grammar in place. Sequitur is online by nature: each
+ * appended token is linked to the end of R0 and the new digram is checked against the index, which
+ * takes an amortized constant time, so the stream can be fed by a long-running collector without
+ * ever building the input string. A stream is not thread-safe, but independent streams can be fed
+ * concurrently.
+ *
+ * @author psenin
+ *
+ */
+public class SequiturStream {
+
+  /** The top-level rule, i.e., R0. */
+  private final SAXRule grammar;
+
+  /** The position of the next token. */
+  private int currentPosition;
+
+  /** The terminals table. */
+  private final SymbolTable symbols;
+
+  /** The terminal ids of the appended symbol ids plus one, so each of these is interned once. */
+  private int[] idTerminals = new int[0];
+
+  /**
+   * Constructor.
+   */
+  public SequiturStream() {
+    this(new SymbolTable());
+  }
+
+  /**
+   * Constructor. The terminals are interned by the given table, so their ids are consistent with
+   * those of other grammars built with the same table.
+   *
+   * @param symbols the terminals table.
+   */
+  public SequiturStream(SymbolTable symbols) {
+    super();
+    this.symbols = symbols;
+    this.grammar = new SAXRule(new SequiturContext(symbols));
+    this.currentPosition = 0;
+  }
+
+  /**
+   * Appends the token to the grammar.
+   *
+   * @param token the token, i.e., the terminal value.
+   */
+  public void append(String token) {
+    appendTerminal(this.symbols.intern(token));
+  }
+
+  /**
+   * Appends the symbol to the grammar. The terminal value is the decimal representation of the
+   * symbol id.
+   *
+   * @param symbolId the symbol id, a non-negative number.
+   */
+  public void append(int symbolId) {
+    if (symbolId >= this.idTerminals.length) {
+      this.idTerminals = Arrays.copyOf(this.idTerminals,
+          Math.max(symbolId + 1, this.idTerminals.length << 1));
+    }
+    int terminal = this.idTerminals[symbolId] - 1;
+    if (terminal < 0) {
+      terminal = this.symbols.intern(String.valueOf(symbolId));
+      this.idTerminals[symbolId] = terminal + 1;
+    }
+    appendTerminal(terminal);
+  }
+
+  /**
+   * Appends the terminal to the grammar.
+   *
+   * @param terminal the terminal id in the symbols table.
+   */
+  private void appendTerminal(int terminal) {
+
+    // append to the end of the current sequitur string
+    // ... As each new input symbol is observed, append it to rule S....
+    this.grammar.last().insertAfter(new SAXTerminal(terminal, this.currentPosition));
+
+    // once appended, check if the resulting digram is new or recurrent
+    //
+    // ... Each time a link is made between two symbols if the new digram is repeated elsewhere
+    // and the repetitions do not overlap, if the other occurrence is a complete rule,
+    // replace the new digram with the non-terminal symbol that heads the rule,
+    // otherwise,form a new rule and replace both digrams with the new non-terminal symbol
+    // otherwise, insert the digram into the index...
+    this.grammar.last().p.check();
+
+    this.currentPosition++;
+  }
+
+  /**
+   * Gets the number of tokens appended so far.
+   *
+   * @return the number of tokens.
+   */
+  public int size() {
+    return this.currentPosition;
+  }
+
+  /**
+   * Gets the live grammar, which is R0.
+   *
+   * @return the top-level rule.
+   */
+  public SAXRule getGrammar() {
+    return this.grammar;
+  }
+
+  /**
+   * Collects the grammar rules as they are at the moment. The records are made anew on each call
+   * and are not affected by the tokens appended later.
+   *
+   * @return the grammar rules.
+   */
+  public GrammarRules snapshot() {
+    return this.grammar.toGrammarRulesData();
+  }
+
+}
@@ -0,0 +1,117 @@
+package net.seninp.gi.tinker;
+
+import java.util.Arrays;
+import net.seninp.gi.clusterrule.DistanceComputation;
+import net.seninp.jmotif.sax.TSProcessor;
+
+/**
+ * Measures the per-window cost of the early abandoned sliding distance scan: the former kernel
+ * which copies each window and squares via Math.pow, the in-place kernel in the natural summation
+ * order, and the in-place kernel in the abandoning order.
+ *
+ * @author psenin
+ *
+ */
+public class DistanceKernelSpeedTester {
+
+  private static final String DATASET = "src/resources/test-data/ecg0606.txt";
+
+  private static final int[] PATTERN_LENGTHS = { 50, 100, 300 };
+  private static final int PATTERN_START = 1111;
+
+  private static final int ITERATIONS = 5;
+  private static final int REPEATS = 200;
+
+  public static void main(String[] args) throws Exception {
+
+    double[] ts = TSProcessor.readFileColumn(DATASET, 0, 0);
+    DistanceComputation dc = new DistanceComputation();
+
+    for (int m : PATTERN_LENGTHS) {
+
+      // a pattern that is not in the series exactly
+      double[] pattern = Arrays.copyOfRange(ts, PATTERN_START, PATTERN_START + m);
+      for (int i = 0; i < m; i++) {
+        pattern[i] += 0.01 * Math.sin(i);
+      }
+      int[] natural = new int[m];
+      for (int i = 0; i < m; i++) {
+        natural[i] = i;
+      }
+      int[] order = DistanceComputation.getAbandoningOrder(pattern);
+      long windows = (long) (ts.length - m + 1) * REPEATS;
+
+      for (int i = 0; i < ITERATIONS; i++) {
+
+        double copying = 0;
+        long t0 = System.nanoTime();
+        for (int r = 0; r < REPEATS; r++) {
+          copying = scanCopying(ts, pattern);
+        }
+        long t1 = System.nanoTime();
+        double inPlace = 0;
+        for (int r = 0; r < REPEATS; r++) {
+          inPlace = scan(dc, ts, pattern, natural);
+        }
+        long t2 = System.nanoTime();
+        double reordered = 0;
+        for (int r = 0; r < REPEATS; r++) {
+          reordered = scan(dc, ts, pattern, order);
+        }
+        long t3 = System.nanoTime();
+
+        System.out.println("pattern " + m + ": copying " + format((t1 - t0) / (double) windows)
+            + " ns/window, in place " + format((t2 - t1) / (double) windows)
+            + " ns/window, reordered " + format((t3 - t2) / (double) windows)
+            + " ns/window, distances " + copying + "/" + inPlace + "/" + reordered);
+      }
+    }
+
+  }
+
+  private static double scan(DistanceComputation dc, double[] ts, double[] pattern, int[] order) {
+    double bestDist = dc.squaredDistance(ts, 0, pattern);
+    for (int i = 1; i + pattern.length <= ts.length; i++) {
+      double tempDist = dc.squaredDistanceEAbandon(ts, i, pattern, order, bestDist);
+      if (tempDist < bestDist) {
+        bestDist = Math.min(bestDist, dc.squaredDistance(ts, i, pattern));
+      }
+    }
+    return Math.sqrt(bestDist) / pattern.length;
+  }
+
+  /**
+   * The former scan, which copies each window and abandons at the normalized distance.
+   */
+  private static double scanCopying(double[] ts, double[] pattern) {
+    int patternLen = pattern.length;
+    double[] slidingWindow = new double[patternLen];
+    System.arraycopy(ts, 0, slidingWindow, 0, patternLen);
+    double bestDist = Math.sqrt(sum(pattern, slidingWindow, Double.MAX_VALUE)) / patternLen;
+    for (int i = 1; i + patternLen <= ts.length; i++) {
+      System.arraycopy(ts, i, slidingWindow, 0, patternLen);
+      double tempDist = Math.sqrt(sum(pattern, slidingWindow, Math.pow(patternLen * bestDist, 2)))
+          / patternLen;
+      if (tempDist < bestDist) {
+        bestDist = tempDist;
+      }
+    }
+    return bestDist;
+  }
+
+  private static double sum(double[] ts1, double[] ts2, double bsf) {
+    double dist = 0;
+    for (int i = 0; i < ts1.length; i++) {
+      dist += Math.pow(ts1[i] - ts2[i], 2);
+      if (dist > bsf) {
+        return Double.NaN;
+      }
+    }
+    return dist;
+  }
+
+  private static String format(double value) {
+    return String.format("%.1f", value);
+  }
+
+}
@@ -0,0 +1,85 @@
+package net.seninp.gi.tinker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import net.seninp.gi.repair.RePairFactory;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.jmotif.sax.SAXProcessor;
+
+/**
+ * Checks how RePair scales on a periodic input, where a handful of digrams have a huge number of
+ * occurrences: the runtime per token should stay about the same from 10^5 to 10^7 tokens, a run
+ * more than 3 times slower per token than the smallest one is reported. The time is the best
+ * thread CPU time of a few runs, if supported. Needs a large heap, e.g., -Xmx4g, for the largest
+ * input.
+ *
+ * @author psenin
+ *
+ */
+public class RePairScalingTester {
+
+  private static final int[] TOKENS_NUM = { 100000, 1000000, 10000000 };
+
+  private static final String[] PERIOD = { "abc", "acc", "bcc", "cca", "cba", "bba", "aab",
+      "abb" };
+
+  // the share of tokens replaced by a random word, keeps the grammar from being trivial
+  private static final double NOISE = 0.01;
+
+  // a quadratic run takes 10 times longer per token on a 10 times larger input
+  private static final double MAX_PER_TOKEN_RATIO = 3.0;
+
+  private static final int RUNS = 3;
+
+  public static void main(String[] args) {
+
+    // warm up the JIT, otherwise the first measurement is off
+    RePairFactory.buildGrammar(periodicString(TOKENS_NUM[0]));
+
+    double basePerToken = 0;
+    for (int tokensNum : TOKENS_NUM) {
+
+      String str = periodicString(tokensNum);
+
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      boolean cpuTime = bean.isCurrentThreadCpuTimeSupported();
+      long best = Long.MAX_VALUE;
+      RePairGrammar grammar = null;
+      for (int i = 0; i < RUNS; i++) {
+        System.gc();
+        long t0 = cpuTime ? bean.getCurrentThreadCpuTime() : System.nanoTime();
+        grammar = RePairFactory.buildGrammar(str);
+        long t1 = cpuTime ? bean.getCurrentThreadCpuTime() : System.nanoTime();
+        best = Math.min(best, t1 - t0);
+      }
+
+      double perToken = (double) best / tokensNum;
+      if (0 == basePerToken) {
+        basePerToken = perToken;
+      }
+      System.out.println(SAXProcessor.timeToString(0, best / 1000000L) + "\t " + tokensNum
+          + " tokens, " + (grammar.getRules().size() - 1) + " rules, " + (long) perToken
+          + " ns per token" + ((perToken > MAX_PER_TOKEN_RATIO * basePerToken)
+              ? ", NOT near linear" : ""));
+
+    }
+
+  }
+
+  private static String periodicString(int tokensNum) {
+    Random random = new Random(42);
+    StringBuilder sb = new StringBuilder(tokensNum * 4);
+    for (int i = 0; i < tokensNum; i++) {
+      if (random.nextDouble() < NOISE) {
+        sb.append(PERIOD[random.nextInt(PERIOD.length)]);
+      }
+      else {
+        sb.append(PERIOD[i % PERIOD.length]);
+      }
+      sb.append(' ');
+    }
+    return sb.toString().trim();
+  }
+
+}
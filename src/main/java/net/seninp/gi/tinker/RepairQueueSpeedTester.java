@@ -0,0 +1,112 @@
+package net.seninp.gi.tinker;
+
+import java.util.Random;
+import net.seninp.gi.repair.RePairDigramQueue;
+import net.seninp.gi.repair.RepairDigramRecord;
+import net.seninp.gi.repair.RepairPriorityQueue;
+
+/**
+ * Compares the linked list RePair priority queue and the bucket queue NewRepair runs, the latter
+ * keyed by the digram entry ids. The workload mimics RePair: all digrams are enqueued, then the
+ * most frequent one is dequeued repeatedly, each time decreasing frequencies of some digrams and
+ * enqueueing a few new digrams.
+ *
+ * @author psenin
+ *
+ */
+public class RepairQueueSpeedTester {
+
+  private static final int[] DIGRAMS_NUM = { 1000, 4000, 16000 };
+
+  private static final int UPDATES_PER_DEQUEUE = 8;
+  private static final int NEW_PER_DEQUEUE = 2;
+  private static final int MAX_FREQ = 1000;
+
+  private static final int ITERATIONS = 3;
+
+  public static void main(String[] args) {
+
+    for (int digramsNum : DIGRAMS_NUM) {
+
+      // the keys are made upfront, so the string construction doesn't get into the timing
+      String[] keys = new String[digramsNum * (1 + NEW_PER_DEQUEUE)];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = "a" + i + " b" + i;
+      }
+
+      for (int i = 0; i < ITERATIONS; i++) {
+
+        long t0 = System.nanoTime();
+        long listChecksum = runListQueue(keys, digramsNum);
+        long t1 = System.nanoTime();
+        long bucketChecksum = runDigramQueue(keys.length, digramsNum);
+        long t2 = System.nanoTime();
+
+        System.out.println(digramsNum + " digrams: linked list queue " + (t1 - t0) / 1000000
+            + " ms, bucket queue " + (t2 - t1) / 1000000 + " ms, dequeued frequencies sum "
+            + listChecksum + "/" + bucketChecksum);
+      }
+    }
+
+  }
+
+  private static long runListQueue(String[] keys, int digramsNum) {
+    Random random = new Random(42);
+    int[] freqs = new int[keys.length];
+    RepairPriorityQueue pq = new RepairPriorityQueue();
+    for (int i = 0; i < digramsNum; i++) {
+      freqs[i] = 2 + random.nextInt(MAX_FREQ);
+      pq.enqueue(new RepairDigramRecord(keys[i], freqs[i]));
+    }
+    int created = digramsNum;
+    long checksum = 0;
+    RepairDigramRecord entry = null;
+    while ((entry = pq.dequeue()) != null) {
+      checksum += entry.getFrequency();
+      for (int j = 0; j < UPDATES_PER_DEQUEUE; j++) {
+        int k = random.nextInt(created);
+        freqs[k] = Math.max(0, freqs[k] - 1 - random.nextInt(3));
+        pq.updateDigramFrequency(keys[k], freqs[k]);
+      }
+      for (int j = 0; j < NEW_PER_DEQUEUE && created < keys.length; j++) {
+        freqs[created] = 2 + random.nextInt(Math.max(1, entry.getFrequency() / 2));
+        if (!pq.containsDigram(keys[created])) {
+          pq.enqueue(new RepairDigramRecord(keys[created], freqs[created]));
+        }
+        created++;
+      }
+    }
+    return checksum;
+  }
+
+  private static long runDigramQueue(int keysNum, int digramsNum) {
+    Random random = new Random(42);
+    int[] freqs = new int[keysNum];
+    RePairDigramQueue pq = new RePairDigramQueue(MAX_FREQ * MAX_FREQ, keysNum);
+    for (int i = 0; i < digramsNum; i++) {
+      freqs[i] = 2 + random.nextInt(MAX_FREQ);
+      pq.enqueue(i, freqs[i]);
+    }
+    int created = digramsNum;
+    long checksum = 0;
+    int id = -1;
+    while ((id = pq.dequeue()) != -1) {
+      int frequency = freqs[id];
+      checksum += frequency;
+      for (int j = 0; j < UPDATES_PER_DEQUEUE; j++) {
+        int k = random.nextInt(created);
+        freqs[k] = Math.max(0, freqs[k] - 1 - random.nextInt(3));
+        pq.update(k, freqs[k]);
+      }
+      for (int j = 0; j < NEW_PER_DEQUEUE && created < keysNum; j++) {
+        freqs[created] = 2 + random.nextInt(Math.max(1, frequency / 2));
+        if (!pq.contains(created)) {
+          pq.enqueue(created, freqs[created]);
+        }
+        created++;
+      }
+    }
+    return checksum;
+  }
+
+}
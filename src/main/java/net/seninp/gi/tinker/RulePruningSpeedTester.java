@@ -0,0 +1,68 @@
+package net.seninp.gi.tinker;
+
+import java.util.Date;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.repair.RePairFactory;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.gi.rulepruner.RulePruningAlgorithm;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Compares the exhaustive and the lazy greedy rule selection of the pruner on the test data
+ * series: both shall choose the same rules, the lazy one with far fewer cover delta evaluations.
+ *
+ * @author psenin
+ *
+ */
+public class RulePruningSpeedTester {
+
+  private static final String[] DATASETS = { "src/resources/test-data/ecg0606.txt",
+      "src/resources/test-data/300_signal1.txt" };
+
+  private static final int[][] PARAMS = { { 60, 4, 4 }, { 30, 6, 6 } };
+
+  private static final int REPEATS = 3;
+
+  public static void main(String[] args) throws Exception {
+
+    for (String dataset : DATASETS) {
+
+      double[] ts = TSProcessor.readFileColumn(dataset, 0, 0);
+
+      for (int[] p : PARAMS) {
+
+        SAXRecords saxData = new SAXProcessor().ts2saxViaWindow(ts, p[0], p[1],
+            new NormalAlphabet().getCuts(p[2]), NumerosityReductionStrategy.EXACT, 0.01);
+        RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
+        grammar.expandRules();
+        grammar.buildIntervals(saxData, ts, p[0]);
+        GrammarRules rules = grammar.toGrammarRulesData();
+
+        System.out.println(dataset + ", " + p[0] + " " + p[1] + " " + p[2] + ", "
+            + rules.size() + " rules");
+        for (boolean lazy : new boolean[] { false, true }) {
+
+          RulePruningAlgorithm pruner = null;
+          Date t0 = new Date();
+          for (int i = 0; i < REPEATS; i++) {
+            pruner = new RulePruningAlgorithm(rules, ts.length);
+            pruner.setLazyGreedy(lazy);
+            pruner.pruneRules();
+          }
+          Date t1 = new Date();
+
+          System.out.println("  " + (lazy ? "lazy:       " : "exhaustive: ")
+              + ((t1.getTime() - t0.getTime()) / REPEATS) + " ms per pruning, "
+              + pruner.getDeltaEvaluationsCount() + " delta evaluations, "
+              + (pruner.getUsedRules().size() - 1) + " rules chosen");
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,104 @@
+package net.seninp.gi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Test the bounded task runner.
+ *
+ * @author psenin
+ *
+ */
+public class TestBoundedTaskRunner {
+
+  private static final int TASKS_NUM = 50;
+  private static final int MAX_IN_FLIGHT = 3;
+
+  /**
+   * The outcomes carry the task indexes, the failed tasks included, and the alarms of the finished
+   * tasks leave the watchdog queue.
+   */
+  @Test
+  public void testOutcomes() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    BoundedTaskRunner runner = new BoundedTaskRunner(executor, MAX_IN_FLIGHT, true,
+        "test-watchdog");
+    runner.setTimeout(1, TimeUnit.HOURS);
+
+    List<IndexTask> tasks = new ArrayList<IndexTask>();
+    for (int i = 0; i < TASKS_NUM; i++) {
+      tasks.add(new IndexTask(i));
+    }
+    final Integer[] results = new Integer[TASKS_NUM];
+    final boolean[] failed = new boolean[TASKS_NUM];
+    try {
+      runner.run(tasks.iterator(), new BoundedTaskRunner.Listener<Integer>() {
+        @Override
+        public void taskDone(int index, Integer result) {
+          results[index] = result;
+        }
+
+        @Override
+        public void taskFailed(int index, Throwable cause) {
+          assertTrue("testing the cause", cause instanceof IllegalStateException);
+          failed[index] = true;
+        }
+      });
+      assertEquals("testing the alarms", 0,
+          ((ScheduledThreadPoolExecutor) runner.getWatchdog()).getQueue().size());
+    }
+    finally {
+      runner.shutdown();
+    }
+
+    for (int i = 0; i < TASKS_NUM; i++) {
+      if (0 == i % 7) {
+        assertTrue("testing the failure", failed[i]);
+        assertNull("testing the failure", results[i]);
+      }
+      else {
+        assertEquals("testing the result", Integer.valueOf(i), results[i]);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoneInFlight() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      new BoundedTaskRunner(executor, 0, false, "test-watchdog");
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Gives its index, or fails if it is divisible by 7.
+   */
+  private static class IndexTask extends BoundedTaskRunner.Task<Integer> {
+
+    private final int index;
+
+    IndexTask(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public Integer call() throws Exception {
+      if (0 == this.index % 7) {
+        throw new IllegalStateException("task " + this.index);
+      }
+      return this.index;
+    }
+  }
+
+}
@@ -0,0 +1,200 @@
+package net.seninp.gi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.gi.logic.GrammarRuleRecord;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.repair.RePairFactory;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.gi.sequitur.SequiturFactory;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Test the batch grammar inference against the serial one.
+ *
+ * @author psenin
+ *
+ */
+public class TestGrammarBatchProcessor {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final int SERIES_LENGTH = 500;
+  private static final int WINDOW_SIZE = 50;
+  private static final int PAA_SIZE = 4;
+  private static final int ALPHABET_SIZE = 4;
+
+  private ArrayList<double[]> series;
+
+  @Before
+  public void initialize() throws Exception {
+    double[] ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    series = new ArrayList<double[]>();
+    for (int start = 0; start + SERIES_LENGTH <= ts.length; start += SERIES_LENGTH / 2) {
+      series.add(Arrays.copyOfRange(ts, start, start + SERIES_LENGTH));
+    }
+  }
+
+  @Test
+  public void testSequiturSameAsSerial() throws Exception {
+    ArrayList<GrammarRules> expected = new ArrayList<GrammarRules>();
+    for (double[] ts : series) {
+      expected.add(SequiturFactory.series2SequiturRules(ts, WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE,
+          NumerosityReductionStrategy.EXACT, 0.01));
+    }
+
+    final BitSet seen = new BitSet();
+    final int[] lastDone = new int[1];
+    GrammarBatchProcessor processor = new GrammarBatchProcessor(4);
+    List<GrammarRules> res;
+    try {
+      res = processor.process(series, GIAlgorithm.SEQUITUR, WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE,
+          NumerosityReductionStrategy.EXACT, 0.01, new GrammarBatchProcessor.ProgressListener() {
+            @Override
+            public void seriesDone(int index, GrammarRules rules, int done, int total) {
+              assertNotNull(rules);
+              assertEquals(lastDone[0] + 1, done);
+              lastDone[0] = done;
+              seen.set(index);
+            }
+          });
+    }
+    finally {
+      processor.shutdown();
+    }
+
+    assertEquals(series.size(), seen.cardinality());
+    assertEquals(series.size(), lastDone[0]);
+    assertEquals(0, processor.getFailedCount() + processor.getTimedOutCount());
+    for (int i = 0; i < series.size(); i++) {
+      assertSameRules(expected.get(i), res.get(i));
+    }
+  }
+
+  @Test
+  public void testRePairSameAsSerial() throws Exception {
+    ArrayList<GrammarRules> expected = new ArrayList<GrammarRules>();
+    for (double[] ts : series) {
+      SAXRecords saxData = new SAXProcessor().ts2saxViaWindow(ts, WINDOW_SIZE, PAA_SIZE,
+          new NormalAlphabet().getCuts(ALPHABET_SIZE), NumerosityReductionStrategy.EXACT, 0.01);
+      RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
+      grammar.expandRules();
+      grammar.buildIntervals(saxData, ts, WINDOW_SIZE);
+      expected.add(grammar.toGrammarRulesData());
+    }
+
+    GrammarBatchProcessor processor = new GrammarBatchProcessor(2);
+    List<GrammarRules> res;
+    try {
+      res = processor.process(series, GIAlgorithm.REPAIR, WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE,
+          NumerosityReductionStrategy.EXACT, 0.01, null);
+    }
+    finally {
+      processor.shutdown();
+    }
+
+    for (int i = 0; i < series.size(); i++) {
+      assertSameRules(expected.get(i), res.get(i));
+    }
+  }
+
+  @Test
+  public void testMemoryLimit() throws Exception {
+    GrammarBatchProcessor processor = new GrammarBatchProcessor(2);
+    processor.setMemoryLimit(1);
+    List<GrammarRules> res;
+    try {
+      res = processor.process(series, GIAlgorithm.SEQUITUR, WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE,
+          NumerosityReductionStrategy.EXACT, 0.01, null);
+    }
+    finally {
+      processor.shutdown();
+    }
+    assertEquals(series.size(), res.size());
+    if (GIMetrics.getAllocatedBytes() >= 0) {
+      assertEquals(series.size(), processor.getOverLimitCount());
+      for (GrammarRules rules : res) {
+        assertNull(rules);
+      }
+    }
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    GrammarBatchProcessor processor = new GrammarBatchProcessor(2);
+    processor.setTimeout(1, TimeUnit.NANOSECONDS);
+    List<GrammarRules> res;
+    try {
+      res = processor.process(series, GIAlgorithm.REPAIR, WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE,
+          NumerosityReductionStrategy.EXACT, 0.01, null);
+    }
+    finally {
+      processor.shutdown();
+    }
+    assertEquals(series.size(), res.size());
+    assertEquals(series.size(), processor.getTimedOutCount());
+    assertEquals(0, processor.getFailedCount() + processor.getOverLimitCount());
+    for (GrammarRules rules : res) {
+      assertNull(rules);
+    }
+  }
+
+  /**
+   * The inference stops within its main loop once the thread is interrupted.
+   */
+  @Test
+  public void testInterrupt() throws Exception {
+    SAXRecords saxData = new SAXProcessor().ts2saxViaWindow(series.get(0), WINDOW_SIZE, PAA_SIZE,
+        new NormalAlphabet().getCuts(ALPHABET_SIZE), NumerosityReductionStrategy.EXACT, 0.01);
+    Thread.currentThread().interrupt();
+    try {
+      try {
+        SequiturFactory.runSequitur(saxData);
+        fail("the thread is interrupted");
+      }
+      catch (CancellationException e) {
+        assertTrue("testing the interrupt status", Thread.currentThread().isInterrupted());
+      }
+      try {
+        RePairFactory.buildGrammar(saxData);
+        fail("the thread is interrupted");
+      }
+      catch (CancellationException e) {
+        assertTrue("testing the interrupt status", Thread.currentThread().isInterrupted());
+      }
+    }
+    finally {
+      Thread.interrupted();
+    }
+    assertNotNull(RePairFactory.buildGrammar(saxData));
+  }
+
+  private static void assertSameRules(GrammarRules expected, GrammarRules actual) {
+    assertNotNull(actual);
+    assertEquals(expected.size(), actual.size());
+    for (GrammarRuleRecord r : expected) {
+      GrammarRuleRecord a = actual.get(r.getRuleNumber());
+      assertEquals(r.getRuleString(), a.getRuleString());
+      assertEquals(r.getExpandedRuleString(), a.getExpandedRuleString());
+      assertEquals(r.getOccurrenceList(), a.getOccurrenceList());
+      assertEquals(r.getRuleIntervals(), a.getRuleIntervals());
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+package net.seninp.gi.clusterrule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.logic.RuleInterval;
+import net.seninp.gi.logic.SAXMotif;
+import net.seninp.gi.logic.SameLengthMotifs;
+import net.seninp.gi.sequitur.SequiturFactory;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.TSProcessor;
+
+/**
+ * Test the parallel rule clustering against the serial one.
+ *
+ * @author psenin
+ *
+ */
+public class TestClusterRuleFactory {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final int WINDOW_SIZE = 100;
+  private static final int PAA_SIZE = 4;
+  private static final int ALPHABET_SIZE = 4;
+
+  private static final double THRESHOLD_LENGTH = 0.1;
+  private static final double THRESHOLD_COM = 0.5;
+  private static final double FRACTION_TOP_DIST = 0.67;
+
+  private double[] ts;
+  private GrammarRules rules;
+
+  @Before
+  public void initialize() throws Exception {
+    ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    rules = SequiturFactory.series2SequiturRules(ts, WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE,
+        NumerosityReductionStrategy.EXACT, 0.01);
+  }
+
+  @Test
+  public void testDistanceMatrix() {
+
+    ArrayList<RuleInterval> arrPos = new ArrayList<RuleInterval>();
+    for (int i = 1; i < rules.size() && arrPos.size() < 40; i++) {
+      arrPos.addAll(rules.getRuleRecord(i).getRuleIntervals());
+    }
+
+    // the full matrix, as computed before
+    DistanceComputation dc = new DistanceComputation();
+    double[][] expected = new double[arrPos.size()][arrPos.size()];
+    for (int i = 0; i < arrPos.size(); i++) {
+      double[] ts1 = Arrays.copyOfRange(ts, arrPos.get(i).getStart(), arrPos.get(i).getEnd());
+      for (int j = 0; j < arrPos.size(); j++) {
+        double[] ts2 = Arrays.copyOfRange(ts, arrPos.get(j).getStart(), arrPos.get(j).getEnd());
+        if (i != j) {
+          expected[i][j] = (ts1.length > ts2.length) ? dc.calcDistTSAndPattern(ts1, ts2)
+              : dc.calcDistTSAndPattern(ts2, ts1);
+        }
+      }
+    }
+
+    RuleOrganizer ro = new RuleOrganizer();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      double[][] serial = ro.distanceMatrix(ts, arrPos, null);
+      double[][] parallel = ro.distanceMatrix(ts, arrPos, pool);
+      for (int i = 0; i < arrPos.size(); i++) {
+        assertTrue("testing the serial row " + i, Arrays.equals(expected[i], serial[i]));
+        assertTrue("testing the parallel row " + i, Arrays.equals(expected[i], parallel[i]));
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testSameAsSerial() {
+
+    ArrayList<SameLengthMotifs> serial = ClusterRuleFactory.performPruning(ts, rules,
+        THRESHOLD_LENGTH, THRESHOLD_COM, FRACTION_TOP_DIST);
+    ArrayList<SameLengthMotifs> parallel = ClusterRuleFactory.performPruning(ts, rules,
+        THRESHOLD_LENGTH, THRESHOLD_COM, FRACTION_TOP_DIST, 4);
+
+    assertEquals("testing the clusters number", serial.size(), parallel.size());
+    for (int i = 0; i < serial.size(); i++) {
+      ArrayList<SAXMotif> s = serial.get(i).getSameLenMotifs();
+      ArrayList<SAXMotif> p = parallel.get(i).getSameLenMotifs();
+      assertEquals("testing the cluster size", s.size(), p.size());
+      for (int j = 0; j < s.size(); j++) {
+        assertEquals("testing the motif", s.get(j).getPos().getStart(),
+            p.get(j).getPos().getStart());
+        assertEquals("testing the motif", s.get(j).getPos().getEnd(), p.get(j).getPos().getEnd());
+      }
+      assertEquals("testing the length", serial.get(i).getMinMotifLen(),
+          parallel.get(i).getMinMotifLen());
+      assertEquals("testing the length", serial.get(i).getMaxMotifLen(),
+          parallel.get(i).getMaxMotifLen());
+    }
+  }
+
+}
@@ -0,0 +1,115 @@
+package net.seninp.gi.clusterrule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import net.seninp.jmotif.sax.TSProcessor;
+
+/**
+ * Test the distance profile against the direct distance computation.
+ *
+ * @author psenin
+ *
+ */
+public class TestDistanceComputation {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final double DELTA = 1.0E-9;
+
+  @Test
+  public void testDistanceProfile() throws Exception {
+
+    double[] ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    DistanceComputation dc = new DistanceComputation();
+
+    for (int m : new int[] { 1, 7, 100, 333 }) {
+      double[] pattern = Arrays.copyOfRange(ts, 1000, 1000 + m);
+      double[] profile = dc.distanceProfile(ts, pattern);
+      assertEquals("testing the profile length", ts.length - m + 1, profile.length);
+      for (int i = 0; i < profile.length; i++) {
+        double expected = dc.eculideanDistNorm(pattern, Arrays.copyOfRange(ts, i, i + m));
+        assertEquals("testing the distance", expected, profile[i], DELTA);
+      }
+      assertEquals("testing the match", 0d, profile[1000], DELTA);
+    }
+
+    assertEquals("testing the long pattern", 0,
+        dc.distanceProfile(new double[3], new double[4]).length);
+  }
+
+  @Test
+  public void testBatch() {
+
+    Random random = new Random(42);
+    double[] ts = new double[1500];
+    for (int i = 0; i < ts.length; i++) {
+      ts[i] = random.nextGaussian();
+    }
+
+    DistanceComputation dc = new DistanceComputation();
+    List<double[]> patterns = new ArrayList<double[]>();
+    for (int m : new int[] { 10, 64, 65, 1500 }) {
+      patterns.add(Arrays.copyOfRange(ts, ts.length - m, ts.length));
+    }
+
+    double[][] profiles = dc.distanceProfiles(ts, patterns);
+    for (int i = 0; i < patterns.size(); i++) {
+      assertTrue("testing the batch",
+          Arrays.equals(dc.distanceProfile(ts, patterns.get(i)), profiles[i]));
+    }
+  }
+
+  @Test
+  public void testTSAndPattern() {
+
+    Random random = new Random(42);
+    double[] ts = new double[3000];
+    for (int i = 0; i < ts.length; i++) {
+      ts[i] = random.nextGaussian();
+    }
+    DistanceComputation dc = new DistanceComputation();
+
+    // both the short scan and the long one are taken, with the same result each time
+    //
+    for (int m : new int[] { 2990, 1500 }) {
+      double[] pattern = new double[m];
+      for (int i = 0; i < m; i++) {
+        pattern[i] = random.nextGaussian();
+      }
+      double expected = Double.MAX_VALUE;
+      for (int i = 0; i + m <= ts.length; i++) {
+        expected = Math.min(expected,
+            dc.eculideanDistNorm(pattern, Arrays.copyOfRange(ts, i, i + m)));
+      }
+      double d = dc.calcDistTSAndPattern(ts, pattern);
+      assertEquals("testing the distance", expected, d, DELTA);
+      assertEquals("testing the determinism", d, dc.calcDistTSAndPattern(ts, pattern), 0d);
+    }
+  }
+
+  @Test
+  public void testEAbandon() {
+
+    double[] ts = { 0, 1, 2, 3, 4, 5, 6, 7 };
+    double[] pattern = { 2, 9, 3 };
+    DistanceComputation dc = new DistanceComputation();
+
+    int[] order = DistanceComputation.getAbandoningOrder(pattern);
+    assertTrue("testing the order", Arrays.equals(new int[] { 1, 0, 2 }, order));
+
+    // 1 + 25 + 4 at the offset 3, the closest window is at 4 with 4 + 16 + 9
+    assertEquals("testing the distance", 30d, dc.squaredDistance(ts, 3, pattern), 0d);
+    assertEquals("testing the distance", 30d,
+        dc.squaredDistanceEAbandon(ts, 3, pattern, order, 30d), 0d);
+    assertTrue("testing the abandoning",
+        Double.isNaN(dc.squaredDistanceEAbandon(ts, 3, pattern, order, 29d)));
+    assertEquals("testing the scan", Math.sqrt(29) / 3,
+        dc.calcDistTSAndPattern(ts, pattern), DELTA);
+  }
+
+}
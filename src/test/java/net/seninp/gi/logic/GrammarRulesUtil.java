@@ -0,0 +1,33 @@
+package net.seninp.gi.logic;
+
+/**
+ * The tests helper comparing the grammars as text.
+ *
+ * @author psenin
+ *
+ */
+public final class GrammarRulesUtil {
+
+  /**
+   * Disable constructor.
+   */
+  private GrammarRulesUtil() {
+    assert true;
+  }
+
+  /**
+   * Prints the rules with their strings, expansions and occurrences, one per line.
+   *
+   * @param rules the grammar rules.
+   * @return the text.
+   */
+  public static String asString(GrammarRules rules) {
+    StringBuilder sb = new StringBuilder();
+    for (GrammarRuleRecord r : rules) {
+      sb.append(r.getRuleName()).append(" -> ").append(r.getRuleString()).append(" : ")
+          .append(r.getExpandedRuleString()).append(", ").append(r.getOccurrenceList()).append("\n");
+    }
+    return sb.toString();
+  }
+
+}
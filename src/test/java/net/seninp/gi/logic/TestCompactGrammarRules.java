@@ -0,0 +1,185 @@
+package net.seninp.gi.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.Iterator;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.gi.repair.RePairFactory;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.gi.rulepruner.RulePrunerFactory;
+import net.seninp.gi.sequitur.SequiturFactory;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Test the packed grammar representation.
+ *
+ * @author psenin
+ *
+ */
+public class TestCompactGrammarRules {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final int WINDOW_SIZE = 100;
+  private static final int PAA_SIZE = 4;
+  private static final int ALPHABET_SIZE = 4;
+
+  private double[] ts;
+  private SAXRecords saxData;
+
+  @Before
+  public void initialize() throws Exception {
+    ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    saxData = new SAXProcessor().ts2saxViaWindow(ts, WINDOW_SIZE, PAA_SIZE,
+        new NormalAlphabet().getCuts(ALPHABET_SIZE), NumerosityReductionStrategy.EXACT, 0.01);
+  }
+
+  @Test
+  public void testSequitur() throws Exception {
+    GrammarRules rules = SequiturFactory.series2SequiturRules(ts, WINDOW_SIZE, PAA_SIZE,
+        ALPHABET_SIZE, NumerosityReductionStrategy.EXACT, 0.01);
+    assertSame(rules, new CompactGrammarRules(rules));
+  }
+
+  @Test
+  public void testRePair() {
+    RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
+    grammar.expandRules();
+    grammar.buildIntervals(saxData, ts, WINDOW_SIZE);
+    GrammarRules rules = grammar.toGrammarRulesData();
+    CompactGrammarRules compact = new CompactGrammarRules(rules);
+    assertSame(rules, compact);
+    assertSame(rules, compact.toGrammarRules());
+    assertEquals("testing the frequency", rules.getHighestFrequency(),
+        compact.getHighestFrequency());
+  }
+
+  /**
+   * The pruned grammar rules refer to the removed ones.
+   */
+  @Test
+  public void testPruned() throws Exception {
+    GrammarRules rules = RulePrunerFactory.performPruning(ts, SequiturFactory.series2SequiturRules(
+        ts, WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE, NumerosityReductionStrategy.EXACT, 0.01));
+    CompactGrammarRules compact = new CompactGrammarRules(rules);
+    assertSame(rules, compact);
+    assertNull("testing the lookup", compact.get(Integer.MAX_VALUE));
+    assertNull("testing the lookup", compact.getRule(Integer.MAX_VALUE));
+
+    // the records are copies
+    int ruleNumber = rules.iterator().next().getRuleNumber();
+    compact.get(ruleNumber).setRuleString("a b c");
+    assertEquals("testing the copy", rules.get(ruleNumber).getRuleString(),
+        compact.get(ruleNumber).getRuleString());
+  }
+
+  /**
+   * A rule which refers to a missing one keeps its expanded string, even of the same length.
+   */
+  @Test
+  public void testDangling() {
+    GrammarRules rules = new GrammarRules();
+    rules.addRule(newRecord(0, "R1 R99", "a b c d"));
+    rules.addRule(newRecord(1, "a b", "a b"));
+    CompactGrammarRules compact = new CompactGrammarRules(rules);
+    assertSame(rules, compact);
+    assertEquals("testing the length", 7, compact.getRule(0).getExpandedRuleLength());
+  }
+
+  /**
+   * The views read the same rules as the records.
+   */
+  @Test
+  public void testViews() throws Exception {
+    GrammarRules rules = SequiturFactory.series2SequiturRules(ts, WINDOW_SIZE, PAA_SIZE,
+        ALPHABET_SIZE, NumerosityReductionStrategy.EXACT, 0.01);
+    CompactGrammarRules compact = new CompactGrammarRules(rules);
+    Iterator<RuleRecord> it = compact.rules().iterator();
+    int ruleIdx = 0;
+    for (GrammarRuleRecord e : rules) {
+      RuleRecord a = it.next();
+      assertSameRule(e, a);
+      assertSameRule(e, compact.getRule(e.getRuleNumber()));
+      assertEquals("testing the index", ruleIdx, compact.getRuleIndex(e.getRuleNumber()));
+      assertEquals("testing the columns", e.getOccurrenceList().size(),
+          compact.getOccurrencesCount(ruleIdx));
+      assertEquals("testing the columns", e.getRuleIntervals().size(),
+          compact.getIntervalsCount(ruleIdx));
+      ruleIdx++;
+    }
+    assertTrue("testing size", !it.hasNext());
+  }
+
+  /**
+   * The pruner reads the compact grammar, while the interval update which changes the records in
+   * place refuses it.
+   */
+  @Test
+  public void testConsumers() throws Exception {
+    GrammarRules rules = SequiturFactory.series2SequiturRules(ts, WINDOW_SIZE, PAA_SIZE,
+        ALPHABET_SIZE, NumerosityReductionStrategy.EXACT, 0.01);
+    String before = rules.toString();
+    CompactGrammarRules compact = new CompactGrammarRules(rules);
+
+    GrammarRules expected = RulePrunerFactory.performPruning(ts, rules);
+    assertEquals("testing the input is intact", before, rules.toString());
+    assertSame(expected, RulePrunerFactory.performPruning(ts, compact));
+
+    try {
+      SequiturFactory.updateRuleIntervals(compact, saxData, true, ts, WINDOW_SIZE, PAA_SIZE);
+      fail("the compact grammar is read-only");
+    }
+    catch (IllegalArgumentException e) {
+      assert true;
+    }
+  }
+
+  private static GrammarRuleRecord newRecord(int ruleNumber, String ruleString, String expanded) {
+    GrammarRuleRecord r = new GrammarRuleRecord();
+    r.setRuleNumber(ruleNumber);
+    r.setRuleString(ruleString);
+    r.setExpandedRuleString(expanded);
+    return r;
+  }
+
+  private static void assertSame(GrammarRules expected, GrammarRules actual) {
+    assertEquals("testing size", expected.size(), actual.size());
+    Iterator<GrammarRuleRecord> it = actual.iterator();
+    for (GrammarRuleRecord e : expected) {
+      assertTrue("testing size", it.hasNext());
+      GrammarRuleRecord a = it.next();
+      assertSameRule(e, a);
+      assertEquals(e.occurrencesToString(), a.occurrencesToString());
+      assertEquals(e.minMaxLengthAsString(), a.minMaxLengthAsString());
+      assertEquals(e.getRuleString(), actual.get(e.getRuleNumber()).getRuleString());
+    }
+    assertEquals("testing toString", expected.toString(), actual.toString());
+  }
+
+  private static void assertSameRule(RuleRecord e, RuleRecord a) {
+    assertEquals(e.getRuleNumber(), a.getRuleNumber());
+    assertEquals(e.getRuleName(), a.getRuleName());
+    assertEquals(e.getRuleString(), a.getRuleString());
+    assertEquals(e.getExpandedRuleString(), a.getExpandedRuleString());
+    assertEquals(e.getExpandedRuleLength(), a.getExpandedRuleLength());
+    assertEquals(e.getOccurrenceList(), a.getOccurrenceList());
+    assertEquals(e.getRuleIntervals(), a.getRuleIntervals());
+    assertEquals(e.getRuleUseFrequency(), a.getRuleUseFrequency());
+    assertEquals(e.getRuleLevel(), a.getRuleLevel());
+    assertEquals(e.getRuleYield(), a.getRuleYield());
+    assertEquals(e.getMeanLength(), a.getMeanLength());
+    assertEquals(e.getMinLength(), a.getMinLength());
+    assertEquals(e.getMaxLength(), a.getMaxLength());
+    assertEquals(e.getPeriod(), a.getPeriod(), 0d);
+    assertEquals(e.getPeriodError(), a.getPeriodError(), 0d);
+    assertEquals(e.toString(), a.toString());
+  }
+
+}
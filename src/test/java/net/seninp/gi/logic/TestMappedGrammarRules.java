@@ -0,0 +1,198 @@
+package net.seninp.gi.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import net.seninp.gi.repair.RePairFactory;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.gi.rulepruner.RulePrunerFactory;
+import net.seninp.gi.sequitur.SequiturFactory;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Test the binary grammar format.
+ *
+ * @author psenin
+ *
+ */
+public class TestMappedGrammarRules {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final int WINDOW_SIZE = 100;
+  private static final int PAA_SIZE = 4;
+  private static final int ALPHABET_SIZE = 4;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private double[] ts;
+  private SAXRecords saxData;
+
+  @Before
+  public void initialize() throws Exception {
+    ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    saxData = new SAXProcessor().ts2saxViaWindow(ts, WINDOW_SIZE, PAA_SIZE,
+        new NormalAlphabet().getCuts(ALPHABET_SIZE), NumerosityReductionStrategy.EXACT, 0.01);
+  }
+
+  @Test
+  public void testSequitur() throws Exception {
+    GrammarRules rules = SequiturFactory.series2SequiturRules(ts, WINDOW_SIZE, PAA_SIZE,
+        ALPHABET_SIZE, NumerosityReductionStrategy.EXACT, 0.01);
+    MappedGrammarRules mapped = roundTrip(rules);
+    assertSame(rules, mapped);
+    assertSame(rules, mapped.toGrammarRules());
+    assertEquals("testing the frequency", rules.getHighestFrequency(),
+        mapped.getHighestFrequency());
+  }
+
+  @Test
+  public void testRePair() throws Exception {
+    RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
+    grammar.expandRules();
+    grammar.buildIntervals(saxData, ts, WINDOW_SIZE);
+    GrammarRules rules = grammar.toGrammarRulesData();
+    assertSame(rules, roundTrip(rules));
+  }
+
+  /**
+   * The pruned grammar rules refer to the removed ones.
+   */
+  @Test
+  public void testPruned() throws Exception {
+    GrammarRules rules = RulePrunerFactory.performPruning(ts, SequiturFactory.series2SequiturRules(
+        ts, WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE, NumerosityReductionStrategy.EXACT, 0.01));
+    MappedGrammarRules mapped = roundTrip(rules);
+    assertSame(rules, mapped);
+    assertNull("testing the lookup", mapped.get(Integer.MAX_VALUE));
+    try {
+      mapped.addRule(new GrammarRuleRecord());
+      fail("the mapped grammar is read-only");
+    }
+    catch (UnsupportedOperationException e) {
+      assert true;
+    }
+
+    // the serialized form is the decoded grammar
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(mapped);
+    out.close();
+    Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+        .readObject();
+    assertEquals(GrammarRules.class, copy.getClass());
+    assertSame(rules, (GrammarRules) copy);
+  }
+
+  /**
+   * The fields which the grammars leave at their defaults.
+   */
+  @Test
+  public void testUnusualValues() throws Exception {
+    GrammarRules rules = new GrammarRules();
+    GrammarRuleRecord r0 = new GrammarRuleRecord();
+    r0.setRuleNumber(0);
+    rules.addRule(r0);
+    GrammarRuleRecord r = new GrammarRuleRecord();
+    r.setRuleNumber(7);
+    r.setRuleString("R012 R3  Rx R2 ");
+    r.setExpandedRuleString("");
+    r.setRuleYield(-1);
+    r.setMinMaxLength(new int[] { -5, 300 });
+    r.setPeriod(0.5);
+    r.setPeriodError(-0.0);
+    r.setOccurrences(new int[] { 40, 3, Integer.MAX_VALUE, 0 });
+    ArrayList<RuleInterval> intervals = new ArrayList<RuleInterval>();
+    intervals.add(new RuleInterval(2, 100, 50, 0.25));
+    intervals.add(new RuleInterval(-1, 0, Integer.MAX_VALUE, Double.NaN));
+    r.setRuleIntervals(intervals);
+    rules.addRule(r);
+
+    MappedGrammarRules mapped = roundTrip(rules);
+    assertSame(rules, mapped);
+    ArrayList<RuleInterval> actual = mapped.get(7).getRuleIntervals();
+    for (int i = 0; i < intervals.size(); i++) {
+      assertEquals(intervals.get(i).getId(), actual.get(i).getId());
+      assertEquals(intervals.get(i).getCoverage(), actual.get(i).getCoverage(), 0d);
+    }
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    GrammarWriter writer = new GrammarWriter(new ByteArrayOutputStream());
+    GrammarRuleRecord r = new GrammarRuleRecord();
+    r.setRuleNumber(3);
+    writer.write(r);
+    try {
+      writer.write(r);
+      fail("the rules shall be ascending");
+    }
+    catch (IllegalArgumentException e) {
+      assert true;
+    }
+    writer.close();
+
+    File file = folder.newFile("not-a-grammar.bin");
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(new byte[64]);
+    out.close();
+    try {
+      new MappedGrammarRules(file);
+      fail("not a grammar file");
+    }
+    catch (IOException e) {
+      assert true;
+    }
+  }
+
+  private MappedGrammarRules roundTrip(GrammarRules rules) throws IOException {
+    File file = folder.newFile();
+    GrammarWriter.write(rules, file);
+    return new MappedGrammarRules(file);
+  }
+
+  private static void assertSame(GrammarRules expected, GrammarRules actual) {
+    assertEquals("testing size", expected.size(), actual.size());
+    Iterator<GrammarRuleRecord> it = actual.iterator();
+    for (GrammarRuleRecord e : expected) {
+      assertTrue("testing size", it.hasNext());
+      GrammarRuleRecord a = it.next();
+      assertEquals(e.getRuleNumber(), a.getRuleNumber());
+      assertEquals(e.getRuleString(), a.getRuleString());
+      assertEquals(e.getExpandedRuleString(), a.getExpandedRuleString());
+      assertEquals(e.getOccurrenceList(), a.getOccurrenceList());
+      assertEquals(e.getRuleIntervals(), a.getRuleIntervals());
+      assertEquals(e.getRuleUseFrequency(), a.getRuleUseFrequency());
+      assertEquals(e.getRuleLevel(), a.getRuleLevel());
+      assertEquals(e.getRuleYield(), a.getRuleYield());
+      assertEquals(e.getMeanLength(), a.getMeanLength());
+      assertEquals(e.minMaxLengthAsString(), a.minMaxLengthAsString());
+      assertEquals(Double.doubleToRawLongBits(e.getPeriod()),
+          Double.doubleToRawLongBits(a.getPeriod()));
+      assertEquals(Double.doubleToRawLongBits(e.getPeriodError()),
+          Double.doubleToRawLongBits(a.getPeriodError()));
+      assertEquals(e.getRuleString(), actual.get(e.getRuleNumber()).getRuleString());
+    }
+    assertEquals("testing toString", expected.toString(), actual.toString());
+  }
+
+}
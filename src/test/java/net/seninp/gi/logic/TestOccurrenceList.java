@@ -0,0 +1,65 @@
+package net.seninp.gi.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import org.junit.Test;
+
+/**
+ * Test the primitive occurrences storage.
+ *
+ * @author psenin
+ *
+ */
+public class TestOccurrenceList {
+
+  @Test
+  public void testGrowth() {
+    OccurrenceList list = new OccurrenceList();
+    assertTrue("testing empty", list.isEmpty());
+    for (int i = 0; i < 1000; i++) {
+      list.add(i * 3);
+    }
+    assertFalse("testing empty", list.isEmpty());
+    assertEquals("testing size", 1000, list.size());
+    assertEquals("testing get", 2997, list.get(999));
+
+    int expected = 0;
+    PrimitiveIterator.OfInt it = list.iterator();
+    while (it.hasNext()) {
+      assertEquals("testing iterator", expected, it.nextInt());
+      expected += 3;
+    }
+    assertEquals("testing iterator", 3000, expected);
+
+    try {
+      list.get(1000);
+      fail("exception expected");
+    }
+    catch (IndexOutOfBoundsException e) {
+      assert true;
+    }
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testCompatibility() {
+    int[] values = { 7, 2, 11 };
+    OccurrenceList list = new OccurrenceList(values);
+    values[0] = 0;
+    assertEquals("testing copy", 7, list.get(0));
+    assertEquals("testing toString", Arrays.asList(7, 2, 11).toString(), list.toString());
+    assertEquals("testing toList", Arrays.asList(7, 2, 11), list.toList());
+    assertTrue("testing toArray", Arrays.equals(new int[] { 7, 2, 11 }, list.toArray()));
+    assertEquals("testing equals", new OccurrenceList(new int[] { 7, 2, 11 }), list);
+
+    GrammarRuleRecord rec = new GrammarRuleRecord();
+    rec.setOccurrences(new int[] { 7, 2, 11 });
+    assertEquals("testing record", list, rec.getOccurrenceList());
+    assertEquals("testing record", list.toList(), rec.getOccurrences());
+  }
+
+}
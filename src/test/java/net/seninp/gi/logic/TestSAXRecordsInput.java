@@ -0,0 +1,60 @@
+package net.seninp.gi.logic;
+
+import static net.seninp.gi.logic.GrammarRulesUtil.asString;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.gi.repair.RePairFactory;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.gi.sequitur.SequiturFactory;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Test that feeding SAX records directly produces the same grammars as feeding the SAX string.
+ *
+ * @author psenin
+ *
+ */
+public class TestSAXRecordsInput {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private SAXRecords saxData;
+
+  @Before
+  public void initialize() throws Exception {
+    double[] ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    saxData = new SAXProcessor().ts2saxViaWindow(ts, 60, 4, new NormalAlphabet().getCuts(4),
+        NumerosityReductionStrategy.EXACT, 0.01);
+  }
+
+  @Test
+  public void testTokens() {
+    String[] tokens = GIUtils.toTokens(saxData);
+    assertEquals("testing tokens", saxData.getSAXString(" ").trim(), String.join(" ", tokens));
+  }
+
+  @Test
+  public void testSequitur() throws Exception {
+    assertEquals("testing Sequitur",
+        asString(SequiturFactory.runSequitur(saxData.getSAXString(" ")).toGrammarRulesData()),
+        asString(SequiturFactory.runSequitur(saxData).toGrammarRulesData()));
+  }
+
+  @Test
+  public void testRePair() {
+    RePairGrammar expected = RePairFactory.buildGrammar(saxData.getSAXString(" "));
+    RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
+    assertEquals("testing RePair", asString(expected.toGrammarRulesData()),
+        asString(grammar.toGrammarRulesData()));
+    expected.expandRules();
+    grammar.expandRules();
+    assertEquals("testing RePair", asString(expected.toGrammarRulesData()),
+        asString(grammar.toGrammarRulesData()));
+  }
+
+}
@@ -0,0 +1,126 @@
+package net.seninp.gi.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.repair.RePairFactory;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.gi.rulepruner.RulePrunerFactory;
+import net.seninp.gi.sequitur.SequiturFactory;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Test the pipeline metrics.
+ *
+ * @author psenin
+ *
+ */
+public class TestInMemoryMetrics {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final int WINDOW_SIZE = 100;
+  private static final int PAA_SIZE = 4;
+  private static final int ALPHABET_SIZE = 4;
+
+  private double[] ts;
+  private InMemoryMetrics metrics;
+
+  @Before
+  public void initialize() throws Exception {
+    ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    metrics = new InMemoryMetrics();
+  }
+
+  @After
+  public void tearDown() {
+    GIMetrics.setListener(null);
+  }
+
+  @Test
+  public void testHistogram() {
+    Histogram h = new Histogram();
+    assertEquals(0, h.getPercentile(50));
+    for (int i = 1; i <= 100; i++) {
+      h.add(i);
+    }
+    assertEquals(100, h.getCount());
+    assertEquals(5050, h.getSum());
+    assertEquals(1, h.getMin());
+    assertEquals(100, h.getMax());
+    assertEquals(50.5, h.getMean(), 1e-9);
+    // the 50th value falls into [32, 64), the 99th into [64, 128) capped by the max
+    assertEquals(63, h.getPercentile(50));
+    assertEquals(100, h.getPercentile(99));
+    assertEquals(1, h.getPercentile(0));
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    assertSame(GIMetrics.NO_OP, GIMetrics.getListener());
+    SequiturFactory.series2SequiturRules(ts, WINDOW_SIZE, PAA_SIZE, ALPHABET_SIZE,
+        NumerosityReductionStrategy.EXACT, 0.01);
+    assertNull(metrics.getHistogram(PipelineStage.SEQUITUR, GIMetrics.WALL_NANOS));
+  }
+
+  @Test
+  public void testSequiturPipeline() throws Exception {
+    GIMetrics.setListener(metrics);
+
+    GrammarRules rules = SequiturFactory.series2SequiturRules(ts, WINDOW_SIZE, PAA_SIZE,
+        ALPHABET_SIZE, NumerosityReductionStrategy.EXACT, 0.01);
+    GrammarRules pruned = RulePrunerFactory.performPruning(ts, rules);
+
+    for (PipelineStage stage : new PipelineStage[] { PipelineStage.DISCRETIZATION,
+        PipelineStage.SEQUITUR, PipelineStage.EXPANSION, PipelineStage.INTERVALS,
+        PipelineStage.PRUNING }) {
+      Histogram wall = metrics.getHistogram(stage, GIMetrics.WALL_NANOS);
+      assertNotNull(stage.toString(), wall);
+      assertEquals(1, wall.getCount());
+    }
+
+    long words = metrics.getHistogram(PipelineStage.DISCRETIZATION, GIMetrics.WORDS).getMax();
+    assertEquals(words, metrics.getHistogram(PipelineStage.SEQUITUR, GIMetrics.TOKENS).getMax());
+    assertEquals(rules.size(),
+        metrics.getHistogram(PipelineStage.EXPANSION, GIMetrics.RULES).getMax());
+    assertEquals(pruned.size(),
+        metrics.getHistogram(PipelineStage.PRUNING, GIMetrics.RULES_KEPT).getMax());
+    assertNull(metrics.getHistogram(PipelineStage.REPAIR, GIMetrics.WALL_NANOS));
+    assertTrue(metrics.toString().contains("PRUNING\trules.kept\t1\t"));
+
+    metrics.reset();
+    assertNull(metrics.getHistogram(PipelineStage.SEQUITUR, GIMetrics.WALL_NANOS));
+  }
+
+  @Test
+  public void testRePair() throws Exception {
+    SAXRecords saxData = new SAXProcessor().ts2saxViaWindow(ts, WINDOW_SIZE, PAA_SIZE,
+        new NormalAlphabet().getCuts(ALPHABET_SIZE), NumerosityReductionStrategy.EXACT, 0.01);
+
+    GIMetrics.setListener(metrics);
+    RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
+    grammar.expandRules();
+    grammar.buildIntervals(saxData, ts, WINDOW_SIZE);
+
+    assertEquals(saxData.size(),
+        metrics.getHistogram(PipelineStage.REPAIR, GIMetrics.TOKENS).getMax());
+    assertEquals(grammar.getRules().size(),
+        metrics.getHistogram(PipelineStage.REPAIR, GIMetrics.RULES).getMax());
+    long digrams = metrics.getHistogram(PipelineStage.REPAIR, GIMetrics.DIGRAMS).getMax();
+    long peak = metrics.getHistogram(PipelineStage.REPAIR, GIMetrics.QUEUE_PEAK).getMax();
+    assertTrue(peak > 0 && peak <= digrams);
+    assertEquals(1, metrics.getHistogram(PipelineStage.INTERVALS, GIMetrics.WALL_NANOS)
+        .getCount());
+  }
+
+}
@@ -0,0 +1,53 @@
+package net.seninp.gi.repair;
+
+/**
+ * The tests helper restoring the input out of a RePair grammar.
+ *
+ * @author psenin
+ *
+ */
+final class RePairGrammarUtil {
+
+  private static final char THE_R = 'R';
+
+  private static final char SPACE = ' ';
+
+  /**
+   * Disable constructor.
+   */
+  private RePairGrammarUtil() {
+    assert true;
+  }
+
+  /**
+   * Expands the R0 by substituting the rules into it.
+   *
+   * @param repairGrammar the grammar.
+   * @return the input string.
+   */
+  static String decompress(RePairGrammar repairGrammar) {
+
+    String resultString = new String(repairGrammar.r0String);
+
+    int currentSearchStart = resultString.indexOf(THE_R);
+    while (currentSearchStart >= 0) {
+      int spaceIdx = resultString.indexOf(SPACE, currentSearchStart);
+      String ruleName = resultString.substring(currentSearchStart, spaceIdx + 1);
+      Integer ruleId = Integer.valueOf(ruleName.substring(1, ruleName.length() - 1));
+      RePairRule rule = repairGrammar.getRules().get(ruleId);
+      if (rule != null) {
+        String expandedRuleString = rule.toExpandedRuleString();
+        if (expandedRuleString.charAt(expandedRuleString.length() - 1) == ' ') {
+          resultString = resultString.replaceAll(ruleName, expandedRuleString);
+        }
+        else {
+          resultString = resultString.replaceAll(ruleName, expandedRuleString + SPACE);
+        }
+      }
+      currentSearchStart = resultString.indexOf("R", spaceIdx);
+    }
+
+    return resultString.trim();
+  }
+
+}
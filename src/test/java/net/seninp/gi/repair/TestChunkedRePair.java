@@ -0,0 +1,133 @@
+package net.seninp.gi.repair;
+
+import static net.seninp.gi.repair.RePairGrammarUtil.decompress;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Test the chunked repair by decompressing its grammars.
+ *
+ * @author psenin
+ *
+ */
+public class TestChunkedRePair {
+
+  private static final char SPACE = ' ';
+
+  private static final String INPUT_FNAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final int SAX_WIN_SIZE = 100;
+  private static final int SAX_PAA_SIZE = 4;
+  private static final int SAX_A_SIZE = 4;
+
+  private static final String[] PERIOD = { "aa", "aa", "aa", "ab", "ba", "aa", "bb" };
+  private static final int PERIODIC_INPUT_LENGTH = 20000;
+
+  private SAXRecords saxData;
+  private String inputSAXString;
+
+  @Before
+  public void initialize() throws Exception {
+    double[] ts = TSProcessor.readFileColumn(INPUT_FNAME, 0, 0);
+    saxData = new SAXProcessor().ts2saxViaWindow(ts, SAX_WIN_SIZE, SAX_PAA_SIZE,
+        new NormalAlphabet().getCuts(SAX_A_SIZE), NumerosityReductionStrategy.NONE, 0.01);
+    inputSAXString = saxData.getSAXString(" ").trim();
+  }
+
+  @Test
+  public void testByDecompressing() {
+    for (int chunkSize : new int[] { 2, 7, 64, 500, Integer.MAX_VALUE >> 1 }) {
+      RePairGrammar grammar = ChunkedRePair.parse(
+          Arrays.asList(inputSAXString.split(" ")).iterator(), chunkSize);
+      assertGrammar(inputSAXString, grammar);
+    }
+  }
+
+  /**
+   * A periodic input, where a few digrams have thousands of occurrences across the chunks.
+   */
+  @Test
+  public void testPeriodicByDecompressing() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < PERIODIC_INPUT_LENGTH; i++) {
+      sb.append(PERIOD[i % PERIOD.length]).append(SPACE);
+      if (0 == i % (PERIODIC_INPUT_LENGTH / 10)) {
+        sb.append(PERIOD[0]).append(SPACE);
+      }
+    }
+    String input = sb.toString().trim();
+
+    RePairGrammar grammar = ChunkedRePair.parse(input,
+        ChunkedRePair.MIN_CHUNK_SIZE * ChunkedRePair.BYTES_PER_TOKEN);
+    assertGrammar(input, grammar);
+
+    // the chunks share the rules, so the periodic input compresses well anyway
+    assertTrue("asserting the compression",
+        grammar.getR0CompressedString().split(" ").length < PERIODIC_INPUT_LENGTH / 100);
+  }
+
+  /**
+   * The digram of a rule made in the first chunk occurs once in each of the others, and is
+   * substituted with that rule anyway.
+   */
+  @Test
+  public void testKnownDigramOncePerChunk() {
+    String input = "a b a b a b c d a b e f a b g h";
+    RePairGrammar grammar = ChunkedRePair.parse(Arrays.asList(input.split(" ")).iterator(), 4);
+    assertGrammar(input, grammar);
+
+    RePairRule ab = null;
+    for (RePairRule rule : grammar.getRules().values()) {
+      if ("a b".equals(rule.toExpandedRuleString().trim())) {
+        assertTrue("asserting a single rule", null == ab);
+        ab = rule;
+      }
+    }
+    assertTrue("asserting the rule", null != ab);
+    assertArrayEquals("asserting the occurrences", new int[] { 0, 2, 4, 8, 12 },
+        ab.getOccurrences());
+  }
+
+  /**
+   * With the chunk which holds the whole input, the grammar is the one of the regular repair.
+   */
+  @Test
+  public void testSingleChunk() {
+    RePairGrammar expected = RePairFactory.buildGrammar(saxData);
+    RePairGrammar grammar = RePairFactory.buildGrammar(saxData, Long.MAX_VALUE);
+    assertEquals(expected.getR0CompressedString(), grammar.getR0CompressedString());
+    assertEquals(expected.getRules().size(), grammar.getRules().size());
+
+    assertEquals(ChunkedRePair.MIN_CHUNK_SIZE, ChunkedRePair.chunkSize(0));
+    assertEquals(4096, ChunkedRePair.chunkSize(4096L * ChunkedRePair.BYTES_PER_TOKEN));
+  }
+
+  private static void assertGrammar(String input, RePairGrammar grammar) {
+    assertEquals("asserting the decompression", input, decompress(grammar));
+    assertEquals("asserting R0", input + SPACE, grammar.getR0ExpandedString());
+
+    String[] tokens = input.split(" ");
+    grammar.expandRules();
+    for (RePairRule rule : grammar.getRules().values()) {
+      String expandedRuleString = rule.toExpandedRuleString();
+      assertEquals("asserting the expansion",
+          rule.getFirst().toExpandedString() + SPACE + rule.getSecond().toExpandedString(),
+          expandedRuleString);
+      String[] yield = expandedRuleString.split(" ");
+      for (int occurrence : rule.getOccurrences()) {
+        assertArrayEquals("asserting the occurrence",
+            Arrays.copyOfRange(tokens, occurrence, occurrence + yield.length), yield);
+      }
+    }
+  }
+
+}
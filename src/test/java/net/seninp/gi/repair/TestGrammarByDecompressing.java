@@ -1,7 +1,11 @@
 package net.seninp.gi.repair;
 
+import static net.seninp.gi.repair.RePairGrammarUtil.decompress;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import java.io.IOException;
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Test;
 import net.seninp.jmotif.sax.NumerosityReductionStrategy;
@@ -14,8 +18,6 @@ import net.seninp.jmotif.sax.datastructure.SAXRecords;
 
 public class TestGrammarByDecompressing {
 
-  private static final char THE_R = 'R';
-
   private static final char SPACE = ' ';
 
   private static final String INPUT_FNAME = "src/resources/test-data/ecg0606.txt";
@@ -25,6 +27,9 @@ public class TestGrammarByDecompressing {
   private static final int SAX_A_SIZE = 4;
   private static final double SAX_NORM_THRESHOLD = 0.001;
 
+  private static final String[] PERIOD = { "aa", "aa", "aa", "ab", "ba", "aa", "bb" };
+  private static final int PERIODIC_INPUT_LENGTH = 100000;
+
   private static final SAXProcessor sp = new SAXProcessor();
   private static final Alphabet na = new NormalAlphabet();
 
@@ -51,30 +56,58 @@ public class TestGrammarByDecompressing {
 
     RePairGrammar repairGrammar = NewRepair.parse(inputSAXString);
 
-    String resultString = new String(repairGrammar.r0String);
-
-    int currentSearchStart = resultString.indexOf(THE_R);
-    while (currentSearchStart >= 0) {
-      int spaceIdx = resultString.indexOf(SPACE, currentSearchStart);
-      String ruleName = resultString.substring(currentSearchStart, spaceIdx + 1);
-      Integer ruleId = Integer.valueOf(ruleName.substring(1, ruleName.length() - 1));
-      RePairRule rule = repairGrammar.getRules().get(ruleId);
-      if (rule != null) {
-        if (rule.expandedRuleString.charAt(rule.expandedRuleString.length() - 1) == ' ') {
-          resultString = resultString.replaceAll(ruleName, rule.expandedRuleString);
-        }
-        else {
-          resultString = resultString.replaceAll(ruleName, rule.expandedRuleString + SPACE);
-        }
+    assertTrue("asserting new implementation correctness",
+        inputSAXString.equalsIgnoreCase(decompress(repairGrammar)));
+
+  }
+
+  /**
+   * A periodic input, where a few digrams have thousands of overlapping and non-overlapping
+   * occurrences.
+   */
+  @Test
+  public void testPeriodicByDecompressing() {
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < PERIODIC_INPUT_LENGTH; i++) {
+      sb.append(PERIOD[i % PERIOD.length]).append(SPACE);
+      if (0 == i % (PERIODIC_INPUT_LENGTH / 10)) {
+        sb.append(PERIOD[0]).append(SPACE);
       }
-      currentSearchStart = resultString.indexOf("R", spaceIdx);
     }
+    String input = sb.toString().trim();
+
+    RePairGrammar repairGrammar = NewRepair.parse(input);
 
     assertTrue("asserting new implementation correctness",
-        inputSAXString.equalsIgnoreCase(resultString.trim()));
-    //
-    // System.out.println(repairGrammar.r0String + "\n" + resultString);
+        input.equalsIgnoreCase(decompress(repairGrammar)));
 
   }
 
+  /**
+   * Each rule expands into the same terminals at all of its occurrences.
+   */
+  @Test
+  public void testRuleYields() {
+
+    String[] input = inputSAXString.split(" ");
+
+    RePairGrammar repairGrammar = NewRepair.parse(inputSAXString);
+    repairGrammar.expandRules();
+
+    for (RePairRule rule : repairGrammar.getRules().values()) {
+      String expandedRuleString = rule.toExpandedRuleString();
+      assertEquals("asserting the expansion",
+          rule.getFirst().toExpandedString() + SPACE + rule.getSecond().toExpandedString(),
+          expandedRuleString);
+      String[] yield = expandedRuleString.split(" ");
+      for (int occurrence : rule.getOccurrences()) {
+        assertArrayEquals("asserting the occurrence",
+            Arrays.copyOfRange(input, occurrence, occurrence + yield.length), yield);
+      }
+    }
+    assertEquals("asserting R0", inputSAXString + SPACE,
+        repairGrammar.toGrammarRulesData().get(0).getExpandedRuleString());
+  }
+
 }
@@ -0,0 +1,111 @@
+package net.seninp.gi.repair;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Test the digram queue keyed by the entry ids.
+ *
+ * @author psenin
+ *
+ */
+public class TestRePairDigramQueue {
+
+  // a small input length makes digrams above 5 to go into the high frequency list
+  private static final int INPUT_LENGTH = 16;
+
+  private static final int DIGRAMS_NUM = 500;
+  private static final int OPERATIONS = 20000;
+
+  @Test
+  public void testOrder() {
+    RePairDigramQueue pq = new RePairDigramQueue(INPUT_LENGTH, 0);
+    pq.enqueue(1, 10);
+    pq.enqueue(2, 13);
+    pq.enqueue(3, 13);
+    pq.enqueue(4, 3);
+    pq.enqueue(40, 3);
+    assertEquals("testing size", 5, pq.size());
+    assertTrue("testing contains", pq.contains(40));
+    try {
+      pq.enqueue(40, 5);
+      fail("the digram is in the queue");
+    }
+    catch (IllegalArgumentException e) {
+      assert true;
+    }
+
+    pq.update(1, 20);
+    pq.update(2, 1);
+    assertFalse("testing eviction", pq.contains(2));
+    pq.update(7, 5);
+    assertFalse("testing update", pq.contains(7));
+
+    assertEquals("testing the order", 1, pq.dequeue());
+    assertEquals("testing the order", 3, pq.dequeue());
+    assertEquals("testing the order", 40, pq.dequeue());
+    assertEquals("testing the order", 4, pq.dequeue());
+    assertEquals("testing the order", -1, pq.dequeue());
+    assertEquals("testing peak", 5, pq.getPeakSize());
+  }
+
+  /**
+   * Runs the same random operations on this and the linked list queue: both must dequeue the
+   * digrams of the same frequency, the ties may go in a different order.
+   */
+  @Test
+  public void testAgainstListQueue() {
+
+    RePairDigramQueue iq = new RePairDigramQueue(DIGRAMS_NUM, 0);
+    RepairPriorityQueue lq = new RepairPriorityQueue();
+    int[] freqs = new int[DIGRAMS_NUM];
+    Random random = new Random(42);
+
+    for (int i = 0; i < OPERATIONS; i++) {
+      int id = random.nextInt(DIGRAMS_NUM);
+      String key = String.valueOf(id);
+      int freq = 2 + random.nextInt(random.nextBoolean() ? 10 : 100);
+      int op = random.nextInt(10);
+      if (op < 4) {
+        if (!iq.contains(id)) {
+          iq.enqueue(id, freq);
+          lq.enqueue(new RepairDigramRecord(key, freq));
+          freqs[id] = freq;
+        }
+      }
+      else if (op < 9) {
+        if (random.nextInt(5) == 0) {
+          freq = 1;
+        }
+        if (iq.contains(id)) {
+          freqs[id] = freq;
+        }
+        iq.update(id, freq);
+        lq.updateDigramFrequency(key, freq);
+      }
+      else {
+        RepairDigramRecord lr = lq.dequeue();
+        int dequeued = iq.dequeue();
+        if (null == lr) {
+          assertEquals("testing dequeue", -1, dequeued);
+        }
+        else {
+          assertEquals("testing dequeue", lr.getFrequency(), freqs[dequeued]);
+          // the queues broke a tie differently, each drops the digram the other one gave
+          int other = Integer.parseInt(lr.getDigram());
+          if (other != dequeued) {
+            iq.update(other, 1);
+            lq.updateDigramFrequency(String.valueOf(dequeued), 1);
+          }
+        }
+      }
+      assertEquals("testing size", lq.size(), iq.size());
+      assertEquals("testing contains", lq.containsDigram(key), iq.contains(id));
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+package net.seninp.gi.repair;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Test the digrams table.
+ *
+ * @author psenin
+ *
+ */
+public class TestRePairDigramTable {
+
+  private static final int SYMBOLS = 50;
+  private static final int OPERATIONS = 100000;
+
+  /**
+   * Test the basic operations.
+   */
+  @Test
+  public void testOccurrences() {
+    RePairDigramTable table = new RePairDigramTable();
+
+    long ab = RePairDigramTable.pack(0, 1);
+    long ba = RePairDigramTable.pack(1, 0);
+    assertFalse("testing the packing", ab == ba);
+
+    RePairSymbolRecord s0 = record(0);
+    RePairSymbolRecord s2 = record(2);
+    RePairSymbolRecord s4 = record(4);
+    int id = table.addOccurrence(ab, s0);
+    assertEquals("testing add", id, table.addOccurrence(ab, s4));
+    assertEquals("testing add", id, table.addOccurrence(ab, s2));
+    table.addOccurrence(ba, record(1));
+
+    assertEquals("testing size", 2, table.size());
+    assertEquals("testing find", id, table.find(ab));
+    assertEquals("testing find", -1, table.find(RePairDigramTable.pack(1, 1)));
+    assertEquals("testing frequency", 3, table.getFrequency(id));
+
+    table.removeOccurrence(id, s4);
+    assertEquals("testing remove", 2, table.getFrequency(id));
+    assertSame("testing the order", s0, table.getFirst(id));
+    assertSame("testing the order", s2, table.getFirst(id).getNextOccurrence());
+    assertNull("testing the order", s2.getNextOccurrence());
+
+    table.removeOccurrence(id, s0);
+    assertSame("testing the head removal", s2, table.getFirst(id));
+    assertNull("testing the head removal", s2.getPreviousOccurrence());
+
+    table.setMark(id, 7);
+    table.remove(id);
+    assertEquals("testing remove", -1, table.find(ab));
+    assertEquals("testing remove", 1, table.size());
+    assertEquals("testing reuse", id, table.addOccurrence(RePairDigramTable.pack(2, 2), s4));
+    assertEquals("testing reuse", 1, table.getFrequency(id));
+    assertSame("testing reuse", s4, table.getFirst(id));
+    assertEquals("testing reuse", 0, table.getMark(id));
+  }
+
+  /**
+   * Test the table against HashMap with many inserts and removals, this exercises collisions,
+   * growth, and the deletion.
+   */
+  @Test
+  public void testAgainstHashMap() {
+    RePairDigramTable table = new RePairDigramTable();
+    HashMap<Long, ArrayList<RePairSymbolRecord>> reference;
+    reference = new HashMap<Long, ArrayList<RePairSymbolRecord>>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < OPERATIONS; i++) {
+      long key = RePairDigramTable.pack(random.nextInt(SYMBOLS), random.nextInt(SYMBOLS));
+      int id = table.find(key);
+      int op = random.nextInt(6);
+      if (op < 4 || id < 0) {
+        RePairSymbolRecord occurrence = record(i);
+        table.addOccurrence(key, occurrence);
+        if (!reference.containsKey(key)) {
+          reference.put(key, new ArrayList<RePairSymbolRecord>());
+        }
+        reference.get(key).add(occurrence);
+      }
+      else if (op < 5) {
+        ArrayList<RePairSymbolRecord> occurrences = reference.get(key);
+        RePairSymbolRecord occurrence = occurrences.remove(random.nextInt(occurrences.size()));
+        table.removeOccurrence(id, occurrence);
+        if (occurrences.isEmpty()) {
+          table.remove(id);
+          reference.remove(key);
+        }
+      }
+      else {
+        table.remove(id);
+        reference.remove(key);
+      }
+    }
+
+    assertEquals("testing size", reference.size(), table.size());
+    for (Long key : reference.keySet()) {
+      int id = table.find(key);
+      assertTrue("testing find", id >= 0);
+      assertEquals("testing key", key.longValue(), table.getKey(id));
+      ArrayList<RePairSymbolRecord> occurrences = reference.get(key);
+      assertEquals("testing frequency", occurrences.size(), table.getFrequency(id));
+      RePairSymbolRecord occurrence = table.getFirst(id);
+      for (RePairSymbolRecord expected : occurrences) {
+        assertSame("testing occurrences", expected, occurrence);
+        occurrence = occurrence.getNextOccurrence();
+      }
+      assertNull("testing occurrences", occurrence);
+    }
+  }
+
+  private static RePairSymbolRecord record(int position) {
+    return new RePairSymbolRecord(new RePairSymbol("a", position));
+  }
+
+}
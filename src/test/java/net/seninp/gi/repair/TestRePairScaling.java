@@ -0,0 +1,87 @@
+package net.seninp.gi.repair;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+import net.seninp.gi.metrics.GIMetrics;
+import net.seninp.gi.metrics.InMemoryMetrics;
+import net.seninp.gi.metrics.PipelineStage;
+
+/**
+ * Checks that RePair stays about linear on a periodic input, where a handful of digrams have a
+ * huge number of occurrences: a scan over the occurrences on each substitution makes the work per
+ * substitution grow with the input length. The work is counted as the occurrences lists nodes
+ * visited on the digram table, the timing is checked by tinker.RePairScalingTester.
+ *
+ * @author psenin
+ *
+ */
+public class TestRePairScaling {
+
+  private static final int SMALL = 5000;
+  private static final int LARGE = 16 * SMALL;
+
+  // each substitution reads its occurrence and moves a few neighbouring digrams, about 7 visits
+  private static final double MAX_VISITS_PER_SUBSTITUTION = 10.0;
+
+  // the visits per substitution must not grow with the input
+  private static final double MAX_GROWTH = 1.1;
+
+  private static final String[] PERIOD = { "abc", "acc", "bcc", "cca", "cba", "bba", "aab",
+      "abb" };
+
+  // the share of tokens replaced by a random word, keeps the grammar from being trivial
+  private static final double NOISE = 0.01;
+
+  @After
+  public void tearDown() {
+    GIMetrics.setListener(null);
+  }
+
+  @Test
+  public void testNearLinear() {
+
+    double small = visitsPerSubstitution(SMALL);
+    double large = visitsPerSubstitution(LARGE);
+
+    assertTrue("asserting bounded visits, " + small + " per substitution",
+        small < MAX_VISITS_PER_SUBSTITUTION);
+    assertTrue("asserting bounded visits, " + large + " per substitution",
+        large < MAX_VISITS_PER_SUBSTITUTION);
+    assertTrue("asserting near linear work, " + small + " vs " + large + " per substitution",
+        large < MAX_GROWTH * small);
+  }
+
+  private static double visitsPerSubstitution(int tokensNum) {
+    InMemoryMetrics metrics = new InMemoryMetrics();
+    GIMetrics.setListener(metrics);
+    NewRepair.parse(periodicString(tokensNum));
+    GIMetrics.setListener(null);
+
+    long substitutions = metrics.getHistogram(PipelineStage.REPAIR, GIMetrics.SUBSTITUTIONS)
+        .getSum();
+    long visits = metrics.getHistogram(PipelineStage.REPAIR, GIMetrics.OCCURRENCE_VISITS).getSum();
+    assertEquals("testing the run", 1,
+        metrics.getHistogram(PipelineStage.REPAIR, GIMetrics.SUBSTITUTIONS).getCount());
+    assertTrue("testing the substitutions", substitutions > tokensNum / 2);
+    return (double) visits / substitutions;
+  }
+
+  private static String periodicString(int tokensNum) {
+    Random random = new Random(42);
+    StringBuilder sb = new StringBuilder(tokensNum * 4);
+    for (int i = 0; i < tokensNum; i++) {
+      if (random.nextDouble() < NOISE) {
+        sb.append(PERIOD[random.nextInt(PERIOD.length)]);
+      }
+      else {
+        sb.append(PERIOD[i % PERIOD.length]);
+      }
+      sb.append(' ');
+    }
+    return sb.toString().trim();
+  }
+
+}
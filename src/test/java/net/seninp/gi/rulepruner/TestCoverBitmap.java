@@ -0,0 +1,70 @@
+package net.seninp.gi.rulepruner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import net.seninp.gi.logic.RuleInterval;
+
+/**
+ * Test the cover bitmap against the cover array.
+ *
+ * @author psenin
+ *
+ */
+public class TestCoverBitmap {
+
+  private static final int LENGTH = 1000;
+
+  @Test
+  public void testSameAsArray() {
+
+    Random random = new Random(42);
+    CoverBitmap cover = new CoverBitmap(LENGTH);
+    boolean[] range = new boolean[LENGTH];
+
+    while (RulePrunerFactory.hasEmptyRanges(range)) {
+
+      int start = random.nextInt(LENGTH);
+      int end = Math.min(LENGTH, start + random.nextInt(150));
+
+      int covered = 0;
+      for (int j = start; j < end; j++) {
+        if (range[j]) {
+          covered++;
+        }
+      }
+      assertEquals("testing the count", covered, cover.countCovered(start, end));
+
+      ArrayList<RuleInterval> intervals = new ArrayList<RuleInterval>();
+      intervals.add(new RuleInterval(start, end));
+      range = RulePrunerFactory.updateRanges(range, intervals);
+      assertEquals("testing the update", end - start - covered, cover.cover(intervals));
+
+      assertTrue("testing the cover", Arrays.equals(range, cover.toArray()));
+      assertEquals("testing the coverage", RulePrunerFactory.computeCover(range),
+          cover.getCoverage(), 0d);
+      assertEquals("testing the uncovered", RulePrunerFactory.hasEmptyRanges(range),
+          cover.hasUncovered());
+    }
+
+    assertFalse("testing the uncovered", cover.hasUncovered());
+  }
+
+  @Test
+  public void testWordBoundaries() {
+    CoverBitmap cover = new CoverBitmap(130);
+    assertEquals("testing empty", 0, cover.cover(5, 5));
+    assertEquals("testing the word", 64, cover.cover(0, 64));
+    assertEquals("testing the word", 2, cover.cover(63, 66));
+    assertEquals("testing the tail", 2, cover.cover(128, 130));
+    assertEquals("testing the count", 66, cover.countCovered(0, 128));
+    assertTrue("testing the point", cover.isCovered(65));
+    assertFalse("testing the point", cover.isCovered(66));
+    assertEquals("testing the uncovered", 130 - 68, cover.getUncoveredCount());
+  }
+
+}
@@ -0,0 +1,56 @@
+package net.seninp.gi.rulepruner;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Test the cover counts against the counts array.
+ *
+ * @author psenin
+ *
+ */
+public class TestCoverCounts {
+
+  private static final int LENGTH = 1000;
+
+  @Test
+  public void testSameAsArray() {
+
+    Random random = new Random(42);
+    CoverCounts counts = new CoverCounts(LENGTH);
+    int[] array = new int[LENGTH];
+
+    for (int k = 0; k < 5000; k++) {
+
+      int start = random.nextInt(LENGTH);
+      int end = Math.min(LENGTH, start + random.nextInt(150));
+
+      int min = Integer.MAX_VALUE;
+      for (int j = start; j < end; j++) {
+        min = Math.min(min, array[j]);
+      }
+      assertEquals("testing the minimum", min, counts.getMin(start, end));
+
+      int value = (min > 0 && random.nextBoolean()) ? -1 : 1;
+      for (int j = start; j < end; j++) {
+        array[j] += value;
+      }
+      counts.add(start, end, value);
+    }
+  }
+
+  @Test
+  public void testOddLength() {
+    CoverCounts counts = new CoverCounts(5);
+    counts.add(0, 5, 1);
+    counts.add(1, 4, 1);
+    assertEquals("testing the minimum", 1, counts.getMin(0, 5));
+    assertEquals("testing the minimum", 2, counts.getMin(1, 4));
+    counts.add(2, 3, -2);
+    assertEquals("testing the minimum", 0, counts.getMin(1, 4));
+    assertEquals("testing the minimum", 1, counts.getMin(4, 5));
+    assertEquals("testing empty", Integer.MAX_VALUE, counts.getMin(3, 3));
+  }
+
+}
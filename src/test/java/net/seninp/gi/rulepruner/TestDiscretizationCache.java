@@ -0,0 +1,87 @@
+package net.seninp.gi.rulepruner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+import net.seninp.jmotif.sax.datastructure.SAXRecords;
+
+/**
+ * Test the discretization cache against the plain discretization.
+ *
+ * @author psenin
+ *
+ */
+public class TestDiscretizationCache {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final double THRESHOLD = 0.01;
+
+  private double[] ts;
+
+  @Before
+  public void initialize() throws Exception {
+    double[] ecg = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    // a flat stretch in the middle exercises the low-variance windows
+    ts = Arrays.copyOf(ecg, ecg.length + 200);
+    System.arraycopy(ecg, 1000, ts, 1200, ecg.length - 1000);
+    Arrays.fill(ts, 1000, 1200, 0.5);
+  }
+
+  @Test
+  public void testSameAsSAXProcessor() throws Exception {
+
+    SAXProcessor sp = new SAXProcessor();
+    NormalAlphabet na = new NormalAlphabet();
+    DiscretizationCache cache = new DiscretizationCache(ts, DiscretizationCache.DEFAULT_BUDGET);
+
+    int[][] windows = { { 30, 4 }, { 100, 7 } };
+    for (int[] w : windows) {
+      for (int a = 2; a < 10; a += 3) {
+        for (NumerosityReductionStrategy nr : NumerosityReductionStrategy.values()) {
+          SAXRecords expected = sp.ts2saxViaWindow(ts, w[0], w[1], na.getCuts(a), nr, THRESHOLD);
+          SAXRecords actual = cache.getSAXRecords(w[0], w[1], a, nr, THRESHOLD);
+          assertEquals("testing the records", expected.getSAXString(" "),
+              actual.getSAXString(" "));
+          assertEquals("testing the records", expected.getAllIndices(), actual.getAllIndices());
+        }
+        assertEquals("testing the distance",
+            sp.approximationDistancePAA(ts, w[0], w[1], THRESHOLD)
+                + sp.approximationDistanceAlphabet(ts, w[0], w[1], a, THRESHOLD),
+            cache.getApproximationDistance(w[0], w[1], a, THRESHOLD), 0d);
+      }
+    }
+
+    assertEquals("testing the misses", 2, cache.getMissesCount());
+    assertTrue("testing the hits", cache.getHitsCount() > 0);
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+
+    // the budget fits a single matrix of 4 columns, and the rows of the windows within the flat
+    // stretch, each kept with its index
+    long budget = (ts.length - 30 + 1) * 4 * 8 + (200 - 30 + 1) * (4 + 4 * 8);
+    DiscretizationCache cache = new DiscretizationCache(ts, budget);
+
+    cache.getSAXRecords(30, 4, 3, NumerosityReductionStrategy.EXACT, THRESHOLD);
+    assertEquals("testing the size", budget, cache.getBytes());
+    cache.getSAXRecords(40, 4, 3, NumerosityReductionStrategy.EXACT, THRESHOLD);
+    assertTrue("testing the budget", cache.getBytes() <= budget);
+    cache.getSAXRecords(40, 4, 5, NumerosityReductionStrategy.EXACT, THRESHOLD);
+    assertEquals("testing the hits", 1, cache.getHitsCount());
+    cache.getSAXRecords(30, 4, 5, NumerosityReductionStrategy.EXACT, THRESHOLD);
+    assertEquals("testing the eviction", 3, cache.getMissesCount());
+
+    // a matrix over the budget is computed but not kept
+    cache.getSAXRecords(30, 8, 5, NumerosityReductionStrategy.EXACT, THRESHOLD);
+    assertTrue("testing the budget", cache.getBytes() <= budget);
+  }
+
+}
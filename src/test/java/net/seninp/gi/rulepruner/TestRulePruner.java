@@ -1,12 +1,20 @@
 package net.seninp.gi.rulepruner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import net.seninp.gi.logic.GrammarRuleRecord;
 import net.seninp.gi.logic.GrammarRules;
 import net.seninp.gi.logic.RuleInterval;
+import net.seninp.gi.repair.RePairFactory;
+import net.seninp.gi.repair.RePairGrammar;
+import net.seninp.gi.sequitur.SequiturFactory;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
 import net.seninp.jmotif.sax.datastructure.SAXRecords;
 
 /**
@@ -17,6 +25,8 @@ import net.seninp.jmotif.sax.datastructure.SAXRecords;
  */
 public class TestRulePruner {
 
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
   private static SAXRecords recs = new SAXRecords();
 
   private static GrammarRules grammar = new GrammarRules();
@@ -103,4 +113,40 @@ public class TestRulePruner {
     assertEquals(new Integer(20), RulePrunerFactory.computeGrammarSize(prunedGrammar, 3));
   }
 
+  @Test
+  public void testLazyGreedy() throws Exception {
+
+    double[] ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    int[][] params = { { 60, 4, 4 }, { 120, 6, 5 }, { 30, 3, 3 } };
+
+    for (int[] p : params) {
+
+      SAXRecords saxData = new SAXProcessor().ts2saxViaWindow(ts, p[0], p[1],
+          new NormalAlphabet().getCuts(p[2]), NumerosityReductionStrategy.EXACT, 0.01);
+
+      GrammarRules sequiturRules = SequiturFactory.series2SequiturRules(ts, p[0], p[1], p[2],
+          NumerosityReductionStrategy.EXACT, 0.01);
+      assertSameCover(ts, sequiturRules);
+
+      RePairGrammar grammar = RePairFactory.buildGrammar(saxData);
+      grammar.expandRules();
+      grammar.buildIntervals(saxData, ts, p[0]);
+      assertSameCover(ts, grammar.toGrammarRulesData());
+    }
+  }
+
+  private static void assertSameCover(double[] ts, GrammarRules rules) {
+
+    RulePruningAlgorithm exhaustive = new RulePruningAlgorithm(rules, ts.length);
+    exhaustive.setLazyGreedy(false);
+    exhaustive.pruneRules();
+
+    RulePruningAlgorithm lazy = new RulePruningAlgorithm(rules, ts.length);
+    lazy.pruneRules();
+
+    assertEquals("testing the cover", exhaustive.getUsedRules(), lazy.getUsedRules());
+    assertTrue("testing the evaluations",
+        lazy.getDeltaEvaluationsCount() <= exhaustive.getDeltaEvaluationsCount());
+  }
+
 }
@@ -0,0 +1,143 @@
+package net.seninp.gi.rulepruner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.gi.GIAlgorithm;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.TSProcessor;
+
+/**
+ * Test the parallel grid sampler.
+ *
+ * @author psenin
+ *
+ */
+public class TestRulePrunerSampler {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final int[] BOUNDARIES = { 40, 121, 40, 3, 8, 2, 3, 6, 2 };
+
+  private static final int MAX_IN_FLIGHT = 3;
+
+  private double[] ts;
+
+  @Before
+  public void initialize() throws Exception {
+    ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+  }
+
+  @Test
+  public void testGrid() {
+    List<int[]> grid = RulePrunerSampler.makeGrid(new int[] { 2, 7, 2, 3, 7, 3, 2, 4, 1 });
+    // windows 2 4 6, PAA 3 6, alphabets 2 3: the window 2 is skipped, PAA 6 fits the window 6
+    assertEquals("testing the grid", 6, grid.size());
+    for (int[] p : grid) {
+      assertTrue("testing the grid", p[1] <= p[0]);
+    }
+  }
+
+  @Test
+  public void testSameAsSerial() throws Exception {
+
+    List<int[]> grid = RulePrunerSampler.makeGrid(BOUNDARIES);
+
+    RulePruner rp = new RulePruner(ts);
+    HashMap<String, SampledPoint> expected = new HashMap<String, SampledPoint>();
+    for (int[] p : grid) {
+      expected.put(key(p[0], p[1], p[2]), rp.sample(p[0], p[1], p[2], GIAlgorithm.SEQUITUR,
+          NumerosityReductionStrategy.EXACT, 0.01));
+    }
+
+    final ArrayList<SampledPoint> streamed = new ArrayList<SampledPoint>();
+    RulePrunerSampler sampler = new RulePrunerSampler(ts, 4);
+    ArrayList<SampledPoint> res;
+    try {
+      res = sampler.sample(grid, GIAlgorithm.SEQUITUR, NumerosityReductionStrategy.EXACT, 0.01,
+          new Consumer<SampledPoint>() {
+            @Override
+            public void accept(SampledPoint p) {
+              streamed.add(p);
+            }
+          });
+    }
+    finally {
+      sampler.shutdown();
+    }
+
+    assertEquals("testing the points", grid.size(), res.size());
+    assertEquals("testing the stream", res, streamed);
+    for (SampledPoint p : res) {
+      String k = key(p.getWindow(), p.getPAA(), p.getAlphabet());
+      assertEquals("testing the point " + k, expected.get(k), p);
+    }
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+
+    List<int[]> grid = RulePrunerSampler.makeGrid(BOUNDARIES);
+
+    RulePrunerSampler sampler = new RulePrunerSampler(ts, 2);
+    sampler.setTimeout(1, TimeUnit.NANOSECONDS);
+    try {
+      ArrayList<SampledPoint> res = sampler.sample(grid, GIAlgorithm.REPAIR,
+          NumerosityReductionStrategy.EXACT, 0.01, null);
+      assertTrue("testing the timeout", sampler.getTimedOutCount() > 0);
+      assertEquals("testing the timeout", grid.size(),
+          res.size() + sampler.getTimedOutCount() + sampler.getFailedCount());
+    }
+    finally {
+      sampler.shutdown();
+    }
+  }
+
+  /**
+   * On the caller's executor at most maxInFlight points are submitted at a time, and the sampler
+   * runs a few grids in a row with the same watchdog.
+   */
+  @Test
+  public void testBoundedInFlight() throws Exception {
+
+    List<int[]> grid = RulePrunerSampler.makeGrid(BOUNDARIES);
+
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>());
+    final int[] maxQueued = new int[1];
+    RulePrunerSampler sampler = new RulePrunerSampler(ts, executor, MAX_IN_FLIGHT);
+    sampler.setTimeout(1, TimeUnit.HOURS);
+    try {
+      for (int i = 0; i < 2; i++) {
+        ArrayList<SampledPoint> res = sampler.sample(grid, GIAlgorithm.SEQUITUR,
+            NumerosityReductionStrategy.EXACT, 0.01, new Consumer<SampledPoint>() {
+              @Override
+              public void accept(SampledPoint p) {
+                maxQueued[0] = Math.max(maxQueued[0], executor.getQueue().size());
+              }
+            });
+        assertEquals("testing the points", grid.size(), res.size());
+        assertEquals("testing the timeout", 0, sampler.getTimedOutCount());
+      }
+    }
+    finally {
+      sampler.shutdown();
+      executor.shutdown();
+    }
+
+    assertTrue("testing the bound", maxQueued[0] < MAX_IN_FLIGHT);
+  }
+
+  private static String key(int window, int paa, int alphabet) {
+    return window + "," + paa + "," + alphabet;
+  }
+
+}
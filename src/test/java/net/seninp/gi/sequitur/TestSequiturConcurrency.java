@@ -0,0 +1,79 @@
+package net.seninp.gi.sequitur;
+
+import static net.seninp.gi.logic.GrammarRulesUtil.asString;
+import static org.junit.Assert.assertEquals;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+
+/**
+ * Checks that grammars built concurrently are the same as those built one by one.
+ *
+ * @author psenin
+ *
+ */
+public class TestSequiturConcurrency {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final int[] WINDOWS = { 30, 60, 90, 120 };
+  private static final int[] PAAS = { 3, 4, 5 };
+  private static final int ALPHABET_SIZE = 4;
+
+  private static final int THREADS_NUM = 4;
+
+  private List<String> inputs;
+
+  @Before
+  public void initialize() throws Exception {
+    double[] ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    SAXProcessor sp = new SAXProcessor();
+    NormalAlphabet na = new NormalAlphabet();
+    inputs = new ArrayList<String>();
+    for (int w : WINDOWS) {
+      for (int p : PAAS) {
+        inputs.add(sp.ts2saxViaWindow(ts, w, p, na.getCuts(ALPHABET_SIZE),
+            NumerosityReductionStrategy.EXACT, 0.01).getSAXString(" "));
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentGrammars() throws Exception {
+
+    List<String> expected = new ArrayList<String>();
+    for (String str : inputs) {
+      expected.add(asString(SequiturFactory.runSequitur(str).toGrammarRulesData()));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS_NUM);
+    try {
+      List<Future<String>> results = new ArrayList<Future<String>>();
+      for (final String str : inputs) {
+        results.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            return asString(SequiturFactory.runSequitur(str).toGrammarRulesData());
+          }
+        }));
+      }
+      for (int i = 0; i < inputs.size(); i++) {
+        assertEquals("testing concurrent grammars", expected.get(i), results.get(i).get());
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import java.util.ArrayList;
 import org.junit.Test;
+import net.seninp.gi.logic.GrammarRuleRecord;
 import net.seninp.gi.logic.GrammarRules;
 import net.seninp.gi.logic.RuleInterval;
 import net.seninp.gi.repair.RePairFactory;
@@ -27,12 +28,38 @@ public class TestSequiturPaperGrammars {
   private static final String TEST3_R0 = "R1 R2 R3 R4 R4 f";
   private static final String TEST3_R4 = "R3 e";
 
+  /**
+   * A chain of rules, each referring to the next one, is expanded without a deep recursion.
+   */
+  @Test
+  public void testDeepExpansion() {
+    int depth = 5000;
+    ArrayList<GrammarRuleRecord> records = new ArrayList<GrammarRuleRecord>();
+    for (int i = 0; i < depth; i++) {
+      GrammarRuleRecord record = new GrammarRuleRecord();
+      record.setRuleNumber(i);
+      record.setRuleString("a R" + (i + 1) + " ");
+      records.add(record);
+    }
+    GrammarRuleRecord last = new GrammarRuleRecord();
+    last.setRuleNumber(depth);
+    last.setRuleString("b c ");
+    records.add(last);
+
+    SAXRule.expandRules(records);
+
+    assertEquals("test yield", depth + 1, records.get(1).getRuleYield());
+    assertEquals("test expansion", "a a b c ", records.get(depth - 2).getExpandedRuleString());
+    assertEquals("test r0", 2 * depth + 3, records.get(0).getExpandedRuleString().length());
+    assertTrue("test r0", records.get(0).getExpandedRuleString().endsWith("a a b c"));
+  }
+
   @Test
   public void test3() {
     try {
       SAXRule r = SequiturFactory.runSequitur(TEST3_STRING);
       GrammarRules rules = r.toGrammarRulesData();
-      System.out.println(SAXRule.printRules() + "\n ---- \n");
+      System.out.println(SAXRule.printRules(r.getContext()) + "\n ---- \n");
 
       RePairGrammar rr = RePairFactory.buildGrammar(TEST3_STRING);
       System.out.println(rr.toGrammarRules());
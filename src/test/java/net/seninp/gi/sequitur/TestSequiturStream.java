@@ -0,0 +1,143 @@
+package net.seninp.gi.sequitur;
+
+import static net.seninp.gi.logic.GrammarRulesUtil.asString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import net.seninp.gi.logic.GrammarRules;
+import net.seninp.gi.logic.SymbolTable;
+import net.seninp.jmotif.sax.NumerosityReductionStrategy;
+import net.seninp.jmotif.sax.SAXProcessor;
+import net.seninp.jmotif.sax.TSProcessor;
+import net.seninp.jmotif.sax.alphabet.NormalAlphabet;
+
+/**
+ * Test the incremental Sequitur API.
+ *
+ * @author psenin
+ *
+ */
+public class TestSequiturStream {
+
+  private static final String TEST_DATASET_NAME = "src/resources/test-data/ecg0606.txt";
+
+  private static final String TEST_STRING = "a b a b c a b c d a b c d e a b c d e f";
+
+  private String[] tokens;
+
+  @Before
+  public void initialize() throws Exception {
+    double[] ts = TSProcessor.readFileColumn(TEST_DATASET_NAME, 0, 0);
+    String str = new SAXProcessor().ts2saxViaWindow(ts, 60, 4, new NormalAlphabet().getCuts(4),
+        NumerosityReductionStrategy.EXACT, 0.01).getSAXString(" ");
+    tokens = str.split(" ");
+  }
+
+  @Test
+  public void testSameAsBatch() throws Exception {
+
+    String expected = asString(
+        SequiturFactory.runSequitur(String.join(" ", tokens)).toGrammarRulesData());
+
+    SequiturStream stream = new SequiturStream();
+    for (int i = 0; i < tokens.length; i++) {
+      stream.append(tokens[i]);
+      // the snapshot in the middle must not interfere with the grammar
+      if (i == tokens.length / 2) {
+        GrammarRules half = stream.snapshot();
+        String halfExpected = asString(SequiturFactory
+            .runSequitur(String.join(" ", Arrays.copyOf(tokens, i + 1)))
+            .toGrammarRulesData());
+        assertEquals("testing the snapshot", halfExpected, asString(half));
+      }
+    }
+
+    assertEquals("testing the size", tokens.length, stream.size());
+    assertEquals("testing the grammar", expected, asString(stream.snapshot()));
+  }
+
+  @Test
+  public void testSymbolIds() throws Exception {
+
+    String[] words = TEST_STRING.split(" ");
+
+    SequiturStream stream = new SequiturStream();
+    StringBuilder sb = new StringBuilder();
+    for (String w : words) {
+      int id = w.charAt(0) - 'a';
+      stream.append(id);
+      sb.append(id).append(' ');
+    }
+
+    GrammarRules rules = stream.snapshot();
+    assertEquals("testing hierarchy", 5, rules.size());
+    assertEquals("testing the grammar", "R1 R2 R3 R4 R4 5",
+        rules.get(0).getRuleString().trim());
+    assertEquals("testing the grammar",
+        asString(SequiturFactory.runSequitur(sb.toString().trim()).toGrammarRulesData()),
+        asString(rules));
+  }
+
+  /**
+   * The terminals given as strings are interned by the grammar they are inserted into.
+   */
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testStringTerminals() throws Exception {
+
+    SAXRule grammar = new SAXRule();
+    String[] words = TEST_STRING.split(" ");
+    for (int i = 0; i < words.length; i++) {
+      grammar.last().insertAfter(new SAXTerminal(words[i], i));
+      grammar.last().p.check();
+    }
+
+    assertEquals("testing the symbols", words[0],
+        grammar.getContext().getSymbols().getSymbol(0));
+    assertEquals("testing the grammar",
+        asString(SequiturFactory.runSequitur(TEST_STRING).toGrammarRulesData()),
+        asString(grammar.toGrammarRulesData()));
+  }
+
+  @Test
+  public void testSharedSymbols() throws Exception {
+
+    SymbolTable symbols = new SymbolTable();
+    SequiturStream first = new SequiturStream(symbols);
+    SequiturStream second = new SequiturStream(symbols);
+    for (int i = 0; i < tokens.length; i++) {
+      first.append(tokens[i]);
+      second.append(tokens[tokens.length - 1 - i]);
+    }
+
+    // the terminals are interned once, in the order of their first appearance
+    assertEquals("testing the symbols", tokens[0], symbols.getSymbol(0));
+    assertEquals("testing the symbols", symbols.size(),
+        new HashSet<String>(Arrays.asList(tokens)).size());
+    assertEquals("testing the grammar",
+        asString(SequiturFactory.runSequitur(String.join(" ", tokens)).toGrammarRulesData()),
+        asString(first.snapshot()));
+  }
+
+  @Test
+  public void testDigramsCollisionRate() throws Exception {
+
+    // permutations of the same characters used to collide with the former digram hash
+    String[] words = { "abc", "acb", "bac", "bca", "cab", "cba", "R12", "R21" };
+    Random random = new Random(42);
+
+    SequiturStream stream = new SequiturStream();
+    for (int i = 0; i < 100000; i++) {
+      stream.append(words[random.nextInt(words.length)] + random.nextInt(100));
+    }
+
+    SequiturContext context = stream.getGrammar().getContext();
+    assertTrue("testing the digrams", context.getDigramsCount() > 1000);
+    assertTrue("testing the collision rate", context.getDigramsCollisionRate() < 1.0);
+  }
+
+}